@@ -2,8 +2,12 @@ package se.phooey.raining;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+import se.phooey.raining.weather.CoordinatePrecisionConfiguration;
 
 @SpringBootApplication
+@Import(CoordinatePrecisionConfiguration.class)
 public class IsItRainingApplication {
 
 	public static void main(String[] args) {
@@ -1,20 +1,78 @@
 package se.phooey.raining;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.filter.CommonsRequestLoggingFilter;
+
+import se.phooey.raining.places.Gazetteer;
+import se.phooey.raining.places.IpLocationTable;
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.cache.CachingWeatherProvider;
+import se.phooey.raining.web.admission.RequestClassifier;
+import se.phooey.raining.web.accesslog.AccessLogFilter;
+import se.phooey.raining.web.accesslog.AccessLogRingBuffer;
+import se.phooey.raining.web.accesslog.AccessLogSampler;
+import se.phooey.raining.web.accesslog.AccessLogWriter;
 
 @Configuration
 public class IsItRainingApplicationConfiguration {
+	@Value("${isitraining.accesslog.sample-rate.success:0.01}")
+	private double successSampleRate;
+	@Value("${isitraining.accesslog.sample-rate.client-error:1.0}")
+	private double clientErrorSampleRate;
+	@Value("${isitraining.accesslog.sample-rate.server-error:1.0}")
+	private double serverErrorSampleRate;
+	@Value("${isitraining.accesslog.buffer-capacity:8192}")
+	private int accessLogBufferCapacity;
+	@Value("${isitraining.accesslog.batch-size:256}")
+	private int accessLogBatchSize;
+	@Value("${isitraining.gazetteer.file:}")
+	private String gazetteerFile;
+	@Value("${isitraining.iplocation.file:}")
+	private String ipLocationFile;
+
+	@Bean
+	public AccessLogRingBuffer accessLogRingBuffer() {
+		return new AccessLogRingBuffer(accessLogBufferCapacity);
+	}
+
+	@Bean(initMethod = "start", destroyMethod = "close")
+	public AccessLogWriter accessLogWriter(AccessLogRingBuffer accessLogRingBuffer) {
+		return new AccessLogWriter(accessLogRingBuffer, accessLogBatchSize, 100);
+	}
+
+	@Bean
+	public AccessLogFilter accessLogFilter(AccessLogRingBuffer accessLogRingBuffer) {
+		return new AccessLogFilter(accessLogRingBuffer,
+				new AccessLogSampler(successSampleRate, clientErrorSampleRate, serverErrorSampleRate));
+	}
+
+	/**
+	 * Without a gazetteer file no place names are resolved
+	 */
+	@Bean
+	public Gazetteer gazetteer() throws IOException {
+		return gazetteerFile.isEmpty() ? Gazetteer.empty() : Gazetteer.load(Paths.get(gazetteerFile));
+	}
+
+	/**
+	 * Without an IP location file no client addresses are located
+	 */
+	@Bean
+	public IpLocationTable ipLocationTable() throws IOException {
+		return ipLocationFile.isEmpty() ? IpLocationTable.empty() : IpLocationTable.open(Paths.get(ipLocationFile));
+	}
 
+	/**
+	 * Shared by the filters shedding and rate limiting requests by whether they
+	 * need an upstream call
+	 */
 	@Bean
-	public CommonsRequestLoggingFilter logFilter() {
-		CommonsRequestLoggingFilter filter = new CommonsRequestLoggingFilter();
-		filter.setIncludeClientInfo(true);
-		filter.setIncludeQueryString(true);
-		filter.setIncludePayload(true);
-		filter.setMaxPayloadLength(10000);
-		filter.setIncludeHeaders(false);
-		return filter;
+	public RequestClassifier requestClassifier(CachingWeatherProvider cachingWeatherProvider,
+			CoordinatePrecision coordinatePrecision) {
+		return new RequestClassifier(cachingWeatherProvider, coordinatePrecision);
 	}
-}
\ No newline at end of file
+}
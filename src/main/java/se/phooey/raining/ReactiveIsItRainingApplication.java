@@ -0,0 +1,34 @@
+package se.phooey.raining;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import se.phooey.raining.weather.CoordinatePrecisionConfiguration;
+import se.phooey.raining.weather.WeatherProviderConfiguration;
+import se.phooey.raining.weather.gridded.GriddedForecastConfiguration;
+import se.phooey.raining.web.reactive.ReactiveConfiguration;
+
+/**
+ * Starts the reactive serving mode: "/isitraining" served by Netty, with the
+ * reports requested from Dark Sky without blocking. Only the rain report API
+ * is served, with the same caches, history and API keys as the
+ * {@link IsItRainingApplication}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@EnableAutoConfiguration
+@Import({ CoordinatePrecisionConfiguration.class, WeatherProviderConfiguration.class,
+		GriddedForecastConfiguration.class, ReactiveConfiguration.class })
+public class ReactiveIsItRainingApplication {
+
+	public static void main(String[] args) {
+		new SpringApplicationBuilder(ReactiveIsItRainingApplication.class).web(WebApplicationType.REACTIVE)
+				.run(args);
+	}
+
+}
@@ -0,0 +1,411 @@
+package se.phooey.raining.places;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of place names, read from a GeoNames style gazetteer file,
+ * resolving names to {@link Place}s by exact, prefix and fuzzy matching.<br>
+ * <br>
+ * The names are normalized to lower case without diacritics and kept as one
+ * sorted array of UTF-8 keys, with the coordinates, populations and display
+ * names of the places in primitive arrays. A prefix lookup is a binary search
+ * in the sorted keys. A fuzzy lookup walks the sorted keys as an implicit trie,
+ * computing the edit distance to the query once per shared prefix and skipping
+ * every key below a prefix that is already too distant, so only a small part
+ * of the keys is visited.<br>
+ * <br>
+ * Matches are ranked exact matches first, then prefix matches, then fuzzy
+ * matches by edit distance, and by population within each rank.
+ */
+public class Gazetteer {
+
+	private static final int NAME = 1;
+	private static final int ASCII_NAME = 2;
+	private static final int ALTERNATE_NAMES = 3;
+	private static final int LATITUDE = 4;
+	private static final int LONGITUDE = 5;
+	private static final int COUNTRY_CODE = 8;
+	private static final int POPULATION = 14;
+	private static final int MINIMUM_FIELDS = POPULATION + 1;
+
+	private static final int MAXIMUM_PREFIX_KEYS = 4096;
+	private static final int MINIMUM_FUZZY_LENGTH = 3;
+	private static final int LONG_QUERY_LENGTH = 5;
+	private static final int EXACT = 0;
+	private static final int PREFIX = 1;
+	private static final int FUZZY = 2;
+	private static final int RANK_FACTOR = 16;
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private final float[] latitudes;
+	private final float[] longitudes;
+	private final int[] populations;
+	private final char[] countryCodes;
+	private final byte[] names;
+	private final int[] nameOffsets;
+	private final byte[] keys;
+	private final int[] keyOffsets;
+	private final int[] keyPlaces;
+	private final int maximumKeyLength;
+
+	private static final class Key {
+		private final byte[] bytes;
+		private final int place;
+
+		private Key(byte[] bytes, int place) {
+			this.bytes = bytes;
+			this.place = place;
+		}
+	}
+
+	private Gazetteer(List<String[]> places, List<Key> sortedKeys) {
+		latitudes = new float[places.size()];
+		longitudes = new float[places.size()];
+		populations = new int[places.size()];
+		countryCodes = new char[2 * places.size()];
+		nameOffsets = new int[places.size() + 1];
+		List<byte[]> encodedNames = new ArrayList<>(places.size());
+		for (int i = 0; i < places.size(); i++) {
+			String[] fields = places.get(i);
+			latitudes[i] = Float.parseFloat(fields[LATITUDE]);
+			longitudes[i] = Float.parseFloat(fields[LONGITUDE]);
+			populations[i] = (int) Math.min(Integer.MAX_VALUE, Long.parseLong(fields[POPULATION]));
+			String countryCode = (fields[COUNTRY_CODE] + "  ").substring(0, 2);
+			countryCodes[2 * i] = countryCode.charAt(0);
+			countryCodes[2 * i + 1] = countryCode.charAt(1);
+			encodedNames.add(fields[NAME].getBytes(StandardCharsets.UTF_8));
+			nameOffsets[i + 1] = nameOffsets[i] + encodedNames.get(i).length;
+		}
+		names = new byte[nameOffsets[places.size()]];
+		for (int i = 0; i < places.size(); i++) {
+			System.arraycopy(encodedNames.get(i), 0, names, nameOffsets[i], encodedNames.get(i).length);
+		}
+		keyOffsets = new int[sortedKeys.size() + 1];
+		keyPlaces = new int[sortedKeys.size()];
+		int longest = 0;
+		for (int i = 0; i < sortedKeys.size(); i++) {
+			keyOffsets[i + 1] = keyOffsets[i] + sortedKeys.get(i).bytes.length;
+			keyPlaces[i] = sortedKeys.get(i).place;
+			longest = Math.max(longest, sortedKeys.get(i).bytes.length);
+		}
+		maximumKeyLength = longest;
+		keys = new byte[keyOffsets[sortedKeys.size()]];
+		for (int i = 0; i < sortedKeys.size(); i++) {
+			System.arraycopy(sortedKeys.get(i).bytes, 0, keys, keyOffsets[i], sortedKeys.get(i).bytes.length);
+		}
+	}
+
+	/**
+	 * @param name a place name
+	 * @return the name in lower case, without diacritics, and with each run of
+	 *         other characters than letters and digits replaced by a space
+	 */
+	static String normalize(String name) {
+		String decomposed = MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+		return SEPARATORS.matcher(decomposed.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+	}
+
+	private static boolean isValid(String[] fields) {
+		if (fields.length < MINIMUM_FIELDS || fields[NAME].isEmpty()) {
+			return false;
+		}
+		try {
+			Float.parseFloat(fields[LATITUDE]);
+			Float.parseFloat(fields[LONGITUDE]);
+			Long.parseLong(fields[POPULATION]);
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads a gazetteer in the tab separated format of the GeoNames dumps, e.g.
+	 * cities500.txt. The name, the ASCII name, and the comma separated alternate
+	 * names of each place are indexed. Lines that are not valid places are
+	 * skipped.
+	 * 
+	 * @param reader the reader to read the gazetteer from
+	 * @return the gazetteer
+	 * @throws IOException If the gazetteer could not be read
+	 */
+	public static Gazetteer read(BufferedReader reader) throws IOException {
+		List<String[]> places = new ArrayList<>();
+		List<Key> keys = new ArrayList<>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] fields = line.split("\t", -1);
+			if (!isValid(fields)) {
+				continue;
+			}
+			Set<String> placeKeys = new LinkedHashSet<>();
+			placeKeys.add(normalize(fields[NAME]));
+			placeKeys.add(normalize(fields[ASCII_NAME]));
+			for (String alternateName : fields[ALTERNATE_NAMES].split(",")) {
+				placeKeys.add(normalize(alternateName));
+			}
+			placeKeys.remove("");
+			for (String key : placeKeys) {
+				keys.add(new Key(key.getBytes(StandardCharsets.UTF_8), places.size()));
+			}
+			places.add(fields);
+		}
+		keys.sort((a, b) -> Arrays.compareUnsigned(a.bytes, b.bytes));
+		return new Gazetteer(places, keys);
+	}
+
+	/**
+	 * Reads a gazetteer file, see {@link #read(BufferedReader)}
+	 * 
+	 * @param file the UTF-8 encoded gazetteer file
+	 * @return the gazetteer
+	 * @throws IOException If the file could not be read
+	 */
+	public static Gazetteer load(Path file) throws IOException {
+		Gazetteer gazetteer;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			gazetteer = read(reader);
+		}
+		LoggerFactory.getLogger(Gazetteer.class).info("Loaded {} names of {} places from {} into {} bytes",
+				gazetteer.getNameCount(), gazetteer.getPlaceCount(), file, gazetteer.getIndexBytes());
+		return gazetteer;
+	}
+
+	/**
+	 * @return a gazetteer without any places
+	 */
+	public static Gazetteer empty() {
+		return new Gazetteer(Collections.emptyList(), Collections.emptyList());
+	}
+
+	private int keyLength(int key) {
+		return keyOffsets[key + 1] - keyOffsets[key];
+	}
+
+	private byte keyByte(int key, int index) {
+		return keys[keyOffsets[key] + index];
+	}
+
+	private int compareKey(int key, byte[] query) {
+		return Arrays.compareUnsigned(keys, keyOffsets[key], keyOffsets[key + 1], query, 0, query.length);
+	}
+
+	private boolean startsWith(int key, byte[] prefix) {
+		return keyLength(key) >= prefix.length
+				&& Arrays.equals(keys, keyOffsets[key], keyOffsets[key] + prefix.length, prefix, 0, prefix.length);
+	}
+
+	private boolean sharesPrefix(int key, int other, int length) {
+		return keyLength(key) >= length && Arrays.equals(keys, keyOffsets[key], keyOffsets[key] + length, keys,
+				keyOffsets[other], keyOffsets[other] + length);
+	}
+
+	private int commonPrefixLength(int key, int other, int maximum) {
+		int length = Math.min(maximum, Math.min(keyLength(key), keyLength(other)));
+		int common = 0;
+		while (common < length && keyByte(key, common) == keyByte(other, common)) {
+			common++;
+		}
+		return common;
+	}
+
+	/**
+	 * @return the index of the first key not less than the query
+	 */
+	private int lowerBound(byte[] query) {
+		int low = 0;
+		int high = keyPlaces.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareKey(middle, query) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Gallops before searching binary, since most prefixes are shared by only a
+	 * few keys
+	 * 
+	 * @return the index of the first key after a key not sharing its first bytes
+	 */
+	private int prefixEnd(int key, int length) {
+		int low = key + 1;
+		int step = 1;
+		while (low < keyPlaces.length && sharesPrefix(low, key, length)) {
+			low = key + 1 + step;
+			step <<= 1;
+		}
+		int high = Math.min(low, keyPlaces.length);
+		low = key + 1 + (step >> 2);
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sharesPrefix(middle, key, length)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static void offer(Map<Integer, Integer> matches, int place, int rank, int distance) {
+		matches.merge(place, rank * RANK_FACTOR + distance, Math::min);
+	}
+
+	/**
+	 * Walks the sorted keys starting with the first byte of the query as a trie,
+	 * keeping one row of the edit distance matrix per byte of the current key, so
+	 * the rows of a prefix shared with the previous key are reused. Only the band
+	 * of each row within the maximum distance of the diagonal is computed, the
+	 * cells next to the band are set to just beyond the maximum distance.
+	 * Transpositions count as one edit.
+	 */
+	private void fuzzy(byte[] query, int maximumDistance, Map<Integer, Integer> matches) {
+		int columns = query.length + 1;
+		int beyond = maximumDistance + 1;
+		int[][] rows = new int[maximumKeyLength + 1][columns];
+		for (int column = 0; column < columns; column++) {
+			rows[0][column] = Math.min(column, beyond);
+		}
+		int key = lowerBound(Arrays.copyOf(query, 1));
+		int end = key < keyPlaces.length && keyByte(key, 0) == query[0] ? prefixEnd(key, 1) : key;
+		int previous = key;
+		int computed = 0;
+		while (key < end) {
+			int length = keyLength(key);
+			int depth = commonPrefixLength(key, previous, computed);
+			boolean tooDistant = false;
+			while (depth < length && !tooDistant) {
+				byte current = keyByte(key, depth);
+				int[] above = rows[depth];
+				int[] row = rows[depth + 1];
+				int first = Math.max(1, depth + 1 - maximumDistance);
+				int last = Math.min(query.length, depth + 1 + maximumDistance);
+				row[0] = depth + 1;
+				row[first - 1] = first == 1 ? depth + 1 : beyond;
+				if (last < query.length) {
+					row[last + 1] = beyond;
+				}
+				int minimum = beyond;
+				for (int column = first; column <= last; column++) {
+					int distance = Math.min(Math.min(row[column - 1], above[column]) + 1,
+							above[column - 1] + (query[column - 1] == current ? 0 : 1));
+					if (depth > 0 && column > 1 && query[column - 1] == keyByte(key, depth - 1)
+							&& query[column - 2] == current) {
+						distance = Math.min(distance, rows[depth - 1][column - 2] + 1);
+					}
+					row[column] = distance;
+					minimum = Math.min(minimum, distance);
+				}
+				depth++;
+				tooDistant = minimum > maximumDistance;
+			}
+			previous = key;
+			computed = depth;
+			if (tooDistant) {
+				key = prefixEnd(key, depth);
+				continue;
+			}
+			if (Math.abs(length - query.length) <= maximumDistance && rows[length][query.length] <= maximumDistance) {
+				offer(matches, keyPlaces[key], FUZZY, rows[length][query.length]);
+			}
+			key++;
+		}
+	}
+
+	private Place place(int place) {
+		return new Place(new String(names, nameOffsets[place], nameOffsets[place + 1] - nameOffsets[place],
+				StandardCharsets.UTF_8), new String(countryCodes, 2 * place, 2).trim(), latitudes[place],
+				longitudes[place], populations[place]);
+	}
+
+	/**
+	 * Searches for the places best matching a name. If there are not enough exact
+	 * and prefix matches, misspelled names of at least three characters are
+	 * matched within one edit, or two edits from five characters on. Names within
+	 * one edit are searched for first, since the smaller distance prunes far more
+	 * keys. Like most fuzzy search engines, the first character is not expected
+	 * to be misspelled, which keeps the number of names to compare small.
+	 * 
+	 * @param name  the name to search for
+	 * @param limit the maximum number of places to return
+	 * @return the best matching places, best match first
+	 */
+	public List<Place> search(String name, int limit) {
+		byte[] query = normalize(name).getBytes(StandardCharsets.UTF_8);
+		if (query.length == 0 || limit < 1) {
+			return Collections.emptyList();
+		}
+		Map<Integer, Integer> matches = new HashMap<>();
+		int first = lowerBound(query);
+		for (int key = first; key < keyPlaces.length && key - first < MAXIMUM_PREFIX_KEYS
+				&& startsWith(key, query); key++) {
+			offer(matches, keyPlaces[key], keyLength(key) == query.length ? EXACT : PREFIX, 0);
+		}
+		int maximumDistance = query.length < MINIMUM_FUZZY_LENGTH ? 0 : query.length < LONG_QUERY_LENGTH ? 1 : 2;
+		for (int distance = 1; distance <= maximumDistance && matches.size() < limit; distance++) {
+			fuzzy(query, distance, matches);
+		}
+		return matches.entrySet().stream()
+				.sorted(Comparator.<Map.Entry<Integer, Integer>>comparingInt(Map.Entry::getValue)
+						.thenComparingInt(match -> -populations[match.getKey()]))
+				.limit(limit).map(match -> place(match.getKey())).collect(Collectors.toList());
+	}
+
+	/**
+	 * @param name the name to search for
+	 * @return the place best matching the name, or null if no place matches
+	 */
+	public Place resolve(String name) {
+		List<Place> places = search(name, 1);
+		return places.isEmpty() ? null : places.get(0);
+	}
+
+	/**
+	 * @return the number of places
+	 */
+	public int getPlaceCount() {
+		return latitudes.length;
+	}
+
+	/**
+	 * @return the number of indexed names
+	 */
+	public int getNameCount() {
+		return keyPlaces.length;
+	}
+
+	/**
+	 * @return the number of bytes used by the arrays of the index
+	 */
+	public long getIndexBytes() {
+		return Float.BYTES * (latitudes.length + longitudes.length)
+				+ (long) Integer.BYTES * (populations.length + nameOffsets.length + keyOffsets.length + keyPlaces.length)
+				+ Character.BYTES * countryCodes.length + names.length + keys.length;
+	}
+}
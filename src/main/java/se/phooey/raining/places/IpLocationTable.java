@@ -0,0 +1,210 @@
+package se.phooey.raining.places;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only table of IP address ranges and their approximate coordinates,
+ * memory-mapped from a file and searched binary.<br>
+ * <br>
+ * Addresses are 128 bits, IPv4 addresses are mapped into ::ffff:0:0/96. The
+ * file is big-endian and starts with a header of 16 bytes: int magic, "IPRT"
+ * (0x49505254), int version, 1, int the number of ranges, and int reserved, 0.
+ * It is followed by the ranges, sorted by their first address and not
+ * overlapping, of 40 bytes each: the first address and the last address of the
+ * range as two longs each, the high bits first, then the latitude and longitude
+ * as floats.<br>
+ * <br>
+ * Searching the table does not allocate, neither does parsing an IPv4
+ * address.
+ * 
+ * @see IpLocationTableWriter
+ */
+public final class IpLocationTable {
+
+	static final int MAGIC = 0x49505254;
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 16;
+	static final int RANGE_BYTES = 40;
+	static final long IPV4_MAPPED = 0xffff00000000L;
+
+	private static final int LATITUDE = 32;
+	private static final int LONGITUDE = 36;
+	private static final int OCTETS = 4;
+	private static final int MAXIMUM_OCTET = 255;
+
+	private final ByteBuffer buffer;
+	private final int size;
+
+	private IpLocationTable(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.size = buffer.getInt(8);
+	}
+
+	private static ByteBuffer validate(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an IP location table");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported IP location table version " + buffer.getInt(4));
+		}
+		int size = buffer.getInt(8);
+		if (size < 0 || buffer.capacity() != HEADER_BYTES + (long) size * RANGE_BYTES) {
+			throw new IOException(String.format("IP location table has %d bytes, expected %d ranges",
+					buffer.capacity(), size));
+		}
+		return buffer;
+	}
+
+	/**
+	 * Maps an IP location table file into memory
+	 * 
+	 * @param file the file to map
+	 * @return the mapped table
+	 * @throws IOException If the file could not be read or is not a valid IP
+	 *                     location table
+	 */
+	public static IpLocationTable open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("IP location table is too large to map: " + file);
+			}
+			return new IpLocationTable(validate(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+		}
+	}
+
+	/**
+	 * @return a table without any ranges
+	 */
+	public static IpLocationTable empty() {
+		return new IpLocationTable(ByteBuffer.allocate(HEADER_BYTES).putInt(0, MAGIC).putInt(4, VERSION));
+	}
+
+	/**
+	 * @return the value of a dotted-quad IPv4 address, or -1 if the String is not
+	 *         one
+	 */
+	static long parseIpv4(String address) {
+		long value = 0;
+		int octets = 0;
+		int octet = -1;
+		for (int i = 0; i < address.length(); i++) {
+			char c = address.charAt(i);
+			if (c >= '0' && c <= '9') {
+				octet = (octet < 0 ? 0 : octet * 10) + c - '0';
+				if (octet > MAXIMUM_OCTET) {
+					return -1;
+				}
+			} else if (c == '.' && octet >= 0 && octets < OCTETS - 1) {
+				value = value << 8 | octet;
+				octets++;
+				octet = -1;
+			} else {
+				return -1;
+			}
+		}
+		return octet < 0 || octets != OCTETS - 1 ? -1 : value << 8 | octet;
+	}
+
+	/**
+	 * @param address the 4 or 16 bytes of an IP address
+	 * @return the high 64 bits of the address as a 128 bit address
+	 */
+	static long high(byte[] address) {
+		return address.length == OCTETS ? 0 : ByteBuffer.wrap(address).getLong(0);
+	}
+
+	/**
+	 * @param address the 4 or 16 bytes of an IP address
+	 * @return the low 64 bits of the address as a 128 bit address
+	 */
+	static long low(byte[] address) {
+		return address.length == OCTETS ? IPV4_MAPPED | Integer.toUnsignedLong(ByteBuffer.wrap(address).getInt(0))
+				: ByteBuffer.wrap(address).getLong(8);
+	}
+
+	private static int compare(long high, long low, long otherHigh, long otherLow) {
+		int result = Long.compareUnsigned(high, otherHigh);
+		return result != 0 ? result : Long.compareUnsigned(low, otherLow);
+	}
+
+	private int offset(int range) {
+		return HEADER_BYTES + range * RANGE_BYTES;
+	}
+
+	/**
+	 * @param high the high 64 bits of the 128 bit address
+	 * @param low  the low 64 bits of the 128 bit address
+	 * @return the index of the range containing the address, or -1 if there is
+	 *         none
+	 */
+	public int find(long high, long low) {
+		int first = 0;
+		int last = size - 1;
+		while (first <= last) {
+			int middle = (first + last) >>> 1;
+			int offset = offset(middle);
+			if (compare(buffer.getLong(offset), buffer.getLong(offset + 8), high, low) <= 0) {
+				first = middle + 1;
+			} else {
+				last = middle - 1;
+			}
+		}
+		if (last < 0) {
+			return -1;
+		}
+		int offset = offset(last);
+		return compare(high, low, buffer.getLong(offset + 16), buffer.getLong(offset + 24)) <= 0 ? last : -1;
+	}
+
+	/**
+	 * Finds the range of an IP address literal. Host names are never resolved.
+	 * 
+	 * @param address an IPv4 or IPv6 address literal
+	 * @return the index of the range containing the address, or -1 if there is
+	 *         none or the address is not a literal
+	 */
+	public int find(String address) {
+		long ipv4 = parseIpv4(address);
+		if (ipv4 >= 0) {
+			return find(0, IPV4_MAPPED | ipv4);
+		}
+		if (address.indexOf(':') < 0) {
+			return -1;
+		}
+		try {
+			byte[] bytes = InetAddress.getByName(address).getAddress();
+			return find(high(bytes), low(bytes));
+		} catch (UnknownHostException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @param range the index of a range
+	 * @return the latitude of the range
+	 */
+	public double latitude(int range) {
+		return buffer.getFloat(offset(range) + LATITUDE);
+	}
+
+	/**
+	 * @param range the index of a range
+	 * @return the longitude of the range
+	 */
+	public double longitude(int range) {
+		return buffer.getFloat(offset(range) + LONGITUDE);
+	}
+
+	/**
+	 * @return the number of ranges
+	 */
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,115 @@
+package se.phooey.raining.places;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes an IP location table file in the format read by
+ * {@link IpLocationTable}, for example from the CSV of an IP geolocation
+ * database
+ */
+public class IpLocationTableWriter {
+
+	private final List<Range> ranges = new ArrayList<>();
+
+	private static final class Range {
+		private final long firstHigh;
+		private final long firstLow;
+		private final long lastHigh;
+		private final long lastLow;
+		private final float latitude;
+		private final float longitude;
+
+		private Range(byte[] first, byte[] last, double latitude, double longitude) {
+			this.firstHigh = IpLocationTable.high(first);
+			this.firstLow = IpLocationTable.low(first);
+			this.lastHigh = IpLocationTable.high(last);
+			this.lastLow = IpLocationTable.low(last);
+			this.latitude = (float) latitude;
+			this.longitude = (float) longitude;
+		}
+	}
+
+	private static int compare(long high, long low, long otherHigh, long otherLow) {
+		int result = Long.compareUnsigned(high, otherHigh);
+		return result != 0 ? result : Long.compareUnsigned(low, otherLow);
+	}
+
+	private static byte[] parse(String address) {
+		if (IpLocationTable.parseIpv4(address) < 0 && address.indexOf(':') < 0) {
+			throw new IllegalArgumentException("Not an IP address literal: " + address);
+		}
+		try {
+			return InetAddress.getByName(address).getAddress();
+		} catch (UnknownHostException e) {
+			throw new IllegalArgumentException("Not an IP address literal: " + address, e);
+		}
+	}
+
+	/**
+	 * Adds a range of addresses
+	 * 
+	 * @param first     the first address of the range, an IP address literal
+	 * @param last      the last address of the range, an IP address literal
+	 * @param latitude  the approximate latitude of the addresses
+	 * @param longitude the approximate longitude of the addresses
+	 * @return this writer
+	 * @throws IllegalArgumentException If an address is not an IP address
+	 *                                  literal, or the last address is before
+	 *                                  the first
+	 */
+	public IpLocationTableWriter add(String first, String last, double latitude, double longitude) {
+		Range range = new Range(parse(first), parse(last), latitude, longitude);
+		if (compare(range.firstHigh, range.firstLow, range.lastHigh, range.lastLow) > 0) {
+			throw new IllegalArgumentException(String.format("The range %s - %s is empty", first, last));
+		}
+		ranges.add(range);
+		return this;
+	}
+
+	/**
+	 * Writes the ranges, sorted by their first address, to a temporary file next
+	 * to the target file, and then moves it in place
+	 * 
+	 * @param file the file to write
+	 * @throws IOException              If the file could not be written
+	 * @throws IllegalArgumentException If two ranges overlap
+	 */
+	public void writeTo(Path file) throws IOException {
+		ranges.sort(Comparator.comparing((Range range) -> range, (a, b) -> compare(a.firstHigh, a.firstLow,
+				b.firstHigh, b.firstLow)));
+		for (int i = 1; i < ranges.size(); i++) {
+			Range previous = ranges.get(i - 1);
+			Range range = ranges.get(i);
+			if (compare(previous.lastHigh, previous.lastLow, range.firstHigh, range.firstLow) >= 0) {
+				throw new IllegalArgumentException("The ranges overlap at range " + i);
+			}
+		}
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeInt(IpLocationTable.MAGIC);
+			out.writeInt(IpLocationTable.VERSION);
+			out.writeInt(ranges.size());
+			out.writeInt(0);
+			for (Range range : ranges) {
+				out.writeLong(range.firstHigh);
+				out.writeLong(range.firstLow);
+				out.writeLong(range.lastHigh);
+				out.writeLong(range.lastLow);
+				out.writeFloat(range.latitude);
+				out.writeFloat(range.longitude);
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,58 @@
+package se.phooey.raining.places;
+
+import java.util.Locale;
+
+/**
+ * Immutable data class representing a named place found in the
+ * {@link Gazetteer}
+ */
+public final class Place {
+
+	private final String name;
+	private final String countryCode;
+	private final double latitude;
+	private final double longitude;
+	private final long population;
+
+	/**
+	 * Creates a new Place
+	 * 
+	 * @param name        the name of the place
+	 * @param countryCode the ISO 3166 code of the country of the place
+	 * @param latitude    the latitude of the place
+	 * @param longitude   the longitude of the place
+	 * @param population  the population of the place
+	 */
+	public Place(String name, String countryCode, double latitude, double longitude, long population) {
+		this.name = name;
+		this.countryCode = countryCode;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.population = population;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.US, "%s, %s (%f, %f)", name, countryCode, latitude, longitude);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getCountryCode() {
+		return countryCode;
+	}
+
+	public double getLatitude() {
+		return latitude;
+	}
+
+	public double getLongitude() {
+		return longitude;
+	}
+
+	public long getPopulation() {
+		return population;
+	}
+}
@@ -0,0 +1,123 @@
+package se.phooey.raining.simulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The coordinates of logged requests for rain reports, ordered by the time
+ * they were requested, to replay in a simulation.<br>
+ * <br>
+ * Each line of a log is either a line of the access log, with the time in the
+ * "ts" field and the coordinates in the "latitude" and "longitude" parameters
+ * of the query, or three comma separated values: the time in milliseconds
+ * since the epoch, the latitude and the longitude. Lines without valid
+ * coordinates, such as requests for a place name, are skipped.
+ */
+public final class CoordinateLog {
+
+	private static final Pattern ACCESS_LOG_TIME = Pattern.compile("\\bts=(\\d+)");
+	private static final Pattern ACCESS_LOG_LATITUDE = Pattern.compile("[?&\"]latitude=([-+.0-9eE]+)");
+	private static final Pattern ACCESS_LOG_LONGITUDE = Pattern.compile("[?&\"]longitude=([-+.0-9eE]+)");
+
+	private final List<Entry> entries;
+
+	/**
+	 * The coordinates of one logged request
+	 */
+	public static final class Entry {
+		private final long time;
+		private final double latitude;
+		private final double longitude;
+
+		private Entry(long time, double latitude, double longitude) {
+			this.time = time;
+			this.latitude = latitude;
+			this.longitude = longitude;
+		}
+
+		/**
+		 * @return the time of the request, in milliseconds since the epoch
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * @return the requested latitude
+		 */
+		public double getLatitude() {
+			return latitude;
+		}
+
+		/**
+		 * @return the requested longitude
+		 */
+		public double getLongitude() {
+			return longitude;
+		}
+	}
+
+	private static Entry parseAccessLog(String line) {
+		Matcher time = ACCESS_LOG_TIME.matcher(line);
+		Matcher latitude = ACCESS_LOG_LATITUDE.matcher(line);
+		Matcher longitude = ACCESS_LOG_LONGITUDE.matcher(line);
+		return time.find() && latitude.find() && longitude.find()
+				? new Entry(Long.parseLong(time.group(1)), Double.parseDouble(latitude.group(1)),
+						Double.parseDouble(longitude.group(1)))
+				: null;
+	}
+
+	private static Entry parseValues(String line) {
+		String[] values = line.split(",");
+		return values.length == 3
+				? new Entry(Long.parseLong(values[0].trim()), Double.parseDouble(values[1].trim()),
+						Double.parseDouble(values[2].trim()))
+				: null;
+	}
+
+	private static boolean isValid(Entry entry) {
+		return entry != null && Math.abs(entry.latitude) <= 90 && Math.abs(entry.longitude) <= 180;
+	}
+
+	private CoordinateLog(List<Entry> entries) {
+		this.entries = entries;
+	}
+
+	/**
+	 * Reads a log, skipping the lines without valid coordinates
+	 * 
+	 * @param reader the reader to read the log from
+	 * @return the logged coordinates, ordered by time
+	 * @throws IOException If the log could not be read
+	 */
+	public static CoordinateLog read(BufferedReader reader) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			Entry entry;
+			try {
+				entry = line.contains("ts=") ? parseAccessLog(line) : parseValues(line);
+			} catch (NumberFormatException e) {
+				entry = null;
+			}
+			if (isValid(entry)) {
+				entries.add(entry);
+			}
+		}
+		entries.sort(Comparator.comparingLong(Entry::getTime));
+		return new CoordinateLog(Collections.unmodifiableList(entries));
+	}
+
+	/**
+	 * @return the logged coordinates, ordered by time
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+}
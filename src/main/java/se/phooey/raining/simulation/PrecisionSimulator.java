@@ -0,0 +1,157 @@
+package se.phooey.raining.simulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.cache.CellKey;
+
+/**
+ * Offline tool replaying a {@link CoordinateLog} through a simulated cache for
+ * a number of {@link CoordinatePrecision}s, to pick the precision from the
+ * requests actually made instead of guessing.<br>
+ * <br>
+ * For each precision it reports the number of distinct cells requested, the
+ * share of requests served from the cache, the upstream calls made and wanted
+ * beyond the daily budget, and how far the bucketed coordinates are from the
+ * requested ones. The cache holds every report for a fixed TTL and never
+ * evicts, so the hit rates are those of a cache large enough for all
+ * cells.<br>
+ * <br>
+ * Run it with the compiled classes on the class path:<br>
+ * <code>java -cp target/classes se.phooey.raining.simulation.PrecisionSimulator
+ * &lt;log file&gt; [precisions] [ttl seconds] [daily budget]</code>
+ */
+public class PrecisionSimulator {
+
+	static final String DEFAULT_PRECISIONS = "0.001,0.01,0.05,geohash:5,geohash:6";
+
+	private static final double KILOMETERS_PER_DEGREE = 111.195;
+	private static final long MILLIS_PER_DAY = Duration.ofDays(1).toMillis();
+
+	private final long ttlMillis;
+	private final int dailyBudget;
+
+	private static double errorKilometers(double latitude, double longitude, double bucketedLatitude,
+			double bucketedLongitude) {
+		double north = (bucketedLatitude - latitude) * KILOMETERS_PER_DEGREE;
+		double east = (bucketedLongitude - longitude) * KILOMETERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+		return Math.hypot(north, east);
+	}
+
+	/**
+	 * Creates a new PrecisionSimulator
+	 * 
+	 * @param ttl         how long the simulated cache holds each report
+	 * @param dailyBudget the number of upstream calls that may be made per day
+	 */
+	public PrecisionSimulator(Duration ttl, int dailyBudget) {
+		this.ttlMillis = ttl.toMillis();
+		this.dailyBudget = dailyBudget;
+	}
+
+	/**
+	 * Replays the log with one precision
+	 * 
+	 * @param log       the requests to replay
+	 * @param precision the precision to bucket the coordinates by
+	 * @return the outcome of the replay
+	 */
+	public SimulationResult simulate(CoordinateLog log, CoordinatePrecision precision) {
+		Map<Long, Long> expiresAt = new HashMap<>();
+		Map<Long, Long> callsPerDay = new HashMap<>();
+		long hits = 0;
+		long upstreamCalls = 0;
+		long deniedCalls = 0;
+		double totalError = 0;
+		double maximumError = 0;
+		for (CoordinateLog.Entry entry : log.getEntries()) {
+			double latitude = precision.latitude(entry.getLatitude());
+			double longitude = precision.longitude(entry.getLongitude());
+			double error = errorKilometers(entry.getLatitude(), entry.getLongitude(), latitude, longitude);
+			totalError += error;
+			maximumError = Math.max(maximumError, error);
+			long key = CellKey.of(latitude, longitude);
+			Long expires = expiresAt.putIfAbsent(key, Long.MIN_VALUE);
+			if (expires != null && expires > entry.getTime()) {
+				hits++;
+				continue;
+			}
+			long calls = callsPerDay.merge(Math.floorDiv(entry.getTime(), MILLIS_PER_DAY), 1L, Long::sum);
+			if (calls > dailyBudget) {
+				deniedCalls++;
+			} else {
+				upstreamCalls++;
+				expiresAt.put(key, entry.getTime() + ttlMillis);
+			}
+		}
+		int requests = log.getEntries().size();
+		long peakDailyCalls = callsPerDay.values().stream().mapToLong(Long::longValue).max().orElse(0);
+		return new SimulationResult(precision.toString(), requests, expiresAt.size(), hits, upstreamCalls,
+				deniedCalls, peakDailyCalls, requests == 0 ? 0 : totalError / requests, maximumError);
+	}
+
+	/**
+	 * Replays the log with each of the precisions
+	 * 
+	 * @param log        the requests to replay
+	 * @param precisions the precisions to bucket the coordinates by
+	 * @return the outcome of the replay of each precision, in the same order
+	 */
+	public List<SimulationResult> simulate(CoordinateLog log, List<CoordinatePrecision> precisions) {
+		List<SimulationResult> results = new ArrayList<>();
+		for (CoordinatePrecision precision : precisions) {
+			results.add(simulate(log, precision));
+		}
+		return results;
+	}
+
+	/**
+	 * Runs the simulation described by the arguments of {@link #main(String[])}
+	 * 
+	 * @param args the arguments
+	 * @param out  the stream to print the results to
+	 * @throws IOException If the log could not be read
+	 */
+	static void run(String[] args, PrintStream out) throws IOException {
+		if (args.length == 0) {
+			out.println("Usage: PrecisionSimulator <log file> [precisions, default " + DEFAULT_PRECISIONS
+					+ "] [ttl seconds, default 600] [daily budget, default 1000]");
+			return;
+		}
+		List<CoordinatePrecision> precisions = new ArrayList<>();
+		for (String precision : (args.length > 1 ? args[1] : DEFAULT_PRECISIONS).split(",")) {
+			precisions.add(CoordinatePrecision.parse(precision));
+		}
+		PrecisionSimulator simulator = new PrecisionSimulator(
+				Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 600),
+				args.length > 3 ? Integer.parseInt(args[3]) : 1000);
+		CoordinateLog log;
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+			log = CoordinateLog.read(reader);
+		}
+		out.println(String.format("%-12s %10s %10s %9s %10s %10s %10s %10s %10s", "precision", "requests", "cells",
+				"hit rate", "calls", "denied", "peak/day", "mean km", "max km"));
+		for (SimulationResult result : simulator.simulate(log, precisions)) {
+			out.println(result);
+		}
+	}
+
+	/**
+	 * @param args the log file, optionally followed by the comma separated
+	 *             precisions, the TTL in seconds and the daily budget
+	 * @throws IOException If the log could not be read
+	 */
+	public static void main(String[] args) throws IOException {
+		run(args, System.out);
+	}
+}
@@ -0,0 +1,98 @@
+package se.phooey.raining.simulation;
+
+/**
+ * The outcome of replaying a {@link CoordinateLog} with one coordinate
+ * precision in the {@link PrecisionSimulator}
+ */
+public final class SimulationResult {
+
+	private final String precision;
+	private final long requests;
+	private final long distinctCells;
+	private final long hits;
+	private final long upstreamCalls;
+	private final long deniedCalls;
+	private final long peakDailyCalls;
+	private final double meanErrorKilometers;
+	private final double maximumErrorKilometers;
+
+	/**
+	 * Creates a new SimulationResult
+	 * 
+	 * @param precision              the simulated precision
+	 * @param requests               the number of requests replayed
+	 * @param distinctCells          the number of distinct cells requested
+	 * @param hits                   the number of requests served from the cache
+	 * @param upstreamCalls          the number of upstream calls made
+	 * @param deniedCalls            the number of upstream calls wanted beyond
+	 *                               the daily budget
+	 * @param peakDailyCalls         the highest number of upstream calls wanted
+	 *                               on a single day
+	 * @param meanErrorKilometers    the mean distance between the requested and
+	 *                               the bucketed coordinates
+	 * @param maximumErrorKilometers the longest distance between the requested
+	 *                               and the bucketed coordinates
+	 */
+	public SimulationResult(String precision, long requests, long distinctCells, long hits, long upstreamCalls,
+			long deniedCalls, long peakDailyCalls, double meanErrorKilometers, double maximumErrorKilometers) {
+		this.precision = precision;
+		this.requests = requests;
+		this.distinctCells = distinctCells;
+		this.hits = hits;
+		this.upstreamCalls = upstreamCalls;
+		this.deniedCalls = deniedCalls;
+		this.peakDailyCalls = peakDailyCalls;
+		this.meanErrorKilometers = meanErrorKilometers;
+		this.maximumErrorKilometers = maximumErrorKilometers;
+	}
+
+	/**
+	 * @return the share of the requests served from the cache
+	 */
+	public double getHitRate() {
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%-12s %10d %10d %8.2f%% %10d %10d %10d %10.3f %10.3f", precision, requests,
+				distinctCells, 100 * getHitRate(), upstreamCalls, deniedCalls, peakDailyCalls, meanErrorKilometers,
+				maximumErrorKilometers);
+	}
+
+	public String getPrecision() {
+		return precision;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	public long getDistinctCells() {
+		return distinctCells;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getUpstreamCalls() {
+		return upstreamCalls;
+	}
+
+	public long getDeniedCalls() {
+		return deniedCalls;
+	}
+
+	public long getPeakDailyCalls() {
+		return peakDailyCalls;
+	}
+
+	public double getMeanErrorKilometers() {
+		return meanErrorKilometers;
+	}
+
+	public double getMaximumErrorKilometers() {
+		return maximumErrorKilometers;
+	}
+}
@@ -0,0 +1,22 @@
+package se.phooey.raining.timing;
+
+/**
+ * The phases of handling a request timed by {@link RequestTiming}
+ */
+public enum Phase {
+	VALIDATION("validate"), CACHE("cache"), QUOTA("quota"), UPSTREAM("upstream"), PARSE("parse"),
+	SERIALIZATION("serialize");
+
+	private final String metric;
+
+	private Phase(String metric) {
+		this.metric = metric;
+	}
+
+	/**
+	 * @return the name of the phase in the Server-Timing header
+	 */
+	public String getMetric() {
+		return metric;
+	}
+}
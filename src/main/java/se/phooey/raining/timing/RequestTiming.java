@@ -0,0 +1,147 @@
+package se.phooey.raining.timing;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time spent in each {@link Phase} of the request handled by the current
+ * thread, such as validating the request, looking up the cache or waiting for
+ * the upstream weather service.<br>
+ * <br>
+ * Each thread reuses one RequestTiming for all requests it handles, so timing
+ * a request does not allocate anything. The code handling a request takes a
+ * monotonic timestamp from {@link System#nanoTime()} when a phase starts and
+ * {@link #record(Phase, long) records} the phase when it ends. Recording is a
+ * no-op on threads not handling a timed request, such as the background
+ * threads computing a rain grid.
+ */
+public final class RequestTiming {
+
+	private static final ThreadLocal<RequestTiming> TIMINGS = ThreadLocal.withInitial(RequestTiming::new);
+	private static final Phase[] PHASES = Phase.values();
+
+	private final long[] nanos;
+	private int recorded;
+	private boolean active;
+	private long startNanos;
+	private long responseNanos;
+	private long totalNanos;
+
+	private RequestTiming() {
+		this.nanos = new long[PHASES.length];
+	}
+
+	/**
+	 * Starts timing a request on the current thread
+	 * 
+	 * @return the RequestTiming of the request
+	 */
+	public static RequestTiming start() {
+		RequestTiming timing = TIMINGS.get();
+		for (int i = 0; i < timing.nanos.length; i++) {
+			timing.nanos[i] = 0;
+		}
+		timing.recorded = 0;
+		timing.responseNanos = 0;
+		timing.totalNanos = 0;
+		timing.active = true;
+		timing.startNanos = System.nanoTime();
+		return timing;
+	}
+
+	/**
+	 * @return the RequestTiming of the request handled by the current thread, or
+	 *         null if no request is timed
+	 */
+	public static RequestTiming current() {
+		RequestTiming timing = TIMINGS.get();
+		return timing.active ? timing : null;
+	}
+
+	/**
+	 * Records that a phase of the request handled by the current thread, if any,
+	 * ends now. A phase recorded several times adds up.
+	 * 
+	 * @param phase      the phase that ends
+	 * @param startNanos the {@link System#nanoTime()} when the phase started
+	 */
+	public static void record(Phase phase, long startNanos) {
+		RequestTiming timing = TIMINGS.get();
+		if (timing.active) {
+			timing.add(phase, System.nanoTime() - startNanos);
+		}
+	}
+
+	void add(Phase phase, long durationNanos) {
+		nanos[phase.ordinal()] += durationNanos;
+		recorded |= 1 << phase.ordinal();
+	}
+
+	/**
+	 * Marks that the response starts being written, from when on the time is
+	 * recorded as {@link Phase#SERIALIZATION}
+	 */
+	public void startResponse() {
+		responseNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stops timing the request, recording the time since the response started
+	 * being written as serialization
+	 */
+	public void stop() {
+		long now = System.nanoTime();
+		if (responseNanos != 0) {
+			add(Phase.SERIALIZATION, now - responseNanos);
+		}
+		totalNanos = now - startNanos;
+		active = false;
+	}
+
+	/**
+	 * @param phase a phase of the request
+	 * @return the time spent in the phase, in nanoseconds
+	 */
+	public long getNanos(Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+
+	/**
+	 * @param phase a phase of the request
+	 * @return true if the phase has been recorded for the request
+	 */
+	public boolean isRecorded(Phase phase) {
+		return (recorded & (1 << phase.ordinal())) != 0;
+	}
+
+	/**
+	 * @return the time from starting until stopping timing the request, in
+	 *         nanoseconds, or until now if not yet stopped
+	 */
+	public long getTotalNanos() {
+		return active ? System.nanoTime() - startNanos : totalNanos;
+	}
+
+	/**
+	 * Formats the recorded phases and the total time so far as the value of a
+	 * Server-Timing header, e.g. "cache;dur=0.012, upstream;dur=153.2,
+	 * total;dur=153.9", in milliseconds
+	 * 
+	 * @return the value of the Server-Timing header
+	 */
+	public String toServerTiming() {
+		StringBuilder header = new StringBuilder(128);
+		for (Phase phase : PHASES) {
+			if (isRecorded(phase)) {
+				appendMetric(header, phase.getMetric(), nanos[phase.ordinal()]).append(", ");
+			}
+		}
+		return appendMetric(header, "total", getTotalNanos()).toString();
+	}
+
+	private static StringBuilder appendMetric(StringBuilder header, String metric, long durationNanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+		long fraction = micros % 1000;
+		header.append(metric).append(";dur=").append(micros / 1000).append('.');
+		return header.append(fraction < 100 ? (fraction < 10 ? "00" : "0") : "").append(fraction);
+	}
+}
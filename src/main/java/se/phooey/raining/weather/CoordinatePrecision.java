@@ -0,0 +1,108 @@
+package se.phooey.raining.weather;
+
+/**
+ * Buckets the coordinates of requested locations into cells, so that all
+ * requests within a cell share one cached {@link RainReport} and one upstream
+ * call.<br>
+ * <br>
+ * A precision in degrees rounds the coordinates to the nearest multiple of it,
+ * so 0.001 rounds them to three decimal points, cells of roughly 100 meters. A
+ * geohash precision moves the coordinates to the center of the geohash cell of
+ * that length containing them, so 5 gives cells of roughly 5 by 5 kilometers.
+ * The bucketed coordinates are rounded to microdegrees, the precision of the
+ * cache keys.
+ */
+public final class CoordinatePrecision {
+
+	private static final String GEOHASH_PREFIX = "geohash:";
+	private static final int MAXIMUM_GEOHASH_LENGTH = 12;
+	private static final double MINIMUM_DEGREES = 0.000001;
+	private static final double MICRODEGREES_PER_DEGREE = 1_000_000;
+
+	private final String name;
+	private final double latitudeStep;
+	private final double longitudeStep;
+	private final boolean centered;
+
+	private static double microdegrees(double value) {
+		return Math.round(value * MICRODEGREES_PER_DEGREE) / MICRODEGREES_PER_DEGREE;
+	}
+
+	private double bucket(double value, double step, double range) {
+		if (!centered) {
+			return microdegrees(Math.max(-range, Math.min(range, Math.round(value / step) * step)));
+		}
+		double index = Math.min(Math.floor((value + range) / step), Math.round(2 * range / step) - 1);
+		return microdegrees(index * step - range + step / 2);
+	}
+
+	private CoordinatePrecision(String name, double latitudeStep, double longitudeStep, boolean centered) {
+		this.name = name;
+		this.latitudeStep = latitudeStep;
+		this.longitudeStep = longitudeStep;
+		this.centered = centered;
+	}
+
+	/**
+	 * @param degrees the size of the cells, in degrees of latitude and longitude
+	 * @return a CoordinatePrecision rounding to multiples of the degrees
+	 * @throws IllegalArgumentException If the degrees are less than a
+	 *                                  microdegree, or more than 90 degrees
+	 */
+	public static CoordinatePrecision ofDegrees(double degrees) {
+		if (!(degrees >= MINIMUM_DEGREES && degrees <= 90)) {
+			throw new IllegalArgumentException("The precision needs to be in range: 0.000001 <= degrees <= 90.");
+		}
+		return new CoordinatePrecision(Double.toString(degrees), degrees, degrees, false);
+	}
+
+	/**
+	 * @param length the number of characters of the geohash
+	 * @return a CoordinatePrecision moving to the center of geohash cells
+	 * @throws IllegalArgumentException If the length is not within 1 to 12
+	 */
+	public static CoordinatePrecision ofGeohash(int length) {
+		if (length < 1 || length > MAXIMUM_GEOHASH_LENGTH) {
+			throw new IllegalArgumentException("The geohash length needs to be in range: 1 <= length <= 12.");
+		}
+		// The bits of a geohash alternate between longitude and latitude
+		int bits = 5 * length;
+		return new CoordinatePrecision(GEOHASH_PREFIX + length, 180 / Math.pow(2, bits / 2),
+				360 / Math.pow(2, (bits + 1) / 2), true);
+	}
+
+	/**
+	 * @param precision a precision in degrees, like "0.01", or a geohash length,
+	 *                  like "geohash:6"
+	 * @return the CoordinatePrecision described
+	 * @throws IllegalArgumentException If the precision can not be parsed or is
+	 *                                  out of range
+	 */
+	public static CoordinatePrecision parse(String precision) {
+		String trimmed = precision.trim();
+		return trimmed.startsWith(GEOHASH_PREFIX)
+				? ofGeohash(Integer.parseInt(trimmed.substring(GEOHASH_PREFIX.length())))
+				: ofDegrees(Double.parseDouble(trimmed));
+	}
+
+	/**
+	 * @param latitude the latitude, -90 <= latitude <= 90
+	 * @return the latitude of the cell containing it
+	 */
+	public double latitude(double latitude) {
+		return bucket(latitude, latitudeStep, 90);
+	}
+
+	/**
+	 * @param longitude the longitude, -180 <= longitude <= 180
+	 * @return the longitude of the cell containing it
+	 */
+	public double longitude(double longitude) {
+		return bucket(longitude, longitudeStep, 180);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
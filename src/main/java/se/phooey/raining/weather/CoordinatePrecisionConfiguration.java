@@ -0,0 +1,25 @@
+package se.phooey.raining.weather;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Shared by the servlet and the reactive serving mode, see
+ * {@link se.phooey.raining.IsItRainingApplication} and
+ * {@link se.phooey.raining.ReactiveIsItRainingApplication}
+ */
+@Configuration
+public class CoordinatePrecisionConfiguration {
+	@Value("${isitraining.coordinates.precision:0.001}")
+	private String precision;
+
+	/**
+	 * The precision the requested coordinates are bucketed by, before they are
+	 * cached or requested upstream
+	 */
+	@Bean
+	public CoordinatePrecision coordinatePrecision() {
+		return CoordinatePrecision.parse(precision);
+	}
+}
@@ -0,0 +1,70 @@
+package se.phooey.raining.weather;
+
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+/**
+ * Data class representing the precipitation expected at a location on one day
+ * of a multi-day forecast.
+ */
+@JsonView(RainReport.Forecast.class)
+public class DailyPrecipitation {
+
+	private long time;
+	private double probability;
+	private String precipitation;
+
+	/**
+	 * Creates a new DailyPrecipitation based on the passed parameters
+	 * 
+	 * @param time          the start of the day at the location, in seconds since
+	 *                      the epoch
+	 * @param probability   the probability of precipitation occurring during the
+	 *                      day
+	 * @param precipitation the type of precipitation expected during the day
+	 */
+	public DailyPrecipitation(long time, double probability, String precipitation) {
+		this.time = time;
+		this.probability = probability;
+		this.precipitation = precipitation;
+	}
+
+	/**
+	 * Creates a new DailyPrecipitation with default values; time = 0, probability
+	 * = -1, precipitation = "unknown"
+	 */
+	public DailyPrecipitation() {
+		this(0, -1, Precipitation.UNKNOWN.toString());
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.US, "time: %d, probability: %f, precipitation: %s", time, probability,
+				precipitation);
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public void setTime(long time) {
+		this.time = time;
+	}
+
+	public double getProbability() {
+		return probability;
+	}
+
+	public void setProbability(double probability) {
+		this.probability = probability;
+	}
+
+	public String getPrecipitation() {
+		return precipitation;
+	}
+
+	public void setPrecipitation(String precipitation) {
+		this.precipitation = precipitation;
+	}
+}
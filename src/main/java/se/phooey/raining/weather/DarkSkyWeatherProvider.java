@@ -1,19 +1,30 @@
 package se.phooey.raining.weather;
 
 import java.time.Clock;
-import java.util.Date;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Set;
 
-import org.apache.commons.lang3.time.DateUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.CollectionUtils;
 
+import se.phooey.raining.timing.Phase;
+import se.phooey.raining.timing.RequestTiming;
 import se.phooey.raining.weather.exception.RainReportException;
+import se.phooey.raining.weather.keys.ApiKeyPool;
+import se.phooey.raining.weather.keys.PooledApiKey;
+import se.phooey.raining.weather.quota.LeasedCallBudget;
+import se.phooey.raining.weather.quota.LocalQuotaAuthority;
 import tk.plogitech.darksky.api.jackson.DarkSkyJacksonClient;
 import tk.plogitech.darksky.forecast.APIKey;
 import tk.plogitech.darksky.forecast.ForecastException;
@@ -29,6 +40,8 @@ import tk.plogitech.darksky.forecast.model.DailyDataPoint;
 import tk.plogitech.darksky.forecast.model.Forecast;
 import tk.plogitech.darksky.forecast.model.Latitude;
 import tk.plogitech.darksky.forecast.model.Longitude;
+import tk.plogitech.darksky.forecast.model.Minutely;
+import tk.plogitech.darksky.forecast.model.MinutelyDataPoint;
 
 /**
  * Implementation of {@link WeatherProvider} using the Dark Sky API to retrieve
@@ -38,47 +51,108 @@ import tk.plogitech.darksky.forecast.model.Longitude;
  * Uses the {@link tk.plogitech.darksky.api.jackson.DarkSkyJacksonClient
  * DarkSkyJacksonClient} to retrieve data from the Dark Sky API.<br>
  * <br>
- * Free Dark Sky API calls are limited to 1000 per day, which is automatically
- * enforced by the DarkSkyWeatherProvider, and after 1000 API calls in one day
- * (according to the provided Clock), a RainReportException will be thrown until
- * the next day.
+ * Free Dark Sky API calls are limited to 1000 per day and API key, which is
+ * automatically enforced by the DarkSkyWeatherProvider, and after 1000 API calls
+ * in one day with each key (according to the provided Clock), a
+ * RainReportException will be thrown until the next day. The calls are spread
+ * over the keys of an {@link ApiKeyPool}, and taken from the
+ * {@link LeasedCallBudget} of each key, so that several DarkSkyWeatherProviders
+ * running on different nodes can share one daily budget per key.<br>
+ * <br>
+ * Reports for past dates are retrieved with Time Machine requests, which count
+ * against the same budget.
  * 
  * @see tk.plogitech.darksky.api.jackson.DarkSkyJacksonClient
  * @see <a href=
  *      "https://github.com/200Puls/darksky-forecast-api">https://github.com/200Puls/darksky-forecast-api</a>
  */
-public class DarkSkyWeatherProvider implements WeatherProvider {
+public class DarkSkyWeatherProvider implements WeatherProvider, HistoricalWeatherProvider {
 
 	private static final String REQUIRED_URL_APPENDAGE = "##key##/##latitude##,##longitude####time##";
 	private static final int MAXIMUM_API_CALLS_PER_DAY = 1000;
+	private static final int SECONDS_PER_MINUTE = 60;
+	/**
+	 * The number of calls that may be made per day, one call below the maximum
+	 * is kept as a safety margin
+	 */
+	public static final int DAILY_CALL_BUDGET = MAXIMUM_API_CALLS_PER_DAY - 1;
 
-	private final APIKey apiKey;
+	private final ApiKeyPool apiKeys;
 	private final DarkSkyJacksonClient client;
 	private final String url;
 	private final Logger logger;
-	private final Clock clock;
-	private final AtomicLong apiCallsMadeToday;
-	private final AtomicLong timeOfLastApiCall;
 
-	private boolean wasToday(long timeInMilliseconds) {
-		Date then = new Date(timeInMilliseconds);
-		Date now = new Date(clock.millis());
-		return DateUtils.isSameDay(then, now);
+	/**
+	 * Takes a call from the budget of the least used API key
+	 */
+	PooledApiKey acquireApiKey() throws ForecastException {
+		long start = System.nanoTime();
+		Optional<PooledApiKey> apiKey = apiKeys.acquire();
+		RequestTiming.record(Phase.QUOTA, start);
+		return apiKey.orElseThrow(() -> new ForecastException(String.format(
+				"Too many calls to the Dark Sky API, no API key is available, the daily budget of %d calls per key or the calls planned until now are used up (Maximum: %d)",
+				DAILY_CALL_BUDGET, MAXIMUM_API_CALLS_PER_DAY)));
+	}
+
+	static int dataPoints(Forecast forecast) {
+		int dataPoints = 0;
+		if (forecast.getMinutely() != null && forecast.getMinutely().getData() != null) {
+			dataPoints += forecast.getMinutely().getData().size();
+		}
+		if (forecast.getDaily() != null && forecast.getDaily().getData() != null) {
+			dataPoints += forecast.getDaily().getData().size();
+		}
+		return dataPoints;
+	}
+
+	private Forecast forecast(ForecastRequest request, PooledApiKey apiKey, double latitude, double longitude,
+			boolean timeMachine) throws ForecastException {
+		long start = System.nanoTime();
+		UpstreamCallEvent event = new UpstreamCallEvent();
+		event.begin();
+		String status = "failed";
+		int dataPoints = 0;
+		try {
+			Forecast forecast = client.forecast(request);
+			recordOutcome(apiKey, forecast != null);
+			status = forecast == null ? "empty" : "ok";
+			dataPoints = forecast == null ? 0 : dataPoints(forecast);
+			return forecast;
+		} catch (ForecastException e) {
+			recordOutcome(apiKey, false);
+			throw e;
+		} finally {
+			RequestTiming.record(Phase.UPSTREAM, start);
+			called(event, apiKey, latitude, longitude, timeMachine, status, dataPoints);
+		}
 	}
 
-	private void countApiCall() throws ForecastException {
-		long lastApiCall = this.timeOfLastApiCall.get();
-		if (!wasToday(lastApiCall)) {
-			this.logger.debug("Resetting Dark Sky API call counter.");
-			apiCallsMadeToday.set(0);
+	/**
+	 * Commits the event of a call to the Dark Sky API made with the key
+	 */
+	static void called(UpstreamCallEvent event, PooledApiKey apiKey, double latitude, double longitude,
+			boolean timeMachine, String status, int dataPoints) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.latitude = latitude;
+			event.longitude = longitude;
+			event.apiKey = apiKey.getName();
+			event.timeMachine = timeMachine;
+			event.status = status;
+			event.dataPoints = dataPoints;
+			event.commit();
 		}
-		long apiCallsToday = apiCallsMadeToday.incrementAndGet();
-		this.logger.debug("Dark Sky API call number {} today.", apiCallsToday);
-		this.timeOfLastApiCall.set(clock.millis());
-		if (apiCallsToday >= MAXIMUM_API_CALLS_PER_DAY) {
-			throw new ForecastException(
-					String.format("Too many calls to the Dark Sky API in one day, call number %d (Maximum: %d)",
-							apiCallsToday, MAXIMUM_API_CALLS_PER_DAY));
+	}
+
+	/**
+	 * Records the outcome of a call made with the key, to retire keys that fail
+	 * repeatedly
+	 */
+	void recordOutcome(PooledApiKey apiKey, boolean succeeded) {
+		if (succeeded) {
+			apiKeys.recordSuccess(apiKey);
+		} else {
+			apiKeys.recordFailure(apiKey);
 		}
 	}
 
@@ -129,19 +203,113 @@ public class DarkSkyWeatherProvider implements WeatherProvider {
 		if (CollectionUtils.isEmpty(dailyData)) {
 			return;
 		}
-		DailyDataPoint today = dailyData.get(0);
-		double precipProbability = Optional.ofNullable(today.getPrecipProbability()).orElse(-1.0);
-		report.setChanceOfPrecipitationToday(precipProbability);
-		if (precipProbability == 0.0) {
-			report.setTypeOfPrecipitationToday(Precipitation.NONE.toString());
+		List<DailyPrecipitation> days = new ArrayList<>(dailyData.size());
+		for (DailyDataPoint day : dailyData) {
+			DailyPrecipitation precipitation = new DailyPrecipitation();
+			precipitation.setTime(Optional.ofNullable(day.getTime()).map(Instant::getEpochSecond).orElse(0L));
+			double probability = Optional.ofNullable(day.getPrecipProbability()).orElse(-1.0);
+			precipitation.setProbability(probability);
+			precipitation.setPrecipitation(probability == 0.0 ? Precipitation.NONE.toString()
+					: getPrecipitationForPrecipType(Optional.ofNullable(day.getPrecipType()).orElse("")).toString());
+			days.add(precipitation);
+		}
+		report.setDailyForecast(days);
+		DailyPrecipitation today = days.get(0);
+		report.setChanceOfPrecipitationToday(today.getProbability());
+		report.setTypeOfPrecipitationToday(today.getPrecipitation());
+	}
+
+	private void populateFromMinutely(Optional<Minutely> minutelyForecast, RainReport report) {
+		if (!minutelyForecast.isPresent()) {
+			return;
+		}
+		List<MinutelyDataPoint> minutelyData = minutelyForecast.get().getData();
+		if (CollectionUtils.isEmpty(minutelyData)) {
 			return;
 		}
-		String precipType = Optional.ofNullable(today.getPrecipType()).orElse("");
-		report.setTypeOfPrecipitationToday(getPrecipitationForPrecipType(precipType).toString());
+		float[] intensity = new float[minutelyData.size()];
+		float[] probability = new float[minutelyData.size()];
+		for (int i = 0; i < intensity.length; i++) {
+			MinutelyDataPoint minute = minutelyData.get(i);
+			intensity[i] = Optional.ofNullable(minute.getPrecipIntensity()).orElse(0.0).floatValue();
+			probability[i] = Optional.ofNullable(minute.getPrecipProbability()).orElse(0.0).floatValue();
+		}
+		long startTime = Optional.ofNullable(minutelyData.get(0).getTime()).map(Instant::getEpochSecond).orElse(0L);
+		report.setNowcast(new PrecipitationNowcast(startTime, SECONDS_PER_MINUTE, intensity, probability));
 	}
 
 	/**
-	 * Creates a new DarkSkyWeatherProvider
+	 * Builds the request for only the blocks of the forecast needed for the
+	 * sections, for the time if it is not null
+	 */
+	ForecastRequest forecastRequest(PooledApiKey apiKey, double latitude, double longitude, Instant time,
+			Set<ReportSection> sections) {
+		ForecastRequestBuilder builder = new ForecastRequestBuilder().key(apiKey.getApiKey()).url(this.url)
+				.location(new GeoCoordinates(new Longitude(longitude), new Latitude(latitude)))
+				.exclude(Block.hourly).exclude(Block.flags).exclude(Block.alerts).language(Language.en)
+				.units(Units.si);
+		if (time != null) {
+			builder.time(time);
+		}
+		if (!sections.contains(ReportSection.MINUTELY)) {
+			builder.exclude(Block.minutely);
+		}
+		if (!sections.contains(ReportSection.CURRENTLY)) {
+			builder.exclude(Block.currently);
+		}
+		if (!sections.contains(ReportSection.DAILY)) {
+			builder.exclude(Block.daily);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Parses the sections of the forecast into a RainReport
+	 */
+	RainReport toRainReport(Forecast forecast, double latitude, double longitude, Set<ReportSection> sections) {
+		long start = System.nanoTime();
+		RainReport result = new RainReport();
+		result.setLatitude(latitude);
+		result.setLongitude(longitude);
+		if (sections.contains(ReportSection.CURRENTLY)) {
+			populateFromCurrently(Optional.ofNullable(forecast.getCurrently()), result);
+		}
+		if (sections.contains(ReportSection.DAILY)) {
+			populateFromDaily(Optional.ofNullable(forecast.getDaily()), result);
+		}
+		if (sections.contains(ReportSection.MINUTELY)) {
+			populateFromMinutely(Optional.ofNullable(forecast.getMinutely()), result);
+		}
+		RequestTiming.record(Phase.PARSE, start);
+		return result;
+	}
+
+	/**
+	 * Logs the cause of a failed report, and returns the exception to throw
+	 */
+	RainReportException failed(Throwable cause, double latitude, double longitude) {
+		logger.error(cause.getMessage());
+		return new RainReportException(String.format(Locale.US,
+				"Could not generate a RainReport for coordinates %f, %f", latitude, longitude));
+	}
+
+	private RainReport rainReport(double latitude, double longitude, Instant time, Set<ReportSection> sections)
+			throws RainReportException {
+		try {
+			PooledApiKey apiKey = acquireApiKey();
+			Forecast forecast = Optional
+					.ofNullable(forecast(forecastRequest(apiKey, latitude, longitude, time, sections), apiKey,
+							latitude, longitude, time != null))
+					.orElseThrow(() -> new ForecastException("Forecast is null"));
+			return toRainReport(forecast, latitude, longitude, sections);
+		} catch (IllegalArgumentException | ForecastException e) {
+			throw failed(e, latitude, longitude);
+		}
+	}
+
+	/**
+	 * Creates a new DarkSkyWeatherProvider with its own daily budget of API calls,
+	 * not shared with any other DarkSkyWeatherProvider
 	 * 
 	 * @param apiKey the API key to use when making requests to the Dark Sky API
 	 * @param apiUrl the URL to use when making Dark Sky API requests
@@ -149,37 +317,54 @@ public class DarkSkyWeatherProvider implements WeatherProvider {
 	 * @param clock  A Clock to use to determine the time when counting API calls
 	 *               made in a day
 	 */
-	@Autowired
 	public DarkSkyWeatherProvider(APIKey apiKey, String apiUrl, DarkSkyJacksonClient client, Clock clock) {
-		this.apiKey = apiKey;
+		this(new ApiKeyPool(Collections.singletonList(new PooledApiKey("key-0", apiKey,
+				new LeasedCallBudget(new LocalQuotaAuthority(DAILY_CALL_BUDGET), "darksky", DAILY_CALL_BUDGET, clock),
+				clock)), Integer.MAX_VALUE, Duration.ZERO), apiUrl, client);
+	}
+
+	/**
+	 * Creates a new DarkSkyWeatherProvider
+	 * 
+	 * @param apiKeys the pool of API keys to use when making requests to the
+	 *                Dark Sky API
+	 * @param apiUrl  the URL to use when making Dark Sky API requests
+	 * @param client  The DarkSkyJacksonClient to use to make Dark Sky API
+	 *                requests
+	 */
+	@Autowired
+	public DarkSkyWeatherProvider(ApiKeyPool apiKeys, String apiUrl, DarkSkyJacksonClient client) {
+		this.apiKeys = apiKeys;
 		this.client = client;
 		this.url = apiUrl + REQUIRED_URL_APPENDAGE;
-		this.clock = clock;
 		this.logger = LoggerFactory.getLogger(DarkSkyWeatherProvider.class);
-		this.apiCallsMadeToday = new AtomicLong(0);
-		this.timeOfLastApiCall = new AtomicLong(0);
 	}
 
 	public RainReport isItRainingAtCoordinates(double latitude, double longitude) throws RainReportException {
-		try {
-			logger.info("Retrieving weather report from the Dark Sky API for coordinates {}, {}", latitude, longitude);
-			countApiCall();
-			ForecastRequest request = new ForecastRequestBuilder().key(this.apiKey).url(this.url)
-					.location(new GeoCoordinates(new Longitude(longitude), new Latitude(latitude)))
-					.exclude(Block.hourly).exclude(Block.minutely).language(Language.en).units(Units.si).build();
-			Forecast forecast = Optional.ofNullable(client.forecast(request))
-					.orElseThrow(() -> new ForecastException("Forecast is null"));
-			RainReport result = new RainReport();
-			result.setLatitude(latitude);
-			result.setLongitude(longitude);
-			populateFromCurrently(Optional.ofNullable(forecast.getCurrently()), result);
-			populateFromDaily(Optional.ofNullable(forecast.getDaily()), result);
-			return result;
-		} catch (IllegalArgumentException | ForecastException e) {
-			logger.error(e.getMessage());
-			throw new RainReportException(String.format(Locale.US,
-					"Could not generate a RainReport for coordinates %f, %f", latitude, longitude));
-		}
+		return isItRainingAtCoordinates(latitude, longitude, ReportSection.DEFAULT);
+	}
+
+	/**
+	 * Retrieves only the blocks of the Dark Sky forecast needed for the requested
+	 * sections, the other fields of the report keep their default values
+	 */
+	@Override
+	public RainReport isItRainingAtCoordinates(double latitude, double longitude, Set<ReportSection> sections)
+			throws RainReportException {
+		logger.info("Retrieving weather report from the Dark Sky API for coordinates {}, {}", latitude, longitude);
+		return rainReport(latitude, longitude, null, sections);
+	}
+
+	/**
+	 * Retrieves the report with a Time Machine request for noon UTC of the date
+	 */
+	@Override
+	public RainReport rainReportForDate(double latitude, double longitude, LocalDate date)
+			throws RainReportException {
+		logger.info("Retrieving historical weather report from the Dark Sky API for coordinates {}, {} on {}",
+				latitude, longitude, date);
+		return rainReport(latitude, longitude, date.atTime(LocalTime.NOON).toInstant(ZoneOffset.UTC),
+				ReportSection.DEFAULT);
 	}
 
 }
@@ -0,0 +1,30 @@
+package se.phooey.raining.weather;
+
+import java.time.LocalDate;
+
+import org.springframework.lang.NonNull;
+
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * A historical weather provider provides a rain report for a requested location
+ * represented by geographic coordinates, as it was on a past date
+ * 
+ * @see se.phooey.raining.weather.RainReport
+ */
+public interface HistoricalWeatherProvider {
+
+	/**
+	 * Returns a {@link RainReport} for the requested location on a past date, with
+	 * the conditions at noon UTC as the current conditions and the observed
+	 * precipitation of the whole day as the forecast for the day
+	 * 
+	 * @param latitude  the latitude for the requested location
+	 * @param longitude the longitude for the requested location
+	 * @param date      the date to report on, a date that has ended everywhere
+	 * @return A {@link RainReport} for the provided location and date
+	 * @throws RainReportException if a RainReport could not be generated
+	 */
+	public @NonNull RainReport rainReportForDate(double latitude, double longitude, LocalDate date)
+			throws RainReportException;
+}
@@ -13,6 +13,20 @@ public enum Precipitation {
 		this.message = message;
 	}
 
+	/**
+	 * @param message the String representation of a type of precipitation
+	 * @return the type of precipitation represented by the String, or UNKNOWN if
+	 *         there is none
+	 */
+	public static Precipitation of(String message) {
+		for (Precipitation precipitation : values()) {
+			if (precipitation.message.equals(message)) {
+				return precipitation;
+			}
+		}
+		return UNKNOWN;
+	}
+
 	@Override
 	public String toString() {
 		return this.message;
@@ -0,0 +1,158 @@
+package se.phooey.raining.weather;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonView;
+
+/**
+ * Immutable data class representing the precipitation expected at a location
+ * minute by minute during the next hour, and when it starts and stops
+ * raining.<br>
+ * <br>
+ * The samples are kept in primitive arrays, and the start, stop and peak of the
+ * precipitation are computed once when the nowcast is created. A minute counts
+ * as raining when both the intensity and the probability of precipitation reach
+ * their thresholds.
+ */
+@JsonView(RainReport.Nowcast.class)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class PrecipitationNowcast {
+
+	/**
+	 * The intensity from which a minute counts as raining, in millimeters/hour
+	 */
+	public static final float RAIN_INTENSITY_THRESHOLD = 0.1f;
+	/**
+	 * The probability from which a minute counts as raining
+	 */
+	public static final float RAIN_PROBABILITY_THRESHOLD = 0.5f;
+
+	private static final int NONE = -1;
+
+	private final long startTime;
+	private final int intervalSeconds;
+	private final float[] intensity;
+	private final float[] probability;
+	private final int startIndex;
+	private final int stopIndex;
+	private final int peakIndex;
+
+	private boolean isRaining(int index) {
+		return intensity[index] >= RAIN_INTENSITY_THRESHOLD && probability[index] >= RAIN_PROBABILITY_THRESHOLD;
+	}
+
+	private int firstIndex(int from, boolean raining) {
+		for (int i = from; i < intensity.length; i++) {
+			if (isRaining(i) == raining) {
+				return i;
+			}
+		}
+		return NONE;
+	}
+
+	private Long timeOf(int index) {
+		return index == NONE ? null : startTime + (long) index * intervalSeconds;
+	}
+
+	/**
+	 * Creates a new PrecipitationNowcast
+	 * 
+	 * @param startTime       the time of the first sample, in seconds since the
+	 *                        epoch
+	 * @param intervalSeconds the number of seconds between two samples
+	 * @param intensity       the intensity of precipitation of each sample, in
+	 *                        millimeters/hour
+	 * @param probability     the probability of precipitation of each sample, of
+	 *                        the same length as the intensity
+	 */
+	@JsonCreator
+	public PrecipitationNowcast(@JsonProperty("startTime") long startTime,
+			@JsonProperty("intervalSeconds") int intervalSeconds, @JsonProperty("intensity") float[] intensity,
+			@JsonProperty("probability") float[] probability) {
+		if (intensity.length != probability.length) {
+			throw new IllegalArgumentException("There needs to be one probability per intensity sample");
+		}
+		this.startTime = startTime;
+		this.intervalSeconds = intervalSeconds;
+		this.intensity = intensity;
+		this.probability = probability;
+		int start = firstIndex(0, true);
+		this.startIndex = start == 0 ? NONE : start;
+		this.stopIndex = start == NONE ? NONE : firstIndex(start, false);
+		int peak = NONE;
+		for (int i = 0; i < intensity.length; i++) {
+			if (intensity[i] > 0 && (peak == NONE || intensity[i] > intensity[peak])) {
+				peak = i;
+			}
+		}
+		this.peakIndex = peak;
+	}
+
+	/**
+	 * @return the time of the first sample, in seconds since the epoch
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return the number of seconds between two samples
+	 */
+	public int getIntervalSeconds() {
+		return intervalSeconds;
+	}
+
+	/**
+	 * @return the intensity of precipitation of each sample, in millimeters/hour
+	 */
+	public float[] getIntensity() {
+		return intensity.clone();
+	}
+
+	/**
+	 * @return the probability of precipitation of each sample
+	 */
+	public float[] getProbability() {
+		return probability.clone();
+	}
+
+	/**
+	 * @return true if it is raining at the time of the first sample
+	 */
+	public boolean isRainingNow() {
+		return intensity.length > 0 && isRaining(0);
+	}
+
+	/**
+	 * @return the time it starts raining, in seconds since the epoch, or null if
+	 *         it is already raining or does not start raining within the nowcast
+	 */
+	public Long getRainStartsAt() {
+		return timeOf(startIndex);
+	}
+
+	/**
+	 * @return the time it stops raining, in seconds since the epoch, or null if it
+	 *         does not rain or does not stop raining within the nowcast
+	 */
+	public Long getRainStopsAt() {
+		return timeOf(stopIndex);
+	}
+
+	/**
+	 * @return the highest intensity of precipitation of the nowcast, in
+	 *         millimeters/hour
+	 */
+	public float getPeakIntensity() {
+		return peakIndex == NONE ? 0 : intensity[peakIndex];
+	}
+
+	/**
+	 * @return the time of the highest intensity of precipitation, in seconds since
+	 *         the epoch, or null if there is no precipitation within the nowcast
+	 */
+	public Long getPeakAt() {
+		return timeOf(peakIndex);
+	}
+}
@@ -1,21 +1,67 @@
 package se.phooey.raining.weather;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 
+import com.fasterxml.jackson.annotation.JsonView;
+
 /**
  * Data class representing a weather report for a specific location providing
  * information about if there is precipitation occurring currently and the
- * current probability of precipitation occurring today.
+ * current probability of precipitation occurring today.<br>
+ * <br>
+ * The report also holds the precipitation expected on each of the following
+ * days, retrieved together with the forecast for today, and the precipitation
+ * expected minute by minute during the next hour, if requested. They are not
+ * part of the {@link Summary} view of the report, and not compared by
+ * {@link #equals(Object)}.
  */
 public class RainReport {
 
+	/**
+	 * JSON view of the report as returned by "/isitraining"
+	 */
+	public interface Summary {
+	}
+
+	/**
+	 * JSON view of the report as returned by "/forecast"
+	 */
+	public interface Forecast {
+	}
+
+	/**
+	 * JSON view of the report as returned by "/nowcast"
+	 */
+	public interface Nowcast {
+	}
+
+	/**
+	 * JSON view of the report as forwarded between the nodes of a sharded
+	 * cluster by "/shard/isitraining", with all of its sections
+	 */
+	public interface Shard extends Summary, Forecast, Nowcast {
+	}
+
+	@JsonView({ Summary.class, Forecast.class, Nowcast.class })
 	private double latitude;
+	@JsonView({ Summary.class, Forecast.class, Nowcast.class })
 	private double longitude;
+	@JsonView(Summary.class)
 	private String currentPrecipitation;
+	@JsonView(Summary.class)
 	private double currentProbability;
+	@JsonView(Summary.class)
 	private double currentIntensity;
+	@JsonView(Summary.class)
 	private double chanceOfPrecipitationToday;
+	@JsonView(Summary.class)
 	private String typeOfPrecipitationToday;
+	@JsonView(Forecast.class)
+	private List<DailyPrecipitation> dailyForecast;
+	@JsonView(Nowcast.class)
+	private PrecipitationNowcast nowcast;
 
 	/**
 	 * Creates a new RainReport based on the passed parameters
@@ -44,13 +90,14 @@ public class RainReport {
 		this.currentIntensity = currentIntensity;
 		this.chanceOfPrecipitationToday = chanceOfPrecipitationToday;
 		this.typeOfPrecipitationToday = typeOfPrecipitationToday;
+		this.dailyForecast = Collections.emptyList();
 	}
 
 	/**
 	 * Creates a new RainReport with default values; latitude = 0, longitude = 0
 	 * (Null Island), currentPrecipitation = "unknown", currentProbability = -1,
 	 * currentIntensity = -1, chanceOfPrecipitationToday = -1,
-	 * typeOfPrecipitationToday = "unknown"
+	 * typeOfPrecipitationToday = "unknown", no daily forecast and no nowcast
 	 */
 	public RainReport() {
 		this.latitude = 0;
@@ -60,6 +107,7 @@ public class RainReport {
 		this.currentIntensity = -1;
 		this.chanceOfPrecipitationToday = -1;
 		this.typeOfPrecipitationToday = Precipitation.UNKNOWN.toString();
+		this.dailyForecast = Collections.emptyList();
 	}
 
 	@Override
@@ -167,4 +215,20 @@ public class RainReport {
 		this.typeOfPrecipitationToday = typeOfPrecipitationToday;
 	}
 
+	public List<DailyPrecipitation> getDailyForecast() {
+		return dailyForecast;
+	}
+
+	public void setDailyForecast(List<DailyPrecipitation> dailyForecast) {
+		this.dailyForecast = dailyForecast;
+	}
+
+	public PrecipitationNowcast getNowcast() {
+		return nowcast;
+	}
+
+	public void setNowcast(PrecipitationNowcast nowcast) {
+		this.nowcast = nowcast;
+	}
+
 }
@@ -0,0 +1,91 @@
+package se.phooey.raining.weather;
+
+import java.net.URI;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import reactor.core.publisher.Mono;
+import se.phooey.raining.weather.exception.RainReportException;
+import se.phooey.raining.weather.keys.PooledApiKey;
+import tk.plogitech.darksky.forecast.ForecastException;
+import tk.plogitech.darksky.forecast.model.Forecast;
+
+/**
+ * {@link ReactiveWeatherProvider} calling the Dark Sky API with a non-blocking
+ * {@link WebClient} instead of the blocking DarkSkyJacksonClient.<br>
+ * <br>
+ * The request, the API key and its budget, the parsing of the forecast and the
+ * errors are all those of the {@link DarkSkyWeatherProvider} it is created
+ * from, so both share the daily budget of each key.
+ */
+public class ReactiveDarkSkyWeatherProvider implements ReactiveWeatherProvider {
+
+	// Tags the client metrics instead of the request path, which contains the
+	// API key and the coordinates
+	private static final String URI_TEMPLATE = "/{apiKey}/{latitude},{longitude}";
+	private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+
+	private final DarkSkyWeatherProvider darkSky;
+	private final WebClient webClient;
+	private final Logger logger;
+
+	/**
+	 * The status of a failed call in its {@link UpstreamCallEvent}: the HTTP
+	 * status code if Dark Sky responded with an error
+	 */
+	private static String statusOf(Throwable failure) {
+		return failure instanceof WebClientResponseException
+				? Integer.toString(((WebClientResponseException) failure).getRawStatusCode())
+				: "failed";
+	}
+
+	private Mono<RainReport> rainReport(double latitude, double longitude, Set<ReportSection> sections) {
+		PooledApiKey apiKey;
+		URI uri;
+		try {
+			apiKey = darkSky.acquireApiKey();
+			uri = URI.create(darkSky.forecastRequest(apiKey, latitude, longitude, null, sections).url().toString());
+		} catch (IllegalArgumentException | ForecastException e) {
+			return Mono.error(darkSky.failed(e, latitude, longitude));
+		}
+		UpstreamCallEvent event = new UpstreamCallEvent();
+		event.begin();
+		return webClient.get().uri(uri).attribute(URI_TEMPLATE_ATTRIBUTE, URI_TEMPLATE).retrieve()
+				.bodyToMono(Forecast.class).doOnSuccess(forecast -> {
+			darkSky.recordOutcome(apiKey, forecast != null);
+			DarkSkyWeatherProvider.called(event, apiKey, latitude, longitude, false, forecast == null ? "empty" : "ok",
+					forecast == null ? 0 : DarkSkyWeatherProvider.dataPoints(forecast));
+		}).doOnError(e -> {
+			darkSky.recordOutcome(apiKey, false);
+			DarkSkyWeatherProvider.called(event, apiKey, latitude, longitude, false, statusOf(e), 0);
+		}).switchIfEmpty(Mono.error(() -> new ForecastException("Forecast is null")))
+				.map(forecast -> darkSky.toRainReport(forecast, latitude, longitude, sections))
+				.onErrorMap(e -> !(e instanceof RainReportException), e -> darkSky.failed(e, latitude, longitude));
+	}
+
+	/**
+	 * Creates a new ReactiveDarkSkyWeatherProvider
+	 * 
+	 * @param darkSky   the {@link DarkSkyWeatherProvider} to share the API keys,
+	 *                  the requests and the parsing of
+	 * @param webClient the WebClient to make the Dark Sky API requests with
+	 */
+	public ReactiveDarkSkyWeatherProvider(DarkSkyWeatherProvider darkSky, WebClient webClient) {
+		this.darkSky = darkSky;
+		this.webClient = webClient;
+		this.logger = LoggerFactory.getLogger(ReactiveDarkSkyWeatherProvider.class);
+	}
+
+	@Override
+	public Mono<RainReport> isItRainingAtCoordinates(double latitude, double longitude, Set<ReportSection> sections) {
+		return Mono.defer(() -> {
+			logger.info("Retrieving weather report from the Dark Sky API for coordinates {}, {}", latitude,
+					longitude);
+			return rainReport(latitude, longitude, sections);
+		});
+	}
+}
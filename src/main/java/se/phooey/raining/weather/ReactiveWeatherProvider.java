@@ -0,0 +1,30 @@
+package se.phooey.raining.weather;
+
+import java.util.Set;
+
+import reactor.core.publisher.Mono;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * Non-blocking counterpart of the {@link WeatherProvider}, providing a rain
+ * report for a requested location without holding a thread while waiting for
+ * it
+ * 
+ * @see se.phooey.raining.weather.RainReport
+ */
+@FunctionalInterface
+public interface ReactiveWeatherProvider {
+
+	/**
+	 * Returns a {@link RainReport} for the requested location, with at least the
+	 * requested sections filled in
+	 * 
+	 * @param latitude  the latitude for the requested location
+	 * @param longitude the longitude for the requested location
+	 * @param sections  the sections of the report to fill in
+	 * @return A Mono emitting the {@link RainReport} for the provided location,
+	 *         or failing with a {@link RainReportException} if it could not be
+	 *         generated
+	 */
+	public Mono<RainReport> isItRainingAtCoordinates(double latitude, double longitude, Set<ReportSection> sections);
+}
@@ -0,0 +1,109 @@
+package se.phooey.raining.weather;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * The sections of a {@link RainReport} a client can ask for, each filled in
+ * from one part of the upstream weather report, so that a WeatherProvider only
+ * needs to retrieve and parse the parts that were asked for.<br>
+ * <br>
+ * The latitude and longitude are part of every report, regardless of the
+ * sections.
+ */
+public enum ReportSection {
+	/**
+	 * The precipitation currently occurring at the location
+	 */
+	CURRENTLY("currentPrecipitation", "currentProbability", "currentIntensity"),
+	/**
+	 * The precipitation expected at the location today
+	 */
+	DAILY("chanceOfPrecipitationToday", "typeOfPrecipitationToday", "dailyForecast"),
+	/**
+	 * The precipitation expected minute by minute during the next hour, only
+	 * retrieved when asked for
+	 */
+	MINUTELY("nowcast");
+
+	/**
+	 * The sections of a report when the client does not ask for any in particular
+	 */
+	public static final Set<ReportSection> DEFAULT = Collections.unmodifiableSet(EnumSet.of(CURRENTLY, DAILY));
+
+	private static final Set<String> LOCATION_FIELDS = new HashSet<>(Arrays.asList("latitude", "longitude"));
+
+	private static final int[][] SUPERSETS = new int[1 << values().length][];
+
+	static {
+		int all = SUPERSETS.length - 1;
+		for (int mask = 0; mask <= all; mask++) {
+			final int subset = mask;
+			SUPERSETS[mask] = IntStream.concat(IntStream.of(subset),
+					IntStream.rangeClosed(0, all).filter(m -> m != subset && (m & subset) == subset)).toArray();
+		}
+	}
+
+	private final Set<String> fields;
+
+	ReportSection(String... fields) {
+		this.fields = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(fields)));
+	}
+
+	/**
+	 * @return the names of the {@link RainReport} fields filled in from this
+	 *         section
+	 */
+	public Set<String> getFields() {
+		return fields;
+	}
+
+	/**
+	 * Returns the sections needed to fill in the given {@link RainReport} fields
+	 * 
+	 * @param fields the names of the fields
+	 * @return the sections needed for the fields
+	 * @throws IllegalArgumentException if a field is not a field of a RainReport
+	 */
+	public static Set<ReportSection> forFields(Collection<String> fields) {
+		Set<ReportSection> sections = EnumSet.noneOf(ReportSection.class);
+		for (String field : fields) {
+			if (LOCATION_FIELDS.contains(field)) {
+				continue;
+			}
+			ReportSection section = Arrays.stream(values()).filter(s -> s.fields.contains(field)).findFirst()
+					.orElseThrow(() -> new IllegalArgumentException("Unknown field: " + field));
+			sections.add(section);
+		}
+		return sections;
+	}
+
+	/**
+	 * @param sections a set of sections
+	 * @return the sections packed into the bits of an int, one bit per section
+	 */
+	public static int mask(Set<ReportSection> sections) {
+		int mask = 0;
+		for (ReportSection section : sections) {
+			mask |= 1 << section.ordinal();
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the masks of all sets of sections containing the given sections,
+	 * starting with the given mask itself. The returned array is shared and must
+	 * not be modified.
+	 * 
+	 * @param mask the sections, packed by {@link #mask(Set)}
+	 * @return the masks of the supersets of the sections
+	 */
+	public static int[] supersetsOf(int mask) {
+		return SUPERSETS[mask];
+	}
+}
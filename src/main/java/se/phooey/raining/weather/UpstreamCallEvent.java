@@ -0,0 +1,43 @@
+package se.phooey.raining.weather;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a call to the Dark Sky API made by the
+ * {@link DarkSkyWeatherProvider}. The calls are limited by the daily budget, so
+ * every call is recorded.
+ */
+@Name("se.phooey.raining.UpstreamCall")
+@Label("Upstream Call")
+@Category({ "Is It Raining", "Weather" })
+@Description("A call to the Dark Sky API")
+@StackTrace(false)
+class UpstreamCallEvent extends Event {
+
+	@Label("Latitude")
+	double latitude;
+
+	@Label("Longitude")
+	double longitude;
+
+	@Label("API Key")
+	@Description("The name of the pooled API key used for the call")
+	String apiKey;
+
+	@Label("Time Machine")
+	@Description("Whether the forecast of a past date was requested")
+	boolean timeMachine;
+
+	@Label("Status")
+	@Description("ok, empty, failed, or the HTTP status code of an error response")
+	String status;
+
+	@Label("Data Points")
+	@Description("The number of minutely and daily data points in the forecast, as a measure of its size")
+	int dataPoints;
+}
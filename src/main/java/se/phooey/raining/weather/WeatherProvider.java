@@ -1,5 +1,7 @@
 package se.phooey.raining.weather;
 
+import java.util.Set;
+
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 
@@ -23,4 +25,20 @@ public interface WeatherProvider {
 	 * @throws RainReportException if a RainReport could not be generated
 	 */
 	public @NonNull RainReport isItRainingAtCoordinates(double latitude, double longitude) throws RainReportException;
+
+	/**
+	 * Returns a {@link RainReport} for the requested location, with at least the
+	 * requested sections filled in. WeatherProviders able to retrieve less data for
+	 * fewer sections override this method, others return the full report.
+	 * 
+	 * @param latitude the latitude for the requested location
+	 * @param longitude the longitude for the requested location
+	 * @param sections the sections of the report to fill in
+	 * @return A {@link RainReport} for the provided location
+	 * @throws RainReportException if a RainReport could not be generated
+	 */
+	public default @NonNull RainReport isItRainingAtCoordinates(double latitude, double longitude,
+			Set<ReportSection> sections) throws RainReportException {
+		return isItRainingAtCoordinates(latitude, longitude);
+	}
 }
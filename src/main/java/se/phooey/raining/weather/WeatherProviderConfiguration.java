@@ -1,25 +1,251 @@
 package se.phooey.raining.weather;
 
+import java.nio.file.Paths;
 import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.PropertySource;
 
+import se.phooey.raining.weather.cache.CachingHistoricalWeatherProvider;
+import se.phooey.raining.weather.cache.CachingWeatherProvider;
+import se.phooey.raining.weather.cache.InMemorySharedReportStore;
+import se.phooey.raining.weather.cache.NearCache;
+import se.phooey.raining.weather.cache.OffHeapReportCache;
+import se.phooey.raining.weather.cache.PermanentReportStore;
+import se.phooey.raining.weather.cache.RainReportCache;
+import se.phooey.raining.weather.cache.SharedReportStore;
+import se.phooey.raining.weather.cache.TtlPolicy;
+import se.phooey.raining.weather.cache.VolatilityTtlPolicy;
+import se.phooey.raining.weather.grid.RainGridService;
+import se.phooey.raining.weather.gridded.GriddedWeatherProvider;
+import se.phooey.raining.weather.grid.TileCache;
+import se.phooey.raining.weather.history.RainHistoryStore;
+import se.phooey.raining.weather.history.RecordingWeatherProvider;
+import se.phooey.raining.weather.keys.ApiKeyPool;
+import se.phooey.raining.weather.keys.PooledApiKey;
+import se.phooey.raining.weather.quota.BudgetPlanner;
+import se.phooey.raining.weather.quota.LeasedCallBudget;
+import se.phooey.raining.weather.quota.LocalQuotaAuthority;
+import se.phooey.raining.weather.quota.QuotaAuthority;
 import tk.plogitech.darksky.api.jackson.DarkSkyJacksonClient;
 import tk.plogitech.darksky.forecast.APIKey;
 
 @Configuration
 @PropertySource("classpath:darksky.apikey.properties")
 public class WeatherProviderConfiguration {
-	@Value("${darksky.api.key}")
-	private String apiKey;
+	@Value("${darksky.api.keys:${darksky.api.key}}")
+	private String[] apiKeys;
+	@Value("${darksky.api.key-failure-threshold:3}")
+	private int apiKeyFailureThreshold;
+	@Value("${darksky.api.key-cool-down-seconds:300}")
+	private long apiKeyCoolDownSeconds;
 	@Value("${darksky.api.url}")
 	private String apiUrl;
-	
+	@Value("${isitraining.cache.ttl-seconds:600}")
+	private long cacheTtlSeconds;
+	@Value("${isitraining.cache.adaptive-ttl.enabled:true}")
+	private boolean adaptiveTtlEnabled;
+	@Value("${isitraining.cache.adaptive-ttl.min-seconds:120}")
+	private long adaptiveTtlMinimumSeconds;
+	@Value("${isitraining.cache.adaptive-ttl.max-seconds:1800}")
+	private long adaptiveTtlMaximumSeconds;
+	@Value("${isitraining.cache.adaptive-ttl.nowcast-seconds:60}")
+	private long adaptiveTtlNowcastSeconds;
+	@Value("${isitraining.cache.adaptive-ttl.history-seconds:3600}")
+	private long adaptiveTtlHistorySeconds;
+	@Value("${isitraining.cache.near.ttl-seconds:60}")
+	private long nearCacheTtlSeconds;
+	@Value("${isitraining.cache.near.max-entries:10000}")
+	private int nearCacheMaxEntries;
+	@Value("${isitraining.cache.off-heap.max-entries:0}")
+	private int offHeapCacheMaxEntries;
+	@Value("${isitraining.cache.shared.max-entries:100000}")
+	private int sharedCacheMaxEntries;
+	@Value("${isitraining.cache.shared.sweep-interval-seconds:60}")
+	private long sharedCacheSweepIntervalSeconds;
+	@Value("${isitraining.node-id:${random.uuid}}")
+	private String nodeId;
+	@Value("${isitraining.quota.lease-size:50}")
+	private int quotaLeaseSize;
+	@Value("${isitraining.quota.planner.daily-budget:0}")
+	private int plannerDailyBudget;
+	@Value("${isitraining.quota.planner.nodes:1}")
+	private int plannerNodes;
+	@Value("${isitraining.quota.planner.burst:20}")
+	private int plannerBurst;
+	@Value("${isitraining.quota.planner.smoothing:0.3}")
+	private double plannerSmoothing;
+	@Value("${isitraining.quota.planner.min-ttl-factor:0.5}")
+	private double plannerMinimumTtlFactor;
+	@Value("${isitraining.quota.planner.max-ttl-factor:4.0}")
+	private double plannerMaximumTtlFactor;
+	@Value("${isitraining.history.directory:${java.io.tmpdir}/isitraining-history}")
+	private String historyDirectory;
+	@Value("${isitraining.history.chunk-seconds:86400}")
+	private long historyChunkSeconds;
+	@Value("${isitraining.history.flush-interval-seconds:300}")
+	private long historyFlushIntervalSeconds;
+	@Value("${isitraining.history.retention-seconds:2592000}")
+	private long historyRetentionSeconds;
+	@Value("${isitraining.timemachine.directory:${java.io.tmpdir}/isitraining-timemachine}")
+	private String timeMachineDirectory;
+	@Value("${isitraining.grid.parallelism:8}")
+	private int gridParallelism;
+	@Value("${isitraining.grid.max-points:10000}")
+	private int gridMaxPoints;
+	@Value("${isitraining.grid.tile-ttl-seconds:300}")
+	private long gridTileTtlSeconds;
+	@Value("${isitraining.grid.max-tiles:4096}")
+	private int gridMaxTiles;
+	@Value("${isitraining.grid.max-calls:100}")
+	private int gridMaxCalls;
+
+	@Bean
+	public Clock clock() {
+		return Clock.systemUTC();
+	}
+
+	/**
+	 * The in-process stand-in is only used unless "isitraining.quota.authority"
+	 * names another {@link QuotaAuthority}, shared by all nodes, configured
+	 * elsewhere
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "isitraining.quota.authority", havingValue = "local", matchIfMissing = true)
+	public QuotaAuthority quotaAuthority() {
+		return new LocalQuotaAuthority(DarkSkyWeatherProvider.DAILY_CALL_BUDGET);
+	}
+
+	/**
+	 * Without a daily budget configured, the budgets of all keys are planned.
+	 * Each node only sees its own demand, so it plans its share of the budget of
+	 * the whole cluster
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "isitraining.quota.planner.enabled", havingValue = "true", matchIfMissing = true)
+	public BudgetPlanner budgetPlanner(Clock clock) {
+		int dailyBudget = plannerDailyBudget > 0 ? plannerDailyBudget
+				: DarkSkyWeatherProvider.DAILY_CALL_BUDGET * apiKeys.length;
+		return new BudgetPlanner(Math.max(1, dailyBudget / Math.max(1, plannerNodes)), plannerBurst,
+				plannerSmoothing, plannerMinimumTtlFactor, plannerMaximumTtlFactor, clock);
+	}
+
+	/**
+	 * Each key has a budget of its own at the {@link QuotaAuthority}, named after
+	 * the position of the key in "darksky.api.keys"
+	 */
+	@Bean
+	public ApiKeyPool darkSkyApiKeys(QuotaAuthority quotaAuthority, ObjectProvider<BudgetPlanner> budgetPlanner,
+			Clock clock) {
+		List<PooledApiKey> keys = new ArrayList<>();
+		for (int i = 0; i < apiKeys.length; i++) {
+			String name = "key-" + i;
+			keys.add(new PooledApiKey(name, new APIKey(apiKeys[i].trim()),
+					new LeasedCallBudget(quotaAuthority, "darksky:" + name, quotaLeaseSize, clock), clock));
+		}
+		return new ApiKeyPool(keys, apiKeyFailureThreshold, Duration.ofSeconds(apiKeyCoolDownSeconds),
+				budgetPlanner.getIfAvailable());
+	}
+
+	@Bean
+	public DarkSkyWeatherProvider darkSkyWeatherProvider(ApiKeyPool darkSkyApiKeys) {
+		return new DarkSkyWeatherProvider(darkSkyApiKeys, apiUrl, new DarkSkyJacksonClient());
+	}
+
+	/**
+	 * The in-process stand-in is only used unless "isitraining.cache.shared.store"
+	 * names another {@link SharedReportStore}, backed by a store reachable from
+	 * all nodes, configured elsewhere. It holds up to
+	 * "isitraining.cache.shared.max-entries" reports on the heap, or the reports
+	 * off the heap if a maximum number of entries is set for that, and removes
+	 * the expired reports periodically.
+	 */
+	@Bean(initMethod = "start", destroyMethod = "close")
+	@ConditionalOnProperty(name = "isitraining.cache.shared.store", havingValue = "in-memory", matchIfMissing = true)
+	public InMemorySharedReportStore sharedReportStore(Clock clock) {
+		RainReportCache reports = offHeapCacheMaxEntries <= 0 ? new NearCache(sharedCacheMaxEntries, clock)
+				: new OffHeapReportCache(offHeapCacheMaxEntries, new NearCache(nearCacheMaxEntries, clock), clock);
+		return new InMemorySharedReportStore(reports, Duration.ofSeconds(sharedCacheSweepIntervalSeconds));
+	}
+
+	@Bean(initMethod = "start", destroyMethod = "close")
+	public RainHistoryStore rainHistoryStore(Clock clock) {
+		return new RainHistoryStore(Paths.get(historyDirectory), Duration.ofSeconds(historyChunkSeconds),
+				Duration.ofSeconds(historyFlushIntervalSeconds), Duration.ofSeconds(historyRetentionSeconds), clock);
+	}
+
+	/**
+	 * Each report fetched on a cache miss is recorded in the
+	 * {@link RainHistoryStore} before being cached. Reports are fetched from the
+	 * GriddedWeatherProvider if a gridded forecast file is configured, otherwise
+	 * from Dark Sky. Either way the TTL is scaled to keep the calls within the
+	 * plan of the {@link BudgetPlanner}, as the GriddedWeatherProvider still calls
+	 * Dark Sky for locations outside the grid and for nowcasts. With adaptive
+	 * TTLs, each report is cached by its {@link VolatilityTtlPolicy volatility}
+	 * instead of a fixed TTL.
+	 */
+	@Bean
+	public CachingWeatherProvider cachingWeatherProvider(DarkSkyWeatherProvider darkSkyWeatherProvider,
+			ObjectProvider<GriddedWeatherProvider> griddedWeatherProvider, ObjectProvider<BudgetPlanner> budgetPlanner,
+			RainHistoryStore rainHistoryStore, SharedReportStore sharedReportStore, Clock clock) {
+		WeatherProvider source = griddedWeatherProvider.getIfAvailable();
+		if (source == null) {
+			source = darkSkyWeatherProvider;
+		}
+		TtlPolicy ttlPolicy = adaptiveTtlEnabled
+				? new VolatilityTtlPolicy(Duration.ofSeconds(adaptiveTtlMinimumSeconds),
+						Duration.ofSeconds(adaptiveTtlMaximumSeconds), Duration.ofSeconds(adaptiveTtlNowcastSeconds),
+						Duration.ofSeconds(adaptiveTtlHistorySeconds), rainHistoryStore, clock)
+				: TtlPolicy.fixed(Duration.ofSeconds(cacheTtlSeconds));
+		BudgetPlanner planner = budgetPlanner.getIfAvailable();
+		if (planner != null) {
+			ttlPolicy = ttlPolicy.scaledBy(planner::getTtlFactor);
+		}
+		return new CachingWeatherProvider(new RecordingWeatherProvider(source, rainHistoryStore, clock),
+				new NearCache(nearCacheMaxEntries, clock), sharedReportStore, ttlPolicy,
+				Duration.ofSeconds(nearCacheTtlSeconds), clock, nodeId);
+	}
+
+	/**
+	 * Reports of past dates never change, so they are cached permanently on disk.
+	 * Injected in place of the DarkSkyWeatherProvider wherever a
+	 * HistoricalWeatherProvider is needed
+	 */
 	@Bean
-	public WeatherProvider darkSkyWeatherProvider() {
-		return new DarkSkyWeatherProvider(new APIKey(apiKey), apiUrl, new DarkSkyJacksonClient(), Clock.systemUTC());
+	@Primary
+	public CachingHistoricalWeatherProvider historicalWeatherProvider(DarkSkyWeatherProvider darkSkyWeatherProvider) {
+		return new CachingHistoricalWeatherProvider(darkSkyWeatherProvider,
+				new PermanentReportStore(Paths.get(timeMachineDirectory)));
+	}
+
+	/**
+	 * Without sharding, every node serves all locations from its own cache,
+	 * otherwise the ShardingWeatherProvider takes the place of this bean
+	 */
+	@Bean
+	@Primary
+	@ConditionalOnProperty(name = "isitraining.sharding.enabled", havingValue = "false", matchIfMissing = true)
+	public WeatherProvider weatherProvider(CachingWeatherProvider cachingWeatherProvider) {
+		return cachingWeatherProvider;
+	}
+
+	/**
+	 * The points of the grid are requested from the primary WeatherProvider, so
+	 * they are cached, recorded and sharded like single locations
+	 */
+	@Bean(destroyMethod = "close")
+	public RainGridService rainGridService(WeatherProvider weatherProvider, CoordinatePrecision coordinatePrecision,
+			Clock clock) {
+		return new RainGridService(weatherProvider, coordinatePrecision, gridParallelism,
+				new TileCache(gridMaxTiles, clock), Duration.ofSeconds(gridTileTtlSeconds), clock, gridMaxPoints,
+				gridMaxCalls);
 	}
 }
@@ -0,0 +1,31 @@
+package se.phooey.raining.weather.cache;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+
+/**
+ * Flight Recorder event for a report evicted from a full
+ * {@link RainReportCache} before it expired
+ */
+@Name("se.phooey.raining.CacheEviction")
+@Label("Cache Eviction")
+@Category({ "Is It Raining", "Cache" })
+@Description("A rain report evicted from a full cache before it expired")
+@StackTrace(false)
+class CacheEvictionEvent extends Event {
+
+	@Label("Cache")
+	String cache;
+
+	@Label("Key")
+	long key;
+
+	@Label("Expires At")
+	@Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+	long expiresAt;
+}
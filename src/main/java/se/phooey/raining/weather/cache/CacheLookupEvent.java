@@ -0,0 +1,33 @@
+package se.phooey.raining.weather.cache;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for looking up a report in the cache tiers of a
+ * {@link CachingWeatherProvider}. Lookups are made for every request, so only
+ * the ones slower than a threshold are recorded by default.
+ */
+@Name("se.phooey.raining.CacheLookup")
+@Label("Cache Lookup")
+@Category({ "Is It Raining", "Cache" })
+@Description("A lookup of a rain report in the cache tiers")
+@StackTrace(false)
+@Threshold("1 ms")
+class CacheLookupEvent extends Event {
+
+	@Label("Latitude")
+	double latitude;
+
+	@Label("Longitude")
+	double longitude;
+
+	@Label("Tier")
+	@Description("The tier the report was found in, near or shared, or none on a miss")
+	String tier;
+}
@@ -0,0 +1,32 @@
+package se.phooey.raining.weather.cache;
+
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * A {@link RainReport} stored in a cache, together with the time it expires.
+ */
+public class CachedRainReport {
+
+	private final RainReport report;
+	private final long expiresAt;
+
+	/**
+	 * Creates a new CachedRainReport
+	 * 
+	 * @param report    the cached report
+	 * @param expiresAt the time the report expires, in milliseconds since the
+	 *                  epoch
+	 */
+	public CachedRainReport(RainReport report, long expiresAt) {
+		this.report = report;
+		this.expiresAt = expiresAt;
+	}
+
+	public RainReport getReport() {
+		return report;
+	}
+
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+}
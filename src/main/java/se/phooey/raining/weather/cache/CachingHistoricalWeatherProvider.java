@@ -0,0 +1,104 @@
+package se.phooey.raining.weather.cache;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.phooey.raining.weather.HistoricalWeatherProvider;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * {@link HistoricalWeatherProvider} caching the {@link RainReport}s of another
+ * HistoricalWeatherProvider permanently in a {@link PermanentReportStore}.<br>
+ * <br>
+ * A report of a past date never changes, so once stored it is served from the
+ * store forever and the underlying HistoricalWeatherProvider is never asked for
+ * it again. Concurrent requests for the same location and date on a node share
+ * one request to the underlying HistoricalWeatherProvider.
+ */
+public class CachingHistoricalWeatherProvider implements HistoricalWeatherProvider {
+
+	private final HistoricalWeatherProvider delegate;
+	private final PermanentReportStore store;
+	private final Logger logger;
+	private final ConcurrentHashMap<String, CompletableFuture<RainReport>> inFlight;
+	private final LongAdder hits;
+	private final LongAdder misses;
+
+	private RainReport fetch(long cell, double latitude, double longitude, LocalDate date)
+			throws RainReportException {
+		CompletableFuture<RainReport> future = new CompletableFuture<>();
+		String key = cell + "@" + date;
+		CompletableFuture<RainReport> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			return CachingWeatherProvider.await(existing);
+		}
+		try {
+			misses.increment();
+			RainReport report = delegate.rainReportForDate(latitude, longitude, date);
+			try {
+				store.put(cell, date, report);
+			} catch (IOException e) {
+				logger.warn("Could not store the RainReport for coordinates {}, {} on {}", latitude, longitude, date,
+						e);
+			}
+			future.complete(report);
+			return report;
+		} catch (RainReportException | RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	/**
+	 * Creates a new CachingHistoricalWeatherProvider
+	 * 
+	 * @param delegate the {@link HistoricalWeatherProvider} to cache the reports
+	 *                 of
+	 * @param store    the store to cache the reports in
+	 */
+	public CachingHistoricalWeatherProvider(HistoricalWeatherProvider delegate, PermanentReportStore store) {
+		this.delegate = delegate;
+		this.store = store;
+		this.logger = LoggerFactory.getLogger(CachingHistoricalWeatherProvider.class);
+		this.inFlight = new ConcurrentHashMap<>();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+	}
+
+	@Override
+	public RainReport rainReportForDate(double latitude, double longitude, LocalDate date)
+			throws RainReportException {
+		long cell = CellKey.of(latitude, longitude);
+		RainReport stored = store.get(cell, date);
+		if (stored != null) {
+			hits.increment();
+			return stored;
+		}
+		logger.debug("No stored RainReport for coordinates {}, {} on {}", latitude, longitude, date);
+		return fetch(cell, latitude, longitude, date);
+	}
+
+	/**
+	 * @return the number of requests served from the store
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of requests passed on to the underlying
+	 *         HistoricalWeatherProvider
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+}
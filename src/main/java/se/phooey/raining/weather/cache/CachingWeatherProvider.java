@@ -0,0 +1,298 @@
+package se.phooey.raining.weather.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.Mono;
+import se.phooey.raining.timing.Phase;
+import se.phooey.raining.timing.RequestTiming;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReactiveWeatherProvider;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * {@link WeatherProvider} caching the {@link RainReport}s of another
+ * WeatherProvider in two tiers: a small {@link RainReportCache near-cache} on
+ * each node, in front of a {@link SharedReportStore} shared by all nodes.<br>
+ * <br>
+ * A report is only requested from the underlying WeatherProvider when neither
+ * tier holds it, and concurrent requests for the same location on a node share
+ * one such request. A newly fetched report is written to both tiers, and an
+ * invalidation is published so other nodes drop the stale copy in their
+ * near-cache.<br>
+ * <br>
+ * Reports containing only some {@link ReportSection sections} are cached
+ * separately from full reports, and a request for some sections is also served
+ * from a cached report containing more sections.<br>
+ * <br>
+ * The same caches also serve a {@link ReactiveWeatherProvider}, through
+ * {@link #isItRainingAtCoordinates(double, double, Set, ReactiveWeatherProvider)},
+ * so both serving modes share the cached reports and the in-flight requests.
+ */
+public class CachingWeatherProvider implements WeatherProvider {
+
+	private final WeatherProvider delegate;
+	private final RainReportCache nearCache;
+	private final SharedReportStore sharedStore;
+	private final TtlPolicy ttlPolicy;
+	private final long nearTtlMillis;
+	private final Clock clock;
+	private final String nodeId;
+	private final Logger logger;
+	private final ConcurrentHashMap<Long, CompletableFuture<RainReport>> inFlight;
+	private final LongAdder nearHits;
+	private final LongAdder sharedHits;
+	private final LongAdder misses;
+
+	private void onInvalidation(long key, String origin) {
+		if (!nodeId.equals(origin)) {
+			nearCache.invalidate(key);
+		}
+	}
+
+	private RainReport fetch(long key, double latitude, double longitude, Set<ReportSection> sections)
+			throws RainReportException {
+		CompletableFuture<RainReport> future = new CompletableFuture<>();
+		CompletableFuture<RainReport> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			long start = System.nanoTime();
+			try {
+				return await(existing);
+			} finally {
+				RequestTiming.record(Phase.UPSTREAM, start);
+			}
+		}
+		try {
+			misses.increment();
+			RainReport report = delegate.isItRainingAtCoordinates(latitude, longitude, sections);
+			store(key, report, sections);
+			future.complete(report);
+			return report;
+		} catch (RainReportException | RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	private void store(long key, RainReport report, Set<ReportSection> sections) {
+		long start = System.nanoTime();
+		long now = clock.millis();
+		long ttlMillis = ttlPolicy.ttlMillis(report, sections);
+		sharedStore.put(key, report, now + ttlMillis);
+		nearCache.put(key, report, now + Math.min(nearTtlMillis, ttlMillis));
+		sharedStore.publishInvalidation(key, nodeId);
+		RequestTiming.record(Phase.CACHE, start);
+	}
+
+	private RainReport lookUp(long cell, int[] variants, double latitude, double longitude) {
+		long start = System.nanoTime();
+		CacheLookupEvent event = new CacheLookupEvent();
+		event.begin();
+		for (int variant : variants) {
+			CachedRainReport cached = nearCache.get(CellKey.withVariant(cell, variant));
+			if (cached != null) {
+				nearHits.increment();
+				lookedUp(event, start, "near", latitude, longitude);
+				return cached.getReport();
+			}
+		}
+		for (int variant : variants) {
+			long key = CellKey.withVariant(cell, variant);
+			CachedRainReport cached = sharedStore.get(key);
+			if (cached != null) {
+				sharedHits.increment();
+				nearCache.put(key, cached.getReport(),
+						Math.min(cached.getExpiresAt(), clock.millis() + nearTtlMillis));
+				lookedUp(event, start, "shared", latitude, longitude);
+				return cached.getReport();
+			}
+		}
+		lookedUp(event, start, "none", latitude, longitude);
+		logger.debug("No cached RainReport for coordinates {}, {}", latitude, longitude);
+		return null;
+	}
+
+	private static void lookedUp(CacheLookupEvent event, long start, String tier, double latitude,
+			double longitude) {
+		RequestTiming.record(Phase.CACHE, start);
+		event.end();
+		if (event.shouldCommit()) {
+			event.latitude = latitude;
+			event.longitude = longitude;
+			event.tier = tier;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Waits for a request shared by concurrent requests for the same report
+	 */
+	static RainReport await(CompletableFuture<RainReport> future) throws RainReportException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RainReportException("Interrupted while waiting for a RainReport", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RainReportException) {
+				throw (RainReportException) e.getCause();
+			}
+			throw new RainReportException("Could not generate a RainReport", e.getCause());
+		}
+	}
+
+	/**
+	 * Creates a new CachingWeatherProvider
+	 * 
+	 * @param delegate    the {@link WeatherProvider} to cache the reports of
+	 * @param nearCache   the node-local cache tier
+	 * @param sharedStore the cache tier shared by all nodes
+	 * @param ttl         how long a report is cached in the shared tier
+	 * @param nearTtl     how long a report is cached in the near-cache, at most
+	 *                    the ttl
+	 * @param clock       the Clock used to determine when reports expire
+	 * @param nodeId      a unique id of this node, used to ignore its own
+	 *                    invalidation messages
+	 */
+	public CachingWeatherProvider(WeatherProvider delegate, RainReportCache nearCache, SharedReportStore sharedStore,
+			Duration ttl, Duration nearTtl, Clock clock, String nodeId) {
+		this(delegate, nearCache, sharedStore, TtlPolicy.fixed(ttl), nearTtl, clock, nodeId);
+	}
+
+	/**
+	 * Creates a new CachingWeatherProvider caching each report as long as a
+	 * {@link TtlPolicy} decides
+	 * 
+	 * @param delegate    the {@link WeatherProvider} to cache the reports of
+	 * @param nearCache   the node-local cache tier
+	 * @param sharedStore the cache tier shared by all nodes
+	 * @param ttlPolicy   decides how long a report is cached in the shared tier
+	 * @param nearTtl     how long a report is cached in the near-cache, at most
+	 *                    the ttl of the report
+	 * @param clock       the Clock used to determine when reports expire
+	 * @param nodeId      a unique id of this node, used to ignore its own
+	 *                    invalidation messages
+	 */
+	public CachingWeatherProvider(WeatherProvider delegate, RainReportCache nearCache, SharedReportStore sharedStore,
+			TtlPolicy ttlPolicy, Duration nearTtl, Clock clock, String nodeId) {
+		this.delegate = delegate;
+		this.nearCache = nearCache;
+		this.sharedStore = sharedStore;
+		this.ttlPolicy = ttlPolicy;
+		this.nearTtlMillis = nearTtl.toMillis();
+		this.clock = clock;
+		this.nodeId = nodeId;
+		this.logger = LoggerFactory.getLogger(CachingWeatherProvider.class);
+		this.inFlight = new ConcurrentHashMap<>();
+		this.nearHits = new LongAdder();
+		this.sharedHits = new LongAdder();
+		this.misses = new LongAdder();
+		sharedStore.subscribe(this::onInvalidation);
+	}
+
+	@Override
+	public RainReport isItRainingAtCoordinates(double latitude, double longitude) throws RainReportException {
+		return isItRainingAtCoordinates(latitude, longitude, ReportSection.DEFAULT);
+	}
+
+	@Override
+	public RainReport isItRainingAtCoordinates(double latitude, double longitude, Set<ReportSection> sections)
+			throws RainReportException {
+		long cell = CellKey.of(latitude, longitude);
+		int[] variants = ReportSection.supersetsOf(ReportSection.mask(sections));
+		RainReport cached = lookUp(cell, variants, latitude, longitude);
+		return cached != null ? cached
+				: fetch(CellKey.withVariant(cell, variants[0]), latitude, longitude, sections);
+	}
+
+	/**
+	 * Provides a report from either cache tier, or requests it from a
+	 * {@link ReactiveWeatherProvider} without blocking when neither holds it.
+	 * Concurrent requests for the same location share one such request, also
+	 * with the requests made through the underlying WeatherProvider.
+	 * 
+	 * @param latitude  the latitude for the requested location
+	 * @param longitude the longitude for the requested location
+	 * @param sections  the sections of the report to fill in
+	 * @param upstream  the ReactiveWeatherProvider to request uncached reports
+	 *                  from
+	 * @return A Mono emitting the {@link RainReport} for the provided location
+	 */
+	public Mono<RainReport> isItRainingAtCoordinates(double latitude, double longitude, Set<ReportSection> sections,
+			ReactiveWeatherProvider upstream) {
+		return Mono.defer(() -> {
+			long cell = CellKey.of(latitude, longitude);
+			int[] variants = ReportSection.supersetsOf(ReportSection.mask(sections));
+			RainReport cached = lookUp(cell, variants, latitude, longitude);
+			if (cached != null) {
+				return Mono.just(cached);
+			}
+			long key = CellKey.withVariant(cell, variants[0]);
+			CompletableFuture<RainReport> future = new CompletableFuture<>();
+			CompletableFuture<RainReport> existing = inFlight.putIfAbsent(key, future);
+			if (existing != null) {
+				return Mono.fromFuture(existing.copy());
+			}
+			misses.increment();
+			return upstream.isItRainingAtCoordinates(latitude, longitude, sections)
+					.doOnNext(report -> store(key, report, sections)).doOnSuccess(future::complete)
+					.doOnError(future::completeExceptionally)
+					.doOnCancel(() -> future.completeExceptionally(
+							new RainReportException("The request for a RainReport was cancelled")))
+					.doFinally(signal -> inFlight.remove(key, future));
+		});
+	}
+
+	/**
+	 * Checks if a request could be served from either cache tier, without
+	 * counting a hit or requesting the report
+	 * 
+	 * @param latitude  the latitude of the location
+	 * @param longitude the longitude of the location
+	 * @param sections  the sections of the report
+	 * @return true if a report containing the sections is cached
+	 */
+	public boolean isCached(double latitude, double longitude, Set<ReportSection> sections) {
+		long cell = CellKey.of(latitude, longitude);
+		for (int variant : ReportSection.supersetsOf(ReportSection.mask(sections))) {
+			long key = CellKey.withVariant(cell, variant);
+			if (nearCache.get(key) != null || sharedStore.get(key) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of requests served from the near-cache
+	 */
+	public long getNearHits() {
+		return nearHits.sum();
+	}
+
+	/**
+	 * @return the number of requests served from the shared cache tier
+	 */
+	public long getSharedHits() {
+		return sharedHits.sum();
+	}
+
+	/**
+	 * @return the number of requests passed on to the underlying WeatherProvider
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+}
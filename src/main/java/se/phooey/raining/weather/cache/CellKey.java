@@ -0,0 +1,71 @@
+package se.phooey.raining.weather.cache;
+
+/**
+ * Packs the coordinates of a location into a single primitive long, used as
+ * the key of the cached {@link se.phooey.raining.weather.RainReport}s.<br>
+ * <br>
+ * The coordinates are stored with a precision of one microdegree, the latitude
+ * in the 28 most significant bits and the longitude in the following 29 bits.
+ * The 7 least significant bits hold the variant of the cached report, such as
+ * the {@link se.phooey.raining.weather.ReportSection sections} it contains, and
+ * are zero in the key returned by {@link #of(double, double)}.
+ */
+public final class CellKey {
+
+	private static final double MICRODEGREES_PER_DEGREE = 1_000_000;
+	private static final long LATITUDE_OFFSET = 90_000_000L;
+	private static final long LONGITUDE_OFFSET = 180_000_000L;
+	private static final int LATITUDE_SHIFT = 36;
+	private static final int LONGITUDE_SHIFT = 7;
+	private static final long LONGITUDE_MASK = (1L << 29) - 1;
+	private static final long VARIANT_MASK = (1L << LONGITUDE_SHIFT) - 1;
+
+	private CellKey() {
+	}
+
+	/**
+	 * Returns the key for the given coordinates
+	 * 
+	 * @param latitude  the latitude, -90 <= latitude <= 90
+	 * @param longitude the longitude, -180 <= longitude <= 180
+	 * @return the key for the coordinates
+	 */
+	public static long of(double latitude, double longitude) {
+		long lat = Math.round(latitude * MICRODEGREES_PER_DEGREE) + LATITUDE_OFFSET;
+		long lon = Math.round(longitude * MICRODEGREES_PER_DEGREE) + LONGITUDE_OFFSET;
+		return (lat << LATITUDE_SHIFT) | (lon << LONGITUDE_SHIFT);
+	}
+
+	/**
+	 * @param key a key created by {@link #of(double, double)}
+	 * @return the latitude of the key
+	 */
+	public static double latitude(long key) {
+		return ((key >>> LATITUDE_SHIFT) - LATITUDE_OFFSET) / MICRODEGREES_PER_DEGREE;
+	}
+
+	/**
+	 * @param key a key created by {@link #of(double, double)}
+	 * @return the longitude of the key
+	 */
+	public static double longitude(long key) {
+		return (((key >>> LONGITUDE_SHIFT) & LONGITUDE_MASK) - LONGITUDE_OFFSET) / MICRODEGREES_PER_DEGREE;
+	}
+
+	/**
+	 * @param key     a key created by {@link #of(double, double)}
+	 * @param variant the variant of the report, 0 <= variant < 128
+	 * @return the key of the variant of the report for the same coordinates
+	 */
+	public static long withVariant(long key, int variant) {
+		return (key & ~VARIANT_MASK) | (variant & VARIANT_MASK);
+	}
+
+	/**
+	 * @param key a key created by {@link #withVariant(long, int)}
+	 * @return the variant of the key
+	 */
+	public static int variant(long key) {
+		return (int) (key & VARIANT_MASK);
+	}
+}
@@ -0,0 +1,120 @@
+package se.phooey.raining.weather.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * In-process stand-in for a {@link SharedReportStore}, used when no external
+ * shared store is configured, and in tests where several nodes can share one
+ * instance to simulate a cluster.<br>
+ * <br>
+ * The reports are held in a bounded {@link RainReportCache}, by default on the
+ * heap. Once started, the expired reports are removed periodically on a
+ * background daemon thread, so reports of cells that are never requested again
+ * do not stay in the cache until they are evicted.
+ */
+public class InMemorySharedReportStore implements SharedReportStore, AutoCloseable {
+
+	private static final Duration DEFAULT_SWEEP_INTERVAL = Duration.ofMinutes(1);
+
+	private final RainReportCache reports;
+	private final long sweepIntervalMillis;
+	private final List<InvalidationListener> listeners;
+	private ScheduledExecutorService sweeper;
+
+	/**
+	 * Creates a new InMemorySharedReportStore holding the reports on the heap
+	 * 
+	 * @param maximumSize the maximum number of reports to hold
+	 * @param clock       the Clock used to determine if a report has expired
+	 */
+	public InMemorySharedReportStore(int maximumSize, Clock clock) {
+		this(new NearCache(maximumSize, clock));
+	}
+
+	/**
+	 * Creates a new InMemorySharedReportStore
+	 * 
+	 * @param reports the cache holding the reports
+	 */
+	public InMemorySharedReportStore(RainReportCache reports) {
+		this(reports, DEFAULT_SWEEP_INTERVAL);
+	}
+
+	/**
+	 * Creates a new InMemorySharedReportStore
+	 * 
+	 * @param reports       the cache holding the reports
+	 * @param sweepInterval how often the expired reports are removed once started
+	 */
+	public InMemorySharedReportStore(RainReportCache reports, Duration sweepInterval) {
+		this.reports = reports;
+		this.sweepIntervalMillis = sweepInterval.toMillis();
+		this.listeners = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * Starts removing the expired reports periodically
+	 */
+	public synchronized void start() {
+		if (sweeper != null) {
+			return;
+		}
+		sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "shared-report-sweeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sweeper.scheduleWithFixedDelay(this::removeExpired, sweepIntervalMillis, sweepIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Removes all expired reports
+	 * 
+	 * @return the number of reports removed
+	 */
+	public int removeExpired() {
+		return reports.removeExpired();
+	}
+
+	@Override
+	public CachedRainReport get(long key) {
+		return reports.get(key);
+	}
+
+	@Override
+	public void put(long key, RainReport report, long expiresAt) {
+		reports.put(key, report, expiresAt);
+	}
+
+	@Override
+	public void publishInvalidation(long key, String origin) {
+		for (InvalidationListener listener : listeners) {
+			listener.onInvalidation(key, origin);
+		}
+	}
+
+	@Override
+	public void subscribe(InvalidationListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Stops removing the expired reports periodically
+	 */
+	@Override
+	public synchronized void close() {
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+			sweeper = null;
+		}
+	}
+}
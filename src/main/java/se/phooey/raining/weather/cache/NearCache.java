@@ -0,0 +1,157 @@
+package se.phooey.raining.weather.cache;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * Small, bounded {@link RainReportCache} kept on each node in front of the
+ * shared cache tier, to serve the hottest cells without a round-trip to the
+ * shared tier.<br>
+ * <br>
+ * When the cache is full, the report expiring first among a small random
+ * sample of the cached reports is evicted, which is cheap and good enough for
+ * a cache this small. The keys are also kept densely in an array, so the
+ * sample is drawn from the whole cache rather than from the first entries of
+ * the map. Reads do not lock, while writes lock the cache.
+ */
+public class NearCache implements RainReportCache {
+
+	private static final int EVICTION_CANDIDATES = 8;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final ConcurrentHashMap<Long, Entry> reports;
+	private final int maximumSize;
+	private final Clock clock;
+	private long[] keys;
+
+	// The report cached for a key, and the position of the key in the keys
+	private static final class Entry {
+		private final CachedRainReport cached;
+		private int index;
+
+		private Entry(CachedRainReport cached, int index) {
+			this.cached = cached;
+			this.index = index;
+		}
+	}
+
+	private void add(long key, CachedRainReport cached) {
+		int size = reports.size();
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, (int) Math.min(maximumSize, 2L * keys.length));
+		}
+		keys[size] = key;
+		reports.put(key, new Entry(cached, size));
+	}
+
+	// Moves the last key into the position of the removed one
+	private void remove(long key, Entry entry) {
+		reports.remove(key);
+		int last = reports.size();
+		if (entry.index != last) {
+			long moved = keys[last];
+			keys[entry.index] = moved;
+			reports.get(moved).index = entry.index;
+		}
+	}
+
+	private void evictOne() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int size = reports.size();
+		long victim = 0;
+		Entry victimEntry = null;
+		for (int i = 0; i < EVICTION_CANDIDATES; i++) {
+			long candidate = keys[random.nextInt(size)];
+			Entry entry = reports.get(candidate);
+			if (victimEntry == null || entry.cached.getExpiresAt() < victimEntry.cached.getExpiresAt()) {
+				victim = candidate;
+				victimEntry = entry;
+			}
+		}
+		remove(victim, victimEntry);
+		long expiresAt = victimEntry.cached.getExpiresAt();
+		CacheEvictionEvent event = new CacheEvictionEvent();
+		if (event.shouldCommit() && expiresAt > clock.millis()) {
+			event.cache = "near";
+			event.key = victim;
+			event.expiresAt = expiresAt;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Creates a new NearCache
+	 * 
+	 * @param maximumSize the maximum number of reports to hold
+	 * @param clock       the Clock used to determine if a report has expired
+	 */
+	public NearCache(int maximumSize, Clock clock) {
+		this.reports = new ConcurrentHashMap<>();
+		this.maximumSize = maximumSize;
+		this.clock = clock;
+		this.keys = new long[Math.max(1, Math.min(maximumSize, INITIAL_CAPACITY))];
+	}
+
+	@Override
+	public CachedRainReport get(long key) {
+		Entry entry = reports.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.cached.getExpiresAt() <= clock.millis()) {
+			synchronized (this) {
+				if (reports.get(key) == entry) {
+					remove(key, entry);
+				}
+			}
+			return null;
+		}
+		return entry.cached;
+	}
+
+	@Override
+	public synchronized void put(long key, RainReport report, long expiresAt) {
+		CachedRainReport cached = new CachedRainReport(report, expiresAt);
+		Entry existing = reports.get(key);
+		if (existing != null) {
+			reports.put(key, new Entry(cached, existing.index));
+			return;
+		}
+		if (reports.size() >= maximumSize && !reports.isEmpty()) {
+			evictOne();
+		}
+		add(key, cached);
+	}
+
+	@Override
+	public synchronized void invalidate(long key) {
+		Entry entry = reports.get(key);
+		if (entry != null) {
+			remove(key, entry);
+		}
+	}
+
+	@Override
+	public synchronized int removeExpired() {
+		long now = clock.millis();
+		int removed = 0;
+		for (int i = reports.size() - 1; i >= 0; i--) {
+			long key = keys[i];
+			Entry entry = reports.get(key);
+			if (entry.cached.getExpiresAt() <= now) {
+				remove(key, entry);
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	@Override
+	public int size() {
+		return reports.size();
+	}
+}
@@ -0,0 +1,305 @@
+package se.phooey.raining.weather.cache;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+import se.phooey.raining.weather.DailyPrecipitation;
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * Bounded {@link RainReportCache} holding the reports off the Java heap, so
+ * the cache can hold millions of cells without adding to the work of the
+ * garbage collector.<br>
+ * <br>
+ * Each report is encoded into a fixed-width slot of {@link #SLOT_BYTES} bytes
+ * in a direct ByteBuffer: the key and the time the report expires, the
+ * coordinates and the probabilities and intensity as doubles, the types of
+ * precipitation as {@link Precipitation} ordinals, and up to
+ * {@link #MAXIMUM_DAYS} days of the daily forecast. The slots are split into
+ * {@link #SEGMENTS} segments, each an open-addressing table locked on its own.
+ * A key is looked up in the {@link #PROBES} slots following its hash, and a
+ * new key takes the first free or expired one of those slots, or else the one
+ * expiring first.<br>
+ * <br>
+ * Reports that do not fit into a slot, such as reports with a nowcast or with
+ * a type of precipitation that is not one of the Precipitation values, are
+ * kept in an overflow cache on the heap instead.
+ */
+public class OffHeapReportCache implements RainReportCache {
+
+	/**
+	 * The number of days of the daily forecast a slot holds
+	 */
+	public static final int MAXIMUM_DAYS = 8;
+
+	static final int SEGMENTS = 16;
+	static final int PROBES = 16;
+
+	private static final int KEY = 0;
+	private static final int EXPIRES_AT = 8;
+	private static final int LATITUDE = 16;
+	private static final int LONGITUDE = 24;
+	private static final int CURRENT_PROBABILITY = 32;
+	private static final int CURRENT_INTENSITY = 40;
+	private static final int CHANCE_OF_PRECIPITATION_TODAY = 48;
+	private static final int STATE = 56;
+	private static final int CURRENT_PRECIPITATION = 57;
+	private static final int TYPE_OF_PRECIPITATION_TODAY = 58;
+	private static final int DAYS = 59;
+	private static final int FIRST_DAY = 60;
+	private static final int DAY_TIME = 0;
+	private static final int DAY_PROBABILITY = 8;
+	private static final int DAY_PRECIPITATION = 16;
+	private static final int DAY_BYTES = 17;
+
+	/**
+	 * The number of bytes of each slot
+	 */
+	public static final int SLOT_BYTES = FIRST_DAY + MAXIMUM_DAYS * DAY_BYTES;
+
+	private static final byte EMPTY = 0;
+	private static final byte USED = 1;
+
+	private final Segment[] segments;
+	private final int slotMask;
+	private final RainReportCache overflow;
+	private final Clock clock;
+
+	private static final class Segment {
+		private final ByteBuffer slots;
+		private int size;
+
+		private Segment(int slotCount) {
+			this.slots = ByteBuffer.allocateDirect(slotCount * SLOT_BYTES);
+		}
+	}
+
+	/**
+	 * Creates a new OffHeapReportCache
+	 * 
+	 * @param capacity the number of reports to hold off the heap, rounded up so
+	 *                 each segment holds a power of two
+	 * @param overflow the cache holding the reports that do not fit into a slot
+	 * @param clock    the Clock used to determine if a report has expired
+	 * @throws IllegalArgumentException If a segment would need more than 2 GB
+	 */
+	public OffHeapReportCache(int capacity, RainReportCache overflow, Clock clock) {
+		int perSegment = (int) Math.max(PROBES, (capacity + (long) SEGMENTS - 1) / SEGMENTS);
+		int slotCount = Integer.highestOneBit(perSegment - 1) << 1;
+		if ((long) slotCount * SLOT_BYTES > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The capacity is too large: " + capacity);
+		}
+		this.segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(slotCount);
+		}
+		this.slotMask = slotCount - 1;
+		this.overflow = overflow;
+		this.clock = clock;
+	}
+
+	private static long hash(long key) {
+		long hash = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+		hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+
+	private Segment segmentFor(long hash) {
+		return segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+	}
+
+	private int offset(long hash, int probe) {
+		return (((int) hash + probe) & slotMask) * SLOT_BYTES;
+	}
+
+	private int find(Segment segment, long key, long hash) {
+		for (int probe = 0; probe < PROBES; probe++) {
+			int offset = offset(hash, probe);
+			if (segment.slots.get(offset + STATE) == USED && segment.slots.getLong(offset + KEY) == key) {
+				return offset;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isEncodable(String precipitation) {
+		return Precipitation.of(precipitation).toString().equals(precipitation);
+	}
+
+	static boolean fits(RainReport report) {
+		if (report.getNowcast() != null || report.getDailyForecast() == null
+				|| report.getDailyForecast().size() > MAXIMUM_DAYS || !isEncodable(report.getCurrentPrecipitation())
+				|| !isEncodable(report.getTypeOfPrecipitationToday())) {
+			return false;
+		}
+		for (DailyPrecipitation day : report.getDailyForecast()) {
+			if (!isEncodable(day.getPrecipitation())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void evicted(long key, long expiresAt) {
+		CacheEvictionEvent event = new CacheEvictionEvent();
+		if (event.shouldCommit() && expiresAt > clock.millis()) {
+			event.cache = "off-heap";
+			event.key = key;
+			event.expiresAt = expiresAt;
+			event.commit();
+		}
+	}
+
+	private static void encode(ByteBuffer slots, int offset, long key, RainReport report, long expiresAt) {
+		slots.putLong(offset + KEY, key);
+		slots.putLong(offset + EXPIRES_AT, expiresAt);
+		slots.putDouble(offset + LATITUDE, report.getLatitude());
+		slots.putDouble(offset + LONGITUDE, report.getLongitude());
+		slots.putDouble(offset + CURRENT_PROBABILITY, report.getCurrentProbability());
+		slots.putDouble(offset + CURRENT_INTENSITY, report.getCurrentIntensity());
+		slots.putDouble(offset + CHANCE_OF_PRECIPITATION_TODAY, report.getChanceOfPrecipitationToday());
+		slots.put(offset + CURRENT_PRECIPITATION,
+				(byte) Precipitation.of(report.getCurrentPrecipitation()).ordinal());
+		slots.put(offset + TYPE_OF_PRECIPITATION_TODAY,
+				(byte) Precipitation.of(report.getTypeOfPrecipitationToday()).ordinal());
+		List<DailyPrecipitation> days = report.getDailyForecast();
+		slots.put(offset + DAYS, (byte) days.size());
+		for (int i = 0; i < days.size(); i++) {
+			int day = offset + FIRST_DAY + i * DAY_BYTES;
+			slots.putLong(day + DAY_TIME, days.get(i).getTime());
+			slots.putDouble(day + DAY_PROBABILITY, days.get(i).getProbability());
+			slots.put(day + DAY_PRECIPITATION, (byte) Precipitation.of(days.get(i).getPrecipitation()).ordinal());
+		}
+		slots.put(offset + STATE, USED);
+	}
+
+	private static RainReport decode(ByteBuffer slots, int offset) {
+		Precipitation[] precipitation = Precipitation.values();
+		RainReport report = new RainReport(slots.getDouble(offset + LATITUDE), slots.getDouble(offset + LONGITUDE),
+				precipitation[slots.get(offset + CURRENT_PRECIPITATION)].toString(),
+				slots.getDouble(offset + CURRENT_PROBABILITY), slots.getDouble(offset + CURRENT_INTENSITY),
+				slots.getDouble(offset + CHANCE_OF_PRECIPITATION_TODAY),
+				precipitation[slots.get(offset + TYPE_OF_PRECIPITATION_TODAY)].toString());
+		int dayCount = slots.get(offset + DAYS);
+		if (dayCount > 0) {
+			List<DailyPrecipitation> days = new ArrayList<>(dayCount);
+			for (int i = 0; i < dayCount; i++) {
+				int day = offset + FIRST_DAY + i * DAY_BYTES;
+				days.add(new DailyPrecipitation(slots.getLong(day + DAY_TIME), slots.getDouble(day + DAY_PROBABILITY),
+						precipitation[slots.get(day + DAY_PRECIPITATION)].toString()));
+			}
+			report.setDailyForecast(days);
+		}
+		return report;
+	}
+
+	@Override
+	public CachedRainReport get(long key) {
+		long hash = hash(key);
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			int offset = find(segment, key, hash);
+			if (offset >= 0) {
+				long expiresAt = segment.slots.getLong(offset + EXPIRES_AT);
+				if (expiresAt <= clock.millis()) {
+					segment.slots.put(offset + STATE, EMPTY);
+					segment.size--;
+					return null;
+				}
+				return new CachedRainReport(decode(segment.slots, offset), expiresAt);
+			}
+		}
+		return overflow.get(key);
+	}
+
+	@Override
+	public void put(long key, RainReport report, long expiresAt) {
+		if (!fits(report)) {
+			invalidateSlot(key);
+			overflow.put(key, report, expiresAt);
+			return;
+		}
+		overflow.invalidate(key);
+		long hash = hash(key);
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			int offset = find(segment, key, hash);
+			if (offset < 0) {
+				long earliestExpiry = Long.MAX_VALUE;
+				for (int probe = 0; probe < PROBES; probe++) {
+					int candidate = offset(hash, probe);
+					long candidateExpiry = segment.slots.get(candidate + STATE) == EMPTY ? Long.MIN_VALUE
+							: segment.slots.getLong(candidate + EXPIRES_AT);
+					if (candidateExpiry < earliestExpiry) {
+						earliestExpiry = candidateExpiry;
+						offset = candidate;
+					}
+				}
+				// An expired report expired before any live one, so it is replaced first
+				if (earliestExpiry == Long.MIN_VALUE) {
+					segment.size++;
+				} else {
+					evicted(segment.slots.getLong(offset + KEY), earliestExpiry);
+				}
+			}
+			encode(segment.slots, offset, key, report, expiresAt);
+		}
+	}
+
+	private void invalidateSlot(long key) {
+		long hash = hash(key);
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			int offset = find(segment, key, hash);
+			if (offset >= 0) {
+				segment.slots.put(offset + STATE, EMPTY);
+				segment.size--;
+			}
+		}
+	}
+
+	@Override
+	public void invalidate(long key) {
+		invalidateSlot(key);
+		overflow.invalidate(key);
+	}
+
+	@Override
+	public int removeExpired() {
+		long now = clock.millis();
+		int removed = overflow.removeExpired();
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				for (int offset = 0; offset < segment.slots.capacity(); offset += SLOT_BYTES) {
+					if (segment.slots.get(offset + STATE) == USED && segment.slots.getLong(offset + EXPIRES_AT) <= now) {
+						segment.slots.put(offset + STATE, EMPTY);
+						segment.size--;
+						removed++;
+					}
+				}
+			}
+		}
+		return removed;
+	}
+
+	@Override
+	public int size() {
+		int size = overflow.size();
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of reports that can be held off the heap
+	 */
+	public int getCapacity() {
+		return segments.length * (slotMask + 1);
+	}
+}
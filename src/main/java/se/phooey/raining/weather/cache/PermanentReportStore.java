@@ -0,0 +1,86 @@
+package se.phooey.raining.weather.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * Permanent on-disk store of the {@link RainReport}s of past dates, which never
+ * change once the date has ended and are therefore stored without any ttl.<br>
+ * <br>
+ * Each report is stored as a JSON file of its own, named after the cell and the
+ * date of the report, in a directory per year. Files are written to a
+ * temporary file first and then moved in place, so a reader never sees a
+ * partially written report. Fields unknown to this version of RainReport are
+ * ignored when reading, so reports stored by other versions stay readable.
+ */
+public class PermanentReportStore {
+
+	private final Path directory;
+	private final ObjectMapper mapper;
+	private final Logger logger;
+
+	private Path pathOf(long cellKey, LocalDate date) {
+		return directory.resolve(String.valueOf(date.getYear()))
+				.resolve(String.format("%016x-%s.json", cellKey, date));
+	}
+
+	/**
+	 * Creates a new PermanentReportStore
+	 * 
+	 * @param directory the directory to store the reports in
+	 */
+	public PermanentReportStore(Path directory) {
+		this.directory = directory;
+		this.mapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		this.logger = LoggerFactory.getLogger(PermanentReportStore.class);
+	}
+
+	/**
+	 * @param cellKey the key of the cell, see {@link CellKey}
+	 * @param date    the date of the report
+	 * @return the stored report, or null if there is none or it is unreadable
+	 */
+	public RainReport get(long cellKey, LocalDate date) {
+		Path path = pathOf(cellKey, date);
+		try {
+			return mapper.readValue(Files.readAllBytes(path), RainReport.class);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			logger.warn("Ignoring unreadable stored RainReport {}", path, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a report, replacing any report stored for the same cell and date
+	 * 
+	 * @param cellKey the key of the cell, see {@link CellKey}
+	 * @param date    the date of the report
+	 * @param report  the report
+	 * @throws IOException If the report could not be stored
+	 */
+	public void put(long cellKey, LocalDate date, RainReport report) throws IOException {
+		Path path = pathOf(cellKey, date);
+		Files.createDirectories(path.getParent());
+		Path temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temporary, mapper.writeValueAsBytes(report));
+			Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+}
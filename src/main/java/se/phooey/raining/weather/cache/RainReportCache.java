@@ -0,0 +1,48 @@
+package se.phooey.raining.weather.cache;
+
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * A node-local cache of {@link RainReport}s, keyed by {@link CellKey}.
+ */
+public interface RainReportCache {
+
+	/**
+	 * Returns the cached report for a key, if it has not expired
+	 * 
+	 * @param key the {@link CellKey} of the report
+	 * @return the cached report, or null if there is no unexpired report cached
+	 */
+	public CachedRainReport get(long key);
+
+	/**
+	 * Caches a report, replacing any report already cached for the key
+	 * 
+	 * @param key       the {@link CellKey} of the report
+	 * @param report    the report to cache
+	 * @param expiresAt the time the report expires, in milliseconds since the
+	 *                  epoch
+	 */
+	public void put(long key, RainReport report, long expiresAt);
+
+	/**
+	 * Removes the report cached for a key, if any
+	 * 
+	 * @param key the {@link CellKey} of the report
+	 */
+	public void invalidate(long key);
+
+	/**
+	 * Removes all expired reports, which are otherwise only removed when read or
+	 * evicted
+	 * 
+	 * @return the number of reports removed
+	 */
+	public int removeExpired();
+
+	/**
+	 * @return the number of reports currently held by the cache, including
+	 *         expired reports not yet evicted
+	 */
+	public int size();
+}
@@ -0,0 +1,65 @@
+package se.phooey.raining.weather.cache;
+
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * The cache tier shared by all nodes of the service, so that a report fetched
+ * by one node can be reused by all of them.<br>
+ * <br>
+ * Implementations are expected to be backed by a store reachable from all
+ * nodes, and to deliver invalidation messages published by one node to the
+ * listeners registered on all other nodes.
+ * 
+ * @see InMemorySharedReportStore
+ */
+public interface SharedReportStore {
+
+	/**
+	 * Listener for invalidation messages published through the store
+	 */
+	@FunctionalInterface
+	public interface InvalidationListener {
+
+		/**
+		 * Called when a node has published an invalidation for a key
+		 * 
+		 * @param key    the {@link CellKey} whose report was replaced
+		 * @param origin the id of the node publishing the invalidation
+		 */
+		public void onInvalidation(long key, String origin);
+	}
+
+	/**
+	 * Returns the report stored for a key, if it has not expired
+	 * 
+	 * @param key the {@link CellKey} of the report
+	 * @return the stored report, or null if there is no unexpired report
+	 */
+	public CachedRainReport get(long key);
+
+	/**
+	 * Stores a report, replacing any report already stored for the key
+	 * 
+	 * @param key       the {@link CellKey} of the report
+	 * @param report    the report to store
+	 * @param expiresAt the time the report expires, in milliseconds since the
+	 *                  epoch
+	 */
+	public void put(long key, RainReport report, long expiresAt);
+
+	/**
+	 * Tells all nodes that the report for a key has been replaced, so any copy
+	 * they hold in a near-cache is stale
+	 * 
+	 * @param key    the {@link CellKey} of the replaced report
+	 * @param origin the id of the node publishing the invalidation
+	 */
+	public void publishInvalidation(long key, String origin);
+
+	/**
+	 * Registers a listener for invalidation messages
+	 * 
+	 * @param listener the listener to register
+	 */
+	public void subscribe(InvalidationListener listener);
+}
@@ -0,0 +1,43 @@
+package se.phooey.raining.weather.cache;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.DoubleSupplier;
+
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+
+/**
+ * Decides how long a newly fetched {@link RainReport} is cached by the
+ * {@link CachingWeatherProvider}.
+ */
+@FunctionalInterface
+public interface TtlPolicy {
+
+	/**
+	 * @param report   the fetched report
+	 * @param sections the sections filled in in the report
+	 * @return how long the report is cached, in milliseconds
+	 */
+	public long ttlMillis(RainReport report, Set<ReportSection> sections);
+
+	/**
+	 * @param ttl how long each report is cached
+	 * @return a TtlPolicy caching every report equally long
+	 */
+	public static TtlPolicy fixed(Duration ttl) {
+		long ttlMillis = ttl.toMillis();
+		return (report, sections) -> ttlMillis;
+	}
+
+	/**
+	 * Policies with bounds on their TTLs override this to scale the TTLs within
+	 * those bounds
+	 * 
+	 * @param factor the factor to scale the TTLs by, evaluated for each report
+	 * @return a TtlPolicy scaling the TTLs of this policy by the factor
+	 */
+	public default TtlPolicy scaledBy(DoubleSupplier factor) {
+		return (report, sections) -> (long) (ttlMillis(report, sections) * factor.getAsDouble());
+	}
+}
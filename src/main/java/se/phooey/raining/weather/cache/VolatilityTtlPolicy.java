@@ -0,0 +1,157 @@
+package se.phooey.raining.weather.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.DoubleSupplier;
+
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.history.RainHistoryStore;
+import se.phooey.raining.weather.history.RainSample;
+
+/**
+ * {@link TtlPolicy} caching each report for as long as its answer is unlikely
+ * to change, between a minimum and a maximum TTL.<br>
+ * <br>
+ * The volatility of a report, from 0 to 1, is the highest of:
+ * <ul>
+ * <li>the uncertainty of the current probability of precipitation, highest at
+ * 50%, if the report has the {@link ReportSection#CURRENTLY} section</li>
+ * <li>half the current intensity relative to heavy rain, as showers come and
+ * go, if the report has the CURRENTLY section</li>
+ * <li>half the uncertainty of the chance of precipitation today, if the report
+ * has the {@link ReportSection#DAILY} section</li>
+ * <li>the changes of the type of precipitation, and the swing of the
+ * probability, in the recent history of the cell in the
+ * {@link RainHistoryStore}</li>
+ * </ul>
+ * Negative values, which mark fields a report or sample does not have, are
+ * left out. A report without any volatility, like a dry day with a probability
+ * of 0, is cached for the maximum TTL, and the most volatile reports for the
+ * minimum TTL, so the calls are spent on the cells where the answer is likely
+ * to change. A report with the {@link ReportSection#MINUTELY} section is cached
+ * for at most the nowcast TTL, however stable it is, since its nowcast starts
+ * at the time it was fetched.<br>
+ * <br>
+ * When {@link #scaledBy(DoubleSupplier) scaled}, the factor is applied before
+ * the TTL is bounded by the minimum and maximum TTL, and the nowcast TTL is not
+ * scaled at all.
+ */
+public class VolatilityTtlPolicy implements TtlPolicy {
+
+	private static final double HEAVY_INTENSITY = 4.0;
+	private static final int TRANSITIONS_FOR_VOLATILE = 2;
+
+	private final long minimumTtlMillis;
+	private final long maximumTtlMillis;
+	private final long nowcastTtlMillis;
+	private final long historySeconds;
+	private final RainHistoryStore history;
+	private final Clock clock;
+	private final DoubleSupplier ttlFactor;
+
+	private static double uncertainty(double probability) {
+		double clamped = Math.max(0, Math.min(1, probability));
+		return 4 * clamped * (1 - clamped);
+	}
+
+	private double historicalVolatility(RainReport report, Set<ReportSection> sections) {
+		long now = clock.instant().getEpochSecond();
+		List<RainSample> samples = history.query(CellKey.of(report.getLatitude(), report.getLongitude()),
+				now - historySeconds, now);
+		int transitions = 0;
+		double lowest = Double.POSITIVE_INFINITY;
+		double highest = Double.NEGATIVE_INFINITY;
+		if (sections.contains(ReportSection.CURRENTLY) && report.getCurrentProbability() >= 0) {
+			lowest = report.getCurrentProbability();
+			highest = report.getCurrentProbability();
+		}
+		RainSample previous = null;
+		for (RainSample sample : samples) {
+			if (sample.getCurrentProbability() < 0) {
+				continue;
+			}
+			if (previous != null
+					&& !Objects.equals(sample.getCurrentPrecipitation(), previous.getCurrentPrecipitation())) {
+				transitions++;
+			}
+			lowest = Math.min(lowest, sample.getCurrentProbability());
+			highest = Math.max(highest, sample.getCurrentProbability());
+			previous = sample;
+		}
+		return Math.max(Math.min(1.0, (double) transitions / TRANSITIONS_FOR_VOLATILE),
+				Math.max(0, highest - lowest));
+	}
+
+	private VolatilityTtlPolicy(VolatilityTtlPolicy policy, DoubleSupplier ttlFactor) {
+		this.minimumTtlMillis = policy.minimumTtlMillis;
+		this.maximumTtlMillis = policy.maximumTtlMillis;
+		this.nowcastTtlMillis = policy.nowcastTtlMillis;
+		this.historySeconds = policy.historySeconds;
+		this.history = policy.history;
+		this.clock = policy.clock;
+		this.ttlFactor = ttlFactor;
+	}
+
+	/**
+	 * Creates a new VolatilityTtlPolicy
+	 * 
+	 * @param minimumTtl    how long the most volatile reports are cached
+	 * @param maximumTtl    how long reports without any volatility are cached
+	 * @param nowcastTtl    how long reports with a nowcast are cached at most
+	 * @param historyWindow how far back the history of a cell is considered
+	 * @param history       the store of the recent reports of each cell
+	 * @param clock         the Clock used to determine the recent history
+	 */
+	public VolatilityTtlPolicy(Duration minimumTtl, Duration maximumTtl, Duration nowcastTtl,
+			Duration historyWindow, RainHistoryStore history, Clock clock) {
+		this.minimumTtlMillis = minimumTtl.toMillis();
+		this.maximumTtlMillis = Math.max(minimumTtlMillis, maximumTtl.toMillis());
+		this.nowcastTtlMillis = nowcastTtl.toMillis();
+		this.historySeconds = historyWindow.getSeconds();
+		this.history = history;
+		this.clock = clock;
+		this.ttlFactor = () -> 1.0;
+	}
+
+	/**
+	 * @param report   the report to determine the volatility of
+	 * @param sections the sections filled in in the report
+	 * @return how likely the answer of the report is to change soon, from 0 to 1
+	 */
+	public double volatility(RainReport report, Set<ReportSection> sections) {
+		double volatility = 0;
+		if (sections.contains(ReportSection.CURRENTLY)) {
+			volatility = Math.max(volatility, uncertainty(report.getCurrentProbability()));
+			volatility = Math.max(volatility,
+					Math.min(1.0, Math.max(0, report.getCurrentIntensity()) / HEAVY_INTENSITY) / 2);
+		}
+		if (sections.contains(ReportSection.DAILY)) {
+			volatility = Math.max(volatility, uncertainty(report.getChanceOfPrecipitationToday()) / 2);
+		}
+		return Math.max(volatility, historicalVolatility(report, sections));
+	}
+
+	@Override
+	public long ttlMillis(RainReport report, Set<ReportSection> sections) {
+		double ttlMillis = (maximumTtlMillis - (maximumTtlMillis - minimumTtlMillis) * volatility(report, sections))
+				* ttlFactor.getAsDouble();
+		long boundedTtlMillis = Math.max(minimumTtlMillis, Math.min(maximumTtlMillis, Math.round(ttlMillis)));
+		return sections.contains(ReportSection.MINUTELY) ? Math.min(boundedTtlMillis, nowcastTtlMillis)
+				: boundedTtlMillis;
+	}
+
+	/**
+	 * @param factor the factor to scale the TTLs by, evaluated for each report
+	 * @return a VolatilityTtlPolicy scaling the TTLs of this policy by the
+	 *         factor, still within the minimum and maximum TTL, and without
+	 *         scaling the nowcast TTL
+	 */
+	@Override
+	public VolatilityTtlPolicy scaledBy(DoubleSupplier factor) {
+		return new VolatilityTtlPolicy(this, () -> ttlFactor.getAsDouble() * factor.getAsDouble());
+	}
+}
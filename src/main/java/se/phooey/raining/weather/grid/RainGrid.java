@@ -0,0 +1,92 @@
+package se.phooey.raining.weather.grid;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import se.phooey.raining.weather.Precipitation;
+
+/**
+ * The current type of precipitation at each point of a grid covering a
+ * bounding box, in a compact form.<br>
+ * <br>
+ * The points are spaced by the resolution of the grid, starting at the
+ * south-west corner. The precipitation of the point in row r (counted from the
+ * south) and column c (counted from the west) is at index r * columns + c of
+ * {@link #getPrecipitation()}, as the index of the type of precipitation in
+ * {@link #getLegend()}. The array is serialized as a base64 String in JSON and
+ * as a byte string in CBOR and Smile.
+ */
+public final class RainGrid {
+
+	private static final List<String> LEGEND = Collections.unmodifiableList(
+			Arrays.stream(Precipitation.values()).map(Precipitation::toString).collect(Collectors.toList()));
+
+	private final double south;
+	private final double west;
+	private final double resolution;
+	private final int rows;
+	private final int columns;
+	private final byte[] precipitation;
+
+	/**
+	 * Creates a new RainGrid
+	 * 
+	 * @param south         the latitude of the southernmost row
+	 * @param west          the longitude of the westernmost column
+	 * @param resolution    the distance between two points, in degrees
+	 * @param rows          the number of rows
+	 * @param columns       the number of columns
+	 * @param precipitation the {@link Precipitation} ordinal of each point
+	 */
+	public RainGrid(double south, double west, double resolution, int rows, int columns, byte[] precipitation) {
+		this.south = south;
+		this.west = west;
+		this.resolution = resolution;
+		this.rows = rows;
+		this.columns = columns;
+		this.precipitation = precipitation;
+	}
+
+	/**
+	 * @param row    the row of the point, counted from the south
+	 * @param column the column of the point, counted from the west
+	 * @return the type of precipitation at the point
+	 */
+	public Precipitation precipitationAt(int row, int column) {
+		return Precipitation.values()[precipitation[row * columns + column]];
+	}
+
+	/**
+	 * @return the String representations of the types of precipitation, in the
+	 *         order of the values of {@link #getPrecipitation()}
+	 */
+	public List<String> getLegend() {
+		return LEGEND;
+	}
+
+	public double getSouth() {
+		return south;
+	}
+
+	public double getWest() {
+		return west;
+	}
+
+	public double getResolution() {
+		return resolution;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public byte[] getPrecipitation() {
+		return precipitation;
+	}
+}
@@ -0,0 +1,361 @@
+package se.phooey.raining.weather.grid;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * Computes {@link RainGrid}s for bounding boxes from the current conditions
+ * reported by a {@link WeatherProvider}.<br>
+ * <br>
+ * The points of a grid lie on multiples of its resolution, so the grids of
+ * overlapping bounding boxes with the same resolution share their points. The
+ * points are grouped into square tiles of {@link #TILE_SIZE} by TILE_SIZE
+ * points aligned to the coordinate grid, and kept in a {@link TileCache}, so
+ * panning a map mostly reuses cached points. Only the points of a tile within
+ * the requested bounding box are computed, and the tile is cached with the
+ * points it has so far, so a later request overlapping it only computes the
+ * points it is missing. The missing points are computed in parallel on a
+ * {@link ForkJoinPool}, one row of a tile per task. Each point is bucketed by
+ * the {@link CoordinatePrecision} before it is requested, so it shares the
+ * cached report of a single location in the same cell.<br>
+ * <br>
+ * Each request asks the WeatherProvider for at most a maximum number of points,
+ * so one large grid can not use up the daily budget of Dark Sky calls. Once the
+ * WeatherProvider fails, for example because that budget is used up, no more
+ * points of the request are asked for. Points not computed for either reason
+ * are reported as {@link Precipitation#UNKNOWN} and are not cached.
+ */
+public class RainGridService implements AutoCloseable {
+
+	/**
+	 * The number of points along each side of a tile
+	 */
+	public static final int TILE_SIZE = 16;
+
+	private static final int MILLIDEGREES_PER_DEGREE = 1000;
+	private static final int MAXIMUM_STEP = MILLIDEGREES_PER_DEGREE;
+	private static final long INDEX_OFFSET = 1L << 19;
+	private static final byte NOT_COMPUTED = -1;
+	private static final byte UNKNOWN = (byte) Precipitation.UNKNOWN.ordinal();
+	private static final Set<ReportSection> SECTIONS = EnumSet.of(ReportSection.CURRENTLY);
+
+	private final WeatherProvider weatherProvider;
+	private final CoordinatePrecision coordinatePrecision;
+	private final ForkJoinPool pool;
+	private final TileCache tileCache;
+	private final long tileTtlMillis;
+	private final Clock clock;
+	private final int maximumPoints;
+	private final int maximumCalls;
+	private final Logger logger;
+	private final LongAdder tileHits;
+	private final LongAdder tileMisses;
+
+	/**
+	 * The state of one request, shared by the tasks computing its points
+	 */
+	private static final class Request {
+		private final AtomicInteger remainingCalls;
+		private volatile boolean failed;
+
+		private Request(int maximumCalls) {
+			this.remainingCalls = new AtomicInteger(maximumCalls);
+		}
+	}
+
+	/**
+	 * A tile being completed, shared by the tasks computing its rows. Only the
+	 * rows and columns from the first to the last within the bounding box are
+	 * computed.
+	 */
+	private static final class Tile {
+		private final long key;
+		private final int step;
+		private final long firstRow;
+		private final long firstColumn;
+		private final int fromRow;
+		private final int toRow;
+		private final int fromColumn;
+		private final int toColumn;
+		private final byte[] precipitation;
+		private final long expiresAt;
+		private volatile boolean computed;
+
+		private Tile(long key, int step, long tileRow, long tileColumn, int[] bounds, byte[] precipitation,
+				long expiresAt) {
+			this.key = key;
+			this.step = step;
+			this.firstRow = tileRow * TILE_SIZE;
+			this.firstColumn = tileColumn * TILE_SIZE;
+			this.fromRow = bounds[0];
+			this.toRow = bounds[1];
+			this.fromColumn = bounds[2];
+			this.toColumn = bounds[3];
+			this.precipitation = precipitation;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private final class RowsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final transient Request request;
+		private final transient Tile tile;
+		private final int from;
+		private final int to;
+
+		private RowsTask(Request request, Tile tile, int from, int to) {
+			this.request = request;
+			this.tile = tile;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RowsTask(request, tile, from, middle), new RowsTask(request, tile, middle, to));
+				return;
+			}
+			double latitude = toDegrees(tile.firstRow + from, tile.step);
+			for (int column = tile.fromColumn; column < tile.toColumn; column++) {
+				int index = from * TILE_SIZE + column;
+				if (tile.precipitation[index] == NOT_COMPUTED) {
+					byte point = precipitationAt(request, latitude, toDegrees(tile.firstColumn + column, tile.step));
+					if (point != NOT_COMPUTED) {
+						tile.precipitation[index] = point;
+						tile.computed = true;
+					}
+				}
+			}
+		}
+	}
+
+	private static double toDegrees(long index, int step) {
+		return index * step / (double) MILLIDEGREES_PER_DEGREE;
+	}
+
+	private static long tileKey(int step, long tileRow, long tileColumn) {
+		return ((long) step << 40) | ((tileRow + INDEX_OFFSET) << 20) | (tileColumn + INDEX_OFFSET);
+	}
+
+	private static byte[] newTile() {
+		byte[] precipitation = new byte[TILE_SIZE * TILE_SIZE];
+		Arrays.fill(precipitation, NOT_COMPUTED);
+		return precipitation;
+	}
+
+	/**
+	 * @return the first and last (exclusive) row, and the first and last
+	 *         (exclusive) column, of the points of the grid within a tile
+	 */
+	private static int[] boundsWithin(long tileRow, long tileColumn, long firstRow, long lastRow, long firstColumn,
+			long lastColumn) {
+		long tileFirstRow = tileRow * TILE_SIZE;
+		long tileFirstColumn = tileColumn * TILE_SIZE;
+		return new int[] { (int) (Math.max(firstRow, tileFirstRow) - tileFirstRow),
+				(int) (Math.min(lastRow, tileFirstRow + TILE_SIZE - 1) - tileFirstRow + 1),
+				(int) (Math.max(firstColumn, tileFirstColumn) - tileFirstColumn),
+				(int) (Math.min(lastColumn, tileFirstColumn + TILE_SIZE - 1) - tileFirstColumn + 1) };
+	}
+
+	private static boolean isComplete(byte[] precipitation, int[] bounds) {
+		for (int row = bounds[0]; row < bounds[1]; row++) {
+			for (int column = bounds[2]; column < bounds[3]; column++) {
+				if (precipitation[row * TILE_SIZE + column] == NOT_COMPUTED) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private byte precipitationAt(Request request, double latitude, double longitude) {
+		if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+			return UNKNOWN;
+		}
+		if (request.failed) {
+			return NOT_COMPUTED;
+		}
+		int remainingCalls = request.remainingCalls.getAndDecrement();
+		if (remainingCalls <= 0) {
+			if (remainingCalls == 0) {
+				logger.warn("The rain grid request used up its {} points, the rest of the grid is unknown",
+						maximumCalls);
+			}
+			return NOT_COMPUTED;
+		}
+		try {
+			return (byte) Precipitation.of(weatherProvider.isItRainingAtCoordinates(
+					coordinatePrecision.latitude(latitude), coordinatePrecision.longitude(longitude), SECTIONS)
+					.getCurrentPrecipitation()).ordinal();
+		} catch (RainReportException e) {
+			request.failed = true;
+			logger.warn("Stopped computing the rain grid at {}, {}: {}", latitude, longitude, e.getMessage());
+			return NOT_COMPUTED;
+		}
+	}
+
+	/**
+	 * Creates a new RainGridService
+	 * 
+	 * @param weatherProvider     the {@link WeatherProvider} to get the current
+	 *                            conditions at each point from
+	 * @param coordinatePrecision the {@link CoordinatePrecision} to bucket each
+	 *                            point by before requesting it
+	 * @param parallelism         the number of points requested from the
+	 *                            WeatherProvider in parallel
+	 * @param tileCache           the cache of tiles
+	 * @param tileTtl             how long the points of a tile are cached
+	 * @param clock               the Clock used to determine when tiles expire
+	 * @param maximumPoints       the maximum number of points of a grid
+	 * @param maximumCalls        the maximum number of points requested from
+	 *                            the WeatherProvider for one grid
+	 */
+	public RainGridService(WeatherProvider weatherProvider, CoordinatePrecision coordinatePrecision, int parallelism,
+			TileCache tileCache, Duration tileTtl, Clock clock, int maximumPoints, int maximumCalls) {
+		this.weatherProvider = weatherProvider;
+		this.coordinatePrecision = coordinatePrecision;
+		this.pool = new ForkJoinPool(parallelism);
+		this.tileCache = tileCache;
+		this.tileTtlMillis = tileTtl.toMillis();
+		this.clock = clock;
+		this.maximumPoints = maximumPoints;
+		this.maximumCalls = maximumCalls;
+		this.logger = LoggerFactory.getLogger(RainGridService.class);
+		this.tileHits = new LongAdder();
+		this.tileMisses = new LongAdder();
+	}
+
+	/**
+	 * Returns the grid of the points within a bounding box
+	 * 
+	 * @param south      the southern latitude of the bounding box
+	 * @param west       the western longitude of the bounding box
+	 * @param north      the northern latitude of the bounding box
+	 * @param east       the eastern longitude of the bounding box
+	 * @param resolution the distance between two points, in degrees, a multiple
+	 *                   of 0.001 and at most 1
+	 * @return the grid of the points within the bounding box
+	 * @throws IllegalArgumentException If the bounding box is empty, the
+	 *                                  resolution is invalid, or the grid would
+	 *                                  have too many points
+	 */
+	public RainGrid rainGrid(double south, double west, double north, double east, double resolution) {
+		double millidegrees = resolution * MILLIDEGREES_PER_DEGREE;
+		int step = (int) Math.round(millidegrees);
+		if (step < 1 || step > MAXIMUM_STEP || Math.abs(millidegrees - step) > 1e-6) {
+			throw new IllegalArgumentException("The resolution needs to be a multiple of 0.001 degrees, at most 1.");
+		}
+		long firstRow = (long) Math.ceil(south * MILLIDEGREES_PER_DEGREE / step - 1e-9);
+		long lastRow = (long) Math.floor(north * MILLIDEGREES_PER_DEGREE / step + 1e-9);
+		long firstColumn = (long) Math.ceil(west * MILLIDEGREES_PER_DEGREE / step - 1e-9);
+		long lastColumn = (long) Math.floor(east * MILLIDEGREES_PER_DEGREE / step + 1e-9);
+		long rows = lastRow - firstRow + 1;
+		long columns = lastColumn - firstColumn + 1;
+		if (rows < 1 || columns < 1) {
+			throw new IllegalArgumentException("The bounding box contains no points of the grid.");
+		}
+		if (rows * columns > maximumPoints) {
+			throw new IllegalArgumentException(
+					String.format("The grid would have %d points, at most %d are allowed.", rows * columns,
+							maximumPoints));
+		}
+		long firstTileRow = Math.floorDiv(firstRow, TILE_SIZE);
+		long firstTileColumn = Math.floorDiv(firstColumn, TILE_SIZE);
+		int tileRows = (int) (Math.floorDiv(lastRow, TILE_SIZE) - firstTileRow + 1);
+		int tileColumns = (int) (Math.floorDiv(lastColumn, TILE_SIZE) - firstTileColumn + 1);
+		byte[][] tiles = new byte[tileRows * tileColumns][];
+		Request request = new Request(maximumCalls);
+		List<Tile> missing = new ArrayList<>();
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		long expiresAt = clock.millis() + tileTtlMillis;
+		for (int i = 0; i < tiles.length; i++) {
+			long tileRow = firstTileRow + i / tileColumns;
+			long tileColumn = firstTileColumn + i % tileColumns;
+			long key = tileKey(step, tileRow, tileColumn);
+			int[] bounds = boundsWithin(tileRow, tileColumn, firstRow, lastRow, firstColumn, lastColumn);
+			TileCache.CachedTile cached = tileCache.get(key);
+			if (cached != null && isComplete(cached.getPrecipitation(), bounds)) {
+				tileHits.increment();
+				tiles[i] = cached.getPrecipitation();
+			} else {
+				tileMisses.increment();
+				// A cached tile is shared, so its missing points are added to a copy, which
+				// keeps the expiry of the points already computed
+				Tile tile = cached == null
+						? new Tile(key, step, tileRow, tileColumn, bounds, newTile(), expiresAt)
+						: new Tile(key, step, tileRow, tileColumn, bounds, cached.getPrecipitation().clone(),
+								cached.getExpiresAt());
+				missing.add(tile);
+				tasks.add(new RowsTask(request, tile, bounds[0], bounds[1]));
+				tiles[i] = tile.precipitation;
+			}
+		}
+		if (!tasks.isEmpty()) {
+			pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+			for (Tile tile : missing) {
+				if (tile.computed) {
+					tileCache.put(tile.key, tile.precipitation, tile.expiresAt);
+				}
+			}
+		}
+		byte[] precipitation = new byte[(int) (rows * columns)];
+		for (int row = 0; row < rows; row++) {
+			long gridRow = firstRow + row;
+			int tileRow = (int) (Math.floorDiv(gridRow, TILE_SIZE) - firstTileRow);
+			int rowInTile = (int) Math.floorMod(gridRow, TILE_SIZE);
+			for (int column = 0; column < columns; column++) {
+				long gridColumn = firstColumn + column;
+				int tileColumn = (int) (Math.floorDiv(gridColumn, TILE_SIZE) - firstTileColumn);
+				int columnInTile = (int) Math.floorMod(gridColumn, TILE_SIZE);
+				byte point = tiles[tileRow * tileColumns + tileColumn][rowInTile * TILE_SIZE + columnInTile];
+				precipitation[(int) (row * columns + column)] = point == NOT_COMPUTED ? UNKNOWN : point;
+			}
+		}
+		return new RainGrid(toDegrees(firstRow, step), toDegrees(firstColumn, step), step
+				/ (double) MILLIDEGREES_PER_DEGREE, (int) rows, (int) columns, precipitation);
+	}
+
+	/**
+	 * @return the number of tiles served from the tile cache, having all the
+	 *         points requested
+	 */
+	public long getTileHits() {
+		return tileHits.sum();
+	}
+
+	/**
+	 * @return the number of tiles with points computed
+	 */
+	public long getTileMisses() {
+		return tileMisses.sum();
+	}
+
+	/**
+	 * Stops the threads of the pool computing the tiles
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,116 @@
+package se.phooey.raining.weather.grid;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of the tiles of the rain grid, keyed by tile.<br>
+ * <br>
+ * When the cache is full, the tile expiring first among a small sample of the
+ * cached tiles is evicted, like in the
+ * {@link se.phooey.raining.weather.cache.NearCache NearCache}.
+ */
+public class TileCache {
+
+	private static final int EVICTION_CANDIDATES = 8;
+
+	private final ConcurrentHashMap<Long, CachedTile> tiles;
+	private final int maximumSize;
+	private final Clock clock;
+
+	/**
+	 * A cached tile and the time it expires
+	 */
+	public static final class CachedTile {
+		private final byte[] precipitation;
+		private final long expiresAt;
+
+		private CachedTile(byte[] precipitation, long expiresAt) {
+			this.precipitation = precipitation;
+			this.expiresAt = expiresAt;
+		}
+
+		/**
+		 * @return the precipitation of the points of the tile
+		 */
+		public byte[] getPrecipitation() {
+			return precipitation;
+		}
+
+		/**
+		 * @return the time the tile expires, in milliseconds since the epoch
+		 */
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+	}
+
+	private void evictOne() {
+		Iterator<Map.Entry<Long, CachedTile>> iterator = tiles.entrySet().iterator();
+		Long victim = null;
+		long earliestExpiry = Long.MAX_VALUE;
+		for (int i = 0; i < EVICTION_CANDIDATES && iterator.hasNext(); i++) {
+			Map.Entry<Long, CachedTile> candidate = iterator.next();
+			if (candidate.getValue().expiresAt < earliestExpiry) {
+				earliestExpiry = candidate.getValue().expiresAt;
+				victim = candidate.getKey();
+			}
+		}
+		if (victim != null) {
+			tiles.remove(victim);
+		}
+	}
+
+	/**
+	 * Creates a new TileCache
+	 * 
+	 * @param maximumSize the maximum number of tiles to hold
+	 * @param clock       the Clock used to determine if a tile has expired
+	 */
+	public TileCache(int maximumSize, Clock clock) {
+		this.tiles = new ConcurrentHashMap<>();
+		this.maximumSize = maximumSize;
+		this.clock = clock;
+	}
+
+	/**
+	 * @param key the key of the tile
+	 * @return the cached tile, or null if there is no unexpired tile cached
+	 */
+	public CachedTile get(long key) {
+		CachedTile cached = tiles.get(key);
+		if (cached == null) {
+			return null;
+		}
+		if (cached.expiresAt <= clock.millis()) {
+			tiles.remove(key, cached);
+			return null;
+		}
+		return cached;
+	}
+
+	/**
+	 * Caches a tile, replacing any tile already cached for the key
+	 * 
+	 * @param key           the key of the tile
+	 * @param precipitation the precipitation of the points of the tile
+	 * @param expiresAt     the time the tile expires, in milliseconds since the
+	 *                      epoch
+	 */
+	public void put(long key, byte[] precipitation, long expiresAt) {
+		if (tiles.size() >= maximumSize && !tiles.containsKey(key)) {
+			evictOne();
+		}
+		tiles.put(key, new CachedTile(precipitation, expiresAt));
+	}
+
+	/**
+	 * @return the number of tiles currently held by the cache, including expired
+	 *         tiles not yet evicted
+	 */
+	public int size() {
+		return tiles.size();
+	}
+}
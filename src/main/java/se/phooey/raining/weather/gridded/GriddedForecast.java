@@ -0,0 +1,234 @@
+package se.phooey.raining.weather.gridded;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import se.phooey.raining.weather.Precipitation;
+
+/**
+ * Read-only view of a gridded forecast file, memory-mapped so that lookups are
+ * served straight from the page cache.<br>
+ * <br>
+ * The file is big-endian and starts with a header of 72 bytes:
+ * <ul>
+ * <li>int magic, "RGRD" (0x52475244)</li>
+ * <li>int version, 1</li>
+ * <li>long the time the forecast was issued, in epoch seconds</li>
+ * <li>long the start of the first day of the daily forecast, in epoch
+ * seconds</li>
+ * <li>double the latitude of the southernmost row</li>
+ * <li>double the longitude of the westernmost column</li>
+ * <li>double the distance between two rows, in degrees</li>
+ * <li>double the distance between two columns, in degrees</li>
+ * <li>int rows, int columns, int days</li>
+ * <li>int reserved, 0</li>
+ * </ul>
+ * The header is followed by planes of rows * columns values each, row by row
+ * from the south-west corner. First the float planes: the current probability
+ * of precipitation, the current intensity in mm/h, and the probability of
+ * precipitation of each day. Then the byte planes: the current type of
+ * precipitation and the type of precipitation of each day, as
+ * {@link Precipitation} ordinals. A type is the type of the precipitation
+ * expected if it does precipitate, it is reported as
+ * {@link Precipitation#NONE} wherever the probability is 0. A type that is not
+ * a Precipitation ordinal is read as {@link Precipitation#UNKNOWN}.<br>
+ * <br>
+ * Probabilities and intensities between the points are interpolated
+ * bilinearly, types are taken from the nearest point. Lookups do not allocate.
+ * 
+ * @see GriddedForecastWriter
+ */
+public final class GriddedForecast {
+
+	static final int MAGIC = 0x52475244;
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 72;
+	static final long SECONDS_PER_DAY = 86400;
+
+	private static final double EPSILON = 1e-9;
+	private static final Precipitation[] PRECIPITATION = Precipitation.values();
+
+	private final ByteBuffer buffer;
+	private final long issued;
+	private final long firstDay;
+	private final double south;
+	private final double west;
+	private final double latitudeStep;
+	private final double longitudeStep;
+	private final int rows;
+	private final int columns;
+	private final int days;
+	private final int points;
+	private final int bytePlanes;
+
+	private GriddedForecast(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a gridded forecast file");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported gridded forecast version " + buffer.getInt(4));
+		}
+		this.buffer = buffer;
+		this.issued = buffer.getLong(8);
+		this.firstDay = buffer.getLong(16);
+		this.south = buffer.getDouble(24);
+		this.west = buffer.getDouble(32);
+		this.latitudeStep = buffer.getDouble(40);
+		this.longitudeStep = buffer.getDouble(48);
+		this.rows = buffer.getInt(56);
+		this.columns = buffer.getInt(60);
+		this.days = buffer.getInt(64);
+		if (rows < 1 || columns < 1 || days < 0 || !(latitudeStep > 0) || !(longitudeStep > 0)) {
+			throw new IOException("Invalid gridded forecast header");
+		}
+		long expectedBytes = expectedBytes(rows, columns, days);
+		if (buffer.capacity() != expectedBytes) {
+			throw new IOException(String.format("Gridded forecast file has %d bytes, expected %d",
+					buffer.capacity(), expectedBytes));
+		}
+		this.points = rows * columns;
+		this.bytePlanes = HEADER_BYTES + (2 + days) * points * Float.BYTES;
+	}
+
+	static long expectedBytes(long rows, long columns, long days) {
+		return HEADER_BYTES + rows * columns * ((2 + days) * Float.BYTES + 1 + days);
+	}
+
+	/**
+	 * Maps a gridded forecast file into memory. The mapping stays valid after the
+	 * file is replaced, as long as it is replaced by moving a new file in place
+	 * rather than by rewriting it.
+	 * 
+	 * @param file the file to map
+	 * @return the mapped forecast
+	 * @throws IOException If the file could not be read or is not a valid
+	 *                     gridded forecast file
+	 */
+	public static GriddedForecast open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Gridded forecast file is too large to map: " + file);
+			}
+			return new GriddedForecast(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	private double row(double latitude) {
+		return (latitude - south) / latitudeStep;
+	}
+
+	private double column(double longitude) {
+		return (longitude - west) / longitudeStep;
+	}
+
+	private double interpolate(int plane, double latitude, double longitude) {
+		double row = Math.max(0, row(latitude));
+		double column = Math.max(0, column(longitude));
+		int row0 = Math.min((int) row, rows - 1);
+		int column0 = Math.min((int) column, columns - 1);
+		int row1 = Math.min(row0 + 1, rows - 1);
+		int column1 = Math.min(column0 + 1, columns - 1);
+		double rowFraction = Math.min(row - row0, 1);
+		double columnFraction = Math.min(column - column0, 1);
+		int offset = HEADER_BYTES + plane * points * Float.BYTES;
+		double southWest = buffer.getFloat(offset + (row0 * columns + column0) * Float.BYTES);
+		double southEast = buffer.getFloat(offset + (row0 * columns + column1) * Float.BYTES);
+		double northWest = buffer.getFloat(offset + (row1 * columns + column0) * Float.BYTES);
+		double northEast = buffer.getFloat(offset + (row1 * columns + column1) * Float.BYTES);
+		double southern = southWest + (southEast - southWest) * columnFraction;
+		double northern = northWest + (northEast - northWest) * columnFraction;
+		return southern + (northern - southern) * rowFraction;
+	}
+
+	private Precipitation nearest(int plane, double latitude, double longitude) {
+		int row = Math.min((int) Math.round(Math.max(0, row(latitude))), rows - 1);
+		int column = Math.min((int) Math.round(Math.max(0, column(longitude))), columns - 1);
+		byte ordinal = buffer.get(bytePlanes + plane * points + row * columns + column);
+		return ordinal >= 0 && ordinal < PRECIPITATION.length ? PRECIPITATION[ordinal] : Precipitation.UNKNOWN;
+	}
+
+	/**
+	 * @param latitude  the latitude of the location
+	 * @param longitude the longitude of the location
+	 * @return whether the location lies within the grid
+	 */
+	public boolean covers(double latitude, double longitude) {
+		double row = row(latitude);
+		double column = column(longitude);
+		return row >= -EPSILON && row <= rows - 1 + EPSILON && column >= -EPSILON && column <= columns - 1 + EPSILON;
+	}
+
+	/**
+	 * @param latitude  the latitude of a location within the grid
+	 * @param longitude the longitude of a location within the grid
+	 * @return the current probability of precipitation at the location
+	 */
+	public double currentProbability(double latitude, double longitude) {
+		return interpolate(0, latitude, longitude);
+	}
+
+	/**
+	 * @param latitude  the latitude of a location within the grid
+	 * @param longitude the longitude of a location within the grid
+	 * @return the current intensity of precipitation at the location, in mm/h
+	 */
+	public double currentIntensity(double latitude, double longitude) {
+		return interpolate(1, latitude, longitude);
+	}
+
+	/**
+	 * @param latitude  the latitude of a location within the grid
+	 * @param longitude the longitude of a location within the grid
+	 * @return the type of the current precipitation at the location
+	 */
+	public Precipitation currentPrecipitation(double latitude, double longitude) {
+		return nearest(0, latitude, longitude);
+	}
+
+	/**
+	 * @param day       the day of the daily forecast, 0 for the first day
+	 * @param latitude  the latitude of a location within the grid
+	 * @param longitude the longitude of a location within the grid
+	 * @return the probability of precipitation at the location during the day
+	 */
+	public double dailyProbability(int day, double latitude, double longitude) {
+		return interpolate(2 + day, latitude, longitude);
+	}
+
+	/**
+	 * @param day       the day of the daily forecast, 0 for the first day
+	 * @param latitude  the latitude of a location within the grid
+	 * @param longitude the longitude of a location within the grid
+	 * @return the type of precipitation expected at the location during the day
+	 */
+	public Precipitation dailyPrecipitation(int day, double latitude, double longitude) {
+		return nearest(1 + day, latitude, longitude);
+	}
+
+	/**
+	 * @param day the day of the daily forecast, 0 for the first day
+	 * @return the start of the day, in epoch seconds
+	 */
+	public long dayStart(int day) {
+		return firstDay + day * SECONDS_PER_DAY;
+	}
+
+	public long getIssued() {
+		return issued;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getDays() {
+		return days;
+	}
+}
@@ -0,0 +1,34 @@
+package se.phooey.raining.weather.gridded;
+
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import se.phooey.raining.weather.DarkSkyWeatherProvider;
+
+/**
+ * Answers the locations covered by the gridded forecast file in
+ * "isitraining.gridded.file" from that file, when it is set
+ */
+@Configuration
+@ConditionalOnProperty(name = "isitraining.gridded.file")
+public class GriddedForecastConfiguration {
+	@Value("${isitraining.gridded.file}")
+	private String file;
+	@Value("${isitraining.gridded.poll-interval-seconds:60}")
+	private long pollIntervalSeconds;
+	@Value("${isitraining.gridded.max-age-seconds:21600}")
+	private long maximumAgeSeconds;
+
+	@Bean(initMethod = "start", destroyMethod = "close")
+	public GriddedWeatherProvider griddedWeatherProvider(DarkSkyWeatherProvider darkSkyWeatherProvider,
+			Clock clock) {
+		return new GriddedWeatherProvider(Paths.get(file), darkSkyWeatherProvider,
+				Duration.ofSeconds(pollIntervalSeconds), Duration.ofSeconds(maximumAgeSeconds), clock);
+	}
+}
@@ -0,0 +1,134 @@
+package se.phooey.raining.weather.gridded;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import se.phooey.raining.weather.Precipitation;
+
+/**
+ * Writes a gridded forecast file in the format read by
+ * {@link GriddedForecast}, for example from the output of a weather model.
+ * Points that are not set have a probability and intensity of 0.
+ */
+public class GriddedForecastWriter {
+
+	private final long issued;
+	private final long firstDay;
+	private final double south;
+	private final double west;
+	private final double latitudeStep;
+	private final double longitudeStep;
+	private final int rows;
+	private final int columns;
+	private final float[][] floatPlanes;
+	private final byte[][] bytePlanes;
+
+	/**
+	 * Creates a new GriddedForecastWriter
+	 * 
+	 * @param issued        the time the forecast was issued, in epoch seconds
+	 * @param firstDay      the start of the first day of the daily forecast, in
+	 *                      epoch seconds
+	 * @param south         the latitude of the southernmost row
+	 * @param west          the longitude of the westernmost column
+	 * @param latitudeStep  the distance between two rows, in degrees
+	 * @param longitudeStep the distance between two columns, in degrees
+	 * @param rows          the number of rows
+	 * @param columns       the number of columns
+	 * @param days          the number of days of the daily forecast
+	 */
+	public GriddedForecastWriter(long issued, long firstDay, double south, double west, double latitudeStep,
+			double longitudeStep, int rows, int columns, int days) {
+		this.issued = issued;
+		this.firstDay = firstDay;
+		this.south = south;
+		this.west = west;
+		this.latitudeStep = latitudeStep;
+		this.longitudeStep = longitudeStep;
+		this.rows = rows;
+		this.columns = columns;
+		this.floatPlanes = new float[2 + days][rows * columns];
+		this.bytePlanes = new byte[1 + days][rows * columns];
+		for (byte[] plane : bytePlanes) {
+			Arrays.fill(plane, (byte) Precipitation.NONE.ordinal());
+		}
+	}
+
+	/**
+	 * Sets the current conditions at a point
+	 * 
+	 * @param row           the row of the point, counted from the south
+	 * @param column        the column of the point, counted from the west
+	 * @param probability   the probability of precipitation
+	 * @param intensity     the intensity of precipitation, in mm/h
+	 * @param precipitation the type of precipitation expected if it precipitates
+	 * @return this writer
+	 */
+	public GriddedForecastWriter setCurrent(int row, int column, double probability, double intensity,
+			Precipitation precipitation) {
+		int point = row * columns + column;
+		floatPlanes[0][point] = (float) probability;
+		floatPlanes[1][point] = (float) intensity;
+		bytePlanes[0][point] = (byte) (probability == 0 ? Precipitation.NONE : precipitation).ordinal();
+		return this;
+	}
+
+	/**
+	 * Sets the forecast for a day at a point
+	 * 
+	 * @param day           the day of the daily forecast, 0 for the first day
+	 * @param row           the row of the point, counted from the south
+	 * @param column        the column of the point, counted from the west
+	 * @param probability   the probability of precipitation during the day
+	 * @param precipitation the type of precipitation expected if it precipitates
+	 * @return this writer
+	 */
+	public GriddedForecastWriter setDay(int day, int row, int column, double probability,
+			Precipitation precipitation) {
+		int point = row * columns + column;
+		floatPlanes[2 + day][point] = (float) probability;
+		bytePlanes[1 + day][point] = (byte) (probability == 0 ? Precipitation.NONE : precipitation).ordinal();
+		return this;
+	}
+
+	/**
+	 * Writes the forecast to a temporary file next to the target file, and then
+	 * moves it in place, so a {@link GriddedForecast} mapping the previous file
+	 * stays valid
+	 * 
+	 * @param file the file to write
+	 * @throws IOException If the file could not be written
+	 */
+	public void writeTo(Path file) throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeInt(GriddedForecast.MAGIC);
+			out.writeInt(GriddedForecast.VERSION);
+			out.writeLong(issued);
+			out.writeLong(firstDay);
+			out.writeDouble(south);
+			out.writeDouble(west);
+			out.writeDouble(latitudeStep);
+			out.writeDouble(longitudeStep);
+			out.writeInt(rows);
+			out.writeInt(columns);
+			out.writeInt(bytePlanes.length - 1);
+			out.writeInt(0);
+			for (float[] plane : floatPlanes) {
+				for (float value : plane) {
+					out.writeFloat(value);
+				}
+			}
+			for (byte[] plane : bytePlanes) {
+				out.write(plane);
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
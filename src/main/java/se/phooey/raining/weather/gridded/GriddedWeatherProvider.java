@@ -0,0 +1,189 @@
+package se.phooey.raining.weather.gridded;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.phooey.raining.weather.DailyPrecipitation;
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * {@link WeatherProvider} answering from a local {@link GriddedForecast} file
+ * without any network call, for the locations covered by the grid.<br>
+ * <br>
+ * Locations outside the grid, and reports including the minute-by-minute
+ * nowcast, which the file does not contain, are requested from another
+ * WeatherProvider instead. Apart from the returned report, a lookup does not
+ * allocate.<br>
+ * <br>
+ * The file is checked for changes periodically, and a newer file replaces the
+ * mapped forecast without interrupting the lookups in progress. A newer file
+ * needs to be moved in place, see {@link GriddedForecastWriter#writeTo(Path)}.
+ * If the file is missing or invalid, the previous forecast is kept, or all
+ * locations are requested from the other WeatherProvider if there is none. All
+ * locations are also requested from the other WeatherProvider while the
+ * forecast was issued longer than the maximum age ago, so a feed that stopped
+ * updating the file is not served for ever.
+ */
+public class GriddedWeatherProvider implements WeatherProvider {
+
+	private final Path file;
+	private final WeatherProvider fallback;
+	private final long pollIntervalMillis;
+	private final long maximumAgeMillis;
+	private final Clock clock;
+	private final Logger logger;
+	private volatile GriddedForecast forecast;
+	private String loadedVersion;
+	private ScheduledExecutorService watcher;
+
+	private boolean isStale(GriddedForecast current) {
+		return clock.millis() - current.getIssued() * 1000 > maximumAgeMillis;
+	}
+
+	private static String precipitationOf(double probability, Precipitation precipitation) {
+		return (probability == 0 ? Precipitation.NONE : precipitation).toString();
+	}
+
+	private RainReport rainReport(GriddedForecast current, double latitude, double longitude,
+			Set<ReportSection> sections) {
+		RainReport report = new RainReport();
+		report.setLatitude(latitude);
+		report.setLongitude(longitude);
+		if (sections.contains(ReportSection.CURRENTLY)) {
+			double probability = current.currentProbability(latitude, longitude);
+			report.setCurrentProbability(probability);
+			report.setCurrentIntensity(probability == 0 ? 0 : current.currentIntensity(latitude, longitude));
+			report.setCurrentPrecipitation(
+					precipitationOf(probability, current.currentPrecipitation(latitude, longitude)));
+		}
+		if (sections.contains(ReportSection.DAILY) && current.getDays() > 0) {
+			List<DailyPrecipitation> days = new ArrayList<>(current.getDays());
+			for (int day = 0; day < current.getDays(); day++) {
+				double probability = current.dailyProbability(day, latitude, longitude);
+				days.add(new DailyPrecipitation(current.dayStart(day), probability,
+						precipitationOf(probability, current.dailyPrecipitation(day, latitude, longitude))));
+			}
+			report.setDailyForecast(days);
+			report.setChanceOfPrecipitationToday(days.get(0).getProbability());
+			report.setTypeOfPrecipitationToday(days.get(0).getPrecipitation());
+		}
+		return report;
+	}
+
+	/**
+	 * Creates a new GriddedWeatherProvider
+	 * 
+	 * @param file         the gridded forecast file
+	 * @param fallback     the {@link WeatherProvider} to request the locations
+	 *                     outside the grid from
+	 * @param pollInterval the time between two checks of the file for changes
+	 * @param maximumAge   how long after it was issued the forecast is used
+	 * @param clock        the Clock used to determine the age of the forecast
+	 */
+	public GriddedWeatherProvider(Path file, WeatherProvider fallback, Duration pollInterval, Duration maximumAge,
+			Clock clock) {
+		this.file = file;
+		this.fallback = fallback;
+		this.pollIntervalMillis = pollInterval.toMillis();
+		this.maximumAgeMillis = maximumAge.toMillis();
+		this.clock = clock;
+		this.logger = LoggerFactory.getLogger(GriddedWeatherProvider.class);
+	}
+
+	/**
+	 * Maps the file if it has changed since it was last mapped
+	 * 
+	 * @return whether a newer forecast was mapped
+	 */
+	public synchronized boolean reload() {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			String version = attributes.fileKey() + ":" + attributes.lastModifiedTime() + ":" + attributes.size();
+			if (version.equals(loadedVersion)) {
+				return false;
+			}
+			GriddedForecast loaded = GriddedForecast.open(file);
+			forecast = loaded;
+			loadedVersion = version;
+			logger.info("Mapped the gridded forecast issued at {} from {}, {} x {} points", loaded.getIssued(), file,
+					loaded.getRows(), loaded.getColumns());
+			if (isStale(loaded)) {
+				logger.warn("The gridded forecast in {} is older than the maximum age, it is not used", file);
+			}
+			return true;
+		} catch (NoSuchFileException e) {
+			logger.warn("The gridded forecast file {} does not exist", file);
+		} catch (IOException e) {
+			logger.warn("Could not map the gridded forecast file {}", file, e);
+		}
+		return false;
+	}
+
+	/**
+	 * Maps the file, and starts checking it for changes periodically on a
+	 * background daemon thread
+	 */
+	public synchronized void start() {
+		if (watcher != null) {
+			return;
+		}
+		reload();
+		watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "gridded-forecast-watcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		watcher.scheduleWithFixedDelay(this::reload, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops checking the file for changes
+	 */
+	public synchronized void close() {
+		if (watcher != null) {
+			watcher.shutdownNow();
+			watcher = null;
+		}
+	}
+
+	/**
+	 * @return the currently mapped forecast, or null if none has been mapped
+	 */
+	public GriddedForecast getForecast() {
+		return forecast;
+	}
+
+	@Override
+	public RainReport isItRainingAtCoordinates(double latitude, double longitude) throws RainReportException {
+		return isItRainingAtCoordinates(latitude, longitude, ReportSection.DEFAULT);
+	}
+
+	@Override
+	public RainReport isItRainingAtCoordinates(double latitude, double longitude, Set<ReportSection> sections)
+			throws RainReportException {
+		GriddedForecast current = forecast;
+		if (current == null || sections.contains(ReportSection.MINUTELY) || !current.covers(latitude, longitude)
+				|| isStale(current)) {
+			return fallback.isItRainingAtCoordinates(latitude, longitude, sections);
+		}
+		return rainReport(current, latitude, longitude, sections);
+	}
+}
@@ -0,0 +1,40 @@
+package se.phooey.raining.weather.history;
+
+/**
+ * Reads back the bits written by a {@link BitWriter}, in the same order.
+ */
+final class BitReader {
+
+	private final long[] words;
+	private int position;
+
+	/**
+	 * @param words the words returned by {@link BitWriter#toWords()}
+	 */
+	BitReader(long[] words) {
+		this.words = words;
+	}
+
+	/**
+	 * @return the next bit
+	 */
+	boolean readBit() {
+		return readBits(1) == 1;
+	}
+
+	/**
+	 * @param count the number of bits to read, 1 <= count <= 64
+	 * @return the next bits, as the least significant bits of the result
+	 */
+	long readBits(int count) {
+		int index = position >>> 6;
+		int offset = position & (Long.SIZE - 1);
+		int available = Long.SIZE - offset;
+		long bits = (words[index] << offset) >>> (Long.SIZE - count);
+		if (count > available) {
+			bits |= words[index + 1] >>> (Long.SIZE - (count - available));
+		}
+		position += count;
+		return bits;
+	}
+}
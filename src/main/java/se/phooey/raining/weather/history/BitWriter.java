@@ -0,0 +1,79 @@
+package se.phooey.raining.weather.history;
+
+import java.util.Arrays;
+
+/**
+ * Growable sequence of bits, packed most significant bit first into 64-bit
+ * words, used to write the columns of a {@link SeriesChunk}.
+ */
+final class BitWriter {
+
+	private long[] words;
+	private int bitLength;
+
+	private void ensureCapacity(int bits) {
+		int required = (bits + Long.SIZE - 1) >>> 6;
+		if (required > words.length) {
+			words = Arrays.copyOf(words, Math.max(required, words.length * 2));
+		}
+	}
+
+	/**
+	 * Creates a new, empty BitWriter
+	 * 
+	 * @param initialWords the number of 64-bit words to allocate up front
+	 */
+	BitWriter(int initialWords) {
+		this.words = new long[Math.max(1, initialWords)];
+	}
+
+	/**
+	 * @param bit the bit to append
+	 */
+	void writeBit(boolean bit) {
+		writeBits(bit ? 1 : 0, 1);
+	}
+
+	/**
+	 * Appends the least significant bits of a value, most significant first
+	 * 
+	 * @param value the value to append the bits of
+	 * @param count the number of bits to append, 1 <= count <= 64
+	 */
+	void writeBits(long value, int count) {
+		ensureCapacity(bitLength + count);
+		long bits = count == Long.SIZE ? value : value & ((1L << count) - 1);
+		int index = bitLength >>> 6;
+		int free = Long.SIZE - (bitLength & (Long.SIZE - 1));
+		if (count <= free) {
+			words[index] |= bits << (free - count);
+		} else {
+			int rest = count - free;
+			words[index] |= bits >>> rest;
+			words[index + 1] |= bits << (Long.SIZE - rest);
+		}
+		bitLength += count;
+	}
+
+	/**
+	 * @return the number of bits written
+	 */
+	int getBitLength() {
+		return bitLength;
+	}
+
+	/**
+	 * @return the words holding the bits written so far, not copied, so only
+	 *         valid until the next write
+	 */
+	long[] words() {
+		return words;
+	}
+
+	/**
+	 * @return a copy of the words holding the bits written so far
+	 */
+	long[] toWords() {
+		return Arrays.copyOf(words, (bitLength + Long.SIZE - 1) >>> 6);
+	}
+}
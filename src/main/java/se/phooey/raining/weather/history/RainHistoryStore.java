@@ -0,0 +1,425 @@
+package se.phooey.raining.weather.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * In-process store of the rain history of each location, as a time series of
+ * {@link RainSample}s per cell.<br>
+ * <br>
+ * The samples of a cell are compressed into {@link SeriesChunk}s, one per time
+ * window of the configured chunk duration, and kept in memory in their
+ * compressed form. A chunk is sealed once a sample of a later window arrives,
+ * or when its window has passed at the next flush. Each flush writes the
+ * chunks sealed since the previous flush to a new segment file, and the
+ * segments found in the directory are loaded on start, so only the samples of
+ * the current windows are lost if the node goes down without being closed.<br>
+ * <br>
+ * Samples are kept for the configured retention. After each flush, and on
+ * start, the chunks whose samples are all older than that are dropped, and the
+ * segment files holding only such chunks are deleted.
+ * <br>
+ * The number of samples and cells, and the size of the compressed chunks, are
+ * reported as the metrics "isitraining.history.samples",
+ * "isitraining.history.cells" and "isitraining.history.bytes".
+ */
+public class RainHistoryStore implements MeterBinder, AutoCloseable {
+
+	private static final int SEGMENT_MAGIC = 0x52484953;
+	private static final int SEGMENT_VERSION = 1;
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".seg";
+
+	private final Path directory;
+	private final long chunkSeconds;
+	private final long flushIntervalMillis;
+	private final long retentionSeconds;
+	private final Clock clock;
+	private final Logger logger;
+	private final ConcurrentHashMap<Long, CellSeries> series;
+	private final LongAdder samples;
+	private final Map<Path, Long> segmentMaxTimes;
+	private long nextSegment;
+	private ScheduledExecutorService flusher;
+
+	/**
+	 * The chunks of one cell, guarded by the lock of the instance
+	 */
+	private static final class CellSeries {
+		private final List<SeriesChunk> chunks = new ArrayList<>();
+		private int flushed;
+		private SeriesChunkBuilder open;
+		private boolean removed;
+
+		private void seal() {
+			chunks.add(open.toChunk());
+			open = null;
+		}
+	}
+
+	private static final class PendingChunk {
+		private final long cellKey;
+		private final SeriesChunk chunk;
+
+		private PendingChunk(long cellKey, SeriesChunk chunk) {
+			this.cellKey = cellKey;
+			this.chunk = chunk;
+		}
+	}
+
+	private CellSeries seriesOf(long cellKey) {
+		return series.computeIfAbsent(cellKey, key -> new CellSeries());
+	}
+
+	private void readSegment(Path segment) throws IOException {
+		List<PendingChunk> chunks = new ArrayList<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+			if (in.readInt() != SEGMENT_MAGIC || in.readInt() != SEGMENT_VERSION) {
+				throw new IOException("Not a rain history segment: " + segment);
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				chunks.add(new PendingChunk(in.readLong(), SeriesChunk.readFrom(in)));
+			}
+		}
+		segmentMaxTimes.put(segment, maxTime(chunks));
+		for (PendingChunk pending : chunks) {
+			CellSeries cell = seriesOf(pending.cellKey);
+			synchronized (cell) {
+				cell.chunks.add(pending.chunk);
+				cell.flushed = cell.chunks.size();
+			}
+			samples.add(pending.chunk.getCount());
+		}
+	}
+
+	private void writeSegment(List<PendingChunk> chunks) throws IOException {
+		String name = String.format("%s%019d%s", SEGMENT_PREFIX, nextSegment, SEGMENT_SUFFIX);
+		Path segment = directory.resolve(name);
+		Path temporary = directory.resolve(name + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeInt(SEGMENT_MAGIC);
+			out.writeInt(SEGMENT_VERSION);
+			out.writeInt(chunks.size());
+			for (PendingChunk pending : chunks) {
+				out.writeLong(pending.cellKey);
+				pending.chunk.writeTo(out);
+			}
+		}
+		Files.move(temporary, segment, StandardCopyOption.ATOMIC_MOVE);
+		segmentMaxTimes.put(segment, maxTime(chunks));
+		nextSegment++;
+	}
+
+	private static long maxTime(List<PendingChunk> chunks) {
+		long maxTime = Long.MIN_VALUE;
+		for (PendingChunk pending : chunks) {
+			maxTime = Math.max(maxTime, pending.chunk.getMaxTime());
+		}
+		return maxTime;
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+			expire();
+		} catch (IOException e) {
+			logger.error("Could not flush the rain history to {}", directory, e);
+		}
+	}
+
+	/**
+	 * Creates a new RainHistoryStore
+	 * 
+	 * @param directory     the directory to write the segment files to
+	 * @param chunkDuration the time window of the samples of each chunk
+	 * @param flushInterval the time between two flushes
+	 * @param retention     how long samples are kept
+	 * @param clock         the Clock used to determine which windows have passed
+	 */
+	public RainHistoryStore(Path directory, Duration chunkDuration, Duration flushInterval, Duration retention,
+			Clock clock) {
+		this.directory = directory;
+		this.chunkSeconds = chunkDuration.getSeconds();
+		this.flushIntervalMillis = flushInterval.toMillis();
+		this.retentionSeconds = retention.getSeconds();
+		this.clock = clock;
+		this.logger = LoggerFactory.getLogger(RainHistoryStore.class);
+		this.series = new ConcurrentHashMap<>();
+		this.samples = new LongAdder();
+		this.segmentMaxTimes = new HashMap<>();
+	}
+
+	/**
+	 * Loads the segments found in the directory, drops the samples older than the
+	 * retention, and starts flushing periodically on a background daemon thread
+	 * 
+	 * @throws IOException If the directory could not be created or listed, or
+	 *                     an expired segment could not be deleted
+	 */
+	public synchronized void start() throws IOException {
+		if (flusher != null) {
+			return;
+		}
+		Files.createDirectories(directory);
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> found = Files.newDirectoryStream(directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			found.forEach(segments::add);
+		}
+		Collections.sort(segments);
+		for (Path segment : segments) {
+			try {
+				readSegment(segment);
+			} catch (IOException e) {
+				logger.warn("Skipping unreadable rain history segment {}", segment, e);
+			}
+			String name = segment.getFileName().toString();
+			nextSegment = Math.max(nextSegment, Long.parseLong(
+					name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())) + 1);
+		}
+		expire();
+		logger.info("Loaded {} rain history samples of {} locations from {}", getSampleCount(), getCellCount(),
+				directory);
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "rain-history-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Appends a sample to the history of a cell
+	 * 
+	 * @param cellKey the key of the cell, see
+	 *                {@link se.phooey.raining.weather.cache.CellKey}
+	 * @param sample  the sample
+	 */
+	public void append(long cellKey, RainSample sample) {
+		long window = Math.floorDiv(sample.getTime(), chunkSeconds);
+		boolean appended = false;
+		while (!appended) {
+			CellSeries cell = seriesOf(cellKey);
+			synchronized (cell) {
+				// An expired cell has been removed from the map, so the sample goes to a new one
+				appended = !cell.removed;
+				if (appended) {
+					if (cell.open != null && window > cell.open.getWindow()) {
+						cell.seal();
+					}
+					if (cell.open == null) {
+						cell.open = new SeriesChunkBuilder(window);
+					}
+					cell.open.append(sample);
+				}
+			}
+		}
+		samples.increment();
+	}
+
+	/**
+	 * Returns the samples of a cell within a time range, both ends inclusive
+	 * 
+	 * @param cellKey the key of the cell
+	 * @param from    the earliest time of the range, in epoch seconds
+	 * @param to      the latest time of the range, in epoch seconds
+	 * @return the samples within the range, ordered by time
+	 */
+	public List<RainSample> query(long cellKey, long from, long to) {
+		CellSeries cell = series.get(cellKey);
+		if (cell == null) {
+			return Collections.emptyList();
+		}
+		List<SeriesChunk> overlapping = new ArrayList<>();
+		List<RainSample> result = new ArrayList<>();
+		synchronized (cell) {
+			for (SeriesChunk chunk : cell.chunks) {
+				if (chunk.overlaps(from, to)) {
+					overlapping.add(chunk);
+				}
+			}
+			// Read in place under the lock, since the open chunk is still appended to
+			if (cell.open != null) {
+				cell.open.decodeInto(from, to, result);
+			}
+		}
+		for (SeriesChunk chunk : overlapping) {
+			chunk.decodeInto(from, to, result);
+		}
+		result.sort(Comparator.comparingLong(RainSample::getTime));
+		return result;
+	}
+
+	/**
+	 * Seals the chunks whose window has passed, and writes all chunks sealed
+	 * since the previous flush to a new segment file
+	 * 
+	 * @return the number of chunks written
+	 * @throws IOException If the segment could not be written, the chunks are
+	 *                     then written by the next flush instead
+	 */
+	public synchronized int flush() throws IOException {
+		long currentWindow = Math.floorDiv(clock.instant().getEpochSecond(), chunkSeconds);
+		List<PendingChunk> pending = new ArrayList<>();
+		Map<CellSeries, Integer> written = new HashMap<>();
+		for (Map.Entry<Long, CellSeries> entry : series.entrySet()) {
+			CellSeries cell = entry.getValue();
+			synchronized (cell) {
+				if (cell.open != null && cell.open.getWindow() < currentWindow) {
+					cell.seal();
+				}
+				for (int i = cell.flushed; i < cell.chunks.size(); i++) {
+					pending.add(new PendingChunk(entry.getKey(), cell.chunks.get(i)));
+				}
+				written.put(cell, cell.chunks.size());
+			}
+		}
+		if (pending.isEmpty()) {
+			return 0;
+		}
+		writeSegment(pending);
+		for (Map.Entry<CellSeries, Integer> entry : written.entrySet()) {
+			synchronized (entry.getKey()) {
+				entry.getKey().flushed = entry.getValue();
+			}
+		}
+		return pending.size();
+	}
+
+	/**
+	 * Drops the chunks whose samples are all older than the retention, and
+	 * deletes the segment files holding only such chunks
+	 * 
+	 * @return the number of chunks dropped
+	 * @throws IOException If a segment file could not be deleted, it is then
+	 *                     deleted by the next expiry instead
+	 */
+	public synchronized int expire() throws IOException {
+		long cutoff = clock.instant().getEpochSecond() - retentionSeconds;
+		int dropped = 0;
+		for (Map.Entry<Long, CellSeries> entry : series.entrySet()) {
+			CellSeries cell = entry.getValue();
+			synchronized (cell) {
+				for (int i = cell.chunks.size() - 1; i >= 0; i--) {
+					SeriesChunk chunk = cell.chunks.get(i);
+					if (chunk.getMaxTime() < cutoff) {
+						cell.chunks.remove(i);
+						if (i < cell.flushed) {
+							cell.flushed--;
+						}
+						samples.add(-chunk.getCount());
+						dropped++;
+					}
+				}
+				if (cell.chunks.isEmpty() && cell.open == null) {
+					cell.removed = true;
+					series.remove(entry.getKey(), cell);
+				}
+			}
+		}
+		Iterator<Map.Entry<Path, Long>> segments = segmentMaxTimes.entrySet().iterator();
+		while (segments.hasNext()) {
+			Map.Entry<Path, Long> segment = segments.next();
+			if (segment.getValue() < cutoff) {
+				Files.deleteIfExists(segment.getKey());
+				segments.remove();
+			}
+		}
+		return dropped;
+	}
+
+	/**
+	 * @return the number of samples in the store
+	 */
+	public long getSampleCount() {
+		return samples.sum();
+	}
+
+	/**
+	 * @return the number of cells with a history
+	 */
+	public int getCellCount() {
+		return series.size();
+	}
+
+	/**
+	 * @return the number of bytes used by the compressed samples in memory
+	 */
+	public long getEncodedBytes() {
+		long bytes = 0;
+		for (CellSeries cell : series.values()) {
+			synchronized (cell) {
+				for (SeriesChunk chunk : cell.chunks) {
+					bytes += chunk.getEncodedBytes();
+				}
+				if (cell.open != null) {
+					bytes += cell.open.getEncodedBytes();
+				}
+			}
+		}
+		return bytes;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("isitraining.history.samples", this, RainHistoryStore::getSampleCount)
+				.description("Samples in the rain history").register(registry);
+		Gauge.builder("isitraining.history.cells", this, RainHistoryStore::getCellCount)
+				.description("Locations with a rain history").register(registry);
+		Gauge.builder("isitraining.history.bytes", this, RainHistoryStore::getEncodedBytes)
+				.description("Memory used by the compressed rain history").baseUnit("bytes").register(registry);
+	}
+
+	/**
+	 * Stops flushing periodically, then seals the chunks of all cells and writes
+	 * them to a last segment
+	 * 
+	 * @throws IOException If the last segment could not be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (flusher != null) {
+			flusher.shutdownNow();
+			flusher = null;
+		}
+		for (CellSeries cell : series.values()) {
+			synchronized (cell) {
+				if (cell.open != null) {
+					cell.seal();
+				}
+			}
+		}
+		flush();
+	}
+}
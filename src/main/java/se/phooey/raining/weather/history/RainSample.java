@@ -0,0 +1,80 @@
+package se.phooey.raining.weather.history;
+
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * One sample of the rain history of a location: the precipitation values of a
+ * {@link RainReport} fetched at a certain time.
+ */
+public final class RainSample {
+
+	private final long time;
+	private final String currentPrecipitation;
+	private final double currentProbability;
+	private final double currentIntensity;
+	private final double chanceOfPrecipitationToday;
+	private final String typeOfPrecipitationToday;
+
+	/**
+	 * Creates a new RainSample
+	 * 
+	 * @param time                       the time of the sample, in epoch seconds
+	 * @param currentPrecipitation       the current type of precipitation
+	 * @param currentProbability         the current probability of precipitation
+	 * @param currentIntensity           the current intensity of precipitation
+	 * @param chanceOfPrecipitationToday the chance of precipitation during the day
+	 * @param typeOfPrecipitationToday   the type of precipitation during the day
+	 */
+	public RainSample(long time, String currentPrecipitation, double currentProbability, double currentIntensity,
+			double chanceOfPrecipitationToday, String typeOfPrecipitationToday) {
+		this.time = time;
+		this.currentPrecipitation = currentPrecipitation;
+		this.currentProbability = currentProbability;
+		this.currentIntensity = currentIntensity;
+		this.chanceOfPrecipitationToday = chanceOfPrecipitationToday;
+		this.typeOfPrecipitationToday = typeOfPrecipitationToday;
+	}
+
+	/**
+	 * @param time   the time the report was fetched, in epoch seconds
+	 * @param report the report to take the sample of
+	 * @return a sample of the precipitation values of the report
+	 */
+	public static RainSample of(long time, RainReport report) {
+		return new RainSample(time, report.getCurrentPrecipitation(), report.getCurrentProbability(),
+				report.getCurrentIntensity(), report.getChanceOfPrecipitationToday(),
+				report.getTypeOfPrecipitationToday());
+	}
+
+	@Override
+	public String toString() {
+		return "RainSample [time=" + time + ", currentPrecipitation=" + currentPrecipitation
+				+ ", currentProbability=" + currentProbability + ", currentIntensity=" + currentIntensity
+				+ ", chanceOfPrecipitationToday=" + chanceOfPrecipitationToday + ", typeOfPrecipitationToday="
+				+ typeOfPrecipitationToday + "]";
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public String getCurrentPrecipitation() {
+		return currentPrecipitation;
+	}
+
+	public double getCurrentProbability() {
+		return currentProbability;
+	}
+
+	public double getCurrentIntensity() {
+		return currentIntensity;
+	}
+
+	public double getChanceOfPrecipitationToday() {
+		return chanceOfPrecipitationToday;
+	}
+
+	public String getTypeOfPrecipitationToday() {
+		return typeOfPrecipitationToday;
+	}
+}
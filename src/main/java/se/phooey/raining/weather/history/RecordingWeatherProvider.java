@@ -0,0 +1,77 @@
+package se.phooey.raining.weather.history;
+
+import java.time.Clock;
+import java.util.Set;
+
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReactiveWeatherProvider;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.cache.CellKey;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * {@link WeatherProvider} recording a {@link RainSample} of each
+ * {@link RainReport} fetched by another WeatherProvider in a
+ * {@link RainHistoryStore}.<br>
+ * <br>
+ * Only full reports, with the current conditions and the forecast for today,
+ * are recorded, since the fields of the other sections are left unknown in a
+ * report without them, and would be recorded as such. Each node records the
+ * reports it fetches itself, so with sharding the history of a location is
+ * kept by the node owning it.
+ */
+public class RecordingWeatherProvider implements WeatherProvider {
+
+	private final WeatherProvider delegate;
+	private final RainHistoryStore store;
+	private final Clock clock;
+
+	private static void record(RainHistoryStore store, Clock clock, double latitude, double longitude,
+			Set<ReportSection> sections, RainReport report) {
+		if (sections.containsAll(ReportSection.DEFAULT)) {
+			store.append(CellKey.of(latitude, longitude), RainSample.of(clock.instant().getEpochSecond(), report));
+		}
+	}
+
+	/**
+	 * Creates a new RecordingWeatherProvider
+	 * 
+	 * @param delegate the {@link WeatherProvider} to record the reports of
+	 * @param store    the store to record the reports in
+	 * @param clock    the Clock used to timestamp the samples
+	 */
+	public RecordingWeatherProvider(WeatherProvider delegate, RainHistoryStore store, Clock clock) {
+		this.delegate = delegate;
+		this.store = store;
+		this.clock = clock;
+	}
+
+	/**
+	 * Records the reports fetched by a {@link ReactiveWeatherProvider} the same
+	 * way
+	 * 
+	 * @param upstream the ReactiveWeatherProvider to record the reports of
+	 * @param store    the store to record the reports in
+	 * @param clock    the Clock used to timestamp the samples
+	 * @return a ReactiveWeatherProvider recording the reports of the upstream
+	 */
+	public static ReactiveWeatherProvider recording(ReactiveWeatherProvider upstream, RainHistoryStore store,
+			Clock clock) {
+		return (latitude, longitude, sections) -> upstream.isItRainingAtCoordinates(latitude, longitude, sections)
+				.doOnNext(report -> record(store, clock, latitude, longitude, sections, report));
+	}
+
+	@Override
+	public RainReport isItRainingAtCoordinates(double latitude, double longitude) throws RainReportException {
+		return isItRainingAtCoordinates(latitude, longitude, ReportSection.DEFAULT);
+	}
+
+	@Override
+	public RainReport isItRainingAtCoordinates(double latitude, double longitude, Set<ReportSection> sections)
+			throws RainReportException {
+		RainReport report = delegate.isItRainingAtCoordinates(latitude, longitude, sections);
+		record(store, clock, latitude, longitude, sections, report);
+		return report;
+	}
+}
@@ -0,0 +1,225 @@
+package se.phooey.raining.weather.history;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+import se.phooey.raining.weather.Precipitation;
+
+/**
+ * Immutable, compressed block of consecutive {@link RainSample}s of one
+ * location, encoded by a {@link SeriesChunkBuilder}.<br>
+ * <br>
+ * Each value of the samples is stored in a column of its own: the times as
+ * delta-of-deltas, the probabilities and intensities as the XOR of their bits
+ * with the previous value, and the types of precipitation as a flag telling if
+ * the type changed, so a location sampled at a steady pace with steady weather
+ * needs only a few bits per sample.
+ */
+final class SeriesChunk {
+
+	static final int TIME = 0;
+	static final int CURRENT_PROBABILITY = 1;
+	static final int CURRENT_INTENSITY = 2;
+	static final int CHANCE_TODAY = 3;
+	static final int CURRENT_PRECIPITATION = 4;
+	static final int TYPE_TODAY = 5;
+	static final int COLUMNS = 6;
+	static final int PRECIPITATION_BITS = 3;
+
+	private static final Precipitation[] PRECIPITATIONS = Precipitation.values();
+
+	private final int count;
+	private final long minTime;
+	private final long maxTime;
+	private final long[][] columns;
+
+	/**
+	 * Decodes one column of doubles written by the {@link SeriesChunkBuilder}
+	 */
+	private static final class DoubleDecoder {
+		private final BitReader reader;
+		private long bits;
+		private int leading;
+		private int trailing;
+		private boolean first = true;
+
+		DoubleDecoder(long[] words) {
+			this.reader = new BitReader(words);
+		}
+
+		double next() {
+			if (first) {
+				first = false;
+				bits = reader.readBits(Long.SIZE);
+			} else if (reader.readBit()) {
+				if (reader.readBit()) {
+					leading = (int) reader.readBits(5);
+					trailing = Long.SIZE - leading - ((int) reader.readBits(6) + 1);
+				}
+				bits ^= reader.readBits(Long.SIZE - leading - trailing) << trailing;
+			}
+			return Double.longBitsToDouble(bits);
+		}
+	}
+
+	private static long readTime(BitReader reader, long previous, long[] delta, boolean first) {
+		if (first) {
+			return reader.readBits(Long.SIZE);
+		}
+		int size;
+		if (!reader.readBit()) {
+			size = 0;
+		} else if (!reader.readBit()) {
+			size = 7;
+		} else if (!reader.readBit()) {
+			size = 9;
+		} else if (!reader.readBit()) {
+			size = 12;
+		} else {
+			size = Long.SIZE;
+		}
+		if (size > 0) {
+			long deltaOfDelta = reader.readBits(size);
+			delta[0] += (deltaOfDelta << (Long.SIZE - size)) >> (Long.SIZE - size);
+		}
+		return previous + delta[0];
+	}
+
+	private static int readPrecipitation(BitReader reader, int previous, boolean first) {
+		if (first || reader.readBit()) {
+			return (int) reader.readBits(PRECIPITATION_BITS);
+		}
+		return previous;
+	}
+
+	/**
+	 * Creates a new SeriesChunk from encoded columns
+	 * 
+	 * @param count   the number of samples in the chunk
+	 * @param minTime the time of the earliest sample
+	 * @param maxTime the time of the latest sample
+	 * @param columns the encoded columns, indexed as the constants of this class
+	 */
+	SeriesChunk(int count, long minTime, long maxTime, long[][] columns) {
+		this.count = count;
+		this.minTime = minTime;
+		this.maxTime = maxTime;
+		this.columns = columns;
+	}
+
+	/**
+	 * Reads a chunk written by {@link #writeTo(DataOutput)}
+	 * 
+	 * @param in the input to read from
+	 * @return the chunk read
+	 * @throws IOException If the chunk could not be read
+	 */
+	static SeriesChunk readFrom(DataInput in) throws IOException {
+		int count = in.readInt();
+		long minTime = in.readLong();
+		long maxTime = in.readLong();
+		long[][] columns = new long[COLUMNS][];
+		for (int column = 0; column < COLUMNS; column++) {
+			columns[column] = new long[in.readInt()];
+			for (int i = 0; i < columns[column].length; i++) {
+				columns[column][i] = in.readLong();
+			}
+		}
+		return new SeriesChunk(count, minTime, maxTime, columns);
+	}
+
+	/**
+	 * @param out the output to write the chunk to
+	 * @throws IOException If the chunk could not be written
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(count);
+		out.writeLong(minTime);
+		out.writeLong(maxTime);
+		for (long[] column : columns) {
+			out.writeInt(column.length);
+			for (long word : column) {
+				out.writeLong(word);
+			}
+		}
+	}
+
+	/**
+	 * @param from the earliest time of the range, in epoch seconds
+	 * @param to   the latest time of the range, in epoch seconds
+	 * @return true if any of the samples could be within the range
+	 */
+	boolean overlaps(long from, long to) {
+		return count > 0 && minTime <= to && maxTime >= from;
+	}
+
+	/**
+	 * Decodes the samples within a time range, in the order they were appended
+	 * 
+	 * @param from   the earliest time of the range, in epoch seconds
+	 * @param to     the latest time of the range, in epoch seconds
+	 * @param result the list to add the samples to
+	 */
+	void decodeInto(long from, long to, List<RainSample> result) {
+		if (!overlaps(from, to)) {
+			return;
+		}
+		BitReader times = new BitReader(columns[TIME]);
+		DoubleDecoder currentProbability = new DoubleDecoder(columns[CURRENT_PROBABILITY]);
+		DoubleDecoder currentIntensity = new DoubleDecoder(columns[CURRENT_INTENSITY]);
+		DoubleDecoder chanceToday = new DoubleDecoder(columns[CHANCE_TODAY]);
+		BitReader currentPrecipitation = new BitReader(columns[CURRENT_PRECIPITATION]);
+		BitReader typeToday = new BitReader(columns[TYPE_TODAY]);
+		long time = 0;
+		long[] delta = new long[1];
+		int current = 0;
+		int today = 0;
+		for (int i = 0; i < count; i++) {
+			boolean first = i == 0;
+			time = readTime(times, time, delta, first);
+			double probability = currentProbability.next();
+			double intensity = currentIntensity.next();
+			double chance = chanceToday.next();
+			current = readPrecipitation(currentPrecipitation, current, first);
+			today = readPrecipitation(typeToday, today, first);
+			if (time >= from && time <= to) {
+				result.add(new RainSample(time, PRECIPITATIONS[current].toString(), probability, intensity, chance,
+						PRECIPITATIONS[today].toString()));
+			}
+		}
+	}
+
+	/**
+	 * @return the number of samples in the chunk
+	 */
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the time of the earliest sample, in epoch seconds
+	 */
+	long getMinTime() {
+		return minTime;
+	}
+
+	/**
+	 * @return the time of the latest sample, in epoch seconds
+	 */
+	long getMaxTime() {
+		return maxTime;
+	}
+
+	/**
+	 * @return the number of bytes used by the encoded columns
+	 */
+	long getEncodedBytes() {
+		long words = 0;
+		for (long[] column : columns) {
+			words += column.length;
+		}
+		return words * Long.BYTES;
+	}
+}
@@ -0,0 +1,193 @@
+package se.phooey.raining.weather.history;
+
+import java.util.Arrays;
+import java.util.List;
+
+import se.phooey.raining.weather.Precipitation;
+
+/**
+ * Encodes {@link RainSample}s appended one at a time into the columns of a
+ * {@link SeriesChunk}, see there for the encoding. Not thread-safe.
+ */
+final class SeriesChunkBuilder {
+
+	private static final int MAX_LEADING_ZEROS = 31;
+
+	private final long window;
+	private final BitWriter[] columns;
+	private final long[] previousBits;
+	private final int[] previousLeading;
+	private final int[] previousTrailing;
+	private final int[] previousPrecipitation;
+	private long previousTime;
+	private long previousDelta;
+	private long minTime;
+	private long maxTime;
+	private int count;
+
+	private void appendTime(long time) {
+		BitWriter out = columns[SeriesChunk.TIME];
+		if (count == 0) {
+			out.writeBits(time, Long.SIZE);
+			return;
+		}
+		long delta = time - previousTime;
+		long deltaOfDelta = delta - previousDelta;
+		if (deltaOfDelta == 0) {
+			out.writeBit(false);
+		} else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+			out.writeBits(0b10, 2);
+			out.writeBits(deltaOfDelta, 7);
+		} else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+			out.writeBits(0b110, 3);
+			out.writeBits(deltaOfDelta, 9);
+		} else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+			out.writeBits(0b1110, 4);
+			out.writeBits(deltaOfDelta, 12);
+		} else {
+			out.writeBits(0b1111, 4);
+			out.writeBits(deltaOfDelta, Long.SIZE);
+		}
+		previousDelta = delta;
+	}
+
+	/**
+	 * Writes the XOR of the bits of the value with those of the previous value,
+	 * reusing the window of meaningful bits of the previous XOR when it fits
+	 */
+	private void appendDouble(int column, double value) {
+		BitWriter out = columns[column];
+		long bits = Double.doubleToLongBits(value);
+		long xor = bits ^ previousBits[column];
+		previousBits[column] = bits;
+		if (count == 0) {
+			out.writeBits(bits, Long.SIZE);
+			return;
+		}
+		if (xor == 0) {
+			out.writeBit(false);
+			return;
+		}
+		out.writeBit(true);
+		int leading = Math.min(Long.numberOfLeadingZeros(xor), MAX_LEADING_ZEROS);
+		int trailing = Long.numberOfTrailingZeros(xor);
+		if (previousLeading[column] >= 0 && leading >= previousLeading[column]
+				&& trailing >= previousTrailing[column]) {
+			out.writeBit(false);
+			out.writeBits(xor >>> previousTrailing[column],
+					Long.SIZE - previousLeading[column] - previousTrailing[column]);
+			return;
+		}
+		int significant = Long.SIZE - leading - trailing;
+		out.writeBit(true);
+		out.writeBits(leading, 5);
+		out.writeBits(significant - 1L, 6);
+		out.writeBits(xor >>> trailing, significant);
+		previousLeading[column] = leading;
+		previousTrailing[column] = trailing;
+	}
+
+	private void appendPrecipitation(int column, String precipitation) {
+		BitWriter out = columns[column];
+		int ordinal = Precipitation.of(precipitation).ordinal();
+		int index = column - SeriesChunk.CURRENT_PRECIPITATION;
+		if (count > 0) {
+			boolean changed = ordinal != previousPrecipitation[index];
+			out.writeBit(changed);
+			if (!changed) {
+				return;
+			}
+		}
+		out.writeBits(ordinal, SeriesChunk.PRECIPITATION_BITS);
+		previousPrecipitation[index] = ordinal;
+	}
+
+	/**
+	 * Creates a new, empty SeriesChunkBuilder
+	 * 
+	 * @param window the time window the samples of the chunk belong to
+	 */
+	SeriesChunkBuilder(long window) {
+		this.window = window;
+		this.columns = new BitWriter[SeriesChunk.COLUMNS];
+		for (int column = 0; column < SeriesChunk.COLUMNS; column++) {
+			columns[column] = new BitWriter(4);
+		}
+		this.previousBits = new long[SeriesChunk.COLUMNS];
+		this.previousLeading = new int[SeriesChunk.COLUMNS];
+		Arrays.fill(previousLeading, -1);
+		this.previousTrailing = new int[SeriesChunk.COLUMNS];
+		this.previousPrecipitation = new int[2];
+	}
+
+	/**
+	 * @param sample the sample to append, unknown types of precipitation are
+	 *               stored as {@link Precipitation#UNKNOWN}
+	 */
+	void append(RainSample sample) {
+		long time = sample.getTime();
+		appendTime(time);
+		appendDouble(SeriesChunk.CURRENT_PROBABILITY, sample.getCurrentProbability());
+		appendDouble(SeriesChunk.CURRENT_INTENSITY, sample.getCurrentIntensity());
+		appendDouble(SeriesChunk.CHANCE_TODAY, sample.getChanceOfPrecipitationToday());
+		appendPrecipitation(SeriesChunk.CURRENT_PRECIPITATION, sample.getCurrentPrecipitation());
+		appendPrecipitation(SeriesChunk.TYPE_TODAY, sample.getTypeOfPrecipitationToday());
+		minTime = count == 0 ? time : Math.min(minTime, time);
+		maxTime = count == 0 ? time : Math.max(maxTime, time);
+		previousTime = time;
+		count++;
+	}
+
+	/**
+	 * Decodes the samples appended so far within a time range straight from the
+	 * columns being written, without copying them into a chunk, so it must not
+	 * run concurrently with {@link #append(RainSample)}
+	 * 
+	 * @param from   the earliest time of the range, in epoch seconds
+	 * @param to     the latest time of the range, in epoch seconds
+	 * @param result the list to add the samples to
+	 */
+	void decodeInto(long from, long to, List<RainSample> result) {
+		long[][] written = new long[SeriesChunk.COLUMNS][];
+		for (int column = 0; column < SeriesChunk.COLUMNS; column++) {
+			written[column] = columns[column].words();
+		}
+		new SeriesChunk(count, minTime, maxTime, written).decodeInto(from, to, result);
+	}
+
+	/**
+	 * @return a chunk holding the samples appended so far
+	 */
+	SeriesChunk toChunk() {
+		long[][] encoded = new long[SeriesChunk.COLUMNS][];
+		for (int column = 0; column < SeriesChunk.COLUMNS; column++) {
+			encoded[column] = columns[column].toWords();
+		}
+		return new SeriesChunk(count, minTime, maxTime, encoded);
+	}
+
+	/**
+	 * @return the time window the samples of the chunk belong to
+	 */
+	long getWindow() {
+		return window;
+	}
+
+	/**
+	 * @return the number of samples appended
+	 */
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the number of bytes used by the encoded columns so far
+	 */
+	long getEncodedBytes() {
+		long bits = 0;
+		for (BitWriter column : columns) {
+			bits += column.getBitLength();
+		}
+		return (bits + Byte.SIZE - 1) / Byte.SIZE;
+	}
+}
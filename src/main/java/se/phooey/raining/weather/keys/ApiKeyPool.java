@@ -0,0 +1,158 @@
+package se.phooey.raining.weather.keys;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import se.phooey.raining.weather.quota.BudgetPlanner;
+
+/**
+ * A pool of API keys, spreading the calls over the keys so that the total
+ * throughput is the sum of the daily allowances of all keys.<br>
+ * <br>
+ * Each call is made with the available key that has been used the least today.
+ * Keys whose budget is used up are retired until the next day, and keys
+ * failing repeatedly are retired for a cool-down period. A {@link BudgetPlanner}
+ * can spread the calls of the pool over the day.<br>
+ * <br>
+ * The calls made with each key, and whether it is available, are reported as
+ * the metrics "darksky.api.calls", "darksky.api.key.calls.today" and
+ * "darksky.api.key.available", tagged with the name of the key.
+ */
+public class ApiKeyPool implements MeterBinder, AutoCloseable {
+
+	private final List<PooledApiKey> keys;
+	private final int failureThreshold;
+	private final long coolDownMillis;
+	private final BudgetPlanner planner;
+
+	private Optional<PooledApiKey> acquireKey() {
+		int size = keys.size();
+		boolean[] tried = new boolean[size];
+		for (int attempt = 0; attempt < size; attempt++) {
+			int leastUsed = -1;
+			long leastCalls = Long.MAX_VALUE;
+			for (int i = 0; i < size; i++) {
+				PooledApiKey key = keys.get(i);
+				if (!tried[i] && key.isAvailable() && key.getCallsToday() < leastCalls) {
+					leastUsed = i;
+					leastCalls = key.getCallsToday();
+				}
+			}
+			if (leastUsed < 0) {
+				break;
+			}
+			tried[leastUsed] = true;
+			if (keys.get(leastUsed).tryAcquire()) {
+				return Optional.of(keys.get(leastUsed));
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Creates a new ApiKeyPool
+	 * 
+	 * @param keys             the keys of the pool
+	 * @param failureThreshold the number of consecutive failed calls after which
+	 *                         a key is retired for a cool-down period
+	 * @param coolDown         the cool-down period
+	 */
+	public ApiKeyPool(List<PooledApiKey> keys, int failureThreshold, Duration coolDown) {
+		this(keys, failureThreshold, coolDown, null);
+	}
+
+	/**
+	 * Creates a new ApiKeyPool making calls only as planned
+	 * 
+	 * @param keys             the keys of the pool
+	 * @param failureThreshold the number of consecutive failed calls after which
+	 *                         a key is retired for a cool-down period
+	 * @param coolDown         the cool-down period
+	 * @param planner          the planner scheduling the calls over the day, or
+	 *                         null to make calls as long as a key is available
+	 */
+	public ApiKeyPool(List<PooledApiKey> keys, int failureThreshold, Duration coolDown, BudgetPlanner planner) {
+		this.keys = Collections.unmodifiableList(keys);
+		this.failureThreshold = failureThreshold;
+		this.coolDownMillis = coolDown.toMillis();
+		this.planner = planner;
+	}
+
+	/**
+	 * Takes one call from the budget of the least used available key, if the
+	 * planner allows a call now
+	 * 
+	 * @return the key to make the call with, or empty if no key is available or
+	 *         the calls planned until now are used up
+	 */
+	public Optional<PooledApiKey> acquire() {
+		if (planner == null) {
+			return acquireKey();
+		}
+		if (!planner.tryAcquire()) {
+			return Optional.empty();
+		}
+		Optional<PooledApiKey> key = acquireKey();
+		if (!key.isPresent()) {
+			planner.release();
+		}
+		return key;
+	}
+
+	/**
+	 * Records a successful call made with a key of the pool
+	 * 
+	 * @param key the key
+	 */
+	public void recordSuccess(PooledApiKey key) {
+		key.recordSuccess();
+	}
+
+	/**
+	 * Records a failed call made with a key of the pool
+	 * 
+	 * @param key the key
+	 */
+	public void recordFailure(PooledApiKey key) {
+		key.recordFailure(failureThreshold, coolDownMillis);
+	}
+
+	/**
+	 * @return the keys of the pool
+	 */
+	public List<PooledApiKey> getKeys() {
+		return keys;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (PooledApiKey key : keys) {
+			FunctionCounter.builder("darksky.api.calls", key, PooledApiKey::getSuccesses)
+					.description("Calls made to the Dark Sky API").tag("key", key.getName()).tag("outcome", "success")
+					.register(registry);
+			FunctionCounter.builder("darksky.api.calls", key, PooledApiKey::getFailures)
+					.description("Calls made to the Dark Sky API").tag("key", key.getName()).tag("outcome", "failure")
+					.register(registry);
+			Gauge.builder("darksky.api.key.calls.today", key, PooledApiKey::getCallsToday)
+					.description("Calls made with the API key by this node today").tag("key", key.getName())
+					.register(registry);
+			Gauge.builder("darksky.api.key.available", key, k -> k.isAvailable() ? 1 : 0)
+					.description("Whether the API key is available, neither used up nor cooling down")
+					.tag("key", key.getName()).register(registry);
+		}
+	}
+
+	/**
+	 * Returns the unused calls of the keys to their quota authority
+	 */
+	@Override
+	public void close() {
+		keys.forEach(PooledApiKey::close);
+	}
+}
@@ -0,0 +1,146 @@
+package se.phooey.raining.weather.keys;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.time.DateUtils;
+
+import se.phooey.raining.weather.quota.LeasedCallBudget;
+import tk.plogitech.darksky.forecast.APIKey;
+
+/**
+ * One API key of an {@link ApiKeyPool}, with its own daily call budget and
+ * health state.<br>
+ * <br>
+ * A key is retired until the next UTC day once its budget is used up, and for
+ * a cool-down period after a number of consecutive failed calls.
+ */
+public class PooledApiKey {
+
+	private final String name;
+	private final APIKey apiKey;
+	private final LeasedCallBudget budget;
+	private final Clock clock;
+	private final AtomicLong callsToday;
+	private final AtomicInteger consecutiveFailures;
+	private final LongAdder successes;
+	private final LongAdder failures;
+	private volatile long usageDay;
+	private volatile long exhaustedDay;
+	private volatile long coolingDownUntil;
+
+	private long currentDay(long now) {
+		return Math.floorDiv(now, DateUtils.MILLIS_PER_DAY);
+	}
+
+	private synchronized void startDay(long day) {
+		if (usageDay < day) {
+			callsToday.set(0);
+			usageDay = day;
+		}
+	}
+
+	/**
+	 * Creates a new PooledApiKey
+	 * 
+	 * @param name   the name of the key used in logs and metrics, in place of the
+	 *               secret key itself
+	 * @param apiKey the API key
+	 * @param budget the daily call budget of the key
+	 * @param clock  the Clock used to determine the current day
+	 */
+	public PooledApiKey(String name, APIKey apiKey, LeasedCallBudget budget, Clock clock) {
+		this.name = name;
+		this.apiKey = apiKey;
+		this.budget = budget;
+		this.clock = clock;
+		this.callsToday = new AtomicLong();
+		this.consecutiveFailures = new AtomicInteger();
+		this.successes = new LongAdder();
+		this.failures = new LongAdder();
+		this.usageDay = Long.MIN_VALUE;
+		this.exhaustedDay = Long.MIN_VALUE;
+	}
+
+	/**
+	 * @return true if the key is neither used up for the day nor cooling down
+	 *         after failed calls
+	 */
+	public boolean isAvailable() {
+		long now = clock.millis();
+		return exhaustedDay != currentDay(now) && now >= coolingDownUntil;
+	}
+
+	/**
+	 * Takes one call from the budget of the key, retiring the key until the next
+	 * day if the budget is used up
+	 * 
+	 * @return true if a call may be made with the key
+	 */
+	boolean tryAcquire() {
+		long day = currentDay(clock.millis());
+		if (day != usageDay) {
+			startDay(day);
+		}
+		if (!budget.tryAcquire()) {
+			exhaustedDay = day;
+			return false;
+		}
+		callsToday.incrementAndGet();
+		return true;
+	}
+
+	void recordSuccess() {
+		successes.increment();
+		consecutiveFailures.set(0);
+	}
+
+	void recordFailure(int failureThreshold, long coolDownMillis) {
+		failures.increment();
+		if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+			consecutiveFailures.set(0);
+			coolingDownUntil = clock.millis() + coolDownMillis;
+		}
+	}
+
+	void close() {
+		budget.close();
+	}
+
+	/**
+	 * @return the name of the key
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the API key
+	 */
+	public APIKey getApiKey() {
+		return apiKey;
+	}
+
+	/**
+	 * @return the number of calls made with the key by this node today
+	 */
+	public long getCallsToday() {
+		return usageDay == currentDay(clock.millis()) ? callsToday.get() : 0;
+	}
+
+	/**
+	 * @return the total number of successful calls made with the key
+	 */
+	public long getSuccesses() {
+		return successes.sum();
+	}
+
+	/**
+	 * @return the total number of failed calls made with the key
+	 */
+	public long getFailures() {
+		return failures.sum();
+	}
+}
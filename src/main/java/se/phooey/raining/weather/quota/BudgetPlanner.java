@@ -0,0 +1,193 @@
+package se.phooey.raining.weather.quota;
+
+import java.time.Clock;
+
+import org.apache.commons.lang3.time.DateUtils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Schedules a daily budget of calls over the UTC day, instead of letting the
+ * first calls of the day use it up.<br>
+ * <br>
+ * The demand for calls in each hour of the day is forecast from the calls
+ * wanted in that hour on the previous days, smoothed exponentially. The budget
+ * is allocated to the hours in proportion to their forecast demand, and a call
+ * is only allowed while the calls made today stay within the allocation of the
+ * hours passed so far, plus a small burst. Calls allocated to a quiet hour are
+ * carried over to the following hours.<br>
+ * <br>
+ * To make the demand of the rest of the day fit the calls left, the planner
+ * also suggests a factor to scale the time reports are cached by: above 1 when
+ * more calls are wanted than are left, below 1 when calls would be left unused
+ * at the end of the day. The demand is recorded relative to the factor in use,
+ * so that the forecast is not lowered by the longer caching it causes.<br>
+ * <br>
+ * The calls planned and the suggested factor are reported as the metrics
+ * "darksky.api.calls.planned" and "isitraining.cache.ttl.factor".
+ */
+public class BudgetPlanner implements MeterBinder {
+
+	private static final int HOURS = 24;
+	private static final double MINIMUM_DEMAND = 0.01;
+
+	private final int dailyBudget;
+	private final int burst;
+	private final double smoothing;
+	private final double minimumTtlFactor;
+	private final double maximumTtlFactor;
+	private final Clock clock;
+	private final double[] forecast;
+	private final double[] observed;
+	private long day;
+	private long used;
+
+	private static long day(long millis) {
+		return Math.floorDiv(millis, DateUtils.MILLIS_PER_DAY);
+	}
+
+	private static int hour(long millis) {
+		return (int) (Math.floorMod(millis, DateUtils.MILLIS_PER_DAY) / DateUtils.MILLIS_PER_HOUR);
+	}
+
+	private static double fractionOfHour(long millis) {
+		return (double) Math.floorMod(millis, DateUtils.MILLIS_PER_HOUR) / DateUtils.MILLIS_PER_HOUR;
+	}
+
+	private void advance(long now) {
+		if (day(now) == day) {
+			return;
+		}
+		// Fold the demand of the day that has passed into the forecast
+		for (int i = 0; i < HOURS; i++) {
+			forecast[i] = Math.max(MINIMUM_DEMAND, forecast[i] + (observed[i] - forecast[i]) * smoothing);
+			observed[i] = 0;
+		}
+		used = 0;
+		day = day(now);
+	}
+
+	private double forecastUntil(long now) {
+		int hour = hour(now);
+		double demand = forecast[hour] * fractionOfHour(now);
+		for (int i = 0; i < hour; i++) {
+			demand += forecast[i];
+		}
+		return demand;
+	}
+
+	private double forecastOfDay() {
+		double demand = 0;
+		for (double hourly : forecast) {
+			demand += hourly;
+		}
+		return demand;
+	}
+
+	private double ttlFactor(long now) {
+		long left = dailyBudget - used;
+		double demandLeft = forecastOfDay() - forecastUntil(now);
+		double factor = left <= 0 ? maximumTtlFactor : demandLeft / left;
+		return Math.max(minimumTtlFactor, Math.min(maximumTtlFactor, factor));
+	}
+
+	/**
+	 * Creates a new BudgetPlanner, forecasting an even demand using up the budget
+	 * until it has observed the demand of the day
+	 * 
+	 * @param dailyBudget      the number of calls that may be made per day
+	 * @param burst            the number of calls that may be made ahead of the
+	 *                         plan
+	 * @param smoothing        the weight of the demand observed on the last day
+	 *                         in the forecast, 0 < smoothing <= 1
+	 * @param minimumTtlFactor the lowest factor to scale the cache TTLs by
+	 * @param maximumTtlFactor the highest factor to scale the cache TTLs by
+	 * @param clock            the Clock used to determine the time of day
+	 */
+	public BudgetPlanner(int dailyBudget, int burst, double smoothing, double minimumTtlFactor,
+			double maximumTtlFactor, Clock clock) {
+		this.dailyBudget = dailyBudget;
+		this.burst = burst;
+		this.smoothing = smoothing;
+		this.minimumTtlFactor = minimumTtlFactor;
+		this.maximumTtlFactor = maximumTtlFactor;
+		this.clock = clock;
+		this.forecast = new double[HOURS];
+		this.observed = new double[HOURS];
+		for (int i = 0; i < HOURS; i++) {
+			forecast[i] = (double) dailyBudget / HOURS;
+		}
+		this.day = day(clock.millis());
+	}
+
+	/**
+	 * Records that a call is wanted now, and takes it from the budget if the
+	 * calls planned until now allow it. A call taken but not made needs to be
+	 * {@link #release() released}.
+	 * 
+	 * @return true if the call may be made
+	 */
+	public synchronized boolean tryAcquire() {
+		long now = clock.millis();
+		advance(now);
+		observed[hour(now)] += ttlFactor(now);
+		if (used >= dailyBudget || used >= dailyBudget * forecastUntil(now) / forecastOfDay() + burst) {
+			return false;
+		}
+		used++;
+		return true;
+	}
+
+	/**
+	 * Returns a call taken but not made to the budget
+	 */
+	public synchronized void release() {
+		used = Math.max(0, used - 1);
+	}
+
+	/**
+	 * @return the factor to scale the time reports are cached by, for the demand
+	 *         of the rest of the day to use up the calls left
+	 */
+	public synchronized double getTtlFactor() {
+		long now = clock.millis();
+		advance(now);
+		return ttlFactor(now);
+	}
+
+	/**
+	 * @return the number of calls planned to be made today until now
+	 */
+	public synchronized long getPlanned() {
+		long now = clock.millis();
+		advance(now);
+		return (long) (dailyBudget * forecastUntil(now) / forecastOfDay());
+	}
+
+	/**
+	 * @return the number of calls taken from the budget today
+	 */
+	public synchronized long getUsed() {
+		advance(clock.millis());
+		return used;
+	}
+
+	/**
+	 * @return the forecast number of calls wanted in each hour of the UTC day
+	 */
+	public synchronized double[] getForecast() {
+		advance(clock.millis());
+		return forecast.clone();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("darksky.api.calls.planned", this, BudgetPlanner::getPlanned)
+				.description("Calls to the Dark Sky API planned to be made today until now").register(registry);
+		Gauge.builder("isitraining.cache.ttl.factor", this, BudgetPlanner::getTtlFactor)
+				.description("Factor the time reports are cached by is scaled by to keep within the call budget")
+				.register(registry);
+	}
+}
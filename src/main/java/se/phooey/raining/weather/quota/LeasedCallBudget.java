@@ -0,0 +1,133 @@
+package se.phooey.raining.weather.quota;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.time.DateUtils;
+
+/**
+ * The share of a daily call budget held by one node, leased in chunks from a
+ * {@link QuotaAuthority}.<br>
+ * <br>
+ * Calls are taken from the current lease without locking, only when it is used
+ * up is a new chunk leased from the authority. Unused calls are returned to the
+ * authority when the budget is closed. Leases are only valid for the UTC day
+ * they were made for, according to the provided Clock.
+ */
+public class LeasedCallBudget implements AutoCloseable {
+
+	private final QuotaAuthority authority;
+	private final String budget;
+	private final int leaseSize;
+	private final Clock clock;
+	private final AtomicLong remaining;
+	private volatile long leaseDay;
+	private volatile long exhaustedDay;
+
+	private long currentDay() {
+		return Math.floorDiv(clock.millis(), DateUtils.MILLIS_PER_DAY);
+	}
+
+	private synchronized void startDay(long day) {
+		if (leaseDay < day) {
+			// Calls leased for a previous day can not be used anymore
+			remaining.set(0);
+			leaseDay = day;
+		}
+	}
+
+	private synchronized boolean renewLease(long day) {
+		// Another thread may already have renewed the lease while this one waited
+		if (remaining.get() == 0 && exhaustedDay != day && leaseDay == day) {
+			int granted = authority.lease(budget, day, leaseSize);
+			if (granted == 0) {
+				exhaustedDay = day;
+			}
+			remaining.addAndGet(granted);
+		}
+		return remaining.get() > 0;
+	}
+
+	private boolean acquire() {
+		long day = currentDay();
+		if (day != leaseDay) {
+			startDay(day);
+		}
+		if (exhaustedDay == day) {
+			return false;
+		}
+		while (true) {
+			long available = remaining.get();
+			if (available > 0) {
+				if (remaining.compareAndSet(available, available - 1)) {
+					return true;
+				}
+			} else if (!renewLease(day)) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Creates a new LeasedCallBudget
+	 * 
+	 * @param authority the authority to lease calls from
+	 * @param budget    the name of the budget at the authority
+	 * @param leaseSize the number of calls to lease at a time
+	 * @param clock     the Clock used to determine the current day
+	 */
+	public LeasedCallBudget(QuotaAuthority authority, String budget, int leaseSize, Clock clock) {
+		this.authority = authority;
+		this.budget = budget;
+		this.leaseSize = leaseSize;
+		this.clock = clock;
+		this.remaining = new AtomicLong(0);
+		this.leaseDay = Long.MIN_VALUE;
+		this.exhaustedDay = Long.MIN_VALUE;
+	}
+
+	/**
+	 * Takes one call from the budget of the current day
+	 * 
+	 * @return true if the call may be made, false if the budget of the day is
+	 *         exhausted
+	 */
+	public boolean tryAcquire() {
+		QuotaDecisionEvent event = new QuotaDecisionEvent();
+		event.begin();
+		boolean allowed = acquire();
+		event.end();
+		if (event.shouldCommit()) {
+			event.budget = budget;
+			event.allowed = allowed;
+			event.remainingInLease = remaining.get();
+			event.commit();
+		}
+		return allowed;
+	}
+
+	/**
+	 * @return the number of calls left in the current lease of this node
+	 */
+	public long getRemainingInLease() {
+		return remaining.get();
+	}
+
+	/**
+	 * @return the name of the budget at the authority
+	 */
+	public String getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Returns the unused calls of the current lease to the authority
+	 */
+	@Override
+	public synchronized void close() {
+		int unused = (int) remaining.getAndSet(0);
+		if (unused > 0) {
+			authority.release(budget, leaseDay, unused);
+		}
+	}
+}
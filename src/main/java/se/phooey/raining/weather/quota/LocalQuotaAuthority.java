@@ -0,0 +1,67 @@
+package se.phooey.raining.weather.quota;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process stand-in for a {@link QuotaAuthority}, used when no authority
+ * shared by all nodes is configured, and in tests where several nodes can share
+ * one instance to simulate a cluster.<br>
+ * <br>
+ * Only the usage of the most recent day is kept for each budget.
+ */
+public class LocalQuotaAuthority implements QuotaAuthority {
+
+	private static final class Usage {
+		private final long day;
+		private final int leased;
+
+		private Usage(long day, int leased) {
+			this.day = day;
+			this.leased = leased;
+		}
+	}
+
+	private final int dailyLimit;
+	private final ConcurrentHashMap<String, Usage> usage;
+
+	/**
+	 * Creates a new LocalQuotaAuthority
+	 * 
+	 * @param dailyLimit the number of calls each budget allows per day
+	 */
+	public LocalQuotaAuthority(int dailyLimit) {
+		this.dailyLimit = dailyLimit;
+		this.usage = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public int lease(String budget, long day, int requested) {
+		int[] granted = new int[1];
+		usage.compute(budget, (name, current) -> {
+			if (current != null && current.day > day) {
+				// Nothing can be leased for a day that has already passed
+				return current;
+			}
+			int leased = (current == null || current.day < day) ? 0 : current.leased;
+			granted[0] = Math.min(requested, dailyLimit - leased);
+			return new Usage(day, leased + granted[0]);
+		});
+		return granted[0];
+	}
+
+	@Override
+	public void release(String budget, long day, int unused) {
+		usage.computeIfPresent(budget,
+				(name, current) -> current.day == day ? new Usage(day, Math.max(0, current.leased - unused)) : current);
+	}
+
+	/**
+	 * @param budget the name of the budget
+	 * @param day    the day
+	 * @return the number of calls currently leased from the budget of the day
+	 */
+	public int getLeased(String budget, long day) {
+		Usage current = usage.get(budget);
+		return (current == null || current.day != day) ? 0 : current.leased;
+	}
+}
@@ -0,0 +1,35 @@
+package se.phooey.raining.weather.quota;
+
+/**
+ * Authority over a daily budget of calls shared by all nodes of the service.
+ * Nodes lease chunks of the budget and consume them locally, so that the
+ * cluster as a whole never makes more calls than the budget allows, without a
+ * round-trip to the authority for every call.<br>
+ * <br>
+ * Days are counted in UTC days since the epoch.
+ * 
+ * @see LocalQuotaAuthority
+ * @see LeasedCallBudget
+ */
+public interface QuotaAuthority {
+
+	/**
+	 * Leases calls from the budget of a day
+	 * 
+	 * @param budget    the name of the budget
+	 * @param day       the day to lease calls for
+	 * @param requested the number of calls requested
+	 * @return the number of calls granted, between 0 (the budget for the day is
+	 *         exhausted) and requested
+	 */
+	public int lease(String budget, long day, int requested);
+
+	/**
+	 * Returns leased calls that will not be used to the budget of a day
+	 * 
+	 * @param budget the name of the budget
+	 * @param day    the day the calls were leased for
+	 * @param unused the number of calls to return
+	 */
+	public void release(String budget, long day, int unused);
+}
@@ -0,0 +1,31 @@
+package se.phooey.raining.weather.quota;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a call taken, or denied, from a
+ * {@link LeasedCallBudget}. A lease renewed from the {@link QuotaAuthority} is
+ * part of the duration of the event.
+ */
+@Name("se.phooey.raining.QuotaDecision")
+@Label("Quota Decision")
+@Category({ "Is It Raining", "Quota" })
+@Description("A call taken or denied from the daily call budget")
+@StackTrace(false)
+class QuotaDecisionEvent extends Event {
+
+	@Label("Budget")
+	String budget;
+
+	@Label("Allowed")
+	boolean allowed;
+
+	@Label("Remaining In Lease")
+	@Description("The number of calls left in the current lease of this node")
+	long remainingInLease;
+}
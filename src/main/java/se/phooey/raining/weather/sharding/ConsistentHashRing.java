@@ -0,0 +1,119 @@
+package se.phooey.raining.weather.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable consistent hash ring assigning every
+ * {@link se.phooey.raining.weather.cache.CellKey cell} to one node of the
+ * cluster.<br>
+ * <br>
+ * Each node is placed on the ring at a number of virtual positions, the tokens,
+ * derived from its id. A cell is owned by the node of the first token at or
+ * after the hash of the cell key, wrapping around at the end of the ring. When
+ * a node joins or leaves the cluster, only the cells next to its tokens move to
+ * another node.<br>
+ * <br>
+ * Cell keys are hashed with the SplitMix64 finalizer, and tokens with the
+ * 64-bit FNV-1a hash of the UTF-8 bytes of "&lt;node id&gt;#&lt;index&gt;" passed
+ * through the same finalizer, so an edge router can rebuild the ring from the
+ * published node ids alone.
+ */
+public final class ConsistentHashRing {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long[] tokens;
+	private final String[] owners;
+	private final List<String> nodes;
+	private final int virtualNodesPerNode;
+
+	static long mix(long value) {
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	static long tokenOf(String node, int index) {
+		long hash = FNV_OFFSET_BASIS;
+		for (byte b : (node + "#" + index).getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return mix(hash);
+	}
+
+	/**
+	 * Creates a new ConsistentHashRing
+	 * 
+	 * @param nodes               the ids of the nodes of the cluster
+	 * @param virtualNodesPerNode the number of tokens of each node
+	 */
+	public ConsistentHashRing(Collection<String> nodes, int virtualNodesPerNode) {
+		if (nodes.isEmpty() || virtualNodesPerNode < 1) {
+			throw new IllegalArgumentException("A ring needs at least one node with at least one token");
+		}
+		// Ties between tokens of different nodes go to the smallest node id, so
+		// that all nodes build the same ring regardless of the order of the ids
+		TreeMap<Long, String> ring = new TreeMap<>();
+		List<String> sortedNodes = nodes.stream().distinct().sorted().collect(Collectors.toList());
+		for (String node : sortedNodes) {
+			for (int i = 0; i < virtualNodesPerNode; i++) {
+				ring.putIfAbsent(tokenOf(node, i), node);
+			}
+		}
+		this.tokens = ring.keySet().stream().mapToLong(Long::longValue).toArray();
+		this.owners = ring.values().toArray(new String[0]);
+		this.nodes = Collections.unmodifiableList(sortedNodes);
+		this.virtualNodesPerNode = virtualNodesPerNode;
+	}
+
+	/**
+	 * @param cellKey the key of a cell, see
+	 *                {@link se.phooey.raining.weather.cache.CellKey}
+	 * @return the id of the node owning the cell
+	 */
+	public String ownerOf(long cellKey) {
+		int index = Arrays.binarySearch(tokens, mix(cellKey));
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return owners[index == tokens.length ? 0 : index];
+	}
+
+	/**
+	 * @return the ids of the nodes of the ring, in sorted order
+	 */
+	public List<String> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the number of tokens of each node
+	 */
+	public int getVirtualNodesPerNode() {
+		return virtualNodesPerNode;
+	}
+
+	/**
+	 * @return the tokens of the ring, in ascending order
+	 */
+	public long[] getTokens() {
+		return tokens.clone();
+	}
+
+	/**
+	 * @return the owners of the tokens returned by {@link #getTokens()}, in the
+	 *         same order
+	 */
+	public String[] getOwners() {
+		return owners.clone();
+	}
+}
@@ -0,0 +1,70 @@
+package se.phooey.raining.weather.sharding;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * {@link PeerForwarder} requesting the {@link RainReport} over HTTP from the
+ * "/shard/isitraining" route of the other node, which only answers requests
+ * carrying the secret shared by the nodes of the cluster
+ */
+public class HttpPeerForwarder implements PeerForwarder {
+
+	static final String SHARD_ROUTE = "/shard/isitraining?latitude={latitude}&longitude={longitude}"
+			+ "&sections={sections}";
+
+	/**
+	 * The request header carrying the secret shared by the nodes
+	 */
+	public static final String SECRET_HEADER = "X-Shard-Secret";
+
+	private final Map<String, String> peerUrls;
+	private final RestTemplate restTemplate;
+	private final HttpEntity<Void> request;
+
+	/**
+	 * Creates a new HttpPeerForwarder
+	 * 
+	 * @param peerUrls     the base URLs of the nodes, by node id
+	 * @param restTemplate the RestTemplate used to make the requests
+	 * @param secret       the secret shared by the nodes
+	 */
+	public HttpPeerForwarder(Map<String, String> peerUrls, RestTemplate restTemplate, String secret) {
+		this.peerUrls = peerUrls;
+		this.restTemplate = restTemplate;
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(SECRET_HEADER, secret);
+		this.request = new HttpEntity<>(headers);
+	}
+
+	@Override
+	public RainReport forward(String node, double latitude, double longitude, Set<ReportSection> sections)
+			throws RainReportException {
+		String url = peerUrls.get(node);
+		if (url == null) {
+			throw new RainReportException("No URL is configured for node " + node);
+		}
+		try {
+			RainReport report = restTemplate.exchange(url + SHARD_ROUTE, HttpMethod.GET, request, RainReport.class,
+					latitude, longitude, sections.stream().map(ReportSection::name).collect(Collectors.joining(",")))
+					.getBody();
+			if (report == null) {
+				throw new RainReportException("Node " + node + " returned an empty response");
+			}
+			return report;
+		} catch (RestClientException e) {
+			throw new RainReportException("Could not forward the request to node " + node, e);
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package se.phooey.raining.weather.sharding;
+
+import java.util.Set;
+
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * Forwards the request for a {@link RainReport} to the node of the cluster
+ * owning the requested location
+ */
+@FunctionalInterface
+public interface PeerForwarder {
+
+	/**
+	 * Requests a {@link RainReport} from another node, which serves it from its
+	 * own cache without forwarding it any further
+	 * 
+	 * @param node      the id of the node to forward the request to
+	 * @param latitude  the latitude for the requested location
+	 * @param longitude the longitude for the requested location
+	 * @param sections  the sections of the report to fill in
+	 * @return the RainReport returned by the node
+	 * @throws RainReportException if the node could not be reached or could not
+	 *                             generate a RainReport
+	 */
+	RainReport forward(String node, double latitude, double longitude, Set<ReportSection> sections)
+			throws RainReportException;
+}
@@ -0,0 +1,65 @@
+package se.phooey.raining.weather.sharding;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link ConsistentHashRing} of the cluster as published to edge routers,
+ * which can use it to route each request directly to the node owning the
+ * requested location
+ */
+public class PublishedRing {
+
+	private final Map<String, String> peers;
+	private final ConsistentHashRing ring;
+
+	/**
+	 * Creates a new PublishedRing
+	 * 
+	 * @param peers the base URLs of the nodes, by node id
+	 * @param ring  the ring of the cluster
+	 */
+	public PublishedRing(Map<String, String> peers, ConsistentHashRing ring) {
+		this.peers = peers;
+		this.ring = ring;
+	}
+
+	ConsistentHashRing ring() {
+		return ring;
+	}
+
+	/**
+	 * @return the base URLs of the nodes, by node id
+	 */
+	public Map<String, String> getPeers() {
+		return peers;
+	}
+
+	/**
+	 * @return the ids of the nodes of the ring, in sorted order
+	 */
+	public List<String> getNodes() {
+		return ring.getNodes();
+	}
+
+	/**
+	 * @return the number of tokens of each node
+	 */
+	public int getVirtualNodesPerNode() {
+		return ring.getVirtualNodesPerNode();
+	}
+
+	/**
+	 * @return the tokens of the ring, in ascending order
+	 */
+	public long[] getTokens() {
+		return ring.getTokens();
+	}
+
+	/**
+	 * @return the owners of the tokens, in the same order
+	 */
+	public String[] getOwners() {
+		return ring.getOwners();
+	}
+}
@@ -0,0 +1,82 @@
+package se.phooey.raining.weather.sharding;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import se.phooey.raining.weather.cache.CachingWeatherProvider;
+
+/**
+ * Partitions the locations over the nodes listed in
+ * "isitraining.sharding.peers" when "isitraining.sharding.enabled" is set
+ */
+@Configuration
+@ConditionalOnProperty(name = "isitraining.sharding.enabled", havingValue = "true")
+public class ShardingConfiguration {
+	@Value("${isitraining.node-id}")
+	private String nodeId;
+	@Value("${isitraining.sharding.peers}")
+	private String peers;
+	@Value("${isitraining.sharding.virtual-nodes:128}")
+	private int virtualNodes;
+	@Value("${isitraining.sharding.timeout-millis:2000}")
+	private long timeoutMillis;
+	@Value("${isitraining.sharding.secret}")
+	private String secret;
+
+	/**
+	 * Parses a comma separated list of "&lt;node id&gt;=&lt;base URL&gt;" pairs
+	 * 
+	 * @param peers the list to parse
+	 * @return the base URLs by node id, in the order of the list
+	 */
+	static Map<String, String> parsePeers(String peers) {
+		Map<String, String> peerUrls = new LinkedHashMap<>();
+		for (String peer : peers.split(",")) {
+			String[] idAndUrl = peer.trim().split("=", 2);
+			if (idAndUrl.length != 2 || idAndUrl[0].isEmpty() || idAndUrl[1].isEmpty()) {
+				throw new IllegalArgumentException("Peers need to be listed as <node id>=<base URL>, got: " + peer);
+			}
+			peerUrls.put(idAndUrl[0], idAndUrl[1]);
+		}
+		return peerUrls;
+	}
+
+	@Bean
+	public PublishedRing publishedRing() {
+		Map<String, String> peerUrls = parsePeers(peers);
+		if (!peerUrls.containsKey(nodeId)) {
+			throw new IllegalArgumentException("The peers need to include this node, " + nodeId);
+		}
+		return new PublishedRing(peerUrls, new ConsistentHashRing(peerUrls.keySet(), virtualNodes));
+	}
+
+	/**
+	 * The nodes only answer the requests of each other carrying the secret in
+	 * "isitraining.sharding.secret", so it must not be empty
+	 */
+	@Bean
+	public PeerForwarder peerForwarder(PublishedRing publishedRing, RestTemplateBuilder restTemplateBuilder) {
+		if (secret.isEmpty()) {
+			throw new IllegalArgumentException("The nodes need to share a secret in isitraining.sharding.secret");
+		}
+		return new HttpPeerForwarder(publishedRing.getPeers(),
+				restTemplateBuilder.setConnectTimeout(Duration.ofMillis(timeoutMillis))
+						.setReadTimeout(Duration.ofMillis(timeoutMillis)).build(),
+				secret);
+	}
+
+	@Bean
+	@Primary
+	public ShardingWeatherProvider shardingWeatherProvider(PublishedRing publishedRing,
+			CachingWeatherProvider cachingWeatherProvider, PeerForwarder peerForwarder) {
+		return new ShardingWeatherProvider(nodeId, publishedRing.ring(), cachingWeatherProvider, peerForwarder);
+	}
+}
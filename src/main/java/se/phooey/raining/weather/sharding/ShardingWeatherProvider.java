@@ -0,0 +1,119 @@
+package se.phooey.raining.weather.sharding;
+
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.cache.CellKey;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * {@link WeatherProvider} partitioning the locations over the nodes of the
+ * cluster with a {@link ConsistentHashRing}, so that each cell is only cached
+ * and fetched by the node owning it.<br>
+ * <br>
+ * Requests for cells owned by this node are served by the local
+ * WeatherProvider, other requests are forwarded to the owner. If the owner can
+ * not be reached the request is served locally instead.
+ */
+public class ShardingWeatherProvider implements WeatherProvider {
+
+	private final String nodeId;
+	private final ConsistentHashRing ring;
+	private final WeatherProvider local;
+	private final PeerForwarder forwarder;
+	private final Logger logger;
+	private final LongAdder localRequests;
+	private final LongAdder forwardedRequests;
+	private final LongAdder forwardingFailures;
+
+	/**
+	 * Creates a new ShardingWeatherProvider
+	 * 
+	 * @param nodeId    the id of this node on the ring
+	 * @param ring      the ring of the cluster
+	 * @param local     the WeatherProvider serving the cells owned by this node
+	 * @param forwarder the PeerForwarder used to reach the other nodes
+	 */
+	public ShardingWeatherProvider(String nodeId, ConsistentHashRing ring, WeatherProvider local,
+			PeerForwarder forwarder) {
+		this.nodeId = nodeId;
+		this.ring = ring;
+		this.local = local;
+		this.forwarder = forwarder;
+		this.logger = LoggerFactory.getLogger(ShardingWeatherProvider.class);
+		this.localRequests = new LongAdder();
+		this.forwardedRequests = new LongAdder();
+		this.forwardingFailures = new LongAdder();
+	}
+
+	@Override
+	public RainReport isItRainingAtCoordinates(double latitude, double longitude) throws RainReportException {
+		return isItRainingAtCoordinates(latitude, longitude, ReportSection.DEFAULT);
+	}
+
+	@Override
+	public RainReport isItRainingAtCoordinates(double latitude, double longitude, Set<ReportSection> sections)
+			throws RainReportException {
+		String owner = ring.ownerOf(CellKey.of(latitude, longitude));
+		if (!nodeId.equals(owner)) {
+			try {
+				RainReport report = forwarder.forward(owner, latitude, longitude, sections);
+				forwardedRequests.increment();
+				return report;
+			} catch (RainReportException e) {
+				forwardingFailures.increment();
+				logger.warn("Serving locally, could not forward the request to {}: {}", owner, e.getMessage());
+			}
+		}
+		localRequests.increment();
+		return local.isItRainingAtCoordinates(latitude, longitude, sections);
+	}
+
+	/**
+	 * @return the id of this node on the ring
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * @return the ring of the cluster
+	 */
+	public ConsistentHashRing getRing() {
+		return ring;
+	}
+
+	/**
+	 * @return the WeatherProvider serving the cells owned by this node
+	 */
+	public WeatherProvider getLocal() {
+		return local;
+	}
+
+	/**
+	 * @return the number of requests served by this node
+	 */
+	public long getLocalRequests() {
+		return localRequests.sum();
+	}
+
+	/**
+	 * @return the number of requests served by other nodes
+	 */
+	public long getForwardedRequests() {
+		return forwardedRequests.sum();
+	}
+
+	/**
+	 * @return the number of requests that could not be forwarded to their owner
+	 */
+	public long getForwardingFailures() {
+		return forwardingFailures.sum();
+	}
+}
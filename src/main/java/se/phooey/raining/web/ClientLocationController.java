@@ -0,0 +1,73 @@
+package se.phooey.raining.web;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+import se.phooey.raining.places.IpLocationTable;
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.exception.RainReportException;
+import se.phooey.raining.web.exception.UnknownLocationException;
+
+/**
+ * {@link RestController} providing a simple REST API to retrieve a rain report
+ * for the approximate location of the client address, for clients that can
+ * not or will not share their coordinates.<br>
+ * <br>
+ * The client address is the remote address of the request, which is taken
+ * from the X-Forwarded-For header instead when server.use-forward-headers is
+ * set.
+ */
+@RestController
+public class ClientLocationController {
+
+	private final IpLocationTable ipLocationTable;
+	private final WeatherProvider weatherProvider;
+	private final CoordinatePrecision coordinatePrecision;
+
+	/**
+	 * Creates a new ClientLocationController
+	 * 
+	 * @param ipLocationTable     The {@link IpLocationTable} to locate the client
+	 *                            addresses in
+	 * @param weatherProvider     The {@link WeatherProvider} to use to generate
+	 *                            the {@link RainReport}s
+	 * @param coordinatePrecision The {@link CoordinatePrecision} to bucket the
+	 *                            located coordinates by
+	 */
+	@Autowired
+	public ClientLocationController(IpLocationTable ipLocationTable, WeatherProvider weatherProvider,
+			CoordinatePrecision coordinatePrecision) {
+		this.ipLocationTable = ipLocationTable;
+		this.weatherProvider = weatherProvider;
+		this.coordinatePrecision = coordinatePrecision;
+	}
+
+	/**
+	 * Generates and returns a rain report for the approximate location of the
+	 * client address
+	 * 
+	 * @param request the request, to get the client address from
+	 * @return {@link RainReport} for the approximate coordinates of the client
+	 * @throws UnknownLocationException If the client address is not in the IP
+	 *                                  location table
+	 * @throws RainReportException      If a RainReport could not be generated
+	 */
+	@GetMapping("/isitraining/here")
+	@JsonView(RainReport.Summary.class)
+	public RainReport isItRaining(HttpServletRequest request) throws UnknownLocationException, RainReportException {
+		int range = ipLocationTable.find(request.getRemoteAddr());
+		if (range < 0) {
+			throw new UnknownLocationException("The location of the client address is not known");
+		}
+		return weatherProvider.isItRainingAtCoordinates(
+				coordinatePrecision.latitude(ipLocationTable.latitude(range)),
+				coordinatePrecision.longitude(ipLocationTable.longitude(range)));
+	}
+}
@@ -0,0 +1,60 @@
+package se.phooey.raining.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import se.phooey.raining.weather.grid.RainGrid;
+import se.phooey.raining.weather.grid.RainGridService;
+import se.phooey.raining.web.exception.InvalidCoordinatesException;
+
+/**
+ * {@link RestController} providing a simple REST API to retrieve the current
+ * precipitation at the points of a grid covering a bounding box, for example
+ * the visible area of a map
+ */
+@RestController
+public class GridController {
+
+	private final RainGridService rainGridService;
+
+	/**
+	 * Creates a new GridController
+	 *
+	 * @param rainGridService The {@link RainGridService} to use to generate the
+	 *                        {@link RainGrid}s
+	 */
+	@Autowired
+	public GridController(RainGridService rainGridService) {
+		this.rainGridService = rainGridService;
+	}
+
+	/**
+	 * Generates and returns the grid of the current precipitation within a
+	 * bounding box
+	 *
+	 * @param south      the southern latitude of the bounding box
+	 * @param west       the western longitude of the bounding box
+	 * @param north      the northern latitude of the bounding box
+	 * @param east       the eastern longitude of the bounding box
+	 * @param resolution the distance between two points of the grid, in degrees
+	 * @return {@link RainGrid} of the points within the bounding box
+	 * @throws InvalidCoordinatesException If the bounding box or resolution is
+	 *                                     invalid, or the grid would have too
+	 *                                     many points
+	 */
+	@GetMapping("/grid")
+	public RainGrid grid(@RequestParam(value = "south") double south, @RequestParam(value = "west") double west,
+			@RequestParam(value = "north") double north, @RequestParam(value = "east") double east,
+			@RequestParam(value = "resolution", defaultValue = "0.1") double resolution)
+			throws InvalidCoordinatesException {
+		IsItRainingController.validateCoordinates(south, west);
+		IsItRainingController.validateCoordinates(north, east);
+		try {
+			return rainGridService.rainGrid(south, west, north, east, resolution);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidCoordinatesException(e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package se.phooey.raining.web;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.cache.CellKey;
+import se.phooey.raining.weather.history.RainHistoryStore;
+import se.phooey.raining.weather.history.RainSample;
+import se.phooey.raining.web.exception.InvalidCoordinatesException;
+
+/**
+ * {@link RestController} providing the rain history recorded for a geographic
+ * location
+ */
+@RestController
+public class HistoryController {
+
+	private final RainHistoryStore rainHistoryStore;
+	private final CoordinatePrecision coordinatePrecision;
+
+	/**
+	 * Creates a new HistoryController
+	 * 
+	 * @param rainHistoryStore    the {@link RainHistoryStore} to read the
+	 *                            history from
+	 * @param coordinatePrecision the {@link CoordinatePrecision} the history is
+	 *                            recorded by
+	 */
+	@Autowired
+	public HistoryController(RainHistoryStore rainHistoryStore, CoordinatePrecision coordinatePrecision) {
+		this.rainHistoryStore = rainHistoryStore;
+		this.coordinatePrecision = coordinatePrecision;
+	}
+
+	/**
+	 * Returns the samples recorded for a location within a time range, both ends
+	 * inclusive
+	 * 
+	 * @param latitude  the geographic latitude of the requested location
+	 * @param longitude the geographic longitude of the requested location
+	 * @param from      the earliest time of the range in epoch seconds, the
+	 *                  beginning of the history if not specified
+	 * @param to        the latest time of the range in epoch seconds, the end of
+	 *                  the history if not specified
+	 * @return the {@link RainSample}s within the range, ordered by time
+	 * @throws InvalidCoordinatesException If the specified coordinates are invalid
+	 */
+	@GetMapping("/history")
+	public List<RainSample> history(@RequestParam(value = "latitude") double latitude,
+			@RequestParam(value = "longitude") double longitude,
+			@RequestParam(value = "from", defaultValue = "0") long from,
+			@RequestParam(value = "to", defaultValue = "" + Long.MAX_VALUE) long to)
+			throws InvalidCoordinatesException {
+		IsItRainingController.validateCoordinates(latitude, longitude);
+		return rainHistoryStore.query(
+				CellKey.of(coordinatePrecision.latitude(latitude), coordinatePrecision.longitude(longitude)), from, to);
+	}
+}
@@ -1,18 +1,29 @@
 package se.phooey.raining.web;
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.util.Locale;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.annotation.JsonView;
+
+import se.phooey.raining.timing.Phase;
+import se.phooey.raining.timing.RequestTiming;
+import se.phooey.raining.weather.CoordinatePrecision;
 import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
 import se.phooey.raining.weather.WeatherProvider;
 import se.phooey.raining.weather.exception.RainReportException;
 import se.phooey.raining.web.exception.InvalidCoordinatesException;
+import se.phooey.raining.web.exception.InvalidFieldsException;
 
 /**
  * {@link RestController} providing a simple REST API to retrieve a rain report for a geographic location
@@ -21,32 +32,71 @@ import se.phooey.raining.web.exception.InvalidCoordinatesException;
 public class IsItRainingController {
 
 	private WeatherProvider weatherProvider;
+	private CoordinatePrecision coordinatePrecision;
 
-	private void validateCoordinates(double latitude, double longitude) throws InvalidCoordinatesException {
+	/**
+	 * @param latitude the requested latitude
+	 * @param longitude the requested longitude
+	 * @throws InvalidCoordinatesException If the coordinates are out of range
+	 */
+	public static void validateCoordinates(double latitude, double longitude) throws InvalidCoordinatesException {
 		if ((latitude > 90) || (latitude < -90) || (longitude > 180) || (longitude < -180)) {
 			throw new InvalidCoordinatesException(
 					"Coordinates need to be in range: -90 <= latitude <= 90, -180 <= longitude <= 180.");
 		}
 	}
 
-	private double truncateDoubleToThreeDecimalPoints(double value) {
-		DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
-		DecimalFormat df = new DecimalFormat("#.###", symbols);
-		return Double.parseDouble(df.format(value));
+	/**
+	 * @param fields the names of the requested {@link RainReport} fields
+	 * @return the sections of the report needed for the fields
+	 * @throws InvalidFieldsException If a requested field is not a field of a RainReport, or
+	 *         the fields need no section, such as only the latitude and longitude
+	 */
+	public static Set<ReportSection> sectionsForFields(List<String> fields) throws InvalidFieldsException {
+		Set<ReportSection> sections;
+		try {
+			sections = ReportSection.forFields(fields);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidFieldsException(e.getMessage());
+		}
+		if (sections.isEmpty()) {
+			throw new InvalidFieldsException("At least one field besides the latitude and longitude needs to be requested");
+		}
+		return sections;
+	}
+
+	/**
+	 * @param rainReport the report to project
+	 * @param fields the names of the {@link RainReport} fields to keep
+	 * @return the requested fields of the report, by name
+	 */
+	public static Map<String, Object> project(RainReport rainReport, List<String> fields) {
+		BeanWrapper report = new BeanWrapperImpl(rainReport);
+		Map<String, Object> projection = new LinkedHashMap<>();
+		for (String field : fields) {
+			projection.put(field, report.getPropertyValue(field));
+		}
+		return projection;
 	}
 
 	/**
 	 * Creates a new IsItRainingController
 	 * 
 	 * @param weatherProvider The {@link WeatherProvider} to use to generate the {@link RainReport}s
+	 * @param coordinatePrecision The {@link CoordinatePrecision} to bucket the requested coordinates by
 	 */
 	@Autowired
-	public IsItRainingController(WeatherProvider weatherProvider) {
+	public IsItRainingController(WeatherProvider weatherProvider, CoordinatePrecision coordinatePrecision) {
 		this.weatherProvider = weatherProvider;
+		this.coordinatePrecision = coordinatePrecision;
 	}
 
 	/**
-	 * Generates and returns a rain report for a requested geographic location
+	 * Generates and returns a rain report for a requested geographic location<br>
+	 * <br>
+	 * The report is returned as JSON by default, and as CBOR or Smile if requested
+	 * by the Accept header (application/cbor or application/x-jackson-smile), see
+	 * the schema published at /schema/rain-report.schema.json
 	 * 
 	 * @param latitude the geographic latitude of the requested location
 	 * @param longitude the geographic longitude of the requested location
@@ -55,12 +105,96 @@ public class IsItRainingController {
 	 * @throws RainReportException If a RainReport could not be generated
 	 */
 	@GetMapping("/isitraining")
+	@JsonView(RainReport.Summary.class)
 	public RainReport isItRaining(@RequestParam(value = "latitude") double latitude,
 			@RequestParam(value = "longitude") double longitude) throws InvalidCoordinatesException, RainReportException {
+		long start = System.nanoTime();
 		validateCoordinates(latitude, longitude);
-		latitude = truncateDoubleToThreeDecimalPoints(latitude);
-		longitude = truncateDoubleToThreeDecimalPoints(longitude);
+		latitude = coordinatePrecision.latitude(latitude);
+		longitude = coordinatePrecision.longitude(longitude);
+		RequestTiming.record(Phase.VALIDATION, start);
 		return weatherProvider.isItRainingAtCoordinates(latitude, longitude);
 	}
 
+	/**
+	 * Generates and returns the requested fields of a rain report for a requested
+	 * geographic location<br>
+	 * <br>
+	 * Only the parts of the upstream weather report needed for the requested
+	 * fields are retrieved, so asking for fewer fields, e.g. only
+	 * "currentPrecipitation", gives a smaller and faster upstream request.
+	 * 
+	 * @param latitude the geographic latitude of the requested location
+	 * @param longitude the geographic longitude of the requested location
+	 * @param fields the names of the {@link RainReport} fields to return
+	 * @return the requested fields of the {@link RainReport} for the specified location, by name
+	 * @throws InvalidCoordinatesException If the specified coordinates are invalid
+	 * @throws InvalidFieldsException If a requested field is not a field of a RainReport
+	 * @throws RainReportException If a RainReport could not be generated
+	 */
+	@GetMapping(value = "/isitraining", params = "fields")
+	public Map<String, Object> isItRaining(@RequestParam(value = "latitude") double latitude,
+			@RequestParam(value = "longitude") double longitude, @RequestParam(value = "fields") List<String> fields)
+			throws InvalidCoordinatesException, InvalidFieldsException, RainReportException {
+		long start = System.nanoTime();
+		validateCoordinates(latitude, longitude);
+		Set<ReportSection> sections = sectionsForFields(fields);
+		latitude = coordinatePrecision.latitude(latitude);
+		longitude = coordinatePrecision.longitude(longitude);
+		RequestTiming.record(Phase.VALIDATION, start);
+		return project(weatherProvider.isItRainingAtCoordinates(latitude, longitude, sections), fields);
+	}
+
+	/**
+	 * Generates and returns the precipitation forecast for each day of the coming
+	 * week for a requested geographic location<br>
+	 * <br>
+	 * The forecast is retrieved as part of the full rain report, so a forecast
+	 * for a location is served from the same cached upstream request as
+	 * "/isitraining", whichever of them is requested first.
+	 * 
+	 * @param latitude the geographic latitude of the requested location
+	 * @param longitude the geographic longitude of the requested location
+	 * @return {@link RainReport} with the daily forecast for the specified location
+	 * @throws InvalidCoordinatesException If the specified coordinates are invalid
+	 * @throws RainReportException If a RainReport could not be generated
+	 */
+	@GetMapping("/forecast")
+	@JsonView(RainReport.Forecast.class)
+	public RainReport forecast(@RequestParam(value = "latitude") double latitude,
+			@RequestParam(value = "longitude") double longitude) throws InvalidCoordinatesException, RainReportException {
+		long start = System.nanoTime();
+		validateCoordinates(latitude, longitude);
+		latitude = coordinatePrecision.latitude(latitude);
+		longitude = coordinatePrecision.longitude(longitude);
+		RequestTiming.record(Phase.VALIDATION, start);
+		return weatherProvider.isItRainingAtCoordinates(latitude, longitude, ReportSection.DEFAULT);
+	}
+
+	/**
+	 * Generates and returns the precipitation expected minute by minute during
+	 * the next hour for a requested geographic location, with the times it starts
+	 * and stops raining and the peak intensity<br>
+	 * <br>
+	 * The minute by minute data is only retrieved from the upstream weather
+	 * service for this route, and is cached separately from the rain report.
+	 * 
+	 * @param latitude the geographic latitude of the requested location
+	 * @param longitude the geographic longitude of the requested location
+	 * @return {@link RainReport} with the nowcast for the specified location
+	 * @throws InvalidCoordinatesException If the specified coordinates are invalid
+	 * @throws RainReportException If a RainReport could not be generated
+	 */
+	@GetMapping("/nowcast")
+	@JsonView(RainReport.Nowcast.class)
+	public RainReport nowcast(@RequestParam(value = "latitude") double latitude,
+			@RequestParam(value = "longitude") double longitude) throws InvalidCoordinatesException, RainReportException {
+		long start = System.nanoTime();
+		validateCoordinates(latitude, longitude);
+		latitude = coordinatePrecision.latitude(latitude);
+		longitude = coordinatePrecision.longitude(longitude);
+		RequestTiming.record(Phase.VALIDATION, start);
+		return weatherProvider.isItRainingAtCoordinates(latitude, longitude, EnumSet.of(ReportSection.MINUTELY));
+	}
+
 }
@@ -0,0 +1,84 @@
+package se.phooey.raining.web;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+import se.phooey.raining.places.Gazetteer;
+import se.phooey.raining.places.Place;
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.exception.RainReportException;
+import se.phooey.raining.web.exception.UnknownPlaceException;
+
+/**
+ * {@link RestController} providing a simple REST API to look up places by
+ * name, and to retrieve a rain report for a place by name instead of by
+ * geographic coordinates
+ */
+@RestController
+public class PlaceController {
+
+	private static final int MAXIMUM_LIMIT = 50;
+
+	private final Gazetteer gazetteer;
+	private final WeatherProvider weatherProvider;
+	private final CoordinatePrecision coordinatePrecision;
+
+	/**
+	 * Creates a new PlaceController
+	 * 
+	 * @param gazetteer           The {@link Gazetteer} to look up the places in
+	 * @param weatherProvider     The {@link WeatherProvider} to use to generate
+	 *                            the {@link RainReport}s
+	 * @param coordinatePrecision The {@link CoordinatePrecision} to bucket the
+	 *                            coordinates of the places by
+	 */
+	@Autowired
+	public PlaceController(Gazetteer gazetteer, WeatherProvider weatherProvider,
+			CoordinatePrecision coordinatePrecision) {
+		this.gazetteer = gazetteer;
+		this.weatherProvider = weatherProvider;
+		this.coordinatePrecision = coordinatePrecision;
+	}
+
+	/**
+	 * Returns the places best matching a name, by exact, prefix or fuzzy match
+	 * 
+	 * @param name  the name, or the beginning of the name, of the place
+	 * @param limit the maximum number of places to return, at most 50
+	 * @return the matching places, best match first
+	 */
+	@GetMapping("/places")
+	public List<Place> places(@RequestParam(value = "name") String name,
+			@RequestParam(value = "limit", defaultValue = "10") int limit) {
+		return gazetteer.search(name, Math.min(limit, MAXIMUM_LIMIT));
+	}
+
+	/**
+	 * Generates and returns a rain report for the place best matching a name
+	 * 
+	 * @param name the name of the requested place
+	 * @return {@link RainReport} for the coordinates of the place
+	 * @throws UnknownPlaceException If no place matches the name
+	 * @throws RainReportException   If a RainReport could not be generated
+	 */
+	@GetMapping("/isitraining/place")
+	@JsonView(RainReport.Summary.class)
+	public RainReport isItRaining(@RequestParam(value = "name") String name)
+			throws UnknownPlaceException, RainReportException {
+		Place place = gazetteer.resolve(name);
+		if (place == null) {
+			throw new UnknownPlaceException("No place matches the name: " + name);
+		}
+		return weatherProvider.isItRainingAtCoordinates(
+				coordinatePrecision.latitude(place.getLatitude()),
+				coordinatePrecision.longitude(place.getLongitude()));
+	}
+}
@@ -10,18 +10,37 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 
 import se.phooey.raining.weather.exception.RainReportException;
 import se.phooey.raining.web.exception.InvalidCoordinatesException;
+import se.phooey.raining.web.exception.InvalidDateException;
+import se.phooey.raining.web.exception.InvalidFieldsException;
+import se.phooey.raining.web.exception.UnknownLocationException;
+import se.phooey.raining.web.exception.UnknownPeerException;
+import se.phooey.raining.web.exception.UnknownPlaceException;
 
 
 @ControllerAdvice
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
  
-    @ExceptionHandler({InvalidCoordinatesException.class})
+    @ExceptionHandler({InvalidCoordinatesException.class, InvalidFieldsException.class, InvalidDateException.class})
     public ResponseEntity<Object> handleBadRequest(
       Exception ex, WebRequest request) {
         return handleExceptionInternal(ex, ex.getLocalizedMessage(), 
           new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
     }
     
+    @ExceptionHandler({UnknownPlaceException.class, UnknownLocationException.class})
+    public ResponseEntity<Object> handleNotFound(
+      Exception ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getLocalizedMessage(), 
+          new HttpHeaders(), HttpStatus.NOT_FOUND, request);
+    }
+    
+    @ExceptionHandler({UnknownPeerException.class})
+    public ResponseEntity<Object> handleForbidden(
+      Exception ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getLocalizedMessage(), 
+          new HttpHeaders(), HttpStatus.FORBIDDEN, request);
+    }
+    
     @ExceptionHandler({RainReportException.class})
       public ResponseEntity<Object> handleInternalServerError(
         Exception ex, WebRequest request) {
@@ -0,0 +1,111 @@
+package se.phooey.raining.web;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.exception.RainReportException;
+import se.phooey.raining.weather.sharding.HttpPeerForwarder;
+import se.phooey.raining.weather.sharding.PublishedRing;
+import se.phooey.raining.weather.sharding.ShardingWeatherProvider;
+import se.phooey.raining.web.exception.InvalidCoordinatesException;
+import se.phooey.raining.web.exception.InvalidFieldsException;
+import se.phooey.raining.web.exception.UnknownPeerException;
+
+/**
+ * {@link RestController} used by the nodes of a sharded cluster and the edge
+ * routers in front of it, only available when sharding is enabled.<br>
+ * <br>
+ * Reports are only served to the other nodes, which send the secret shared by
+ * the cluster, since the route is neither rate limited nor admission
+ * controlled: the requests were already let through by the node forwarding
+ * them.
+ */
+@RestController
+@ConditionalOnProperty(name = "isitraining.sharding.enabled", havingValue = "true")
+public class ShardController {
+
+	private ShardingWeatherProvider shardingWeatherProvider;
+	private PublishedRing publishedRing;
+	private CoordinatePrecision coordinatePrecision;
+	private byte[] secret;
+
+	/**
+	 * Creates a new ShardController
+	 * 
+	 * @param shardingWeatherProvider the ShardingWeatherProvider of this node
+	 * @param publishedRing           the ring of the cluster
+	 * @param coordinatePrecision     the {@link CoordinatePrecision} to bucket
+	 *                                the requested coordinates by
+	 * @param secret                  the secret shared by the nodes
+	 */
+	@Autowired
+	public ShardController(ShardingWeatherProvider shardingWeatherProvider, PublishedRing publishedRing,
+			CoordinatePrecision coordinatePrecision, @Value("${isitraining.sharding.secret}") String secret) {
+		this.shardingWeatherProvider = shardingWeatherProvider;
+		this.publishedRing = publishedRing;
+		this.coordinatePrecision = coordinatePrecision;
+		this.secret = secret.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the ring of the cluster, used by edge routers to route requests
+	 *         directly to the node owning the requested location
+	 */
+	@GetMapping("/shard/ring")
+	public PublishedRing ring() {
+		return publishedRing;
+	}
+
+	/**
+	 * Returns a rain report for a location owned by this node, without forwarding
+	 * the request any further even if the rings of the nodes disagree
+	 * 
+	 * @param latitude  the geographic latitude of the requested location
+	 * @param longitude the geographic longitude of the requested location
+	 * @param sections  the sections of the report to fill in, all but the
+	 *                  opt-in sections if not specified
+	 * @param secret    the secret shared by the nodes
+	 * @return {@link RainReport} for the specified location
+	 * @throws UnknownPeerException        If the secret is missing or wrong
+	 * @throws InvalidCoordinatesException If the specified coordinates are invalid
+	 * @throws InvalidFieldsException      If the list of sections is empty
+	 * @throws RainReportException         If a RainReport could not be generated
+	 */
+	@GetMapping("/shard/isitraining")
+	@JsonView(RainReport.Shard.class)
+	public RainReport isItRaining(@RequestParam(value = "latitude") double latitude,
+			@RequestParam(value = "longitude") double longitude,
+			@RequestParam(value = "sections", required = false) List<ReportSection> sections,
+			@RequestHeader(value = HttpPeerForwarder.SECRET_HEADER, required = false) String secret)
+			throws UnknownPeerException, InvalidCoordinatesException, InvalidFieldsException, RainReportException {
+		if (secret == null || !MessageDigest.isEqual(this.secret, secret.getBytes(StandardCharsets.UTF_8))) {
+			throw new UnknownPeerException("Only the nodes of the cluster may request reports from a shard");
+		}
+		IsItRainingController.validateCoordinates(latitude, longitude);
+		Set<ReportSection> requested = ReportSection.DEFAULT;
+		if (sections != null) {
+			if (sections.isEmpty()) {
+				throw new InvalidFieldsException("At least one section of the report needs to be requested");
+			}
+			requested = EnumSet.copyOf(sections);
+		}
+		return shardingWeatherProvider.getLocal().isItRainingAtCoordinates(coordinatePrecision.latitude(latitude),
+				coordinatePrecision.longitude(longitude), requested);
+	}
+}
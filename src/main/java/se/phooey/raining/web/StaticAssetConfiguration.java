@@ -0,0 +1,48 @@
+package se.phooey.raining.web;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+
+/**
+ * Serves the fingerprinted front-end assets generated by the build under
+ * "/assets".<br>
+ * <br>
+ * The file names of the assets contain a hash of their content, so they never
+ * change and can be cached forever by browsers and proxies. The pre-compressed
+ * variants generated by the build are served to clients that accept them,
+ * instead of compressing on every request.
+ */
+@Configuration
+public class StaticAssetConfiguration implements WebMvcConfigurer {
+
+	static final String ASSETS_PATH_PATTERN = "/assets/**";
+	static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+	@Override
+	public void addResourceHandlers(ResourceHandlerRegistry registry) {
+		registry.addResourceHandler(ASSETS_PATH_PATTERN).addResourceLocations("classpath:/static/assets/")
+				.resourceChain(true).addResolver(new EncodedResourceResolver())
+				.addResolver(new PathResourceResolver());
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		// Set directly since Spring's CacheControl can not express "immutable"
+		registry.addInterceptor(new HandlerInterceptor() {
+			@Override
+			public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+				response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+				return true;
+			}
+		}).addPathPatterns(ASSETS_PATH_PATTERN);
+	}
+}
@@ -0,0 +1,87 @@
+package se.phooey.raining.web;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.HistoricalWeatherProvider;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.exception.RainReportException;
+import se.phooey.raining.web.exception.InvalidCoordinatesException;
+import se.phooey.raining.web.exception.InvalidDateException;
+
+/**
+ * {@link RestController} providing a simple REST API to retrieve a rain report
+ * for a geographic location on a past date
+ */
+@RestController
+public class TimeMachineController {
+
+	private final HistoricalWeatherProvider historicalWeatherProvider;
+	private final CoordinatePrecision coordinatePrecision;
+	private final Clock clock;
+
+	/**
+	 * Only dates that have ended in every time zone are accepted, since the
+	 * report of a date is cached permanently
+	 */
+	private void validateDate(LocalDate date) throws InvalidDateException {
+		LocalDate latest = LocalDate.now(clock).minusDays(2);
+		if (date.isAfter(latest)) {
+			throw new InvalidDateException(
+					String.format("The date needs to have ended everywhere: date <= %s.", latest));
+		}
+	}
+
+	/**
+	 * Creates a new TimeMachineController
+	 * 
+	 * @param historicalWeatherProvider The {@link HistoricalWeatherProvider} to
+	 *                                  use to generate the {@link RainReport}s
+	 * @param coordinatePrecision       The {@link CoordinatePrecision} to bucket
+	 *                                  the requested coordinates by
+	 * @param clock                     The Clock used to determine which dates
+	 *                                  have ended
+	 */
+	@Autowired
+	public TimeMachineController(HistoricalWeatherProvider historicalWeatherProvider,
+			CoordinatePrecision coordinatePrecision, Clock clock) {
+		this.historicalWeatherProvider = historicalWeatherProvider;
+		this.coordinatePrecision = coordinatePrecision;
+		this.clock = clock;
+	}
+
+	/**
+	 * Generates and returns a rain report for a requested geographic location on
+	 * a past date
+	 * 
+	 * @param latitude  the geographic latitude of the requested location
+	 * @param longitude the geographic longitude of the requested location
+	 * @param date      the requested date, as yyyy-MM-dd
+	 * @return {@link RainReport} for the specified location and date
+	 * @throws InvalidCoordinatesException If the specified coordinates are invalid
+	 * @throws InvalidDateException        If the specified date has not ended
+	 *                                     everywhere yet
+	 * @throws RainReportException         If a RainReport could not be generated
+	 */
+	@GetMapping("/timemachine")
+	@JsonView(RainReport.Summary.class)
+	public RainReport timeMachine(@RequestParam(value = "latitude") double latitude,
+			@RequestParam(value = "longitude") double longitude,
+			@RequestParam(value = "date") @DateTimeFormat(iso = ISO.DATE) LocalDate date)
+			throws InvalidCoordinatesException, InvalidDateException, RainReportException {
+		IsItRainingController.validateCoordinates(latitude, longitude);
+		validateDate(date);
+		return historicalWeatherProvider.rainReportForDate(coordinatePrecision.latitude(latitude),
+				coordinatePrecision.longitude(longitude), date);
+	}
+}
@@ -0,0 +1,82 @@
+package se.phooey.raining.web.accesslog;
+
+/**
+ * Metadata captured for a single served HTTP request, written to the access log
+ * by the {@link AccessLogWriter}.
+ */
+public class AccessLogEntry {
+
+	private final long timestamp;
+	private final String method;
+	private final String path;
+	private final String query;
+	private final int status;
+	private final long durationMicros;
+	private final String client;
+
+	/**
+	 * Creates a new AccessLogEntry
+	 * 
+	 * @param timestamp      the time the request was received, in milliseconds
+	 *                       since the epoch
+	 * @param method         the HTTP method of the request
+	 * @param path           the requested path
+	 * @param query          the query string of the request, or null if there was
+	 *                       none
+	 * @param status         the HTTP status code of the response
+	 * @param durationMicros the time it took to serve the request, in microseconds
+	 * @param client         the address of the client making the request
+	 */
+	public AccessLogEntry(long timestamp, String method, String path, String query, int status, long durationMicros,
+			String client) {
+		this.timestamp = timestamp;
+		this.method = method;
+		this.path = path;
+		this.query = query;
+		this.status = status;
+		this.durationMicros = durationMicros;
+		this.client = client;
+	}
+
+	/**
+	 * Appends the entry as a single logfmt formatted line to the builder
+	 * 
+	 * @param builder the StringBuilder to append the entry to
+	 */
+	public void appendTo(StringBuilder builder) {
+		builder.append("ts=").append(timestamp).append(" method=").append(method).append(" path=").append(path);
+		if (query != null) {
+			builder.append(" query=\"").append(query).append('"');
+		}
+		builder.append(" status=").append(status).append(" duration_us=").append(durationMicros).append(" client=")
+				.append(client);
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public long getDurationMicros() {
+		return durationMicros;
+	}
+
+	public String getClient() {
+		return client;
+	}
+}
@@ -0,0 +1,61 @@
+package se.phooey.raining.web.accesslog;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Servlet filter capturing the metadata of each request into the
+ * {@link AccessLogRingBuffer}, according to the {@link AccessLogSampler}. No
+ * formatting or I/O is done on the request thread, and requests that are not
+ * sampled do not allocate an {@link AccessLogEntry} at all.<br>
+ * <br>
+ * The filter runs before the other filters, so requests they reject, such as
+ * the ones shed by the
+ * {@link se.phooey.raining.web.admission.AdmissionFilter AdmissionFilter}, are
+ * logged as well.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+	private final AccessLogRingBuffer buffer;
+	private final AccessLogSampler sampler;
+
+	/**
+	 * Creates a new AccessLogFilter
+	 * 
+	 * @param buffer  the buffer to publish the sampled requests to
+	 * @param sampler the sampler deciding which requests to log
+	 */
+	public AccessLogFilter(AccessLogRingBuffer buffer, AccessLogSampler sampler) {
+		this.buffer = buffer;
+		this.sampler = sampler;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+			FilterChain filterChain) throws ServletException, IOException {
+		long timestamp = System.currentTimeMillis();
+		long start = System.nanoTime();
+		int status = HttpStatus.INTERNAL_SERVER_ERROR.value();
+		try {
+			filterChain.doFilter(request, response);
+			status = response.getStatus();
+		} finally {
+			if (sampler.shouldLog(status)) {
+				long durationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+				buffer.offer(new AccessLogEntry(timestamp, request.getMethod(), request.getRequestURI(),
+						request.getQueryString(), status, durationMicros, request.getRemoteAddr()));
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package se.phooey.raining.web.accesslog;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lock-free ring buffer handing {@link AccessLogEntry}s from the
+ * request threads (many producers) to the {@link AccessLogWriter} (a single
+ * consumer).<br>
+ * <br>
+ * Producers never block: if the buffer is full the entry is dropped and
+ * counted, so a slow log destination can never add latency to a request.
+ */
+public class AccessLogRingBuffer {
+
+	private final AtomicReferenceArray<AccessLogEntry> slots;
+	private final int mask;
+	private final AtomicLong tail;
+	private final AtomicLong head;
+	private final LongAdder dropped;
+
+	/**
+	 * Creates a new AccessLogRingBuffer
+	 * 
+	 * @param requestedCapacity the minimum number of entries the buffer can hold,
+	 *                          rounded up to the next power of two
+	 */
+	public AccessLogRingBuffer(int requestedCapacity) {
+		if (requestedCapacity < 1 || requestedCapacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30, was " + requestedCapacity);
+		}
+		int capacity = Integer.highestOneBit(requestedCapacity);
+		if (capacity < requestedCapacity) {
+			capacity <<= 1;
+		}
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.mask = capacity - 1;
+		this.tail = new AtomicLong(0);
+		this.head = new AtomicLong(0);
+		this.dropped = new LongAdder();
+	}
+
+	/**
+	 * Adds an entry to the buffer without blocking
+	 * 
+	 * @param entry the entry to add
+	 * @return true if the entry was added, false if it was dropped because the
+	 *         buffer was full
+	 */
+	public boolean offer(AccessLogEntry entry) {
+		long sequence;
+		do {
+			sequence = tail.get();
+			if (sequence - head.get() >= slots.length()) {
+				dropped.increment();
+				return false;
+			}
+		} while (!tail.compareAndSet(sequence, sequence + 1));
+		slots.set((int) sequence & mask, entry);
+		return true;
+	}
+
+	/**
+	 * Moves up to maxEntries published entries, in order, from the buffer to the
+	 * target list. Must only be called from a single consumer thread.
+	 * 
+	 * @param target     the list to add the entries to
+	 * @param maxEntries the maximum number of entries to move
+	 * @return the number of entries moved
+	 */
+	public int drainTo(List<AccessLogEntry> target, int maxEntries) {
+		long sequence = head.get();
+		int drained = 0;
+		while (drained < maxEntries) {
+			int index = (int) sequence & mask;
+			AccessLogEntry entry = slots.get(index);
+			if (entry == null) {
+				// Either empty, or claimed by a producer that has not published yet
+				break;
+			}
+			slots.lazySet(index, null);
+			target.add(entry);
+			sequence++;
+			drained++;
+		}
+		head.lazySet(sequence);
+		return drained;
+	}
+
+	/**
+	 * Returns the number of entries dropped since the last call, and resets the
+	 * count
+	 * 
+	 * @return the number of entries dropped because the buffer was full
+	 */
+	public long takeDroppedCount() {
+		return dropped.sumThenReset();
+	}
+
+	public int getCapacity() {
+		return slots.length();
+	}
+}
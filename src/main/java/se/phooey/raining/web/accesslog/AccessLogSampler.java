@@ -0,0 +1,56 @@
+package se.phooey.raining.web.accesslog;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which requests are written to the access log, based on a separate
+ * sampling rate for each outcome of the request, e.g. logging all errors but
+ * only a small fraction of the successful requests.
+ */
+public class AccessLogSampler {
+
+	private final double successRate;
+	private final double clientErrorRate;
+	private final double serverErrorRate;
+
+	private static double validateRate(double rate) {
+		if (rate < 0 || rate > 1) {
+			throw new IllegalArgumentException("Sampling rates need to be in range 0 <= rate <= 1, was " + rate);
+		}
+		return rate;
+	}
+
+	private static boolean sample(double rate) {
+		return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+	}
+
+	/**
+	 * Creates a new AccessLogSampler
+	 * 
+	 * @param successRate     the fraction of requests with a 1xx-3xx response to
+	 *                        log
+	 * @param clientErrorRate the fraction of requests with a 4xx response to log
+	 * @param serverErrorRate the fraction of requests with a 5xx response to log
+	 */
+	public AccessLogSampler(double successRate, double clientErrorRate, double serverErrorRate) {
+		this.successRate = validateRate(successRate);
+		this.clientErrorRate = validateRate(clientErrorRate);
+		this.serverErrorRate = validateRate(serverErrorRate);
+	}
+
+	/**
+	 * Decides if a request with the given response status should be logged
+	 * 
+	 * @param status the HTTP status code of the response
+	 * @return true if the request should be logged
+	 */
+	public boolean shouldLog(int status) {
+		if (status >= 500) {
+			return sample(serverErrorRate);
+		}
+		if (status >= 400) {
+			return sample(clientErrorRate);
+		}
+		return sample(successRate);
+	}
+}
@@ -0,0 +1,108 @@
+package se.phooey.raining.web.accesslog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drains the {@link AccessLogRingBuffer} on a background thread and writes the
+ * entries to the log in batches, one log event per batch, keeping all log
+ * formatting and I/O off the request threads.
+ */
+public class AccessLogWriter implements Runnable, AutoCloseable {
+
+	private final AccessLogRingBuffer buffer;
+	private final int batchSize;
+	private final long idleNanos;
+	private final Logger logger;
+	private final List<AccessLogEntry> batch;
+	private final StringBuilder lines;
+	private volatile boolean running;
+	private Thread thread;
+
+	/**
+	 * Creates a new AccessLogWriter
+	 * 
+	 * @param buffer      the buffer to drain
+	 * @param batchSize   the maximum number of entries to write per log event
+	 * @param idleMillis  the time to wait before polling the buffer again when it
+	 *                    was found empty
+	 */
+	public AccessLogWriter(AccessLogRingBuffer buffer, int batchSize, long idleMillis) {
+		this.buffer = buffer;
+		this.batchSize = batchSize;
+		this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+		this.logger = LoggerFactory.getLogger(AccessLogWriter.class);
+		this.batch = new ArrayList<>(batchSize);
+		this.lines = new StringBuilder();
+	}
+
+	/**
+	 * Writes one batch of entries from the buffer to the log, must only be called
+	 * from one thread at a time
+	 * 
+	 * @return the number of entries written
+	 */
+	public int writeBatch() {
+		long dropped = buffer.takeDroppedCount();
+		if (dropped > 0) {
+			logger.warn("Access log buffer full, dropped {} entries.", dropped);
+		}
+		int drained = buffer.drainTo(batch, batchSize);
+		if (drained == 0) {
+			return 0;
+		}
+		lines.setLength(0);
+		for (AccessLogEntry entry : batch) {
+			if (lines.length() > 0) {
+				lines.append(System.lineSeparator());
+			}
+			entry.appendTo(lines);
+		}
+		batch.clear();
+		logger.info("{}", lines);
+		return drained;
+	}
+
+	/**
+	 * Starts writing entries from the buffer on a background daemon thread
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this, "access-log-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			if (writeBatch() == 0) {
+				LockSupport.parkNanos(this, idleNanos);
+			}
+		}
+		while (writeBatch() > 0) {
+			// Flush what is left in the buffer before exiting
+		}
+	}
+
+	/**
+	 * Stops the background thread after flushing the remaining entries
+	 */
+	@Override
+	public synchronized void close() throws InterruptedException {
+		if (!running) {
+			return;
+		}
+		running = false;
+		LockSupport.unpark(thread);
+		thread.join(TimeUnit.SECONDS.toMillis(5));
+	}
+}
@@ -0,0 +1,145 @@
+package se.phooey.raining.web.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limit on the number of requests in flight, adapted to the observed latency
+ * with a gradient algorithm.<br>
+ * <br>
+ * The latency of each request, including the time it was queued before
+ * reaching the service, is averaged over a short window and compared to the
+ * average over a long window. While the short-term latency stays within a
+ * tolerance of the long-term latency, the limit grows by the square root of
+ * itself, the allowed queue. When the short-term latency grows beyond that,
+ * the limit shrinks by the ratio of the two, down to half of itself per
+ * sample. A request taking longer than the timeout, after which clients give
+ * up, cuts the limit by a tenth directly.<br>
+ * <br>
+ * {@link Priority#UPSTREAM} requests may only use a share of the limit, so the
+ * rest is always left for {@link Priority#CACHED} requests.<br>
+ * <br>
+ * Acquiring and releasing the limit is lock-free. The latency of a request is
+ * only sampled when no other thread is updating the limit at the same time, so
+ * completing requests never wait for each other.
+ */
+public class AdaptiveConcurrencyLimit {
+
+	private static final double SHORT_WINDOW_WEIGHT = 0.1;
+	private static final double LONG_WINDOW_WEIGHT = 1.0 / 600;
+	private static final double TOLERANCE = 1.5;
+	private static final double MINIMUM_GRADIENT = 0.5;
+	private static final double SMOOTHING = 0.2;
+	private static final double TIMEOUT_BACKOFF = 0.9;
+	private static final double LONG_WINDOW_DECAY = 0.95;
+
+	private final AtomicInteger inFlight;
+	private final ReentrantLock sampleLock;
+	private final int minimumLimit;
+	private final int maximumLimit;
+	private final double upstreamShare;
+	private final long timeoutNanos;
+	private volatile double limit;
+	private double shortRtt;
+	private double longRtt;
+
+	/**
+	 * Creates a new AdaptiveConcurrencyLimit
+	 * 
+	 * @param initialLimit  the limit to start from
+	 * @param minimumLimit  the lowest the limit may shrink to
+	 * @param maximumLimit  the highest the limit may grow to
+	 * @param upstreamShare the share of the limit {@link Priority#UPSTREAM}
+	 *                      requests may use, 0 < upstreamShare <= 1
+	 * @param timeoutMillis the latency after which clients give up
+	 */
+	public AdaptiveConcurrencyLimit(int initialLimit, int minimumLimit, int maximumLimit, double upstreamShare,
+			long timeoutMillis) {
+		this.inFlight = new AtomicInteger();
+		this.sampleLock = new ReentrantLock();
+		this.minimumLimit = minimumLimit;
+		this.maximumLimit = maximumLimit;
+		this.upstreamShare = upstreamShare;
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		this.limit = clamp(initialLimit);
+	}
+
+	private double clamp(double value) {
+		return Math.max(minimumLimit, Math.min(maximumLimit, value));
+	}
+
+	/**
+	 * Tries to admit a request. An admitted request needs to be
+	 * {@link #release(long) released} when completed.
+	 * 
+	 * @param priority the priority class of the request
+	 * @return true if the request was admitted
+	 */
+	public boolean tryAcquire(Priority priority) {
+		double current = limit;
+		int allowed = priority == Priority.CACHED ? (int) current : Math.max(1, (int) (current * upstreamShare));
+		int requests;
+		do {
+			requests = inFlight.get();
+			if (requests >= allowed) {
+				return false;
+			}
+		} while (!inFlight.compareAndSet(requests, requests + 1));
+		return true;
+	}
+
+	/**
+	 * Releases an admitted request, and adapts the limit to its latency
+	 * 
+	 * @param latencyNanos the latency of the request, in nanoseconds
+	 */
+	public void release(long latencyNanos) {
+		int requests = inFlight.getAndDecrement();
+		if (sampleLock.tryLock()) {
+			try {
+				sample(latencyNanos, requests);
+			} finally {
+				sampleLock.unlock();
+			}
+		}
+	}
+
+	private void sample(long latencyNanos, int requests) {
+		if (latencyNanos >= timeoutNanos) {
+			limit = clamp(limit * TIMEOUT_BACKOFF);
+			return;
+		}
+		if (longRtt == 0) {
+			shortRtt = latencyNanos;
+			longRtt = latencyNanos;
+		}
+		shortRtt += (latencyNanos - shortRtt) * SHORT_WINDOW_WEIGHT;
+		longRtt += (latencyNanos - longRtt) * LONG_WINDOW_WEIGHT;
+		// Let the long-term latency recover quickly after an overload has passed
+		if (longRtt > 2 * shortRtt) {
+			longRtt *= LONG_WINDOW_DECAY;
+		}
+		// Neither grow nor shrink the limit while most of it is unused
+		if (requests < limit / 2) {
+			return;
+		}
+		double gradient = Math.max(MINIMUM_GRADIENT, Math.min(1.0, TOLERANCE * longRtt / Math.max(1, shortRtt)));
+		double target = limit * gradient + Math.sqrt(limit);
+		limit = clamp(limit * (1 - SMOOTHING) + target * SMOOTHING);
+	}
+
+	/**
+	 * @return the current limit
+	 */
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * @return the number of admitted requests not yet released
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+}
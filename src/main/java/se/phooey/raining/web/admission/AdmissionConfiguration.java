@@ -0,0 +1,55 @@
+package se.phooey.raining.web.admission;
+
+import java.time.Clock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Admits the requests for rain reports through the {@link AdmissionFilter},
+ * unless "isitraining.admission.enabled" is false
+ */
+@Configuration
+@ConditionalOnProperty(name = "isitraining.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfiguration {
+	@Value("${isitraining.admission.initial-limit:20}")
+	private int initialLimit;
+	@Value("${isitraining.admission.min-limit:4}")
+	private int minimumLimit;
+	@Value("${isitraining.admission.max-limit:200}")
+	private int maximumLimit;
+	@Value("${isitraining.admission.upstream-share:0.75}")
+	private double upstreamShare;
+	@Value("${isitraining.admission.timeout-millis:5000}")
+	private long timeoutMillis;
+	@Value("${isitraining.admission.max-queue-delay-millis:2000}")
+	private long maximumQueueDelayMillis;
+	@Value("${isitraining.admission.retry-after-seconds:1}")
+	private int retryAfterSeconds;
+
+	@Bean
+	public AdaptiveConcurrencyLimit adaptiveConcurrencyLimit() {
+		return new AdaptiveConcurrencyLimit(initialLimit, minimumLimit, maximumLimit, upstreamShare, timeoutMillis);
+	}
+
+	@Bean
+	public AdmissionFilter admissionFilter(AdaptiveConcurrencyLimit adaptiveConcurrencyLimit,
+			RequestClassifier requestClassifier, Clock clock) {
+		return new AdmissionFilter(adaptiveConcurrencyLimit, requestClassifier, maximumQueueDelayMillis,
+				retryAfterSeconds, clock);
+	}
+
+	/**
+	 * Only the routes serving rain reports are admission controlled, not the
+	 * static assets of the web page
+	 */
+	@Bean
+	public FilterRegistrationBean<AdmissionFilter> admissionFilterRegistration(AdmissionFilter admissionFilter) {
+		FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(admissionFilter);
+		registration.addUrlPatterns("/isitraining", "/isitraining/*", "/forecast", "/nowcast", "/grid");
+		return registration;
+	}
+}
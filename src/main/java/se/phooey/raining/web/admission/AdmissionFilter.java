@@ -0,0 +1,122 @@
+package se.phooey.raining.web.admission;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Servlet filter admitting requests according to an
+ * {@link AdaptiveConcurrencyLimit}, and rejecting the excess early with 503
+ * Service Unavailable and a Retry-After header, instead of letting all
+ * requests slow down together until the clients time out.<br>
+ * <br>
+ * Requests are classified by the {@link RequestClassifier}, so requests
+ * needing an upstream call are shed before the ones that can be served from
+ * the cache. A request that has already been queued in front of the service
+ * for longer than the maximum queueing delay is rejected right away, as its
+ * client is about to give up on it. The queueing delay is measured from the
+ * X-Request-Start header set by the load balancer or reverse proxy, in
+ * milliseconds or microseconds since the epoch, or in seconds with a fraction,
+ * optionally prefixed with "t=".
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+	static final String REQUEST_START = "X-Request-Start";
+
+	private static final long MICROSECONDS_SINCE_EPOCH = 100_000_000_000_000L;
+	private static final double MILLISECONDS_PER_SECOND = 1000;
+
+	private final AdaptiveConcurrencyLimit limit;
+	private final RequestClassifier classifier;
+	private final long maximumQueueDelayMillis;
+	private final String retryAfterSeconds;
+	private final Clock clock;
+	private final LongAdder rejected;
+
+	/**
+	 * Creates a new AdmissionFilter
+	 * 
+	 * @param limit                   the limit on the requests in flight
+	 * @param classifier              the classifier assigning the priority
+	 *                                classes
+	 * @param maximumQueueDelayMillis the longest a request may have been queued
+	 *                                before it is rejected
+	 * @param retryAfterSeconds       the Retry-After of rejected requests
+	 * @param clock                   the Clock to measure the queueing delay
+	 *                                with
+	 */
+	public AdmissionFilter(AdaptiveConcurrencyLimit limit, RequestClassifier classifier, long maximumQueueDelayMillis,
+			int retryAfterSeconds, Clock clock) {
+		this.limit = limit;
+		this.classifier = classifier;
+		this.maximumQueueDelayMillis = maximumQueueDelayMillis;
+		this.retryAfterSeconds = Integer.toString(retryAfterSeconds);
+		this.clock = clock;
+		this.rejected = new LongAdder();
+	}
+
+	/**
+	 * @return the queueing delay in milliseconds according to an X-Request-Start
+	 *         header, or 0 if there is no valid header
+	 */
+	static long queueDelayMillis(String requestStart, long nowMillis) {
+		if (requestStart == null) {
+			return 0;
+		}
+		String value = requestStart.startsWith("t=") ? requestStart.substring(2) : requestStart;
+		try {
+			long startMillis;
+			if (value.indexOf('.') >= 0) {
+				startMillis = (long) (Double.parseDouble(value) * MILLISECONDS_PER_SECOND);
+			} else {
+				long start = Long.parseLong(value);
+				startMillis = start >= MICROSECONDS_SINCE_EPOCH ? TimeUnit.MICROSECONDS.toMillis(start) : start;
+			}
+			return Math.max(0, nowMillis - startMillis);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private void reject(HttpServletResponse response) throws IOException {
+		rejected.increment();
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+		response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+		response.getWriter().write("The service is overloaded, try again later.");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+			FilterChain filterChain) throws ServletException, IOException {
+		long queueDelayMillis = queueDelayMillis(request.getHeader(REQUEST_START), clock.millis());
+		if (queueDelayMillis > maximumQueueDelayMillis || !limit.tryAcquire(classifier.classify(request))) {
+			reject(response);
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			limit.release(TimeUnit.MILLISECONDS.toNanos(queueDelayMillis) + System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @return the number of rejected requests
+	 */
+	public long getRejected() {
+		return rejected.sum();
+	}
+}
@@ -0,0 +1,17 @@
+package se.phooey.raining.web.admission;
+
+/**
+ * The priority class of a request, used by the {@link AdmissionFilter} to shed
+ * the requests needing an upstream call before the ones that do not
+ */
+public enum Priority {
+	/**
+	 * Requests that can be answered without an upstream call, from the cache or
+	 * by failing validation
+	 */
+	CACHED,
+	/**
+	 * Requests that may need an upstream call
+	 */
+	UPSTREAM
+}
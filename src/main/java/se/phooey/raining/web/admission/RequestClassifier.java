@@ -0,0 +1,93 @@
+package se.phooey.raining.web.admission;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.cache.CachingWeatherProvider;
+
+/**
+ * Assigns requests for rain reports their {@link Priority} class, by checking
+ * if the report they ask for is cached by the
+ * {@link CachingWeatherProvider}.<br>
+ * <br>
+ * Requests with coordinates that can not be parsed, or with unknown fields,
+ * fail validation without an upstream call, and are CACHED as well. Requests
+ * without coordinates, such as for a place name or a grid, are UPSTREAM.<br>
+ * <br>
+ * The class is kept in a request attribute, so the filters sharing the
+ * classifier only look up the cache once per request.
+ */
+public class RequestClassifier {
+
+	static final String PRIORITY_ATTRIBUTE = RequestClassifier.class.getName() + ".priority";
+
+	private static final Set<ReportSection> MINUTELY = EnumSet.of(ReportSection.MINUTELY);
+
+	private final CachingWeatherProvider cachingWeatherProvider;
+	private final CoordinatePrecision coordinatePrecision;
+
+	/**
+	 * Creates a new RequestClassifier
+	 * 
+	 * @param cachingWeatherProvider the cache to check for the requested reports
+	 * @param coordinatePrecision    the precision the controllers bucket the
+	 *                               requested coordinates by
+	 */
+	public RequestClassifier(CachingWeatherProvider cachingWeatherProvider, CoordinatePrecision coordinatePrecision) {
+		this.cachingWeatherProvider = cachingWeatherProvider;
+		this.coordinatePrecision = coordinatePrecision;
+	}
+
+	private static Set<ReportSection> sections(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		if (path.startsWith("/nowcast")) {
+			return MINUTELY;
+		}
+		String[] fields = request.getParameterValues("fields");
+		if (fields == null) {
+			return ReportSection.DEFAULT;
+		}
+		List<String> names = new ArrayList<>();
+		for (String value : fields) {
+			names.addAll(Arrays.asList(value.split(",")));
+		}
+		return ReportSection.forFields(names);
+	}
+
+	/**
+	 * @param request the request to classify
+	 * @return the priority class of the request
+	 */
+	public Priority classify(HttpServletRequest request) {
+		Priority priority = (Priority) request.getAttribute(PRIORITY_ATTRIBUTE);
+		if (priority == null) {
+			priority = lookUp(request);
+			request.setAttribute(PRIORITY_ATTRIBUTE, priority);
+		}
+		return priority;
+	}
+
+	private Priority lookUp(HttpServletRequest request) {
+		String latitude = request.getParameter("latitude");
+		String longitude = request.getParameter("longitude");
+		if (latitude == null || longitude == null) {
+			return Priority.UPSTREAM;
+		}
+		try {
+			// Bucketed like the coordinates are by the controllers
+			return cachingWeatherProvider.isCached(coordinatePrecision.latitude(Double.parseDouble(latitude)),
+					coordinatePrecision.longitude(Double.parseDouble(longitude)), sections(request))
+							? Priority.CACHED
+							: Priority.UPSTREAM;
+		} catch (IllegalArgumentException e) {
+			return Priority.CACHED;
+		}
+	}
+}
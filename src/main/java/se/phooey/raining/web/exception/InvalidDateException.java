@@ -0,0 +1,25 @@
+package se.phooey.raining.web.exception;
+
+/**
+ * Indicates that the date requested from an operation was invalid.
+ */
+public class InvalidDateException extends Exception {
+
+	private static final long serialVersionUID = 4417284509822375163L;
+
+	public InvalidDateException() {
+        super();
+    }
+
+    public InvalidDateException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidDateException(final String message) {
+        super(message);
+    }
+
+    public InvalidDateException(final Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,25 @@
+package se.phooey.raining.web.exception;
+
+/**
+ * Indicates that the fields requested from an operation were invalid.
+ */
+public class InvalidFieldsException extends Exception {
+
+	private static final long serialVersionUID = -3215836411730967825L;
+
+	public InvalidFieldsException() {
+        super();
+    }
+
+    public InvalidFieldsException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidFieldsException(final String message) {
+        super(message);
+    }
+
+    public InvalidFieldsException(final Throwable cause) {
+        super(cause);
+    }
+}
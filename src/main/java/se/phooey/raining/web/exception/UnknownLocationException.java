@@ -0,0 +1,25 @@
+package se.phooey.raining.web.exception;
+
+/**
+ * Indicates that the location of a client address is not known.
+ */
+public class UnknownLocationException extends Exception {
+
+	private static final long serialVersionUID = -6407715402113658342L;
+
+	public UnknownLocationException() {
+        super();
+    }
+
+    public UnknownLocationException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+    public UnknownLocationException(final String message) {
+        super(message);
+    }
+
+    public UnknownLocationException(final Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,26 @@
+package se.phooey.raining.web.exception;
+
+/**
+ * Indicates that a request to a route only used by the nodes of a sharded
+ * cluster did not come from a node of the cluster.
+ */
+public class UnknownPeerException extends Exception {
+
+	private static final long serialVersionUID = 4760917258811537301L;
+
+	public UnknownPeerException() {
+        super();
+    }
+
+    public UnknownPeerException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+    public UnknownPeerException(final String message) {
+        super(message);
+    }
+
+    public UnknownPeerException(final Throwable cause) {
+        super(cause);
+    }
+}
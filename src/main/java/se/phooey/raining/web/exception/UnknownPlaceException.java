@@ -0,0 +1,25 @@
+package se.phooey.raining.web.exception;
+
+/**
+ * Indicates that no place matched the name provided to an operation.
+ */
+public class UnknownPlaceException extends Exception {
+
+	private static final long serialVersionUID = 2291873590718126451L;
+
+	public UnknownPlaceException() {
+        super();
+    }
+
+    public UnknownPlaceException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+    public UnknownPlaceException(final String message) {
+        super(message);
+    }
+
+    public UnknownPlaceException(final Throwable cause) {
+        super(cause);
+    }
+}
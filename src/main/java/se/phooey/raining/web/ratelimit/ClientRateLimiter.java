@@ -0,0 +1,176 @@
+package se.phooey.raining.web.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import se.phooey.raining.web.admission.Priority;
+
+/**
+ * Limits the number of requests of each client per fixed time window, with
+ * separate limits for {@link Priority#CACHED} requests and for
+ * {@link Priority#UPSTREAM} requests, which use up the shared budget of
+ * upstream calls.<br>
+ * <br>
+ * The counters are kept in a fixed-size, open-addressing table of primitive
+ * longs: one holding a 64 bit hash of the client, and one packing the window
+ * the counters belong to in the upper 32 bits and the two counters in 16 bits
+ * each. Each slot is updated with compare-and-set on its own, so there are no
+ * locks and clients only contend when they hash to the same slot. Counting a
+ * request neither locks nor allocates.<br>
+ * <br>
+ * A client is looked up in the {@link #PROBES} slots following its hash. If it
+ * is not found there, it takes over the one of those slots that was used the
+ * longest time ago, which is the slot of an idle client unless the table is
+ * full of clients active in the current window. Eviction is approximate: a
+ * request racing the eviction of its client may be counted for the client
+ * taking over the slot.
+ */
+public class ClientRateLimiter {
+
+	/**
+	 * The number of slots a client may be in
+	 */
+	static final int PROBES = 8;
+
+	/**
+	 * The highest limit that can be counted
+	 */
+	public static final int MAXIMUM_LIMIT = 0xffff;
+
+	private static final int WINDOW_SHIFT = 32;
+	private static final int CACHED_SHIFT = 16;
+	private static final long COUNTER_MASK = 0xffff;
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final AtomicLongArray clients;
+	private final AtomicLongArray counters;
+	private final int mask;
+	private final long windowMillis;
+	private final int cachedLimit;
+	private final int upstreamLimit;
+
+	/**
+	 * Creates a new ClientRateLimiter
+	 * 
+	 * @param capacity      the number of clients tracked, rounded up to a power
+	 *                      of two
+	 * @param windowMillis  the length of the time window, in milliseconds
+	 * @param cachedLimit   the number of CACHED requests a client may make per
+	 *                      window, at most {@link #MAXIMUM_LIMIT}
+	 * @param upstreamLimit the number of UPSTREAM requests a client may make per
+	 *                      window, at most {@link #MAXIMUM_LIMIT}
+	 * @throws IllegalArgumentException If a limit is out of range
+	 */
+	public ClientRateLimiter(int capacity, long windowMillis, int cachedLimit, int upstreamLimit) {
+		if (cachedLimit < 0 || cachedLimit > MAXIMUM_LIMIT || upstreamLimit < 0 || upstreamLimit > MAXIMUM_LIMIT) {
+			throw new IllegalArgumentException("The limits need to be between 0 and " + MAXIMUM_LIMIT);
+		}
+		int size = Integer.highestOneBit(Math.max(PROBES, capacity) - 1) << 1;
+		this.clients = new AtomicLongArray(size);
+		this.counters = new AtomicLongArray(size);
+		this.mask = size - 1;
+		this.windowMillis = windowMillis;
+		this.cachedLimit = cachedLimit;
+		this.upstreamLimit = upstreamLimit;
+	}
+
+	/**
+	 * Hashes a client id, without allocating
+	 * 
+	 * @param id   the id of the client, such as its address
+	 * @param seed distinguishes ids of different kinds, such as addresses and
+	 *             API keys
+	 * @return the hash of the client, never 0
+	 */
+	public static long hash(CharSequence id, long seed) {
+		long hash = FNV_OFFSET_BASIS ^ seed;
+		for (int i = 0; i < id.length(); i++) {
+			hash = (hash ^ id.charAt(i)) * FNV_PRIME;
+		}
+		// Final mix of MurmurHash3, spreading the bits used for the slot index
+		hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+		hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash == 0 ? 1 : hash;
+	}
+
+	private int slotOf(long client) {
+		int first = (int) client & mask;
+		int oldest = first;
+		long oldestWindow = Long.MAX_VALUE;
+		for (int probe = 0; probe < PROBES; probe++) {
+			int slot = (first + probe) & mask;
+			long occupant = clients.get(slot);
+			if (occupant == 0) {
+				// Claims the free slot, or sees which client claimed it first
+				long witness = clients.compareAndExchange(slot, 0, client);
+				occupant = witness == 0 ? client : witness;
+			}
+			if (occupant == client) {
+				return slot;
+			}
+			long window = counters.get(slot) >>> WINDOW_SHIFT;
+			if (window < oldestWindow) {
+				oldestWindow = window;
+				oldest = slot;
+			}
+		}
+		long evicted = clients.get(oldest);
+		if (clients.compareAndSet(oldest, evicted, client)) {
+			counters.set(oldest, 0);
+		}
+		return oldest;
+	}
+
+	/**
+	 * Counts a request of a client, if it is within the limit
+	 * 
+	 * @param client    the hash of the client, see
+	 *                  {@link #hash(CharSequence, long)}
+	 * @param priority  the priority class of the request
+	 * @param nowMillis the current time, in milliseconds since the epoch
+	 * @return the number of requests of the class the client has left in the
+	 *         current window, or -1 if the request exceeds the limit
+	 */
+	public int acquire(long client, Priority priority, long nowMillis) {
+		int slot = slotOf(client);
+		long window = nowMillis / windowMillis;
+		int limit = getLimit(priority);
+		int shift = priority == Priority.CACHED ? CACHED_SHIFT : 0;
+		long state;
+		long current;
+		int count;
+		do {
+			state = counters.get(slot);
+			current = state >>> WINDOW_SHIFT == window ? state : window << WINDOW_SHIFT;
+			count = (int) ((current >>> shift) & COUNTER_MASK);
+			if (count >= limit) {
+				return -1;
+			}
+		} while (!counters.compareAndSet(slot, state, current + (1L << shift)));
+		return limit - count - 1;
+	}
+
+	/**
+	 * @param priority a priority class
+	 * @return the number of requests of the class a client may make per window
+	 */
+	public int getLimit(Priority priority) {
+		return priority == Priority.CACHED ? cachedLimit : upstreamLimit;
+	}
+
+	/**
+	 * @param nowMillis the current time, in milliseconds since the epoch
+	 * @return the number of milliseconds until the current window ends
+	 */
+	public long millisUntilReset(long nowMillis) {
+		return windowMillis - nowMillis % windowMillis;
+	}
+
+	/**
+	 * @return the number of clients that can be tracked
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,57 @@
+package se.phooey.raining.web.ratelimit;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import se.phooey.raining.web.admission.RequestClassifier;
+
+/**
+ * Limits the rate of requests for rain reports of each client through the
+ * {@link RateLimitFilter}, unless "isitraining.ratelimit.enabled" is false
+ */
+@Configuration
+@ConditionalOnProperty(name = "isitraining.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfiguration {
+	@Value("${isitraining.ratelimit.capacity:65536}")
+	private int capacity;
+	@Value("${isitraining.ratelimit.window-seconds:60}")
+	private long windowSeconds;
+	@Value("${isitraining.ratelimit.cached-limit:300}")
+	private int cachedLimit;
+	@Value("${isitraining.ratelimit.upstream-limit:30}")
+	private int upstreamLimit;
+	@Value("${isitraining.ratelimit.api-keys:}")
+	private String[] apiKeys;
+
+	@Bean
+	public ClientRateLimiter clientRateLimiter() {
+		return new ClientRateLimiter(capacity, windowSeconds * 1000, cachedLimit, upstreamLimit);
+	}
+
+	@Bean
+	public RateLimitFilter rateLimitFilter(ClientRateLimiter clientRateLimiter, RequestClassifier requestClassifier,
+			Clock clock) {
+		return new RateLimitFilter(clientRateLimiter, requestClassifier, new HashSet<>(Arrays.asList(apiKeys)),
+				clock);
+	}
+
+	/**
+	 * Only the routes serving rain reports are rate limited, before the
+	 * admission filter so a client over its limit does not take up capacity
+	 */
+	@Bean
+	public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter) {
+		FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+		registration.addUrlPatterns("/isitraining", "/isitraining/*", "/forecast", "/nowcast", "/grid");
+		registration.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+		return registration;
+	}
+}
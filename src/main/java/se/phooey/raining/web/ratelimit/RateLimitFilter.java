@@ -0,0 +1,102 @@
+package se.phooey.raining.web.ratelimit;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import se.phooey.raining.web.admission.Priority;
+import se.phooey.raining.web.admission.RequestClassifier;
+
+/**
+ * Servlet filter limiting the rate of requests of each client with a
+ * {@link ClientRateLimiter}, so a single client can not use up the shared
+ * budget of upstream calls for everyone.<br>
+ * <br>
+ * A client sending one of the configured API keys in the X-API-Key header is
+ * limited by its key, any other client by its address, which is taken from
+ * the X-Forwarded-For header when server.use-forward-headers is set. Requests
+ * exceeding the limit are rejected with 429 Too Many Requests. All responses
+ * carry the limit of the class of the request, the number of requests left
+ * and the seconds until the window resets in the X-RateLimit-Limit,
+ * X-RateLimit-Remaining and X-RateLimit-Reset headers, and rejected responses
+ * a Retry-After header.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	static final String API_KEY = "X-API-Key";
+	static final String LIMIT = "X-RateLimit-Limit";
+	static final String REMAINING = "X-RateLimit-Remaining";
+	static final String RESET = "X-RateLimit-Reset";
+
+	private static final long ADDRESS_SEED = 0;
+	private static final long API_KEY_SEED = 0x9e3779b97f4a7c15L;
+
+	private final ClientRateLimiter limiter;
+	private final RequestClassifier classifier;
+	private final Set<String> apiKeys;
+	private final Clock clock;
+	private final LongAdder limited;
+
+	/**
+	 * Creates a new RateLimitFilter
+	 * 
+	 * @param limiter    the limiter counting the requests of the clients
+	 * @param classifier the classifier assigning the priority classes
+	 * @param apiKeys    the API keys identifying clients
+	 * @param clock      the Clock determining the window of a request
+	 */
+	public RateLimitFilter(ClientRateLimiter limiter, RequestClassifier classifier, Set<String> apiKeys,
+			Clock clock) {
+		this.limiter = limiter;
+		this.classifier = classifier;
+		this.apiKeys = apiKeys;
+		this.clock = clock;
+		this.limited = new LongAdder();
+	}
+
+	private long client(HttpServletRequest request) {
+		String apiKey = request.getHeader(API_KEY);
+		return apiKey != null && apiKeys.contains(apiKey) ? ClientRateLimiter.hash(apiKey, API_KEY_SEED)
+				: ClientRateLimiter.hash(request.getRemoteAddr(), ADDRESS_SEED);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+			FilterChain filterChain) throws ServletException, IOException {
+		long now = clock.millis();
+		Priority priority = classifier.classify(request);
+		int remaining = limiter.acquire(client(request), priority, now);
+		String reset = Long.toString(TimeUnit.MILLISECONDS.toSeconds(limiter.millisUntilReset(now) + 999));
+		response.setHeader(LIMIT, Integer.toString(limiter.getLimit(priority)));
+		response.setHeader(REMAINING, Integer.toString(Math.max(0, remaining)));
+		response.setHeader(RESET, reset);
+		if (remaining < 0) {
+			limited.increment();
+			response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, reset);
+			response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+			response.getWriter().write("Too many requests, try again later.");
+			return;
+		}
+		filterChain.doFilter(request, response);
+	}
+
+	/**
+	 * @return the number of requests rejected for exceeding the limit
+	 */
+	public long getLimited() {
+		return limited.sum();
+	}
+}
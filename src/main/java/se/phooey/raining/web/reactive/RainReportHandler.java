@@ -0,0 +1,93 @@
+package se.phooey.raining.web.reactive;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2CodecSupport;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Mono;
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReactiveWeatherProvider;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.exception.RainReportException;
+import se.phooey.raining.web.IsItRainingController;
+import se.phooey.raining.web.exception.InvalidCoordinatesException;
+import se.phooey.raining.web.exception.InvalidFieldsException;
+
+/**
+ * Handler serving "/isitraining" in the reactive serving mode, answering like
+ * the {@link IsItRainingController} without blocking a thread while the
+ * report is fetched
+ */
+public class RainReportHandler {
+
+	private final ReactiveWeatherProvider weatherProvider;
+	private final CoordinatePrecision coordinatePrecision;
+
+	private static Mono<ServerResponse> badRequest(String message) {
+		return ServerResponse.badRequest().contentType(MediaType.TEXT_PLAIN).bodyValue(message);
+	}
+
+	private static double coordinate(ServerRequest request, String name) {
+		return Double.parseDouble(request.queryParam(name).orElseThrow(() -> new NumberFormatException(name)));
+	}
+
+	private Mono<ServerResponse> respond(double latitude, double longitude, Optional<String> fields)
+			throws InvalidCoordinatesException, InvalidFieldsException {
+		IsItRainingController.validateCoordinates(latitude, longitude);
+		List<String> names = fields.map(value -> Arrays.asList(value.split(","))).orElse(null);
+		Set<ReportSection> sections = names == null ? ReportSection.DEFAULT
+				: IsItRainingController.sectionsForFields(names);
+		Mono<RainReport> report = weatherProvider.isItRainingAtCoordinates(coordinatePrecision.latitude(latitude),
+				coordinatePrecision.longitude(longitude), sections);
+		Mono<ServerResponse> response = names == null
+				? report.flatMap(rainReport -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+						.hint(Jackson2CodecSupport.JSON_VIEW_HINT, RainReport.Summary.class).bodyValue(rainReport))
+				: report.flatMap(rainReport -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+						.bodyValue(IsItRainingController.project(rainReport, names)));
+		return response.onErrorResume(RainReportException.class,
+				e -> ServerResponse.status(500).contentType(MediaType.TEXT_PLAIN).bodyValue(e.getMessage()));
+	}
+
+	/**
+	 * Creates a new RainReportHandler
+	 * 
+	 * @param weatherProvider     the {@link ReactiveWeatherProvider} to generate
+	 *                            the {@link RainReport}s with
+	 * @param coordinatePrecision the {@link CoordinatePrecision} to bucket the
+	 *                            requested coordinates by
+	 */
+	public RainReportHandler(ReactiveWeatherProvider weatherProvider, CoordinatePrecision coordinatePrecision) {
+		this.weatherProvider = weatherProvider;
+		this.coordinatePrecision = coordinatePrecision;
+	}
+
+	/**
+	 * Generates and returns a rain report, or the requested fields of it, for
+	 * the location in the "latitude" and "longitude" parameters
+	 * 
+	 * @param request the request
+	 * @return the response, Bad Request if the coordinates or fields are invalid
+	 */
+	public Mono<ServerResponse> isItRaining(ServerRequest request) {
+		double latitude;
+		double longitude;
+		try {
+			latitude = coordinate(request, "latitude");
+			longitude = coordinate(request, "longitude");
+		} catch (NumberFormatException e) {
+			return ServerResponse.badRequest().build();
+		}
+		try {
+			return respond(latitude, longitude, request.queryParam("fields"));
+		} catch (InvalidCoordinatesException | InvalidFieldsException e) {
+			return badRequest(e.getMessage());
+		}
+	}
+}
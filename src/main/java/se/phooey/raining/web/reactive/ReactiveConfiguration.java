@@ -0,0 +1,66 @@
+package se.phooey.raining.web.reactive;
+
+import java.time.Clock;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.DarkSkyWeatherProvider;
+import se.phooey.raining.weather.ReactiveDarkSkyWeatherProvider;
+import se.phooey.raining.weather.ReactiveWeatherProvider;
+import se.phooey.raining.weather.cache.CachingWeatherProvider;
+import se.phooey.raining.weather.gridded.GriddedWeatherProvider;
+import se.phooey.raining.weather.history.RainHistoryStore;
+import se.phooey.raining.weather.history.RecordingWeatherProvider;
+
+/**
+ * Serves "/isitraining" with a {@link RainReportHandler} when the application
+ * runs as a reactive web application, see
+ * {@link se.phooey.raining.ReactiveIsItRainingApplication}
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveConfiguration {
+	@Bean
+	public ReactiveDarkSkyWeatherProvider reactiveDarkSkyWeatherProvider(
+			DarkSkyWeatherProvider darkSkyWeatherProvider, WebClient.Builder webClientBuilder) {
+		return new ReactiveDarkSkyWeatherProvider(darkSkyWeatherProvider, webClientBuilder.build());
+	}
+
+	/**
+	 * Uncached reports are requested from Dark Sky without blocking, or from the
+	 * gridded forecast file if it is configured, on the threads for blocking
+	 * calls since locations outside the grid are requested from Dark Sky with the
+	 * blocking client. Either way they are recorded and cached like in the
+	 * servlet mode, in the same {@link CachingWeatherProvider}.
+	 */
+	@Bean
+	public RainReportHandler rainReportHandler(CachingWeatherProvider cachingWeatherProvider,
+			ReactiveDarkSkyWeatherProvider reactiveDarkSkyWeatherProvider,
+			ObjectProvider<GriddedWeatherProvider> griddedWeatherProvider, RainHistoryStore rainHistoryStore,
+			CoordinatePrecision coordinatePrecision, Clock clock) {
+		GriddedWeatherProvider gridded = griddedWeatherProvider.getIfAvailable();
+		ReactiveWeatherProvider source = gridded == null ? reactiveDarkSkyWeatherProvider
+				: (latitude, longitude, sections) -> Mono
+						.fromCallable(() -> gridded.isItRainingAtCoordinates(latitude, longitude, sections))
+						.subscribeOn(Schedulers.boundedElastic());
+		ReactiveWeatherProvider upstream = RecordingWeatherProvider.recording(source, rainHistoryStore, clock);
+		return new RainReportHandler((latitude, longitude, sections) -> cachingWeatherProvider
+				.isItRainingAtCoordinates(latitude, longitude, sections, upstream), coordinatePrecision);
+	}
+
+	@Bean
+	public RouterFunction<ServerResponse> rainReportRoutes(RainReportHandler rainReportHandler) {
+		return RouterFunctions.route().GET("/isitraining", rainReportHandler::isItRaining).build();
+	}
+}
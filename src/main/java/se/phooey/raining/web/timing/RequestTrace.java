@@ -0,0 +1,92 @@
+package se.phooey.raining.web.timing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import se.phooey.raining.timing.Phase;
+import se.phooey.raining.timing.RequestTiming;
+
+/**
+ * Breakdown of the time spent in each {@link Phase} of a slow request, kept by
+ * the {@link SlowRequestLog}. The query string is left out, since it holds the
+ * coordinates of the client.
+ */
+public class RequestTrace {
+
+	private final long timestamp;
+	private final String method;
+	private final String path;
+	private final int status;
+	private final long durationMicros;
+	private final Map<String, Long> phaseMicros;
+
+	/**
+	 * Creates a new RequestTrace
+	 * 
+	 * @param timestamp      the time the request was received, in milliseconds
+	 *                       since the epoch
+	 * @param method         the HTTP method of the request
+	 * @param path           the requested path
+	 * @param status         the HTTP status code of the response
+	 * @param durationMicros the time it took to serve the request, in microseconds
+	 * @param phaseMicros    the time spent in each recorded phase, in
+	 *                       microseconds, by the name of the phase
+	 */
+	public RequestTrace(long timestamp, String method, String path, int status, long durationMicros,
+			Map<String, Long> phaseMicros) {
+		this.timestamp = timestamp;
+		this.method = method;
+		this.path = path;
+		this.status = status;
+		this.durationMicros = durationMicros;
+		this.phaseMicros = Collections.unmodifiableMap(phaseMicros);
+	}
+
+	/**
+	 * Copies the recorded phases of a stopped {@link RequestTiming}
+	 * 
+	 * @param timestamp the time the request was received, in milliseconds since
+	 *                  the epoch
+	 * @param method    the HTTP method of the request
+	 * @param path      the requested path
+	 * @param status    the HTTP status code of the response
+	 * @param timing    the timing of the request
+	 * @return the RequestTrace of the request
+	 */
+	public static RequestTrace of(long timestamp, String method, String path, int status, RequestTiming timing) {
+		Map<String, Long> phaseMicros = new LinkedHashMap<>();
+		for (Phase phase : Phase.values()) {
+			if (timing.isRecorded(phase)) {
+				phaseMicros.put(phase.getMetric(), TimeUnit.NANOSECONDS.toMicros(timing.getNanos(phase)));
+			}
+		}
+		return new RequestTrace(timestamp, method, path, status,
+				TimeUnit.NANOSECONDS.toMicros(timing.getTotalNanos()), phaseMicros);
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public long getDurationMicros() {
+		return durationMicros;
+	}
+
+	public Map<String, Long> getPhaseMicros() {
+		return phaseMicros;
+	}
+}
@@ -0,0 +1,45 @@
+package se.phooey.raining.web.timing;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import se.phooey.raining.timing.RequestTiming;
+
+/**
+ * Adds the Server-Timing header to each response body written by a
+ * controller, right before it is serialized, since the headers can no longer
+ * be changed once the body is being written. The serialization itself is
+ * therefore only part of the traces of the {@link SlowRequestLog}.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "isitraining.timing.enabled", havingValue = "true", matchIfMissing = true)
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+	/**
+	 * The name of the Server-Timing header
+	 */
+	public static final String SERVER_TIMING = "Server-Timing";
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+			ServerHttpResponse response) {
+		RequestTiming timing = RequestTiming.current();
+		if (timing != null) {
+			response.getHeaders().set(SERVER_TIMING, timing.toServerTiming());
+			timing.startResponse();
+		}
+		return body;
+	}
+}
@@ -0,0 +1,55 @@
+package se.phooey.raining.web.timing;
+
+import java.io.IOException;
+import java.time.Clock;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import se.phooey.raining.timing.RequestTiming;
+
+/**
+ * Servlet filter timing the phases of each request with a
+ * {@link RequestTiming}, which the {@link ServerTimingAdvice} reports in the
+ * Server-Timing header of the response. The breakdown of slow requests is kept
+ * in the {@link SlowRequestLog}.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+	private final SlowRequestLog slowRequestLog;
+	private final Clock clock;
+
+	/**
+	 * Creates a new ServerTimingFilter
+	 * 
+	 * @param slowRequestLog the log to keep the traces of slow requests in
+	 * @param clock          the Clock used to timestamp the traces
+	 */
+	public ServerTimingFilter(SlowRequestLog slowRequestLog, Clock clock) {
+		this.slowRequestLog = slowRequestLog;
+		this.clock = clock;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+			FilterChain filterChain) throws ServletException, IOException {
+		long timestamp = clock.millis();
+		RequestTiming timing = RequestTiming.start();
+		int status = HttpStatus.INTERNAL_SERVER_ERROR.value();
+		try {
+			filterChain.doFilter(request, response);
+			status = response.getStatus();
+		} finally {
+			timing.stop();
+			if (slowRequestLog.shouldTrace(timing.getTotalNanos())) {
+				slowRequestLog.add(
+						RequestTrace.of(timestamp, request.getMethod(), request.getRequestURI(), status, timing));
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package se.phooey.raining.web.timing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring buffer keeping the {@link RequestTrace}s of a sample of the
+ * most recent slow requests, overwriting the oldest trace when full.<br>
+ * <br>
+ * Only requests taking at least the threshold are considered, so a request
+ * that is not slow costs one comparison, and of those only the sampled
+ * fraction is traced.
+ */
+public class SlowRequestLog {
+
+	private final AtomicReferenceArray<RequestTrace> traces;
+	private final AtomicLong written;
+	private final long thresholdNanos;
+	private final double sampleRate;
+
+	/**
+	 * Creates a new SlowRequestLog
+	 * 
+	 * @param capacity        the number of traces to keep
+	 * @param thresholdMillis the time a request needs to take to be slow
+	 * @param sampleRate      the fraction of the slow requests to trace
+	 */
+	public SlowRequestLog(int capacity, long thresholdMillis, double sampleRate) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity needs to be at least 1, was " + capacity);
+		}
+		if (sampleRate < 0 || sampleRate > 1) {
+			throw new IllegalArgumentException(
+					"The sampling rate needs to be in range 0 <= rate <= 1, was " + sampleRate);
+		}
+		this.traces = new AtomicReferenceArray<>(capacity);
+		this.written = new AtomicLong();
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Decides if a request should be traced
+	 * 
+	 * @param durationNanos the time the request took, in nanoseconds
+	 * @return true if the request is slow and sampled
+	 */
+	public boolean shouldTrace(long durationNanos) {
+		return durationNanos >= thresholdNanos
+				&& (sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate));
+	}
+
+	/**
+	 * Adds a trace, overwriting the oldest trace if the log is full
+	 * 
+	 * @param trace the trace of a slow request
+	 */
+	public void add(RequestTrace trace) {
+		long index = written.getAndIncrement();
+		traces.set((int) (index % traces.length()), trace);
+	}
+
+	/**
+	 * @return the kept traces, the most recent first
+	 */
+	public List<RequestTrace> recent() {
+		long end = written.get();
+		List<RequestTrace> recent = new ArrayList<>();
+		for (long index = end - 1; index >= Math.max(0, end - traces.length()); index--) {
+			RequestTrace trace = traces.get((int) (index % traces.length()));
+			if (trace != null) {
+				recent.add(trace);
+			}
+		}
+		return recent;
+	}
+
+	/**
+	 * @return the number of requests traced since starting
+	 */
+	public long getTraced() {
+		return written.get();
+	}
+}
@@ -0,0 +1,36 @@
+package se.phooey.raining.web.timing;
+
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint showing where the time of recent slow requests was spent,
+ * at "/actuator/slowrequests". Like the other actuator endpoints it is only
+ * served if exposed in "management.endpoints.web.exposure.include", and on the
+ * management port if one is set.
+ */
+@Endpoint(id = "slowrequests")
+public class SlowRequestsEndpoint {
+
+	private final SlowRequestLog slowRequestLog;
+
+	/**
+	 * Creates a new SlowRequestsEndpoint
+	 * 
+	 * @param slowRequestLog the log of slow requests
+	 */
+	public SlowRequestsEndpoint(SlowRequestLog slowRequestLog) {
+		this.slowRequestLog = slowRequestLog;
+	}
+
+	/**
+	 * @return the breakdown of a sample of the most recent slow requests, the
+	 *         most recent first
+	 */
+	@ReadOperation
+	public List<RequestTrace> slowRequests() {
+		return slowRequestLog.recent();
+	}
+}
@@ -0,0 +1,48 @@
+package se.phooey.raining.web.timing;
+
+import java.time.Clock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Times the phases of each request through the {@link ServerTimingFilter},
+ * unless "isitraining.timing.enabled" is false
+ */
+@Configuration
+@ConditionalOnProperty(name = "isitraining.timing.enabled", havingValue = "true", matchIfMissing = true)
+public class TimingConfiguration {
+	@Value("${isitraining.timing.slow-threshold-millis:1000}")
+	private long slowThresholdMillis;
+	@Value("${isitraining.timing.slow-sample-rate:1.0}")
+	private double slowSampleRate;
+	@Value("${isitraining.timing.slow-buffer-capacity:256}")
+	private int slowBufferCapacity;
+
+	@Bean
+	public SlowRequestLog slowRequestLog() {
+		return new SlowRequestLog(slowBufferCapacity, slowThresholdMillis, slowSampleRate);
+	}
+
+	@Bean
+	public SlowRequestsEndpoint slowRequestsEndpoint(SlowRequestLog slowRequestLog) {
+		return new SlowRequestsEndpoint(slowRequestLog);
+	}
+
+	/**
+	 * Runs right after the access log, so the time spent in the other filters,
+	 * such as waiting for admission, is part of the total
+	 */
+	@Bean
+	public FilterRegistrationBean<ServerTimingFilter> serverTimingFilterRegistration(SlowRequestLog slowRequestLog,
+			Clock clock) {
+		FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(
+				new ServerTimingFilter(slowRequestLog, clock));
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+		return registration;
+	}
+}
@@ -67,11 +67,9 @@ function displayRainReport(rainReport) {
   document.getElementById("typeOfPrecipitationToday").innerHTML = formatPrecipitationString(rainReport.typeOfPrecipitationToday).replace("no ", "");
 }
 
-function retrieveRainReport(position) {
-  var latitude = position.coords.latitude;
-  var longitude = position.coords.longitude;
+function requestRainReport(url, notFoundMessage) {
   var xhr = new XMLHttpRequest();
-  xhr.open('GET', 'isitraining/?latitude=' + latitude + '&longitude=' + longitude);
+  xhr.open('GET', url);
   xhr.timeout = 5000;
   xhr.addEventListener("error", function (e) {
     showError("Could not reach service: Error");
@@ -82,6 +80,8 @@ function retrieveRainReport(position) {
   xhr.addEventListener("load",  function() {
     if (xhr.status === 200) {
       displayRainReport(JSON.parse(xhr.responseText));
+    } else if (xhr.status === 404 && notFoundMessage) {
+      showError(notFoundMessage);
     } else {
       showError("Could not retrieve a rain report, try again later.");
     }
@@ -89,12 +89,23 @@ function retrieveRainReport(position) {
   xhr.send();
 }
 
+function retrieveRainReport(position) {
+  var latitude = position.coords.latitude;
+  var longitude = position.coords.longitude;
+  requestRainReport('isitraining/?latitude=' + latitude + '&longitude=' + longitude);
+}
+
+// Falls back to the approximate location of the client address, shows the message if it is not known
+function retrieveRainReportForClientAddress(unknownLocationMessage) {
+  requestRainReport('isitraining/here', unknownLocationMessage);
+}
+
 function getLocation() {
   if (navigator.geolocation) {
     navigator.geolocation.getCurrentPosition(retrieveRainReport, function (error) {
-      showError("You need to share your location for this page to work.");
+      retrieveRainReportForClientAddress("You need to share your location for this page to work.");
     });
   } else {
-    showError("This page will not function without GeoLocation support.");
+    retrieveRainReportForClientAddress("This page will not function without GeoLocation support.");
   }
 }
@@ -10,6 +10,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import se.phooey.raining.weather.DarkSkyWeatherProvider;
 import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.cache.CachingWeatherProvider;
 
 /**
  * Simple test to make sure the application context loads correctly and that the
@@ -22,9 +23,13 @@ public class IsItRainingApplicationTests {
 	@Autowired
 	WeatherProvider wp;
 
+	@Autowired
+	DarkSkyWeatherProvider darkSkyWeatherProvider;
+
 	@Test
 	public void contextLoadsAndWeatherProviderBeanIsInjected() {
-		assertThat(wp).isInstanceOf(DarkSkyWeatherProvider.class);
+		assertThat(wp).isInstanceOf(CachingWeatherProvider.class);
+		assertThat(darkSkyWeatherProvider).isNotNull();
 	}
 
 }
@@ -0,0 +1,134 @@
+package se.phooey.raining;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+/**
+ * Compares the throughput and latency of "/isitraining" in the servlet and the
+ * reactive serving mode, with a local stand-in for the Dark Sky API answering
+ * every request after a fixed delay.<br>
+ * <br>
+ * Each mode is started in turn and sent the same requests from a fixed number
+ * of concurrent clients: first for distinct locations, so every request waits
+ * for the stand-in, then for the same locations again, so every request is
+ * served from the cache. The quota planner, rate limiting and admission control
+ * are disabled, so neither mode is throttled.<br>
+ * <br>
+ * Not run by the tests, run it with the test class path:<br>
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=se.phooey.raining.ServingModeBenchmark
+ * -Dexec.args="[requests] [concurrency] [upstream delay ms]"</code>
+ */
+public class ServingModeBenchmark {
+
+	private static final int DAILY_CALLS_PER_KEY = 900;
+
+	// Passed as arguments, to take precedence over the test application.properties
+	private static String[] arguments(WireMockServer upstream, int requests) throws Exception {
+		String keys = IntStream.rangeClosed(0, requests / DAILY_CALLS_PER_KEY).mapToObj(i -> "benchmark-key-" + i)
+				.collect(Collectors.joining(","));
+		return new String[] { "--server.port=0", "--darksky.api.url=http://localhost:" + upstream.port() + "/",
+				"--darksky.api.keys=" + keys, "--isitraining.quota.planner.enabled=false",
+				"--isitraining.ratelimit.enabled=false", "--isitraining.admission.enabled=false",
+				"--isitraining.timing.enabled=false",
+				"--isitraining.history.directory=" + Files.createTempDirectory("isitraining-benchmark") };
+	}
+
+	private static void load(String mode, String phase, HttpClient client, int port, int first, int requests,
+			int concurrency) throws Exception {
+		Semaphore permits = new Semaphore(concurrency);
+		AtomicInteger failures = new AtomicInteger();
+		long[] latencies = new long[requests];
+		List<CompletableFuture<?>> responses = new ArrayList<>(requests);
+		long start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			int request = i;
+			int cell = first + i;
+			// Distinct cells, 0.01 degrees apart
+			URI uri = URI.create(String.format(Locale.US, "http://localhost:%d/isitraining?latitude=%.2f&longitude=%.2f",
+					port, -60 + (cell / 1000) * 0.01, -170 + (cell % 1000) * 0.01));
+			permits.acquire();
+			long sent = System.nanoTime();
+			responses.add(client.sendAsync(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, error) -> {
+						latencies[request] = System.nanoTime() - sent;
+						if (error != null || response.statusCode() != 200) {
+							failures.incrementAndGet();
+						}
+						permits.release();
+					}));
+		}
+		CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0])).exceptionally(error -> null).join();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		Arrays.sort(latencies);
+		System.out.println(String.format(Locale.US, "%-10s %-8s %10d %10d %12.1f %10.1f %10.1f %10.1f", mode, phase,
+				requests, failures.get(), requests / seconds, latencies[requests / 2] / 1e6,
+				latencies[(int) (requests * 0.99)] / 1e6, latencies[requests - 1] / 1e6));
+	}
+
+	private static void benchmark(String mode, SpringApplicationBuilder application, String[] arguments,
+			int requests, int concurrency) throws Exception {
+		try (ConfigurableApplicationContext context = application.run(arguments)) {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			load(mode, "warm-up", client, port, requests, Math.min(requests, 1000), concurrency);
+			load(mode, "upstream", client, port, 0, requests, concurrency);
+			load(mode, "cached", client, port, 0, requests, concurrency);
+		}
+	}
+
+	/**
+	 * @param args the number of requests per phase, default 5000, the number of
+	 *             concurrent requests, default 64, and the delay of the Dark
+	 *             Sky stand-in in milliseconds, default 100
+	 * @throws Exception If a serving mode could not be started
+	 */
+	public static void main(String[] args) throws Exception {
+		int requests = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int delayMillis = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		WireMockServer upstream = new WireMockServer(options().dynamicPort().containerThreads(concurrency + 16));
+		upstream.start();
+		try {
+			upstream.stubFor(get(urlPathMatching("/.*")).willReturn(aResponse().withStatus(200)
+					.withHeader("Content-Type", "application/json").withFixedDelay(delayMillis)
+					// The recorded response is Latin-1 encoded, Dark Sky responds in UTF-8
+					.withBody(new String(Files.readAllBytes(Paths.get("src/test/resources/darksky_response_with_rain.json")),
+							StandardCharsets.ISO_8859_1))));
+			System.out.println(String.format("%-10s %-8s %10s %10s %12s %10s %10s %10s", "mode", "phase",
+					"requests", "failures", "requests/s", "p50 ms", "p99 ms", "max ms"));
+			benchmark("servlet", new SpringApplicationBuilder(IsItRainingApplication.class)
+					.web(WebApplicationType.SERVLET), arguments(upstream, 3 * requests), requests, concurrency);
+			benchmark("reactive", new SpringApplicationBuilder(ReactiveIsItRainingApplication.class)
+					.web(WebApplicationType.REACTIVE), arguments(upstream, 3 * requests), requests, concurrency);
+		} finally {
+			upstream.stop();
+		}
+	}
+}
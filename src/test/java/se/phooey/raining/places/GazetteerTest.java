@@ -0,0 +1,162 @@
+package se.phooey.raining.places;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.places.Gazetteer
+ */
+public class GazetteerTest {
+
+	private static Gazetteer subject;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		subject = Gazetteer.load(Paths.get("src/test/resources/gazetteer.tsv"));
+	}
+
+	private static List<String> namesAndCountries(List<Place> places) {
+		return places.stream().map(place -> place.getName() + ", " + place.getCountryCode())
+				.collect(Collectors.toList());
+	}
+
+	private static String line(String name, String alternateNames, double latitude, double longitude,
+			long population) {
+		return String.join("\t", "1", name, name, alternateNames, Double.toString(latitude),
+				Double.toString(longitude), "P", "PPL", "SE", "", "", "", "", "", Long.toString(population), "",
+				"", "Europe/Stockholm", "2020-01-01");
+	}
+
+	@Test
+	public void namesShouldBeNormalizedToLowerCaseWithoutDiacritics() {
+		assertThat(Gazetteer.normalize("Göteborg")).isEqualTo("goteborg");
+		assertThat(Gazetteer.normalize("  St. Louis-du-Ha! Ha! ")).isEqualTo("st louis du ha ha");
+	}
+
+	@Test
+	public void theValidLinesOfTheFileShouldBeIndexed() {
+		assertThat(subject.getPlaceCount()).isEqualTo(8);
+		assertThat(subject.getNameCount()).isEqualTo(19);
+		assertThat(subject.getIndexBytes()).isPositive();
+	}
+
+	@Test
+	public void whenANameMatchesExactly_thePlaceWithTheLargestPopulationShouldBeResolved() {
+		Place place = subject.resolve("stockholm");
+
+		assertThat(place.getName()).isEqualTo("Stockholm");
+		assertThat(place.getCountryCode()).isEqualTo("SE");
+		assertThat(place.getLatitude()).isEqualTo(59.33258, offset(1e-5));
+		assertThat(place.getLongitude()).isEqualTo(18.0649, offset(1e-5));
+		assertThat(place.getPopulation()).isEqualTo(1515017);
+		assertThat(namesAndCountries(subject.search("Stockholm", 5))).containsExactly("Stockholm, SE",
+				"Stockholm, US");
+	}
+
+	@Test
+	public void alternateAndAsciiNamesShouldResolveToThePlace() {
+		assertThat(subject.resolve("Gothenburg").getName()).isEqualTo("Göteborg");
+		assertThat(subject.resolve("goteborg").getName()).isEqualTo("Göteborg");
+		assertThat(subject.resolve("MALMÖ").getName()).isEqualTo("Malmö");
+	}
+
+	@Test
+	public void prefixMatchesShouldBeRankedByPopulation() {
+		assertThat(namesAndCountries(subject.search("sto", 10))).containsExactly("Stockholm, SE", "Stockton, US",
+				"Stockholm, US");
+		assertThat(namesAndCountries(subject.search("sto", 2))).containsExactly("Stockholm, SE", "Stockton, US");
+	}
+
+	@Test
+	public void exactMatchesShouldBeRankedBeforePrefixMatches() {
+		String gazetteer = line("Lund", "", 55.7, 13.2, 90000) + "\n" + line("Lundby", "", 57.7, 11.9, 200000);
+
+		assertThat(read(gazetteer).search("lund", 2)).extracting(Place::getName).containsExactly("Lund",
+				"Lundby");
+	}
+
+	@Test
+	public void misspelledNamesShouldBeMatchedFuzzily() {
+		assertThat(subject.resolve("Stockhlom").getName()).isEqualTo("Stockholm");
+		assertThat(subject.resolve("Sunsdvall").getName()).isEqualTo("Sundsvall");
+		assertThat(subject.resolve("Pariss").getCountryCode()).isEqualTo("FR");
+		assertThat(subject.resolve("Malmp").getName()).isEqualTo("Malmö");
+		assertThat(subject.resolve("Stocktonn").getName()).isEqualTo("Stockton");
+	}
+
+	@Test
+	public void closerFuzzyMatchesShouldBeRankedFirst() {
+		String gazetteer = line("Kalmar", "", 56.7, 16.4, 40000) + "\n" + line("Kelmarro", "", 0, 0, 1000000) + "\n"
+				+ line("Kiruna", "", 67.9, 20.2, 23000);
+
+		assertThat(read(gazetteer).search("kalmaro", 3)).extracting(Place::getName).containsExactly("Kalmar",
+				"Kelmarro");
+	}
+
+	@Test
+	public void aMisspelledFirstCharacter_shouldNotBeMatched() {
+		assertThat(subject.resolve("Ztockholm")).isNull();
+	}
+
+	@Test
+	public void shortOrUnknownNames_shouldNotMatchAnything() {
+		assertThat(subject.resolve("Qwerty")).isNull();
+		assertThat(subject.search("xq", 5)).isEmpty();
+		assertThat(subject.search(" - ", 5)).isEmpty();
+		assertThat(subject.search("Paris", 0)).isEmpty();
+	}
+
+	@Test
+	public void anEmptyGazetteer_shouldNotMatchAnything() {
+		Gazetteer empty = Gazetteer.empty();
+
+		assertThat(empty.resolve("Stockholm")).isNull();
+		assertThat(empty.getPlaceCount()).isZero();
+		assertThat(empty.getIndexBytes()).isEqualTo(8);
+	}
+
+	@Test
+	public void hundredsOfThousandsOfNamesShouldFitInTensOfMegabytes() {
+		Random random = new Random(42);
+		StringBuilder gazetteer = new StringBuilder();
+		for (int i = 0; i < 300_000; i++) {
+			StringBuilder name = new StringBuilder();
+			int length = 5 + random.nextInt(10);
+			for (int j = 0; j < length; j++) {
+				name.append((char) ('a' + random.nextInt(26)));
+			}
+			gazetteer.append(line(name.toString(), name.toString().toUpperCase() + "by", random.nextDouble() * 90,
+					random.nextDouble() * 180, random.nextInt(100000))).append('\n');
+		}
+		gazetteer.append(line("Ystadsbadet", "", 55.4, 13.8, 18000));
+
+		Gazetteer large = read(gazetteer.toString());
+
+		assertThat(large.getPlaceCount()).isEqualTo(300_001);
+		assertThat(large.getIndexBytes()).isLessThan(30_000_000);
+		long start = System.nanoTime();
+		for (int i = 0; i < 1000; i++) {
+			assertThat(large.resolve("Ystadsbadt").getName()).isEqualTo("Ystadsbadet");
+		}
+		assertThat(System.nanoTime() - start).isLessThan(5_000_000_000L);
+	}
+
+	private static Gazetteer read(String gazetteer) {
+		try {
+			return Gazetteer.read(new BufferedReader(new StringReader(gazetteer)));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
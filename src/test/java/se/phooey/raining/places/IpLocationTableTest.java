@@ -0,0 +1,139 @@
+package se.phooey.raining.places;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for @see se.phooey.raining.places.IpLocationTable, with the IP
+ * location table in src/test/resources
+ */
+public class IpLocationTableTest {
+
+	private static IpLocationTable subject;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		subject = IpLocationTable.open(Paths.get("src/test/resources/iplocation.bin"));
+	}
+
+	private Path writeHeader(int magic, int version, int size) throws IOException {
+		Path file = folder.newFile().toPath();
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+			out.writeInt(magic);
+			out.writeInt(version);
+			out.writeInt(size);
+			out.writeInt(0);
+		}
+		return file;
+	}
+
+	@Test
+	public void dottedQuadsShouldBeParsedAndAnythingElseRejected() {
+		assertThat(IpLocationTable.parseIpv4("192.0.2.1")).isEqualTo(0xc0000201L);
+		assertThat(IpLocationTable.parseIpv4("255.255.255.255")).isEqualTo(0xffffffffL);
+		assertThat(IpLocationTable.parseIpv4("256.0.0.1")).isEqualTo(-1);
+		assertThat(IpLocationTable.parseIpv4("1.2.3")).isEqualTo(-1);
+		assertThat(IpLocationTable.parseIpv4("1.2.3.4.5")).isEqualTo(-1);
+		assertThat(IpLocationTable.parseIpv4("1..2.3")).isEqualTo(-1);
+		assertThat(IpLocationTable.parseIpv4("1.2.3.")).isEqualTo(-1);
+		assertThat(IpLocationTable.parseIpv4("example.com")).isEqualTo(-1);
+		assertThat(IpLocationTable.parseIpv4("")).isEqualTo(-1);
+	}
+
+	@Test
+	public void whenAnIpv4AddressIsInARange_itsCoordinatesShouldBeFound() {
+		int range = subject.find("192.0.2.77");
+
+		assertThat(subject.size()).isEqualTo(3);
+		assertThat(range).isNotNegative();
+		assertThat(subject.latitude(range)).isEqualTo(57.70716, within(1e-5));
+		assertThat(subject.longitude(range)).isEqualTo(11.96679, within(1e-5));
+		assertThat(subject.find("192.0.2.0")).isEqualTo(range);
+		assertThat(subject.find("192.0.2.255")).isEqualTo(range);
+	}
+
+	@Test
+	public void whenAnIpv6AddressIsInARange_itsCoordinatesShouldBeFound() {
+		int range = subject.find("2001:db8::1");
+
+		assertThat(range).isNotNegative();
+		assertThat(subject.latitude(range)).isEqualTo(59.33258, within(1e-5));
+		assertThat(subject.find("::ffff:198.51.100.5")).isEqualTo(subject.find("198.51.100.5")).isNotNegative();
+	}
+
+	@Test
+	public void whenAnAddressIsNotInARange_itShouldNotBeFound() {
+		assertThat(subject.find("10.0.0.1")).isEqualTo(-1);
+		assertThat(subject.find("192.0.3.0")).isEqualTo(-1);
+		assertThat(subject.find("198.51.100.128")).isEqualTo(-1);
+		assertThat(subject.find("2001:db9::")).isEqualTo(-1);
+		assertThat(subject.find("::1")).isEqualTo(-1);
+		assertThat(IpLocationTable.empty().find("192.0.2.77")).isEqualTo(-1);
+		assertThat(IpLocationTable.empty().size()).isZero();
+	}
+
+	@Test
+	public void whenTheAddressIsNotALiteral_itShouldNotBeFound() {
+		assertThat(subject.find("localhost")).isEqualTo(-1);
+		assertThat(subject.find("2001:db8::zz")).isEqualTo(-1);
+	}
+
+	@Test
+	public void findingIpv4AddressesShouldNotAllocate() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		String[] addresses = { "192.0.2.77", "198.51.100.5", "10.0.0.1" };
+		long found = 0;
+		for (int i = 0; i < 100_000; i++) {
+			found += subject.find(addresses[i % addresses.length]) >= 0 ? 1 : 0;
+		}
+		long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		for (int i = 0; i < 100_000; i++) {
+			found += subject.find(addresses[i % addresses.length]) >= 0 ? 1 : 0;
+		}
+		long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+		assertThat(found).isEqualTo(2 * 66_667);
+		assertThat(allocated).isLessThan(10_000);
+	}
+
+	@Test
+	public void whenTheFileIsNotAnIpLocationTable_itShouldNotBeOpened() throws IOException {
+		Path empty = folder.newFile().toPath();
+		Path otherMagic = writeHeader(0x52475244, IpLocationTable.VERSION, 0);
+		Path otherVersion = writeHeader(IpLocationTable.MAGIC, 2, 0);
+		Path truncated = writeHeader(IpLocationTable.MAGIC, IpLocationTable.VERSION, 1);
+
+		assertThatThrownBy(() -> IpLocationTable.open(empty)).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> IpLocationTable.open(otherMagic)).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> IpLocationTable.open(otherVersion)).hasMessageContaining("version 2");
+		assertThatThrownBy(() -> IpLocationTable.open(truncated)).hasMessageContaining("expected 1 ranges");
+	}
+
+	@Test
+	public void whenTheFileIsTooLargeToMap_itShouldNotBeOpened() throws IOException {
+		Path file = folder.newFile().toPath();
+		try (RandomAccessFile large = new RandomAccessFile(file.toFile(), "rw")) {
+			large.setLength(Integer.MAX_VALUE + 1L);
+		}
+
+		assertThatThrownBy(() -> IpLocationTable.open(file)).hasMessageContaining("too large");
+	}
+}
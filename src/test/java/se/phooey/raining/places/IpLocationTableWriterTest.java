@@ -0,0 +1,66 @@
+package se.phooey.raining.places;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for @see se.phooey.raining.places.IpLocationTableWriter
+ */
+public class IpLocationTableWriterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void whenRangesAreAddedOutOfOrder_theyShouldBeWrittenSorted() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("iplocation.bin");
+		new IpLocationTableWriter().add("2001:db8::", "2001:db8::ffff", 59.3, 18.1)
+				.add("::ffff:10.0.0.0", "10.0.0.255", 57.7, 12.0)
+				.add("8.8.8.0", "8.8.8.255", 37.4, -122.1)
+				.writeTo(file);
+		IpLocationTable table = IpLocationTable.open(file);
+
+		assertThat(Files.size(file)).isEqualTo(IpLocationTable.HEADER_BYTES + 3 * IpLocationTable.RANGE_BYTES);
+		assertThat(table.find("8.8.8.8")).isZero();
+		assertThat(table.find("10.0.0.1")).isEqualTo(1);
+		assertThat(table.latitude(table.find("10.0.0.1"))).isEqualTo(57.7, within(1e-5));
+		assertThat(table.longitude(table.find("2001:db8::1"))).isEqualTo(18.1, within(1e-5));
+		assertThat(file.resolveSibling("iplocation.bin.tmp")).doesNotExist();
+	}
+
+	@Test
+	public void whenAnAddressIsNotALiteral_itShouldBeRejected() {
+		IpLocationTableWriter subject = new IpLocationTableWriter();
+
+		assertThatThrownBy(() -> subject.add("localhost", "10.0.0.1", 0, 0))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("localhost");
+		assertThatThrownBy(() -> subject.add("10.0.0.1", "2001:db8::zz", 0, 0))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("2001:db8::zz");
+	}
+
+	@Test
+	public void whenARangeIsEmpty_itShouldBeRejected() {
+		assertThatThrownBy(() -> new IpLocationTableWriter().add("10.0.0.2", "10.0.0.1", 0, 0))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("empty");
+	}
+
+	@Test
+	public void whenRangesOverlap_theTableShouldNotBeWritten() {
+		Path file = folder.getRoot().toPath().resolve("iplocation.bin");
+		IpLocationTableWriter subject = new IpLocationTableWriter().add("10.0.0.0", "10.0.0.255", 0, 0)
+				.add("10.0.0.255", "10.0.1.255", 0, 0);
+
+		assertThatThrownBy(() -> subject.writeTo(file)).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("overlap");
+		assertThat(file).doesNotExist();
+	}
+}
@@ -0,0 +1,17 @@
+package se.phooey.raining.places;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.places.Place
+ */
+public class PlaceTest {
+
+	@Test
+	public void toString_shouldIncludeTheNameCountryAndCoordinates() {
+		assertThat(new Place("Stockholm", "SE", 59.33, 18.06, 1515017).toString())
+				.isEqualTo("Stockholm, SE (59.330000, 18.060000)");
+	}
+}
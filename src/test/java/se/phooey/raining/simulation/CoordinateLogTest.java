@@ -0,0 +1,57 @@
+package se.phooey.raining.simulation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.simulation.CoordinateLog
+ */
+public class CoordinateLogTest {
+
+	private static CoordinateLog read(String... lines) throws Exception {
+		return CoordinateLog.read(new BufferedReader(new StringReader(String.join("\n", lines))));
+	}
+
+	@Test
+	public void accessLogLinesShouldBeReadFromTheTimeAndTheQuery() throws Exception {
+		CoordinateLog subject = read(
+				"2020-09-13 12:26:40 INFO AccessLogWriter - ts=1600000000000 method=GET path=/isitraining "
+						+ "query=\"latitude=59.3293&longitude=18.0686\" status=200 duration_us=512 client=127.0.0.1",
+				"ts=1600000001000 method=GET path=/forecast query=\"fields=x&latitude=-13.37&longitude=-90.01\" "
+						+ "status=200 duration_us=512 client=127.0.0.1");
+
+		assertThat(subject.getEntries()).extracting("time", "latitude", "longitude").containsExactly(
+				tuple(1600000000000L, 59.3293, 18.0686), tuple(1600000001000L, -13.37, -90.01));
+	}
+
+	@Test
+	public void commaSeparatedLinesShouldBeReadAsTimeLatitudeAndLongitude() throws Exception {
+		CoordinateLog subject = read("1600000000000, 59.3293, 18.0686");
+
+		assertThat(subject.getEntries()).extracting("time", "latitude", "longitude")
+				.containsExactly(tuple(1600000000000L, 59.3293, 18.0686));
+	}
+
+	@Test
+	public void theEntriesShouldBeOrderedByTime() throws Exception {
+		CoordinateLog subject = read("3000,1,1", "1000,2,2", "2000,3,3");
+
+		assertThat(subject.getEntries()).extracting("time").containsExactly(1000L, 2000L, 3000L);
+	}
+
+	@Test
+	public void linesWithoutValidCoordinatesShouldBeSkipped() throws Exception {
+		CoordinateLog subject = read("ts=1000 method=GET path=/places query=\"name=Stockholm\" status=200",
+				"ts=1000 method=GET path=/isitraining query=\"latitude=95&longitude=10\" status=400",
+				"ts=1000 method=GET path=/isitraining query=\"latitude=10&longitude=-181\" status=400",
+				"ts=1000 method=GET path=/isitraining query=\"latitude=1e&longitude=10\" status=400", "1000,2",
+				"1000,north,east", "", "1000,13.37,90.01");
+
+		assertThat(subject.getEntries()).extracting("latitude").containsExactly(13.37);
+	}
+}
@@ -0,0 +1,126 @@
+package se.phooey.raining.simulation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.phooey.raining.weather.CoordinatePrecision;
+
+/**
+ * Unit tests for @see se.phooey.raining.simulation.PrecisionSimulator
+ */
+public class PrecisionSimulatorTest {
+
+	private static final String LOG = String.join("\n", "0,59.3293,18.0686", "60000,59.3301,18.0712",
+			"120000,59.3293,18.0686", "700000,59.3293,18.0686", "86400000,59.3293,18.0686");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static CoordinateLog log(String log) throws Exception {
+		return CoordinateLog.read(new BufferedReader(new StringReader(log)));
+	}
+
+	@Test
+	public void aFinerPrecisionShouldGiveMoreCellsAndFewerHits() throws Exception {
+		PrecisionSimulator subject = new PrecisionSimulator(Duration.ofMinutes(10), 1000);
+
+		List<SimulationResult> results = subject.simulate(log(LOG),
+				Arrays.asList(CoordinatePrecision.ofDegrees(0.001), CoordinatePrecision.ofDegrees(0.01)));
+
+		SimulationResult fine = results.get(0);
+		assertThat(fine.getPrecision()).isEqualTo("0.001");
+		assertThat(fine.getRequests()).isEqualTo(5);
+		assertThat(fine.getDistinctCells()).isEqualTo(2);
+		assertThat(fine.getHits()).isEqualTo(1);
+		assertThat(fine.getUpstreamCalls()).isEqualTo(4);
+		assertThat(fine.getHitRate()).isEqualTo(0.2);
+		SimulationResult coarse = results.get(1);
+		assertThat(coarse.getDistinctCells()).isEqualTo(1);
+		assertThat(coarse.getHits()).isEqualTo(2);
+		assertThat(coarse.getUpstreamCalls()).isEqualTo(3);
+		assertThat(coarse.getMaximumErrorKilometers()).isGreaterThan(fine.getMaximumErrorKilometers());
+	}
+
+	@Test
+	public void theErrorShouldBeTheDistanceToTheBucketedCoordinates() throws Exception {
+		PrecisionSimulator subject = new PrecisionSimulator(Duration.ofMinutes(10), 1000);
+
+		SimulationResult result = subject.simulate(log("0,0.004,0"), CoordinatePrecision.ofDegrees(0.01));
+
+		assertThat(result.getMeanErrorKilometers()).isCloseTo(0.445, within(0.001));
+		assertThat(result.getMaximumErrorKilometers()).isCloseTo(0.445, within(0.001));
+	}
+
+	@Test
+	public void callsBeyondTheDailyBudgetShouldBeDeniedAndNotCached() throws Exception {
+		PrecisionSimulator subject = new PrecisionSimulator(Duration.ofMinutes(10), 1);
+
+		SimulationResult result = subject.simulate(log("0,1,1\n1000,2,2\n2000,2,2\n86400000,2,2"),
+				CoordinatePrecision.ofDegrees(0.001));
+
+		assertThat(result.getUpstreamCalls()).isEqualTo(2);
+		assertThat(result.getDeniedCalls()).isEqualTo(2);
+		assertThat(result.getPeakDailyCalls()).isEqualTo(3);
+		assertThat(result.getHits()).isZero();
+	}
+
+	@Test
+	public void anEmptyLogShouldGiveAnEmptyResult() throws Exception {
+		SimulationResult result = new PrecisionSimulator(Duration.ofMinutes(10), 1000).simulate(log(""),
+				CoordinatePrecision.ofGeohash(5));
+
+		assertThat(result.getRequests()).isZero();
+		assertThat(result.getHitRate()).isZero();
+		assertThat(result.getMeanErrorKilometers()).isZero();
+		assertThat(result.getPeakDailyCalls()).isZero();
+	}
+
+	@Test
+	public void itShouldPrintATableOfTheResultsOfEachPrecision() throws Exception {
+		File file = folder.newFile("requests.log");
+		Files.write(file.toPath(), LOG.getBytes(StandardCharsets.UTF_8));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		PrecisionSimulator.run(new String[] { file.getPath(), "0.001,geohash:5", "600", "1000" },
+				new PrintStream(out, true, "UTF-8"));
+
+		String[] lines = out.toString("UTF-8").split(System.lineSeparator());
+		assertThat(lines).hasSize(3);
+		assertThat(lines[0]).startsWith("precision").contains("hit rate");
+		assertThat(lines[1]).startsWith("0.001").contains("20.00%");
+		assertThat(lines[2]).startsWith("geohash:5");
+	}
+
+	@Test
+	public void withoutArguments_itShouldPrintTheUsage() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		PrecisionSimulator.run(new String[0], new PrintStream(out, true, "UTF-8"));
+
+		assertThat(out.toString("UTF-8")).startsWith("Usage: PrecisionSimulator <log file>")
+				.contains(PrecisionSimulator.DEFAULT_PRECISIONS);
+	}
+
+	@Test
+	public void withOnlyALogFile_itShouldSimulateTheDefaultPrecisions() throws Exception {
+		File file = folder.newFile("requests.log");
+		Files.write(file.toPath(), LOG.getBytes(StandardCharsets.UTF_8));
+
+		PrecisionSimulator.main(new String[] { file.getPath() });
+	}
+}
@@ -0,0 +1,116 @@
+package se.phooey.raining.timing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.timing.RequestTiming
+ */
+public class RequestTimingTest {
+
+	@After
+	public void tearDown() {
+		RequestTiming timing = RequestTiming.current();
+		if (timing != null) {
+			timing.stop();
+		}
+	}
+
+	@Test
+	public void whenNoRequestIsTimed_recordingShouldDoNothing() {
+		RequestTiming.record(Phase.CACHE, System.nanoTime() - 1_000_000);
+
+		assertThat(RequestTiming.current()).isNull();
+		RequestTiming timing = RequestTiming.start();
+		assertThat(timing.isRecorded(Phase.CACHE)).isFalse();
+		assertThat(timing.getNanos(Phase.CACHE)).isZero();
+	}
+
+	@Test
+	public void whenAPhaseIsRecordedSeveralTimes_itShouldAddUp() {
+		RequestTiming timing = RequestTiming.start();
+		assertThat(RequestTiming.current()).isSameAs(timing);
+
+		RequestTiming.record(Phase.CACHE, System.nanoTime() - 2_000_000);
+		RequestTiming.record(Phase.CACHE, System.nanoTime() - 3_000_000);
+
+		assertThat(timing.isRecorded(Phase.CACHE)).isTrue();
+		assertThat(timing.isRecorded(Phase.UPSTREAM)).isFalse();
+		assertThat(timing.getNanos(Phase.CACHE)).isGreaterThanOrEqualTo(5_000_000);
+		assertThat(timing.getTotalNanos()).isPositive();
+	}
+
+	@Test
+	public void whenARequestIsStopped_theTimeSinceTheResponseStartedShouldBeSerialization() throws Exception {
+		RequestTiming timing = RequestTiming.start();
+		timing.startResponse();
+		Thread.sleep(5);
+
+		timing.stop();
+
+		assertThat(RequestTiming.current()).isNull();
+		assertThat(timing.getNanos(Phase.SERIALIZATION)).isGreaterThanOrEqualTo(5_000_000);
+		long total = timing.getTotalNanos();
+		assertThat(total).isGreaterThanOrEqualTo(timing.getNanos(Phase.SERIALIZATION));
+		Thread.sleep(1);
+		assertThat(timing.getTotalNanos()).isEqualTo(total);
+	}
+
+	@Test
+	public void whenAStoppedRequestIsStartedAgain_itsPhasesShouldBeReset() {
+		RequestTiming timing = RequestTiming.start();
+		timing.add(Phase.QUOTA, 1000);
+		timing.startResponse();
+		timing.stop();
+
+		assertThat(RequestTiming.start()).isSameAs(timing);
+
+		assertThat(timing.isRecorded(Phase.QUOTA)).isFalse();
+		assertThat(timing.getNanos(Phase.QUOTA)).isZero();
+		timing.stop();
+		assertThat(timing.isRecorded(Phase.SERIALIZATION)).isFalse();
+	}
+
+	@Test
+	public void theServerTimingHeaderShouldListTheRecordedPhasesInMilliseconds() {
+		RequestTiming timing = RequestTiming.start();
+		timing.add(Phase.VALIDATION, 7_000);
+		timing.add(Phase.CACHE, 45_600);
+		timing.add(Phase.UPSTREAM, 153_200_000);
+
+		String header = timing.toServerTiming();
+
+		assertThat(header).startsWith("validate;dur=0.007, cache;dur=0.045, upstream;dur=153.200, total;dur=");
+		assertThat(header).doesNotContain("quota", "parse", "serialize");
+	}
+
+	@Test
+	public void timingARequestShouldNotAllocate() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		for (int i = 0; i < 100_000; i++) {
+			timeRequest();
+		}
+
+		long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		for (int i = 0; i < 100_000; i++) {
+			timeRequest();
+		}
+		long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+		assertThat(allocated).isLessThan(10_000);
+	}
+
+	private static void timeRequest() {
+		RequestTiming timing = RequestTiming.start();
+		RequestTiming.record(Phase.VALIDATION, System.nanoTime());
+		RequestTiming.record(Phase.CACHE, System.nanoTime());
+		RequestTiming.record(Phase.UPSTREAM, System.nanoTime());
+		timing.startResponse();
+		timing.stop();
+	}
+}
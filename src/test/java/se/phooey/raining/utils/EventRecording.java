@@ -0,0 +1,59 @@
+package se.phooey.raining.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Flight Recorder recording of some events, without thresholds, used to test
+ * that the events are emitted
+ */
+public class EventRecording implements AutoCloseable {
+
+	private final Recording recording;
+
+	/**
+	 * Starts recording the events
+	 * 
+	 * @param eventNames the names of the events to record
+	 */
+	public EventRecording(String... eventNames) {
+		this.recording = new Recording();
+		for (String eventName : eventNames) {
+			recording.enable(eventName).withThreshold(Duration.ZERO);
+		}
+		recording.start();
+	}
+
+	/**
+	 * Stops the recording and reads the recorded events
+	 * 
+	 * @param eventName the name of the events to read
+	 * @return the recorded events with the name, in the order they were recorded
+	 * @throws IOException If the recording could not be read
+	 */
+	public List<RecordedEvent> events(String eventName) throws IOException {
+		recording.stop();
+		Path file = Files.createTempFile("events", ".jfr");
+		try {
+			recording.dump(file);
+			return RecordingFile.readAllEvents(file).stream()
+					.filter(event -> event.getEventType().getName().equals(eventName))
+					.sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime())).collect(Collectors.toList());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Override
+	public void close() {
+		recording.close();
+	}
+}
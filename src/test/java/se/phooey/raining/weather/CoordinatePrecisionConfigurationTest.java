@@ -0,0 +1,23 @@
+package se.phooey.raining.weather;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.CoordinatePrecisionConfiguration
+ */
+public class CoordinatePrecisionConfigurationTest {
+
+	@Test
+	public void theCoordinatePrecisionShouldBeParsedFromTheConfiguredPrecision() {
+		CoordinatePrecisionConfiguration configuration = new CoordinatePrecisionConfiguration();
+		ReflectionTestUtils.setField(configuration, "precision", "0.01");
+
+		CoordinatePrecision precision = configuration.coordinatePrecision();
+
+		assertThat(precision.latitude(59.3293)).isEqualTo(59.33);
+		assertThat(precision.longitude(18.0686)).isEqualTo(18.07);
+	}
+}
@@ -0,0 +1,68 @@
+package se.phooey.raining.weather;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.CoordinatePrecision
+ */
+public class CoordinatePrecisionTest {
+
+	@Test
+	public void aPrecisionInDegreesShouldRoundToTheNearestMultiple() {
+		CoordinatePrecision subject = CoordinatePrecision.ofDegrees(0.001);
+
+		assertThat(subject.latitude(50.12345)).isEqualTo(50.123);
+		assertThat(subject.longitude(10.12351)).isEqualTo(10.124);
+		assertThat(subject.latitude(-13.3705)).isEqualTo(-13.37);
+	}
+
+	@Test
+	public void aPrecisionInDegreesShouldNotLeaveTheRangeOfTheCoordinates() {
+		CoordinatePrecision subject = CoordinatePrecision.ofDegrees(0.7);
+
+		assertThat(subject.latitude(89.99)).isEqualTo(90.0);
+		assertThat(subject.latitude(-89.99)).isEqualTo(-90.0);
+		assertThat(subject.latitude(13.37)).isEqualTo(13.3);
+	}
+
+	@Test
+	public void aGeohashPrecisionShouldMoveToTheCenterOfTheGeohashCell() {
+		// The geohash "u6sc" spans latitude 59.238281 to 59.414063 and longitude
+		// 17.929688 to 18.281250
+		CoordinatePrecision subject = CoordinatePrecision.ofGeohash(4);
+
+		assertThat(subject.latitude(59.3293)).isEqualTo(59.326172);
+		assertThat(subject.longitude(18.0686)).isEqualTo(18.105469);
+	}
+
+	@Test
+	public void aGeohashPrecisionShouldKeepTheEdgesOfTheWorldInTheLastCells() {
+		CoordinatePrecision subject = CoordinatePrecision.ofGeohash(1);
+
+		assertThat(subject.latitude(90)).isEqualTo(67.5);
+		assertThat(subject.latitude(-90)).isEqualTo(-67.5);
+		assertThat(subject.longitude(180)).isEqualTo(157.5);
+	}
+
+	@Test
+	public void itShouldBeParsedFromDegreesOrAGeohashLength() {
+		assertThat(CoordinatePrecision.parse("0.01").latitude(50.12345)).isEqualTo(50.12);
+		assertThat(CoordinatePrecision.parse(" geohash:4 ").latitude(59.3293)).isEqualTo(59.326172);
+		assertThat(CoordinatePrecision.parse("0.01")).hasToString("0.01");
+		assertThat(CoordinatePrecision.parse("geohash:6")).hasToString("geohash:6");
+	}
+
+	@Test
+	public void whenThePrecisionIsOutOfRange_itShouldThrowAnIllegalArgumentException() {
+		assertThatThrownBy(() -> CoordinatePrecision.ofDegrees(0)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> CoordinatePrecision.ofDegrees(91)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> CoordinatePrecision.ofDegrees(Double.NaN))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> CoordinatePrecision.ofGeohash(0)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> CoordinatePrecision.ofGeohash(13)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> CoordinatePrecision.parse("fine")).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,27 @@
+package se.phooey.raining.weather;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.DailyPrecipitation
+ */
+public class DailyPrecipitationTest {
+
+	@Test
+	public void defaultConstructorShouldUseDefaultValues() {
+		DailyPrecipitation day = new DailyPrecipitation();
+
+		assertThat(day.getTime()).isZero();
+		assertThat(day.getProbability()).isEqualTo(-1);
+		assertThat(day.getPrecipitation()).isEqualTo(Precipitation.UNKNOWN.toString());
+	}
+
+	@Test
+	public void toStringShouldContainAllValues() {
+		DailyPrecipitation day = new DailyPrecipitation(1_600_000_000L, 0.25, Precipitation.SLEET.toString());
+
+		assertThat(day.toString()).isEqualTo("time: 1600000000, probability: 0.250000, precipitation: sleet");
+	}
+}
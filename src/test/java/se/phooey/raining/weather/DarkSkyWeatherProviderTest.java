@@ -3,6 +3,7 @@ package se.phooey.raining.weather;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -11,26 +12,41 @@ import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.slf4j.LoggerFactory;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 
+import jdk.jfr.consumer.RecordedEvent;
+import se.phooey.raining.utils.EventRecording;
 import se.phooey.raining.weather.exception.RainReportException;
+import se.phooey.raining.weather.keys.ApiKeyPool;
+import se.phooey.raining.weather.keys.PooledApiKey;
+import se.phooey.raining.weather.quota.LeasedCallBudget;
+import se.phooey.raining.weather.quota.LocalQuotaAuthority;
 import tk.plogitech.darksky.api.jackson.DarkSkyJacksonClient;
 import tk.plogitech.darksky.forecast.APIKey;
 import tk.plogitech.darksky.forecast.ForecastException;
+import tk.plogitech.darksky.forecast.ForecastRequest;
 import tk.plogitech.darksky.forecast.model.Currently;
 import tk.plogitech.darksky.forecast.model.Daily;
 import tk.plogitech.darksky.forecast.model.DailyDataPoint;
 import tk.plogitech.darksky.forecast.model.Forecast;
+import tk.plogitech.darksky.forecast.model.Minutely;
+import tk.plogitech.darksky.forecast.model.MinutelyDataPoint;
 
 /**
  * Unit tests for @see se.phooey.raining.weather.DarkSkyWeatherProvider
@@ -340,4 +356,220 @@ public class DarkSkyWeatherProviderTest {
 		subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
 		verify(mockClient, times(1)).forecast(any());
 	}
+
+	@Test
+	public void whenAnApiKeyIsUsedUp_thenTheNextKeyOfThePoolShouldBeUsed() throws Exception {
+		LocalQuotaAuthority authority = new LocalQuotaAuthority(1);
+		ApiKeyPool pool = new ApiKeyPool(Arrays.asList(
+				new PooledApiKey("key-0", new APIKey("firstkey"), new LeasedCallBudget(authority, "key-0", 1, mockClock),
+						mockClock),
+				new PooledApiKey("key-1", new APIKey("secondkey"), new LeasedCallBudget(authority, "key-1", 1, mockClock),
+						mockClock)),
+				3, Duration.ofMinutes(5));
+		subject = new DarkSkyWeatherProvider(pool, DUMMY_URL, mockClient);
+		when(mockForecast.getCurrently()).thenReturn(null);
+		when(mockClient.forecast(any())).thenReturn(mockForecast);
+
+		subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+		subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+		try {
+			subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+			fail("Expected a RainReportException once all API keys are used up");
+		} catch (RainReportException e) {
+			ArgumentCaptor<ForecastRequest> requests = ArgumentCaptor.forClass(ForecastRequest.class);
+			verify(mockClient, times(2)).forecast(requests.capture());
+			assertThat(requests.getAllValues().get(0).url().toString()).contains("firstkey");
+			assertThat(requests.getAllValues().get(1).url().toString()).contains("secondkey");
+		}
+	}
+
+	@Test
+	public void whenDarkSkyJacksonClientThrowsForecastException_thenTheFailureShouldBeRecordedForTheApiKey()
+			throws Exception {
+		ApiKeyPool pool = new ApiKeyPool(Arrays.asList(new PooledApiKey("key-0", new APIKey(DUMMY_API_KEY),
+				new LeasedCallBudget(new LocalQuotaAuthority(10), "key-0", 10, mockClock), mockClock)), 3,
+				Duration.ofMinutes(5));
+		subject = new DarkSkyWeatherProvider(pool, DUMMY_URL, mockClient);
+		when(mockClient.forecast(any())).thenThrow(ForecastException.class);
+
+		for (int i = 0; i < 3; i++) {
+			try {
+				subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+				fail("Expected a RainReportException");
+			} catch (RainReportException e) {
+				// expected
+			}
+		}
+
+		assertThat(pool.getKeys().get(0).getFailures()).isEqualTo(3);
+		assertThat(pool.getKeys().get(0).isAvailable()).isFalse();
+	}
+
+	@Test
+	public void whenTheForecastIsNull_thenTheFailureShouldBeRecordedForTheApiKey() throws Exception {
+		ApiKeyPool pool = new ApiKeyPool(Arrays.asList(new PooledApiKey("key-0", new APIKey(DUMMY_API_KEY),
+				new LeasedCallBudget(new LocalQuotaAuthority(10), "key-0", 10, mockClock), mockClock)), 3,
+				Duration.ofMinutes(5));
+		subject = new DarkSkyWeatherProvider(pool, DUMMY_URL, mockClient);
+		when(mockClient.forecast(any())).thenReturn(null);
+
+		try {
+			subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+			fail("Expected a RainReportException");
+		} catch (RainReportException e) {
+			// expected
+		}
+
+		assertThat(pool.getKeys().get(0).getSuccesses()).isZero();
+		assertThat(pool.getKeys().get(0).getFailures()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenOnlyTheCurrentConditionIsRequested_thenTheDailyBlockShouldBeExcluded() throws Exception {
+		RainReport expected = new RainReport(DUMMY_LATITUDE, DUMMY_LONGITUDE, Precipitation.RAIN.toString(), 0.8, 1.2,
+				-1, Precipitation.UNKNOWN.toString());
+		mockForecast(expected);
+
+		RainReport result = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				EnumSet.of(ReportSection.CURRENTLY));
+
+		assertThat(result).isEqualTo(expected);
+		ArgumentCaptor<ForecastRequest> request = ArgumentCaptor.forClass(ForecastRequest.class);
+		verify(mockClient).forecast(request.capture());
+		assertThat(request.getValue().url().toString())
+				.contains("exclude=hourly,flags,alerts,minutely,daily");
+	}
+
+	@Test
+	public void whenOnlyTodaysForecastIsRequested_thenTheCurrentlyBlockShouldBeExcluded() throws Exception {
+		RainReport expected = new RainReport(DUMMY_LATITUDE, DUMMY_LONGITUDE, Precipitation.UNKNOWN.toString(), -1,
+				-1, 0.7, Precipitation.SNOW.toString());
+		mockForecast(expected);
+
+		RainReport result = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				EnumSet.of(ReportSection.DAILY));
+
+		assertThat(result).isEqualTo(expected);
+		ArgumentCaptor<ForecastRequest> request = ArgumentCaptor.forClass(ForecastRequest.class);
+		verify(mockClient).forecast(request.capture());
+		assertThat(request.getValue().url().toString())
+				.contains("exclude=hourly,flags,alerts,minutely,currently");
+	}
+
+	@Test
+	public void whenTheDailyBlockHasSeveralDays_thenTheReportShouldContainTheForecastForEachDay() throws Exception {
+		DailyDataPoint tomorrow = mock(DailyDataPoint.class);
+		DailyDataPoint dayAfterTomorrow = mock(DailyDataPoint.class);
+		when(mockForecast.getDaily()).thenReturn(mockDaily);
+		when(mockDaily.getData()).thenReturn(Arrays.asList(mockDailyDataPoint, tomorrow, dayAfterTomorrow));
+		when(mockClient.forecast(any())).thenReturn(mockForecast);
+		when(mockDailyDataPoint.getTime()).thenReturn(Instant.ofEpochSecond(1_600_000_000L));
+		when(mockDailyDataPoint.getPrecipProbability()).thenReturn(0.0);
+		when(tomorrow.getTime()).thenReturn(Instant.ofEpochSecond(1_600_086_400L));
+		when(tomorrow.getPrecipProbability()).thenReturn(0.6);
+		when(tomorrow.getPrecipType()).thenReturn("snow");
+		when(dayAfterTomorrow.getPrecipProbability()).thenReturn(null);
+
+		RainReport result = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+
+		assertThat(result.getDailyForecast()).extracting(DailyPrecipitation::getTime).containsExactly(1_600_000_000L,
+				1_600_086_400L, 0L);
+		assertThat(result.getDailyForecast()).extracting(DailyPrecipitation::getProbability).containsExactly(0.0,
+				0.6, -1.0);
+		assertThat(result.getDailyForecast()).extracting(DailyPrecipitation::getPrecipitation).containsExactly(
+				Precipitation.NONE.toString(), Precipitation.SNOW.toString(), Precipitation.UNKNOWN.toString());
+		assertThat(result.getChanceOfPrecipitationToday()).isEqualTo(0.0);
+		assertThat(result.getTypeOfPrecipitationToday()).isEqualTo(Precipitation.NONE.toString());
+	}
+
+	@Test
+	public void whenTheNowcastIsRequested_thenTheMinutelyBlockShouldBeKeptAndTheNowcastPopulated() throws Exception {
+		Minutely minutely = mock(Minutely.class);
+		MinutelyDataPoint now = mock(MinutelyDataPoint.class);
+		MinutelyDataPoint inAMinute = mock(MinutelyDataPoint.class);
+		when(mockForecast.getMinutely()).thenReturn(minutely);
+		when(minutely.getData()).thenReturn(Arrays.asList(now, inAMinute));
+		when(now.getTime()).thenReturn(Instant.ofEpochSecond(1_600_000_000L));
+		when(now.getPrecipIntensity()).thenReturn(null);
+		when(now.getPrecipProbability()).thenReturn(null);
+		when(inAMinute.getPrecipIntensity()).thenReturn(0.9);
+		when(inAMinute.getPrecipProbability()).thenReturn(0.7);
+		when(mockClient.forecast(any())).thenReturn(mockForecast);
+
+		RainReport result = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				EnumSet.of(ReportSection.MINUTELY));
+
+		assertThat(result.getNowcast().getStartTime()).isEqualTo(1_600_000_000L);
+		assertThat(result.getNowcast().getIntervalSeconds()).isEqualTo(60);
+		assertThat(result.getNowcast().getIntensity()).containsExactly(0f, 0.9f);
+		assertThat(result.getNowcast().getProbability()).containsExactly(0f, 0.7f);
+		assertThat(result.getNowcast().getRainStartsAt()).isEqualTo(1_600_000_060L);
+		ArgumentCaptor<ForecastRequest> request = ArgumentCaptor.forClass(ForecastRequest.class);
+		verify(mockClient).forecast(request.capture());
+		assertThat(request.getValue().url().toString()).contains("exclude=hourly,flags,alerts,currently,daily");
+	}
+
+	@Test
+	public void whenTheMinutelyBlockIsMissingOrEmpty_thenThereShouldBeNoNowcast() throws Exception {
+		Minutely minutely = mock(Minutely.class);
+		when(mockClient.forecast(any())).thenReturn(mockForecast);
+
+		RainReport withoutBlock = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				EnumSet.of(ReportSection.MINUTELY));
+		when(mockForecast.getMinutely()).thenReturn(minutely);
+		RainReport withoutData = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				EnumSet.of(ReportSection.MINUTELY));
+
+		assertThat(withoutBlock.getNowcast()).isNull();
+		assertThat(withoutData.getNowcast()).isNull();
+	}
+
+	@Test
+	public void whenAReportForADateIsRequested_thenATimeMachineRequestForNoonUtcShouldBeMade() throws Exception {
+		RainReport expected = new RainReport(DUMMY_LATITUDE, DUMMY_LONGITUDE, Precipitation.RAIN.toString(), 0.8, 1.2,
+				0.7, Precipitation.SNOW.toString());
+		mockForecast(expected);
+
+		RainReport result = subject.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, LocalDate.of(2020, 9, 13));
+
+		assertThat(result).isEqualTo(expected);
+		ArgumentCaptor<ForecastRequest> request = ArgumentCaptor.forClass(ForecastRequest.class);
+		verify(mockClient).forecast(request.capture());
+		assertThat(request.getValue().url().toString()).contains(",1599998400?")
+				.contains("exclude=hourly,flags,alerts,minutely&");
+	}
+
+	@Test
+	public void eachCallToTheDarkSkyApiShouldBeRecordedAsAnEvent() throws Exception {
+		mockForecast(new RainReport(DUMMY_LATITUDE, DUMMY_LONGITUDE, "rain", 0.5, 1.0, 0.5, "rain"));
+		List<RecordedEvent> events;
+
+		try (EventRecording recording = new EventRecording("se.phooey.raining.UpstreamCall")) {
+			subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+			when(mockClient.forecast(any())).thenReturn(null);
+			try {
+				subject.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, LocalDate.of(2020, 1, 1));
+				fail("A RainReportException should have been thrown");
+			} catch (RainReportException e) {
+				// The forecast is empty
+			}
+			when(mockClient.forecast(any())).thenThrow(ForecastException.class);
+			try {
+				subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+				fail("A RainReportException should have been thrown");
+			} catch (RainReportException e) {
+				// The call failed
+			}
+			events = recording.events("se.phooey.raining.UpstreamCall");
+		}
+
+		assertThat(events).extracting(event -> event.getString("status")).containsExactly("ok", "empty", "failed");
+		assertThat(events).extracting(event -> event.getBoolean("timeMachine")).containsExactly(false, true, false);
+		assertThat(events).extracting(event -> event.getInt("dataPoints")).containsExactly(1, 0, 0);
+		assertThat(events).allSatisfy(event -> {
+			assertThat(event.getDouble("latitude")).isEqualTo(DUMMY_LATITUDE);
+			assertThat(event.getDouble("longitude")).isEqualTo(DUMMY_LONGITUDE);
+			assertThat(event.getString("apiKey")).isEqualTo("key-0");
+		});
+	}
 }
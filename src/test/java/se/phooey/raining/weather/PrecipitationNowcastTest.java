@@ -0,0 +1,103 @@
+package se.phooey.raining.weather;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.PrecipitationNowcast
+ */
+public class PrecipitationNowcastTest {
+
+	private static final long START = 1_600_000_000L;
+
+	private static PrecipitationNowcast nowcast(float[] intensity) {
+		float[] probability = new float[intensity.length];
+		Arrays.fill(probability, 0.8f);
+		return new PrecipitationNowcast(START, 60, intensity, probability);
+	}
+
+	@Test
+	public void whenItStartsRainingLater_itShouldTellWhenItStartsAndStops() {
+		PrecipitationNowcast subject = nowcast(new float[] { 0, 0.05f, 0.2f, 1.5f, 0.8f, 0, 0 });
+
+		assertThat(subject.isRainingNow()).isFalse();
+		assertThat(subject.getRainStartsAt()).isEqualTo(START + 2 * 60);
+		assertThat(subject.getRainStopsAt()).isEqualTo(START + 5 * 60);
+		assertThat(subject.getPeakIntensity()).isEqualTo(1.5f);
+		assertThat(subject.getPeakAt()).isEqualTo(START + 3 * 60);
+	}
+
+	@Test
+	public void whenItIsRainingNow_itShouldOnlyTellWhenItStops() {
+		PrecipitationNowcast subject = nowcast(new float[] { 2, 1, 0 });
+
+		assertThat(subject.isRainingNow()).isTrue();
+		assertThat(subject.getRainStartsAt()).isNull();
+		assertThat(subject.getRainStopsAt()).isEqualTo(START + 2 * 60);
+	}
+
+	@Test
+	public void whenItKeepsRaining_itShouldNotTellWhenItStops() {
+		PrecipitationNowcast subject = nowcast(new float[] { 0, 1, 1 });
+
+		assertThat(subject.getRainStartsAt()).isEqualTo(START + 60);
+		assertThat(subject.getRainStopsAt()).isNull();
+	}
+
+	@Test
+	public void whenItDoesNotRain_thereShouldBeNoStartStopOrPeak() {
+		PrecipitationNowcast subject = nowcast(new float[] { 0, 0, 0 });
+
+		assertThat(subject.isRainingNow()).isFalse();
+		assertThat(subject.getRainStartsAt()).isNull();
+		assertThat(subject.getRainStopsAt()).isNull();
+		assertThat(subject.getPeakIntensity()).isZero();
+		assertThat(subject.getPeakAt()).isNull();
+		assertThat(nowcast(new float[0]).isRainingNow()).isFalse();
+	}
+
+	@Test
+	public void whenTheProbabilityIsLow_itShouldNotCountAsRaining() {
+		PrecipitationNowcast subject = new PrecipitationNowcast(START, 60, new float[] { 1, 1 },
+				new float[] { 0.2f, 0.6f });
+
+		assertThat(subject.isRainingNow()).isFalse();
+		assertThat(subject.getRainStartsAt()).isEqualTo(START + 60);
+		assertThat(subject.getPeakAt()).isEqualTo(START);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenTheSamplesHaveDifferentLengths_itShouldThrowAnIllegalArgumentException() {
+		new PrecipitationNowcast(START, 60, new float[2], new float[3]);
+	}
+
+	@Test
+	public void theSamplesShouldNotBeModifiableFromOutside() {
+		PrecipitationNowcast subject = nowcast(new float[] { 1, 1 });
+
+		subject.getIntensity()[0] = 0;
+		subject.getProbability()[0] = 0;
+
+		assertThat(subject.isRainingNow()).isTrue();
+		assertThat(subject.getStartTime()).isEqualTo(START);
+		assertThat(subject.getIntervalSeconds()).isEqualTo(60);
+	}
+
+	@Test
+	public void itShouldSurviveARoundTripThroughJson() throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		PrecipitationNowcast subject = nowcast(new float[] { 0, 0.5f, 0 });
+
+		PrecipitationNowcast result = mapper.readValue(mapper.writeValueAsString(subject),
+				PrecipitationNowcast.class);
+
+		assertThat(result.getIntensity()).containsExactly(subject.getIntensity());
+		assertThat(result.getProbability()).containsExactly(subject.getProbability());
+		assertThat(result.getRainStartsAt()).isEqualTo(subject.getRainStartsAt());
+	}
+}
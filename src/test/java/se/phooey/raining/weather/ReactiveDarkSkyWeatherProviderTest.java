@@ -0,0 +1,145 @@
+package se.phooey.raining.weather;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import jdk.jfr.consumer.RecordedEvent;
+import se.phooey.raining.utils.EventRecording;
+import se.phooey.raining.utils.TestUtils;
+import se.phooey.raining.weather.exception.RainReportException;
+import se.phooey.raining.weather.keys.ApiKeyPool;
+import se.phooey.raining.weather.keys.PooledApiKey;
+import se.phooey.raining.weather.quota.LeasedCallBudget;
+import se.phooey.raining.weather.quota.LocalQuotaAuthority;
+import tk.plogitech.darksky.api.jackson.DarkSkyJacksonClient;
+import tk.plogitech.darksky.forecast.APIKey;
+
+/**
+ * Tests using WireMock to make sure that ReactiveDarkSkyWeatherProvider
+ * requests and parses the Dark Sky API responses like the
+ * DarkSkyWeatherProvider
+ * 
+ * @see se.phooey.raining.weather.ReactiveDarkSkyWeatherProvider
+ */
+public class ReactiveDarkSkyWeatherProviderTest {
+
+	private static final double LATITUDE = 50.76;
+	private static final double LONGITUDE = 15.05;
+	private static final String DUMMY_API_KEY = "dummyapikey";
+	private static final String DUMMY_URL = "http://localhost:8089/";
+	private static final String REQUEST_PATH = "/dummyapikey/50.76,15.05";
+
+	@Rule
+	public WireMockRule wireMockRule = new WireMockRule(8089);
+
+	private PooledApiKey apiKey;
+	private ReactiveDarkSkyWeatherProvider subject;
+
+	private ReactiveDarkSkyWeatherProvider withDailyBudget(int dailyBudget) {
+		Clock clock = Clock.systemUTC();
+		apiKey = new PooledApiKey("key-0", new APIKey(DUMMY_API_KEY),
+				new LeasedCallBudget(new LocalQuotaAuthority(dailyBudget), "darksky", 1, clock), clock);
+		ApiKeyPool apiKeys = new ApiKeyPool(Collections.singletonList(apiKey),
+				Integer.MAX_VALUE, Duration.ZERO);
+		return new ReactiveDarkSkyWeatherProvider(
+				new DarkSkyWeatherProvider(apiKeys, DUMMY_URL, mock(DarkSkyJacksonClient.class)), WebClient.create());
+	}
+
+	private Throwable failure() {
+		return catchThrowable(
+				() -> subject.isItRainingAtCoordinates(LATITUDE, LONGITUDE, ReportSection.DEFAULT).block());
+	}
+
+	@Before
+	public void setUp() {
+		subject = withDailyBudget(100);
+	}
+
+	@Test
+	public void givenForecastWithRain_shouldEmitMatchingRainReport() throws Exception {
+		TestUtils.stubResponseForDarkSkyApiRequest(REQUEST_PATH, wireMockRule, "classpath:darksky_response_with_rain.json");
+
+		RainReport result = subject.isItRainingAtCoordinates(LATITUDE, LONGITUDE, ReportSection.DEFAULT).block();
+
+		assertThat(result.getLatitude()).isEqualTo(LATITUDE);
+		assertThat(result.getLongitude()).isEqualTo(LONGITUDE);
+		assertThat(result.getCurrentPrecipitation()).isEqualTo(Precipitation.RAIN.toString());
+		assertThat(result.getCurrentProbability()).isEqualTo(0.01);
+		assertThat(result.getCurrentIntensity()).isEqualTo(0.0508);
+		assertThat(result.getChanceOfPrecipitationToday()).isEqualTo(1);
+		assertThat(result.getTypeOfPrecipitationToday()).isEqualTo(Precipitation.RAIN.toString());
+	}
+
+	@Test
+	public void whenTheMonoIsNotSubscribed_itShouldNotCallTheApi() {
+		subject.isItRainingAtCoordinates(LATITUDE, LONGITUDE, ReportSection.DEFAULT);
+
+		wireMockRule.verify(0, getRequestedFor(urlPathMatching(".*")));
+	}
+
+	@Test
+	public void whenTheApiRespondsWithAnError_itShouldFailWithARainReportException() {
+		wireMockRule.stubFor(get(urlPathMatching(REQUEST_PATH)).willReturn(aResponse().withStatus(500)));
+
+		assertThat(failure().getCause()).isInstanceOf(RainReportException.class);
+	}
+
+	@Test
+	public void whenTheApiRespondsWithoutAForecast_itShouldFailWithARainReportException() {
+		wireMockRule.stubFor(get(urlPathMatching(REQUEST_PATH))
+				.willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json")));
+
+		assertThat(failure().getCause()).isInstanceOf(RainReportException.class);
+		assertThat(apiKey.getSuccesses()).isZero();
+		assertThat(apiKey.getFailures()).isEqualTo(1);
+	}
+
+	@Test
+	public void eachCallToTheDarkSkyApiShouldBeRecordedAsAnEventWithItsStatus() throws Exception {
+		List<RecordedEvent> events;
+
+		try (EventRecording recording = new EventRecording("se.phooey.raining.UpstreamCall")) {
+			TestUtils.stubResponseForDarkSkyApiRequest(REQUEST_PATH, wireMockRule,
+					"classpath:darksky_response_with_rain.json");
+			subject.isItRainingAtCoordinates(LATITUDE, LONGITUDE, ReportSection.DEFAULT).block();
+			wireMockRule.stubFor(get(urlPathMatching(REQUEST_PATH))
+					.willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json")));
+			failure();
+			wireMockRule.stubFor(get(urlPathMatching(REQUEST_PATH)).willReturn(aResponse().withStatus(503)));
+			failure();
+			wireMockRule.stubFor(get(urlPathMatching(REQUEST_PATH)).willReturn(
+					aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody("{")));
+			failure();
+			events = recording.events("se.phooey.raining.UpstreamCall");
+		}
+
+		assertThat(events).extracting(event -> event.getString("status")).containsExactly("ok", "empty", "503", "failed");
+		assertThat(apiKey.getSuccesses()).isEqualTo(1);
+		assertThat(apiKey.getFailures()).isEqualTo(3);
+	}
+
+	@Test
+	public void whenNoApiKeyIsAvailable_itShouldFailWithoutCallingTheApi() {
+		subject = withDailyBudget(0);
+
+		assertThat(failure().getCause()).isInstanceOf(RainReportException.class);
+		wireMockRule.verify(0, getRequestedFor(urlPathMatching(".*")));
+	}
+}
@@ -0,0 +1,50 @@
+package se.phooey.raining.weather;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.ReportSection
+ */
+public class ReportSectionTest {
+
+	@Test
+	public void theSectionsShouldBeTheOnesContainingTheFields() {
+		assertThat(ReportSection.forFields(Arrays.asList("latitude", "currentPrecipitation")))
+				.containsExactly(ReportSection.CURRENTLY);
+		assertThat(ReportSection.forFields(Arrays.asList("typeOfPrecipitationToday", "currentIntensity")))
+				.containsExactly(ReportSection.CURRENTLY, ReportSection.DAILY);
+		assertThat(ReportSection.forFields(Arrays.asList("latitude", "longitude"))).isEmpty();
+		assertThat(ReportSection.forFields(Arrays.asList("nowcast"))).containsExactly(ReportSection.MINUTELY);
+		assertThat(ReportSection.DAILY.getFields()).contains("chanceOfPrecipitationToday", "dailyForecast");
+		assertThat(ReportSection.DEFAULT).doesNotContain(ReportSection.MINUTELY);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenAFieldIsUnknown_itShouldThrowAnIllegalArgumentException() {
+		ReportSection.forFields(Collections.singletonList("temperature"));
+	}
+
+	@Test
+	public void eachSectionShouldHaveABitOfItsOwn() {
+		assertThat(ReportSection.mask(EnumSet.noneOf(ReportSection.class))).isZero();
+		assertThat(ReportSection.mask(EnumSet.of(ReportSection.CURRENTLY))).isEqualTo(1);
+		assertThat(ReportSection.mask(EnumSet.of(ReportSection.DAILY))).isEqualTo(2);
+		assertThat(ReportSection.mask(EnumSet.of(ReportSection.MINUTELY))).isEqualTo(4);
+		assertThat(ReportSection.mask(ReportSection.DEFAULT)).isEqualTo(3);
+	}
+
+	@Test
+	public void theSupersetsShouldStartWithTheSectionsThemselves() {
+		assertThat(ReportSection.supersetsOf(0)).containsExactly(0, 1, 2, 3, 4, 5, 6, 7);
+		assertThat(ReportSection.supersetsOf(1)).containsExactly(1, 3, 5, 7);
+		assertThat(ReportSection.supersetsOf(2)).containsExactly(2, 3, 6, 7);
+		assertThat(ReportSection.supersetsOf(3)).containsExactly(3, 7);
+		assertThat(ReportSection.supersetsOf(4)).containsExactly(4, 5, 6, 7);
+	}
+}
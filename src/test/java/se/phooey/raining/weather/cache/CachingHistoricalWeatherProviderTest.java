@@ -0,0 +1,146 @@
+package se.phooey.raining.weather.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+
+import se.phooey.raining.weather.HistoricalWeatherProvider;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * Unit tests for @see
+ * se.phooey.raining.weather.cache.CachingHistoricalWeatherProvider
+ */
+public class CachingHistoricalWeatherProviderTest {
+
+	private static final double DUMMY_LATITUDE = 13.37;
+	private static final double DUMMY_LONGITUDE = 90.01;
+	private static final LocalDate DATE = LocalDate.of(2020, 9, 13);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock
+	private HistoricalWeatherProvider mockHistoricalWeatherProvider;
+	@Mock
+	private PermanentReportStore mockStore;
+
+	private ExecutorService executor;
+
+	private static RainReport dummyRainReport(double probability) {
+		RainReport report = new RainReport();
+		report.setLatitude(DUMMY_LATITUDE);
+		report.setLongitude(DUMMY_LONGITUDE);
+		report.setCurrentProbability(probability);
+		return report;
+	}
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void whenAReportHasBeenFetched_itShouldBeServedFromTheStoreForever() throws Exception {
+		given(mockHistoricalWeatherProvider.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, DATE))
+				.willReturn(dummyRainReport(0.5));
+		CachingHistoricalWeatherProvider subject = new CachingHistoricalWeatherProvider(
+				mockHistoricalWeatherProvider, new PermanentReportStore(folder.getRoot().toPath()));
+
+		RainReport first = subject.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, DATE);
+		RainReport second = subject.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, DATE);
+		RainReport afterRestart = new CachingHistoricalWeatherProvider(mockHistoricalWeatherProvider,
+				new PermanentReportStore(folder.getRoot().toPath())).rainReportForDate(DUMMY_LATITUDE,
+						DUMMY_LONGITUDE, DATE);
+
+		assertThat(first.getCurrentProbability()).isEqualTo(0.5);
+		assertThat(second).isEqualTo(first);
+		assertThat(afterRestart).isEqualTo(first);
+		verify(mockHistoricalWeatherProvider, times(1)).rainReportForDate(anyDouble(), anyDouble(), any());
+		assertThat(subject.getMisses()).isEqualTo(1);
+		assertThat(subject.getHits()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenTheReportCannotBeStored_itShouldStillBeReturned() throws Exception {
+		given(mockHistoricalWeatherProvider.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, DATE))
+				.willReturn(dummyRainReport(0.5));
+		willThrow(new IOException("disk full")).given(mockStore).put(anyLong(), any(), any());
+		CachingHistoricalWeatherProvider subject = new CachingHistoricalWeatherProvider(
+				mockHistoricalWeatherProvider, mockStore);
+
+		assertThat(subject.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, DATE).getCurrentProbability())
+				.isEqualTo(0.5);
+	}
+
+	@Test(expected = RainReportException.class)
+	public void whenTheHistoricalWeatherProviderThrowsARainReportException_itShouldBeRethrownAndNothingStored()
+			throws Exception {
+		given(mockHistoricalWeatherProvider.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, DATE))
+				.willThrow(new RainReportException("failure"));
+		CachingHistoricalWeatherProvider subject = new CachingHistoricalWeatherProvider(
+				mockHistoricalWeatherProvider, mockStore);
+
+		try {
+			subject.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, DATE);
+		} finally {
+			verify(mockStore, never()).put(anyLong(), any(), any());
+		}
+	}
+
+	@Test
+	public void whenConcurrentRequestsMissTheStore_theyShouldShareOneRequest() throws Exception {
+		CountDownLatch fetching = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(mockHistoricalWeatherProvider.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, DATE))
+				.willAnswer(i -> {
+					fetching.countDown();
+					release.await();
+					return dummyRainReport(0.5);
+				});
+		CachingHistoricalWeatherProvider subject = new CachingHistoricalWeatherProvider(
+				mockHistoricalWeatherProvider, mockStore);
+
+		Future<RainReport> first = executor
+				.submit(() -> subject.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, DATE));
+		assertThat(fetching.await(5, TimeUnit.SECONDS)).isTrue();
+		Future<RainReport> second = executor
+				.submit(() -> subject.rainReportForDate(DUMMY_LATITUDE, DUMMY_LONGITUDE, DATE));
+		Thread.sleep(50);
+		release.countDown();
+
+		assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+		verify(mockHistoricalWeatherProvider, times(1)).rainReportForDate(anyDouble(), anyDouble(), any());
+		verify(mockStore, times(1)).put(eq(CellKey.of(DUMMY_LATITUDE, DUMMY_LONGITUDE)), eq(DATE), any());
+	}
+}
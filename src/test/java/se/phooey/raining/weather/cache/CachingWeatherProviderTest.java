@@ -0,0 +1,446 @@
+package se.phooey.raining.weather.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.Mock;
+
+import jdk.jfr.consumer.RecordedEvent;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import se.phooey.raining.utils.EventRecording;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReactiveWeatherProvider;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.cache.CachingWeatherProvider
+ */
+public class CachingWeatherProviderTest {
+
+	private static final double DUMMY_LATITUDE = 13.37;
+	private static final double DUMMY_LONGITUDE = 90.01;
+	private static final Duration TTL = Duration.ofMinutes(10);
+	private static final Duration NEAR_TTL = Duration.ofMinutes(1);
+
+	// Calls the default methods of the interface, like a WeatherProvider that
+	// always returns the full report
+	@Mock(answer = Answers.CALLS_REAL_METHODS)
+	private WeatherProvider mockWeatherProvider;
+	@Mock
+	private Clock mockClock;
+
+	private InMemorySharedReportStore sharedStore;
+	private ExecutorService executor;
+
+	private CachingWeatherProvider node(String nodeId) {
+		return new CachingWeatherProvider(mockWeatherProvider, new NearCache(100, mockClock), sharedStore, TTL,
+				NEAR_TTL, mockClock, nodeId);
+	}
+
+	private static RainReport dummyRainReport(double probability) {
+		RainReport report = new RainReport();
+		report.setLatitude(DUMMY_LATITUDE);
+		report.setLongitude(DUMMY_LONGITUDE);
+		report.setCurrentProbability(probability);
+		return report;
+	}
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.millis()).thenReturn(0L);
+		sharedStore = new InMemorySharedReportStore(100, mockClock);
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void whenRequestingTheSameLocationTwice_theWeatherProviderShouldOnlyBeCalledOnce() throws Exception {
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willReturn(dummyRainReport(0.5));
+		CachingWeatherProvider subject = node("a");
+
+		RainReport first = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+		RainReport second = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+
+		assertThat(second).isSameAs(first);
+		verify(mockWeatherProvider, times(1)).isItRainingAtCoordinates(anyDouble(), anyDouble());
+		assertThat(subject.getMisses()).isEqualTo(1);
+		assertThat(subject.getNearHits()).isEqualTo(1);
+		assertThat(subject.getSharedHits()).isZero();
+	}
+
+	@Test
+	public void whenAReportHasBeenFetchedByOneNode_otherNodesShouldReuseItFromTheSharedTier() throws Exception {
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willReturn(dummyRainReport(0.5));
+		CachingWeatherProvider nodeA = node("a");
+		CachingWeatherProvider nodeB = node("b");
+
+		RainReport fetched = nodeA.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+
+		assertThat(nodeB.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE)).isSameAs(fetched);
+		assertThat(nodeB.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE)).isSameAs(fetched);
+		verify(mockWeatherProvider, times(1)).isItRainingAtCoordinates(anyDouble(), anyDouble());
+		assertThat(nodeB.getSharedHits()).isEqualTo(1);
+		assertThat(nodeB.getNearHits()).isEqualTo(1);
+		assertThat(nodeB.getMisses()).isZero();
+	}
+
+	@Test
+	public void whenAnotherNodeFetchesANewReport_theStaleCopyInTheNearCacheShouldBeInvalidated() throws Exception {
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willReturn(dummyRainReport(0.1), dummyRainReport(0.9));
+		CachingWeatherProvider nodeA = node("a");
+		CachingWeatherProvider nodeB = node("b");
+		nodeA.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+		assertThat(nodeB.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE).getCurrentProbability())
+				.isEqualTo(0.1);
+
+		// The shared report expires, node A fetches a new one
+		when(mockClock.millis()).thenReturn(TTL.toMillis());
+		assertThat(nodeA.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE).getCurrentProbability())
+				.isEqualTo(0.9);
+		when(mockClock.millis()).thenReturn(0L);
+
+		// Node B would still have served its near-cached copy, had it not been
+		// invalidated
+		assertThat(nodeB.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE).getCurrentProbability())
+				.isEqualTo(0.9);
+		verify(mockWeatherProvider, times(2)).isItRainingAtCoordinates(anyDouble(), anyDouble());
+	}
+
+	@Test
+	public void whenTheWeatherProviderThrowsARainReportException_itShouldBeRethrownAndNothingCached()
+			throws Exception {
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willThrow(new RainReportException("failure")).willReturn(dummyRainReport(0.5));
+		CachingWeatherProvider subject = node("a");
+
+		try {
+			subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+			fail("Expected a RainReportException to be thrown");
+		} catch (RainReportException e) {
+			assertThat(e.getMessage()).isEqualTo("failure");
+		}
+
+		assertThat(subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE).getCurrentProbability())
+				.isEqualTo(0.5);
+	}
+
+	@Test
+	public void whenConcurrentRequestsMissTheCache_theyShouldShareOneRequestToTheWeatherProvider()
+			throws Exception {
+		CountDownLatch fetching = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE)).willAnswer(i -> {
+			fetching.countDown();
+			release.await();
+			return dummyRainReport(0.5);
+		});
+		CachingWeatherProvider subject = node("a");
+
+		Future<RainReport> first = executor.submit(() -> subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE));
+		assertThat(fetching.await(5, TimeUnit.SECONDS)).isTrue();
+		Future<RainReport> second = executor.submit(() -> subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE));
+		Thread.sleep(50);
+		release.countDown();
+
+		assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+		verify(mockWeatherProvider, times(1)).isItRainingAtCoordinates(anyDouble(), anyDouble());
+	}
+
+	@Test
+	public void whenASharedRequestFails_allWaitingRequestsShouldGetARainReportException() throws Exception {
+		CountDownLatch fetching = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE)).willAnswer(i -> {
+			fetching.countDown();
+			release.await();
+			throw new RainReportException("failure");
+		});
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LONGITUDE, DUMMY_LATITUDE)).willAnswer(i -> {
+			fetching.countDown();
+			release.await();
+			throw new IllegalStateException("unexpected");
+		});
+		CachingWeatherProvider subject = node("a");
+
+		for (double[] coordinates : new double[][] { { DUMMY_LATITUDE, DUMMY_LONGITUDE },
+				{ DUMMY_LONGITUDE, DUMMY_LATITUDE } }) {
+			executor.submit(() -> subject.isItRainingAtCoordinates(coordinates[0], coordinates[1]));
+		}
+		assertThat(fetching.await(5, TimeUnit.SECONDS)).isTrue();
+		Thread.sleep(50);
+		Future<RainReport> checked = executor
+				.submit(() -> subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE));
+		Future<RainReport> unchecked = executor
+				.submit(() -> subject.isItRainingAtCoordinates(DUMMY_LONGITUDE, DUMMY_LATITUDE));
+		Thread.sleep(50);
+		release.countDown();
+
+		assertThat(getCause(checked)).isInstanceOf(RainReportException.class).hasMessage("failure");
+		assertThat(getCause(unchecked)).isInstanceOf(RainReportException.class)
+				.hasCauseInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void whenInterruptedWhileWaitingForASharedRequest_itShouldThrowARainReportException() throws Exception {
+		CountDownLatch fetching = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE)).willAnswer(i -> {
+			fetching.countDown();
+			release.await();
+			return dummyRainReport(0.5);
+		});
+		CachingWeatherProvider subject = node("a");
+		executor.submit(() -> subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE));
+		assertThat(fetching.await(5, TimeUnit.SECONDS)).isTrue();
+
+		Thread.currentThread().interrupt();
+		try {
+			subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+			fail("Expected a RainReportException to be thrown");
+		} catch (RainReportException e) {
+			assertThat(Thread.interrupted()).isTrue();
+		} finally {
+			release.countDown();
+		}
+	}
+
+	private static Throwable getCause(Future<RainReport> future) throws InterruptedException {
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Expected an exception to be thrown");
+			return null;
+		} catch (ExecutionException | TimeoutException e) {
+			return e.getCause();
+		}
+	}
+
+	@Test
+	public void projectionsShouldBeCachedSeparatelyAndServedFromFullReports() throws Exception {
+		Set<ReportSection> currently = EnumSet.of(ReportSection.CURRENTLY);
+		willReturn(dummyRainReport(0.1)).given(mockWeatherProvider).isItRainingAtCoordinates(DUMMY_LATITUDE,
+				DUMMY_LONGITUDE, currently);
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willReturn(dummyRainReport(0.5));
+		CachingWeatherProvider nodeA = node("a");
+		CachingWeatherProvider nodeB = node("b");
+
+		RainReport projection = nodeA.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, currently);
+		assertThat(nodeA.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, currently)).isSameAs(projection);
+		// The projection does not contain all sections of a full report
+		RainReport full = nodeA.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+		assertThat(full.getCurrentProbability()).isEqualTo(0.5);
+
+		// A full report contains the projection, on node B only the full report is
+		// in the shared tier so far
+		nodeB.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+		assertThat(nodeB.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, EnumSet.of(ReportSection.DAILY)))
+				.isSameAs(full);
+		verify(mockWeatherProvider, times(1)).isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, currently);
+		verify(mockWeatherProvider, times(1)).isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				ReportSection.DEFAULT);
+	}
+
+	@Test
+	public void whenOnlyAFullReportIsInTheSharedTier_aProjectionShouldBeServedFromIt() throws Exception {
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willReturn(dummyRainReport(0.5));
+		RainReport full = node("a").isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+
+		CachingWeatherProvider nodeB = node("b");
+
+		assertThat(nodeB.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				EnumSet.of(ReportSection.CURRENTLY))).isSameAs(full);
+		assertThat(nodeB.getSharedHits()).isEqualTo(1);
+		assertThat(nodeB.getMisses()).isZero();
+	}
+
+	@Test
+	public void whenAReportContainingTheSectionsIsInEitherTier_itShouldBeReportedAsCachedWithoutCountingAHit()
+			throws Exception {
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				EnumSet.of(ReportSection.CURRENTLY))).willReturn(dummyRainReport(0.5));
+		CachingWeatherProvider nodeA = node("a");
+		CachingWeatherProvider nodeB = node("b");
+
+		assertThat(nodeA.isCached(DUMMY_LATITUDE, DUMMY_LONGITUDE, EnumSet.of(ReportSection.CURRENTLY))).isFalse();
+		nodeA.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, EnumSet.of(ReportSection.CURRENTLY));
+
+		assertThat(nodeA.isCached(DUMMY_LATITUDE, DUMMY_LONGITUDE, EnumSet.of(ReportSection.CURRENTLY))).isTrue();
+		assertThat(nodeB.isCached(DUMMY_LATITUDE, DUMMY_LONGITUDE, EnumSet.of(ReportSection.CURRENTLY))).isTrue();
+		assertThat(nodeB.isCached(DUMMY_LATITUDE, DUMMY_LONGITUDE, ReportSection.DEFAULT)).isFalse();
+		assertThat(nodeA.getNearHits()).isZero();
+		assertThat(nodeB.getSharedHits()).isZero();
+	}
+
+	@Test
+	public void eachLookupShouldBeRecordedAsAnEventWithTheTierTheReportWasFoundIn() throws Exception {
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willReturn(dummyRainReport(0.5));
+		CachingWeatherProvider first = node("first");
+		CachingWeatherProvider second = node("second");
+		List<RecordedEvent> events;
+
+		try (EventRecording recording = new EventRecording("se.phooey.raining.CacheLookup")) {
+			first.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+			first.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+			second.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+			events = recording.events("se.phooey.raining.CacheLookup").stream()
+					.filter(event -> event.getDouble("latitude") == DUMMY_LATITUDE).collect(Collectors.toList());
+		}
+
+		assertThat(events).extracting(event -> event.getString("tier")).containsExactly("none", "near", "shared");
+		assertThat(events).extracting(event -> event.getDouble("longitude")).containsOnly(DUMMY_LONGITUDE);
+	}
+
+	@Test
+	public void whenTheTtlPolicyIsScaled_theReportShouldBeCachedForTheScaledTtlInBothTiers() throws Exception {
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willReturn(dummyRainReport(0.5));
+		CachingWeatherProvider subject = new CachingWeatherProvider(mockWeatherProvider, new NearCache(100, mockClock),
+				sharedStore, TtlPolicy.fixed(NEAR_TTL).scaledBy(() -> 0.5), NEAR_TTL, mockClock, "a");
+
+		subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+		when(mockClock.millis()).thenReturn(NEAR_TTL.toMillis() / 2 - 1);
+		subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+		when(mockClock.millis()).thenReturn(NEAR_TTL.toMillis() / 2);
+		subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+
+		assertThat(subject.getNearHits()).isEqualTo(1);
+		assertThat(subject.getSharedHits()).isZero();
+		assertThat(subject.getMisses()).isEqualTo(2);
+	}
+
+	@Test
+	public void whenRequestingTheSameLocationTwiceReactively_theUpstreamShouldOnlyBeCalledOnce() {
+		AtomicInteger calls = new AtomicInteger();
+		ReactiveWeatherProvider upstream = (latitude, longitude, sections) -> Mono.fromCallable(() -> {
+			calls.incrementAndGet();
+			return dummyRainReport(0.5);
+		});
+		CachingWeatherProvider subject = node("a");
+
+		RainReport first = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, ReportSection.DEFAULT,
+				upstream).block();
+		RainReport second = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, ReportSection.DEFAULT,
+				upstream).block();
+
+		assertThat(second).isSameAs(first);
+		assertThat(calls).hasValue(1);
+		assertThat(subject.getMisses()).isEqualTo(1);
+		assertThat(subject.getNearHits()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenAReportIsCachedByTheBlockingPath_theReactivePathShouldServeIt() throws Exception {
+		given(mockWeatherProvider.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willReturn(dummyRainReport(0.5));
+		CachingWeatherProvider subject = node("a");
+
+		RainReport fetched = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE);
+		RainReport cached = subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, ReportSection.DEFAULT,
+				(latitude, longitude, sections) -> Mono.error(new RainReportException())).block();
+
+		assertThat(cached).isSameAs(fetched);
+	}
+
+	@Test
+	public void whenConcurrentReactiveRequestsMissTheCache_theyShouldShareOneUpstreamCall() {
+		AtomicInteger calls = new AtomicInteger();
+		AtomicReference<MonoSink<RainReport>> pending = new AtomicReference<>();
+		ReactiveWeatherProvider upstream = (latitude, longitude, sections) -> Mono.create(sink -> {
+			calls.incrementAndGet();
+			pending.set(sink);
+		});
+		CachingWeatherProvider subject = node("a");
+		AtomicReference<RainReport> first = new AtomicReference<>();
+		AtomicReference<RainReport> second = new AtomicReference<>();
+
+		subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, ReportSection.DEFAULT, upstream)
+				.subscribe(first::set);
+		subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, ReportSection.DEFAULT, upstream)
+				.subscribe(second::set);
+		RainReport report = dummyRainReport(0.5);
+		pending.get().success(report);
+
+		assertThat(calls).hasValue(1);
+		assertThat(first).hasValue(report);
+		assertThat(second).hasValue(report);
+		assertThat(subject.getMisses()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenTheReactiveUpstreamFails_theErrorShouldBePassedOnAndTheNextRequestRetried() {
+		AtomicInteger calls = new AtomicInteger();
+		ReactiveWeatherProvider upstream = (latitude, longitude, sections) -> Mono.defer(() -> {
+			calls.incrementAndGet();
+			return Mono.error(new RainReportException("Upstream failed"));
+		});
+		CachingWeatherProvider subject = node("a");
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, ReportSection.DEFAULT, upstream)
+						.block();
+				fail("Expected a RainReportException");
+			} catch (RuntimeException e) {
+				assertThat(e.getCause()).isInstanceOf(RainReportException.class).hasMessage("Upstream failed");
+			}
+		}
+		assertThat(calls).hasValue(2);
+	}
+
+	@Test
+	public void whenTheSharedReactiveRequestIsCancelled_theWaitingRequestsShouldFail() {
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		ReactiveWeatherProvider upstream = (latitude, longitude, sections) -> Mono.never();
+		CachingWeatherProvider subject = node("a");
+
+		Disposable fetching = subject
+				.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, ReportSection.DEFAULT, upstream)
+				.subscribe();
+		subject.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE, ReportSection.DEFAULT, upstream)
+				.subscribe(report -> fail("Expected no report"), failure::set);
+		fetching.dispose();
+
+		assertThat(failure.get()).isInstanceOf(RainReportException.class);
+	}
+}
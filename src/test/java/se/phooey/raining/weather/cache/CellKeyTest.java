@@ -0,0 +1,46 @@
+package se.phooey.raining.weather.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.cache.CellKey
+ */
+public class CellKeyTest {
+
+	private static void assertRoundTrip(double latitude, double longitude) {
+		long key = CellKey.of(latitude, longitude);
+		assertThat(CellKey.latitude(key)).isEqualTo(latitude);
+		assertThat(CellKey.longitude(key)).isEqualTo(longitude);
+		assertThat(key & 0x7F).isZero();
+	}
+
+	@Test
+	public void coordinatesShouldBeRecoverableFromTheKey() {
+		assertRoundTrip(13.37, 90.01);
+		assertRoundTrip(-33.868, 151.209);
+		assertRoundTrip(90, 180);
+		assertRoundTrip(-90, -180);
+		assertRoundTrip(0, 0);
+		assertRoundTrip(48.366512, -10.894446);
+	}
+
+	@Test
+	public void differentCoordinatesShouldGiveDifferentKeys() {
+		assertThat(CellKey.of(13.37, 90.01)).isNotEqualTo(CellKey.of(90.01, 13.37));
+		assertThat(CellKey.of(13.37, 90.01)).isNotEqualTo(CellKey.of(13.37, 90.011));
+		assertThat(CellKey.of(13.37, 90.01)).isEqualTo(CellKey.of(13.37, 90.01));
+	}
+
+	@Test
+	public void theVariantShouldBeStoredWithoutChangingTheCoordinates() {
+		long key = CellKey.withVariant(CellKey.of(13.37, 90.01), 5);
+
+		assertThat(CellKey.variant(key)).isEqualTo(5);
+		assertThat(CellKey.latitude(key)).isEqualTo(13.37);
+		assertThat(CellKey.longitude(key)).isEqualTo(90.01);
+		assertThat(CellKey.withVariant(key, 0)).isEqualTo(CellKey.of(13.37, 90.01));
+		assertThat(CellKey.variant(CellKey.of(13.37, 90.01))).isZero();
+	}
+}
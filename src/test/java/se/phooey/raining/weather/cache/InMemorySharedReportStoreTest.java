@@ -0,0 +1,101 @@
+package se.phooey.raining.weather.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.cache.InMemorySharedReportStore
+ */
+public class InMemorySharedReportStoreTest {
+
+	@Mock
+	private Clock mockClock;
+
+	private InMemorySharedReportStore subject;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.millis()).thenReturn(1000L);
+		subject = new InMemorySharedReportStore(100, mockClock);
+	}
+
+	@Test
+	public void whenAReportIsStored_itShouldBeReturnedUntilItExpires() {
+		RainReport report = new RainReport();
+		subject.put(1, report, 2000);
+
+		assertThat(subject.get(1).getReport()).isSameAs(report);
+		assertThat(subject.get(2)).isNull();
+
+		when(mockClock.millis()).thenReturn(2000L);
+		assertThat(subject.get(1)).isNull();
+	}
+
+	@Test
+	public void whenAnInvalidationIsPublished_allSubscribersShouldBeNotified() {
+		List<String> received = new ArrayList<>();
+		subject.subscribe((key, origin) -> received.add("first " + key + " " + origin));
+		subject.subscribe((key, origin) -> received.add("second " + key + " " + origin));
+
+		subject.publishInvalidation(42, "node-a");
+
+		assertThat(received).containsExactly("first 42 node-a", "second 42 node-a");
+	}
+
+	@Test
+	public void whenCreatedWithACache_reportsShouldBeHeldInThatCache() {
+		NearCache reports = new NearCache(10, mockClock);
+		subject = new InMemorySharedReportStore(reports);
+		RainReport report = new RainReport();
+
+		subject.put(1, report, 2000);
+
+		assertThat(reports.get(1).getReport()).isSameAs(report);
+		assertThat(subject.get(1).getReport()).isSameAs(report);
+	}
+
+	@Test
+	public void whenTheStoreIsFull_itShouldEvictReports() {
+		subject = new InMemorySharedReportStore(2, mockClock);
+
+		subject.put(1, new RainReport(), 2000);
+		subject.put(2, new RainReport(), 3000);
+		subject.put(3, new RainReport(), 4000);
+
+		assertThat(subject.get(1)).isNull();
+		assertThat(subject.get(3)).isNotNull();
+	}
+
+	@Test
+	public void whenStarted_theExpiredReportsShouldBeRemovedPeriodically() throws Exception {
+		NearCache reports = new NearCache(10, mockClock);
+		subject = new InMemorySharedReportStore(reports, Duration.ofMillis(10));
+		subject.put(1, new RainReport(), 2000);
+		subject.put(2, new RainReport(), 5000);
+		when(mockClock.millis()).thenReturn(3000L);
+
+		subject.start();
+		subject.start();
+		for (int i = 0; i < 200 && reports.size() > 1; i++) {
+			Thread.sleep(10);
+		}
+		subject.close();
+		subject.close();
+
+		assertThat(reports.size()).isEqualTo(1);
+		assertThat(subject.removeExpired()).isZero();
+	}
+}
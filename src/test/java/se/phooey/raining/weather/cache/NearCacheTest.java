@@ -0,0 +1,144 @@
+package se.phooey.raining.weather.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import jdk.jfr.consumer.RecordedEvent;
+import se.phooey.raining.utils.EventRecording;
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.cache.NearCache
+ */
+public class NearCacheTest {
+
+	@Mock
+	private Clock mockClock;
+
+	private NearCache subject;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.millis()).thenReturn(1000L);
+		subject = new NearCache(2, mockClock);
+	}
+
+	@Test
+	public void whenAReportIsCached_itShouldBeReturnedUntilItExpires() {
+		RainReport report = new RainReport();
+		subject.put(1, report, 2000);
+
+		assertThat(subject.get(1).getReport()).isSameAs(report);
+		assertThat(subject.get(1).getExpiresAt()).isEqualTo(2000);
+		assertThat(subject.get(2)).isNull();
+
+		when(mockClock.millis()).thenReturn(2000L);
+		assertThat(subject.get(1)).isNull();
+		assertThat(subject.size()).isZero();
+	}
+
+	@Test
+	public void whenAReportIsInvalidated_itShouldNoLongerBeReturned() {
+		subject.put(1, new RainReport(), 2000);
+
+		subject.invalidate(1);
+
+		assertThat(subject.get(1)).isNull();
+	}
+
+	@Test
+	public void whenTheCacheIsFull_theReportExpiringFirstShouldBeEvicted() {
+		subject.put(1, new RainReport(), 5000);
+		subject.put(2, new RainReport(), 3000);
+		subject.put(1, new RainReport(), 6000);
+		assertThat(subject.size()).isEqualTo(2);
+
+		subject.put(3, new RainReport(), 4000);
+
+		assertThat(subject.size()).isEqualTo(2);
+		assertThat(subject.get(1)).isNotNull();
+		assertThat(subject.get(2)).isNull();
+		assertThat(subject.get(3)).isNotNull();
+	}
+
+	@Test
+	public void whenAReportIsEvictedBeforeItExpires_itShouldBeRecordedAsAnEvent() throws Exception {
+		List<RecordedEvent> events;
+
+		try (EventRecording recording = new EventRecording("se.phooey.raining.CacheEviction")) {
+			subject.put(1, new RainReport(), 900);
+			subject.put(2, new RainReport(), 5000);
+			subject.put(3, new RainReport(), 4000);
+			subject.put(4, new RainReport(), 6000);
+			events = recording.events("se.phooey.raining.CacheEviction").stream()
+					.filter(event -> "near".equals(event.getString("cache"))).collect(Collectors.toList());
+		}
+
+		assertThat(events).hasSize(1);
+		assertThat(events.get(0).getLong("key")).isEqualTo(3);
+		assertThat(events.get(0).getInstant("expiresAt").toEpochMilli()).isEqualTo(4000);
+	}
+
+	@Test
+	public void whenExpiredReportsAreRemoved_onlyTheLiveReportsShouldRemain() {
+		subject = new NearCache(100, mockClock);
+		for (long key = 0; key < 50; key++) {
+			subject.put(key, new RainReport(), key % 2 == 0 ? 2000 : 3000);
+		}
+
+		when(mockClock.millis()).thenReturn(2000L);
+
+		assertThat(subject.removeExpired()).isEqualTo(25);
+		assertThat(subject.size()).isEqualTo(25);
+		for (long key = 0; key < 50; key++) {
+			assertThat(subject.get(key) == null).isEqualTo(key % 2 == 0);
+		}
+	}
+
+	@Test
+	public void whenTheCacheIsFull_theEvictionCandidatesShouldBeSampledFromTheWholeCache() {
+		// Reports expiring later, in the buckets of the map iterated first, would
+		// always be the candidates if the sample were taken from the start of the map
+		subject = new NearCache(1000, mockClock);
+		for (long key = 1000; key < 2000; key++) {
+			subject.put(key, new RainReport(), 5000);
+		}
+		for (long key = 0; key < 200; key++) {
+			subject.put(key, new RainReport(), 6000);
+		}
+
+		long kept = LongStream.range(0, 200).filter(key -> subject.get(key) != null).count();
+		assertThat(kept).isGreaterThan(190);
+		assertThat(subject.size()).isEqualTo(1000);
+	}
+
+	@Test
+	public void whenInvalidatingAndReplacingReports_allRemainingReportsShouldStayReachable() {
+		subject = new NearCache(10, mockClock);
+		for (long key = 0; key < 10; key++) {
+			subject.put(key, new RainReport(), 5000);
+		}
+		subject.invalidate(3);
+		subject.invalidate(9);
+		subject.invalidate(42);
+		subject.put(5, new RainReport(), 6000);
+		subject.put(10, new RainReport(), 5000);
+
+		assertThat(subject.size()).isEqualTo(9);
+		assertThat(subject.get(5).getExpiresAt()).isEqualTo(6000);
+		when(mockClock.millis()).thenReturn(5000L);
+		assertThat(subject.removeExpired()).isEqualTo(8);
+		assertThat(subject.get(5)).isNotNull();
+	}
+}
@@ -0,0 +1,216 @@
+package se.phooey.raining.weather.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import jdk.jfr.consumer.RecordedEvent;
+import se.phooey.raining.utils.EventRecording;
+import se.phooey.raining.weather.DailyPrecipitation;
+import se.phooey.raining.weather.PrecipitationNowcast;
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.cache.OffHeapReportCache
+ */
+public class OffHeapReportCacheTest {
+
+	@Mock
+	private Clock mockClock;
+
+	private NearCache overflow;
+	private OffHeapReportCache subject;
+
+	private static RainReport report(String currentPrecipitation) {
+		RainReport report = new RainReport(57.707, 11.967, currentPrecipitation, 0.75, 1.25, 0.9, "snow");
+		report.setDailyForecast(Arrays.asList(new DailyPrecipitation(1_600_000_000L, 0.5, "sleet"),
+				new DailyPrecipitation(1_600_086_400L, 0.0, "none")));
+		return report;
+	}
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.millis()).thenReturn(1000L);
+		overflow = new NearCache(100, mockClock);
+		subject = new OffHeapReportCache(1000, overflow, mockClock);
+	}
+
+	@Test
+	public void whenAReportIsCached_itShouldBeReturnedIntactUntilItExpires() {
+		RainReport report = report("rain");
+		subject.put(1, report, 2000);
+
+		CachedRainReport cached = subject.get(1);
+		assertThat(cached.getReport()).isEqualTo(report).isNotSameAs(report);
+		assertThat(cached.getReport().getDailyForecast()).usingRecursiveFieldByFieldElementComparator()
+				.isEqualTo(report.getDailyForecast());
+		assertThat(cached.getReport().getNowcast()).isNull();
+		assertThat(cached.getExpiresAt()).isEqualTo(2000);
+		assertThat(subject.get(2)).isNull();
+		assertThat(overflow.size()).isZero();
+
+		when(mockClock.millis()).thenReturn(2000L);
+		assertThat(subject.get(1)).isNull();
+		assertThat(subject.size()).isZero();
+	}
+
+	@Test
+	public void whenAReportWithoutDaysIsCached_itShouldHaveAnEmptyDailyForecast() {
+		subject.put(1, new RainReport(), 2000);
+
+		assertThat(subject.get(1).getReport()).isEqualTo(new RainReport());
+		assertThat(subject.get(1).getReport().getDailyForecast()).isEmpty();
+	}
+
+	@Test
+	public void whenAReportIsReplaced_theNewReportShouldBeReturned() {
+		subject.put(1, report("rain"), 2000);
+		subject.put(1, report("none"), 3000);
+
+		assertThat(subject.get(1).getReport().getCurrentPrecipitation()).isEqualTo("none");
+		assertThat(subject.get(1).getExpiresAt()).isEqualTo(3000);
+		assertThat(subject.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenAReportIsInvalidated_itShouldNoLongerBeReturned() {
+		subject.put(1, report("rain"), 2000);
+		subject.put(2, new RainReport(), 2000);
+		subject.put(2, report("hail"), 2000);
+
+		subject.invalidate(1);
+		subject.invalidate(2);
+		subject.invalidate(3);
+
+		assertThat(subject.get(1)).isNull();
+		assertThat(subject.get(2)).isNull();
+		assertThat(subject.size()).isZero();
+	}
+
+	@Test
+	public void whenAReportDoesNotFitIntoASlot_itShouldBeCachedInTheOverflowCache() {
+		RainReport withNowcast = report("rain");
+		withNowcast.setNowcast(new PrecipitationNowcast(0, 60, new float[1], new float[1]));
+		RainReport unknownPrecipitation = report("hail");
+		RainReport unknownDailyPrecipitation = report("rain");
+		unknownDailyPrecipitation.setDailyForecast(Arrays.asList(new DailyPrecipitation(0, 0.5, "hail")));
+		RainReport withoutDailyForecast = report("rain");
+		withoutDailyForecast.setDailyForecast(null);
+		RainReport unknownTodayPrecipitation = report("rain");
+		unknownTodayPrecipitation.setTypeOfPrecipitationToday(null);
+		RainReport tooManyDays = report("rain");
+		List<DailyPrecipitation> days = new ArrayList<>();
+		for (int i = 0; i <= OffHeapReportCache.MAXIMUM_DAYS; i++) {
+			days.add(new DailyPrecipitation(i, 0.5, "rain"));
+		}
+		tooManyDays.setDailyForecast(days);
+		List<RainReport> reports = Arrays.asList(withNowcast, unknownPrecipitation, unknownDailyPrecipitation,
+				withoutDailyForecast, unknownTodayPrecipitation, tooManyDays);
+
+		for (int i = 0; i < reports.size(); i++) {
+			subject.put(i, reports.get(i), 2000);
+		}
+
+		for (int i = 0; i < reports.size(); i++) {
+			assertThat(subject.get(i).getReport()).isSameAs(reports.get(i));
+		}
+		assertThat(overflow.size()).isEqualTo(reports.size());
+		assertThat(subject.size()).isEqualTo(reports.size());
+	}
+
+	@Test
+	public void whenAReportReplacesAnotherInTheOtherStore_theOtherShouldBeDropped() {
+		RainReport withNowcast = report("rain");
+		withNowcast.setNowcast(new PrecipitationNowcast(0, 60, new float[1], new float[1]));
+		subject.put(1, report("rain"), 2000);
+
+		subject.put(1, withNowcast, 2000);
+		assertThat(subject.get(1).getReport()).isSameAs(withNowcast);
+		assertThat(subject.size()).isEqualTo(1);
+
+		subject.put(1, report("none"), 2000);
+		assertThat(subject.get(1).getReport().getCurrentPrecipitation()).isEqualTo("none");
+		assertThat(overflow.size()).isZero();
+		assertThat(subject.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenTheCacheIsFull_theReportsExpiringFirstShouldBeEvicted() {
+		subject = new OffHeapReportCache(0, overflow, mockClock);
+		int capacity = subject.getCapacity();
+		assertThat(capacity).isEqualTo(OffHeapReportCache.SEGMENTS * OffHeapReportCache.PROBES);
+
+		for (int key = 0; key < 4 * capacity; key++) {
+			subject.put(key, new RainReport(), 2000 + key);
+		}
+
+		assertThat(subject.size()).isEqualTo(capacity);
+		assertThat(subject.get(0)).isNull();
+		assertThat(subject.get(4 * capacity - 1)).isNotNull();
+
+		when(mockClock.millis()).thenReturn(10_000L);
+		subject.put(-1, new RainReport(), 20_000);
+		assertThat(subject.get(-1)).isNotNull();
+		assertThat(subject.size()).isEqualTo(capacity);
+	}
+
+	@Test
+	public void whenTheCapacityIsNotAPowerOfTwo_itShouldBeRoundedUp() {
+		assertThat(new OffHeapReportCache(1000, overflow, mockClock).getCapacity()).isEqualTo(1024);
+		assertThat(new OffHeapReportCache(1024, overflow, mockClock).getCapacity()).isEqualTo(1024);
+	}
+
+	@Test
+	public void whenASegmentWouldNeedMoreThan2GB_itShouldThrowAnIllegalArgumentException() {
+		assertThatThrownBy(() -> new OffHeapReportCache(Integer.MAX_VALUE, overflow, mockClock))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("too large");
+	}
+
+	@Test
+	public void whenAReportIsEvictedBeforeItExpires_itShouldBeRecordedAsAnEvent() throws Exception {
+		subject = new OffHeapReportCache(0, overflow, mockClock);
+		int capacity = subject.getCapacity();
+		List<RecordedEvent> events;
+
+		try (EventRecording recording = new EventRecording("se.phooey.raining.CacheEviction")) {
+			for (int key = 0; key < 2 * capacity; key++) {
+				subject.put(key, new RainReport(), key < 100 ? 500 : 2000 + key);
+			}
+			events = recording.events("se.phooey.raining.CacheEviction").stream()
+					.filter(event -> "off-heap".equals(event.getString("cache"))).collect(Collectors.toList());
+		}
+
+		assertThat(events).isNotEmpty().allSatisfy(event -> {
+			assertThat(event.getLong("key")).isGreaterThanOrEqualTo(100);
+			assertThat(event.getInstant("expiresAt").toEpochMilli()).isGreaterThan(1000);
+		});
+	}
+
+	@Test
+	public void whenExpiredReportsAreRemoved_bothTheSlotsAndTheOverflowCacheShouldBeSwept() {
+		RainReport withNowcast = report("rain");
+		withNowcast.setNowcast(new PrecipitationNowcast(0, 60, new float[1], new float[1]));
+		subject.put(1, report("rain"), 2000);
+		subject.put(2, report("rain"), 3000);
+		subject.put(3, withNowcast, 2000);
+
+		when(mockClock.millis()).thenReturn(2000L);
+
+		assertThat(subject.removeExpired()).isEqualTo(2);
+		assertThat(subject.size()).isEqualTo(1);
+		assertThat(overflow.size()).isZero();
+		assertThat(subject.get(2)).isNotNull();
+	}
+}
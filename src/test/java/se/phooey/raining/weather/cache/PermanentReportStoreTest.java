@@ -0,0 +1,99 @@
+package se.phooey.raining.weather.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.phooey.raining.weather.DailyPrecipitation;
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.cache.PermanentReportStore
+ */
+public class PermanentReportStoreTest {
+
+	private static final long CELL = CellKey.of(13.37, 90.01);
+	private static final LocalDate DATE = LocalDate.of(2020, 9, 13);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+	private PermanentReportStore subject;
+
+	private static RainReport dummyRainReport() {
+		RainReport report = new RainReport(13.37, 90.01, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+				Precipitation.RAIN.toString());
+		report.setDailyForecast(
+				Arrays.asList(new DailyPrecipitation(1_599_955_200L, 0.9, Precipitation.RAIN.toString())));
+		return report;
+	}
+
+	@Before
+	public void setUp() {
+		directory = folder.getRoot().toPath();
+		subject = new PermanentReportStore(directory);
+	}
+
+	@Test
+	public void aStoredReportShouldBeReadBack() throws Exception {
+		subject.put(CELL, DATE, dummyRainReport());
+
+		RainReport result = subject.get(CELL, DATE);
+
+		assertThat(result).isEqualTo(dummyRainReport());
+		assertThat(result.getDailyForecast()).extracting(DailyPrecipitation::getTime).containsExactly(1_599_955_200L);
+		assertThat(directory.resolve("2020").resolve(String.format("%016x-2020-09-13.json", CELL))).exists();
+		assertThat(subject.get(CELL, DATE.plusDays(1))).isNull();
+		assertThat(subject.get(CellKey.of(13.38, 90.01), DATE)).isNull();
+	}
+
+	@Test
+	public void storingAReportAgainShouldReplaceIt() throws Exception {
+		RainReport report = dummyRainReport();
+		subject.put(CELL, DATE, report);
+		report.setCurrentProbability(0.1);
+		subject.put(CELL, DATE, report);
+
+		assertThat(subject.get(CELL, DATE).getCurrentProbability()).isEqualTo(0.1);
+		try (Stream<Path> files = Files.list(directory.resolve("2020"))) {
+			assertThat(files).hasSize(1);
+		}
+	}
+
+	@Test
+	public void whenAStoredReportIsUnreadable_itShouldBeTreatedAsMissing() throws Exception {
+		Files.createDirectories(directory.resolve("2020"));
+		Files.write(directory.resolve("2020").resolve(String.format("%016x-2020-09-13.json", CELL)),
+				"{\"latitude\":".getBytes());
+
+		assertThat(subject.get(CELL, DATE)).isNull();
+	}
+
+	@Test
+	public void unknownFieldsShouldBeIgnored() throws Exception {
+		Files.createDirectories(directory.resolve("2020"));
+		Files.write(directory.resolve("2020").resolve(String.format("%016x-2020-09-13.json", CELL)),
+				"{\"latitude\":13.37,\"temperature\":21.5}".getBytes());
+
+		assertThat(subject.get(CELL, DATE).getLatitude()).isEqualTo(13.37);
+	}
+
+	@Test(expected = IOException.class)
+	public void whenTheReportCannotBeWritten_itShouldThrowAnIOException() throws Exception {
+		Files.write(directory.resolve("2020"), new byte[0]);
+
+		subject.put(CELL, DATE, dummyRainReport());
+	}
+}
@@ -0,0 +1,176 @@
+package se.phooey.raining.weather.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.history.RainHistoryStore;
+import se.phooey.raining.weather.history.RainSample;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.cache.VolatilityTtlPolicy
+ */
+public class VolatilityTtlPolicyTest {
+
+	private static final double DUMMY_LATITUDE = 13.37;
+	private static final double DUMMY_LONGITUDE = 90.01;
+	private static final long NOW = 1_600_000_000L;
+	private static final Duration MINIMUM_TTL = Duration.ofMinutes(2);
+	private static final Duration MAXIMUM_TTL = Duration.ofMinutes(30);
+	private static final Duration NOWCAST_TTL = Duration.ofMinutes(1);
+	private static final Set<ReportSection> DEFAULT = ReportSection.DEFAULT;
+
+	@Mock
+	private RainHistoryStore mockHistory;
+	@Mock
+	private Clock mockClock;
+
+	private VolatilityTtlPolicy subject;
+
+	private static RainReport report(double probability, double intensity, double chanceToday) {
+		return new RainReport(DUMMY_LATITUDE, DUMMY_LONGITUDE, Precipitation.RAIN.toString(), probability, intensity,
+				chanceToday, Precipitation.RAIN.toString());
+	}
+
+	private static RainSample sample(long time, Precipitation precipitation, double probability) {
+		return new RainSample(time, precipitation.toString(), probability, 0.0, 0.0, Precipitation.NONE.toString());
+	}
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(NOW));
+		subject = new VolatilityTtlPolicy(MINIMUM_TTL, MAXIMUM_TTL, NOWCAST_TTL, Duration.ofHours(1), mockHistory,
+				mockClock);
+	}
+
+	@Test
+	public void whenItIsCertainlyDry_theReportShouldBeCachedForTheMaximumTtl() {
+		assertThat(subject.ttlMillis(report(0.0, 0.0, 0.0), DEFAULT)).isEqualTo(MAXIMUM_TTL.toMillis());
+	}
+
+	@Test
+	public void whenTheProbabilityIsHoveringMidRange_theReportShouldBeCachedForTheMinimumTtl() {
+		assertThat(subject.ttlMillis(report(0.5, 0.0, 0.0), DEFAULT)).isEqualTo(MINIMUM_TTL.toMillis());
+	}
+
+	@Test
+	public void theTtlShouldShrinkWithTheUncertaintyOfTheProbability() {
+		assertThat(subject.volatility(report(0.25, 0.0, 0.0), DEFAULT)).isEqualTo(0.75);
+		assertThat(subject.ttlMillis(report(0.25, 0.0, 0.0), DEFAULT))
+				.isEqualTo(MAXIMUM_TTL.toMillis() - (MAXIMUM_TTL.toMillis() - MINIMUM_TTL.toMillis()) * 3 / 4);
+	}
+
+	@Test
+	public void theChanceOfPrecipitationTodayShouldCountHalf() {
+		assertThat(subject.volatility(report(0.0, 0.0, 0.5), DEFAULT)).isEqualTo(0.5);
+	}
+
+	@Test
+	public void whenItIsRainingHeavily_theReportShouldBeConsideredHalfVolatile() {
+		assertThat(subject.volatility(report(1.0, 8.0, 1.0), DEFAULT)).isEqualTo(0.5);
+		assertThat(subject.volatility(report(1.0, 2.0, 1.0), DEFAULT)).isEqualTo(0.25);
+		assertThat(subject.volatility(report(1.0, -1.0, 1.0), DEFAULT)).isZero();
+	}
+
+	@Test
+	public void whenThePrecipitationTypeChangedRecently_theReportShouldBeCachedForTheMinimumTtl() {
+		given(mockHistory.query(CellKey.of(DUMMY_LATITUDE, DUMMY_LONGITUDE), NOW - 3600, NOW))
+				.willReturn(Arrays.asList(sample(NOW - 1800, Precipitation.NONE, 1.0),
+						sample(NOW - 1200, Precipitation.RAIN, 1.0), sample(NOW - 600, Precipitation.SNOW, 1.0)));
+
+		assertThat(subject.ttlMillis(report(1.0, 0.0, 1.0), DEFAULT)).isEqualTo(MINIMUM_TTL.toMillis());
+	}
+
+	@Test
+	public void whenThePrecipitationTypeChangedOnce_theReportShouldBeConsideredHalfVolatile() {
+		given(mockHistory.query(CellKey.of(DUMMY_LATITUDE, DUMMY_LONGITUDE), NOW - 3600, NOW))
+				.willReturn(Arrays.asList(sample(NOW - 1800, Precipitation.NONE, 1.0),
+						sample(NOW - 600, Precipitation.RAIN, 1.0)));
+
+		assertThat(subject.volatility(report(1.0, 0.0, 1.0), DEFAULT)).isEqualTo(0.5);
+	}
+
+	@Test
+	public void theSwingOfTheProbabilityInTheHistoryShouldCount() {
+		given(mockHistory.query(anyLong(), anyLong(), anyLong()))
+				.willReturn(Arrays.asList(sample(NOW - 1800, Precipitation.RAIN, 0.7)));
+
+		assertThat(subject.volatility(report(1.0, 0.0, 1.0), DEFAULT)).isCloseTo(0.3, within(1e-9));
+	}
+
+	@Test
+	public void whenTheMaximumTtlIsBelowTheMinimum_theMinimumTtlShouldBeUsed() {
+		subject = new VolatilityTtlPolicy(MAXIMUM_TTL, MINIMUM_TTL, NOWCAST_TTL, Duration.ofHours(1), mockHistory,
+				mockClock);
+
+		assertThat(subject.ttlMillis(report(0.0, 0.0, 0.0), DEFAULT)).isEqualTo(MAXIMUM_TTL.toMillis());
+	}
+
+	@Test
+	public void whenTheReportHasOnlyTheDailySection_itsMissingProbabilityShouldNotCountAsASwing() {
+		RainReport daily = new RainReport();
+		daily.setChanceOfPrecipitationToday(0.0);
+		given(mockHistory.query(anyLong(), anyLong(), anyLong()))
+				.willReturn(Arrays.asList(sample(NOW - 1800, Precipitation.NONE, 0.0)));
+
+		assertThat(subject.volatility(daily, EnumSet.of(ReportSection.DAILY))).isZero();
+		assertThat(subject.ttlMillis(daily, EnumSet.of(ReportSection.DAILY))).isEqualTo(MAXIMUM_TTL.toMillis());
+	}
+
+	@Test
+	public void whenTheReportHasOnlyTheCurrentlySection_theChanceOfPrecipitationTodayShouldNotCount() {
+		assertThat(subject.volatility(report(0.0, 0.0, 0.5), EnumSet.of(ReportSection.CURRENTLY))).isZero();
+	}
+
+	@Test
+	public void samplesWithoutAProbability_shouldNotCountAsASwingOrAChangeOfTheType() {
+		given(mockHistory.query(anyLong(), anyLong(), anyLong())).willReturn(
+				Arrays.asList(sample(NOW - 1800, Precipitation.RAIN, 1.0), sample(NOW - 1200, Precipitation.UNKNOWN, -1),
+						sample(NOW - 600, Precipitation.RAIN, 1.0)));
+
+		assertThat(subject.volatility(report(1.0, 0.0, 1.0), DEFAULT)).isZero();
+	}
+
+	@Test
+	public void whenTheReportHasTheMinutelySection_itShouldBeCachedForAtMostTheNowcastTtl() {
+		RainReport minutely = new RainReport();
+
+		assertThat(subject.ttlMillis(minutely, EnumSet.of(ReportSection.MINUTELY))).isEqualTo(NOWCAST_TTL.toMillis());
+		assertThat(subject.ttlMillis(report(0.5, 0.0, 0.0), EnumSet.allOf(ReportSection.class)))
+				.isEqualTo(NOWCAST_TTL.toMillis());
+	}
+
+	@Test
+	public void whenScaled_theTtlShouldStayWithinTheBoundsAndTheNowcastTtlShouldNotBeScaled() {
+		TtlPolicy scaled = subject.scaledBy(() -> 4.0);
+
+		assertThat(scaled.ttlMillis(report(0.0, 0.0, 0.0), DEFAULT)).isEqualTo(MAXIMUM_TTL.toMillis());
+		assertThat(scaled.ttlMillis(report(0.5, 0.0, 0.0), DEFAULT)).isEqualTo(MINIMUM_TTL.toMillis() * 4);
+		assertThat(scaled.ttlMillis(new RainReport(), EnumSet.of(ReportSection.MINUTELY)))
+				.isEqualTo(NOWCAST_TTL.toMillis());
+		assertThat(scaled.scaledBy(() -> 0.25).ttlMillis(report(0.5, 0.0, 0.0), DEFAULT))
+				.isEqualTo(MINIMUM_TTL.toMillis());
+		assertThat(subject.scaledBy(() -> 0.1).ttlMillis(report(0.0, 0.0, 0.0), DEFAULT))
+				.isEqualTo(MAXIMUM_TTL.toMillis() / 10);
+		assertThat(subject.scaledBy(() -> 0.1).ttlMillis(report(0.5, 0.0, 0.0), DEFAULT))
+				.isEqualTo(MINIMUM_TTL.toMillis());
+	}
+}
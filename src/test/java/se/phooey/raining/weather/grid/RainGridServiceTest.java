@@ -0,0 +1,273 @@
+package se.phooey.raining.weather.grid;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.grid.RainGridService
+ */
+public class RainGridServiceTest {
+
+	private static final Set<ReportSection> CURRENTLY = EnumSet.of(ReportSection.CURRENTLY);
+	private static final CoordinatePrecision PRECISION = CoordinatePrecision.ofDegrees(0.001);
+
+	@Mock
+	private WeatherProvider mockWeatherProvider;
+	@Mock
+	private Clock mockClock;
+
+	private RainGridService subject;
+
+	private static RainReport reportOf(double latitude, double longitude, Precipitation precipitation) {
+		return new RainReport(latitude, longitude, precipitation.toString(), 0, 0, 0, precipitation.toString());
+	}
+
+	/**
+	 * It rains north of latitude 59.35, and snows south of the equator
+	 */
+	@Before
+	public void setUp() throws RainReportException {
+		initMocks(this);
+		when(mockClock.millis()).thenReturn(1000L);
+		when(mockWeatherProvider.isItRainingAtCoordinates(anyDouble(), anyDouble(), eq(CURRENTLY)))
+				.thenAnswer(invocation -> {
+					double latitude = invocation.getArgument(0);
+					double longitude = invocation.getArgument(1);
+					Precipitation precipitation = latitude > 59.35 ? Precipitation.RAIN
+							: latitude < 0 ? Precipitation.SNOW : Precipitation.NONE;
+					return reportOf(latitude, longitude, precipitation);
+				});
+		subject = new RainGridService(mockWeatherProvider, PRECISION, 4, new TileCache(100, mockClock),
+				Duration.ofSeconds(60), mockClock, 100, 100);
+	}
+
+	@After
+	public void tearDown() {
+		subject.close();
+	}
+
+	@Test
+	public void rainGrid_shouldReturnThePointsOnMultiplesOfTheResolutionWithinTheBoundingBox() {
+		RainGrid grid = subject.rainGrid(59.25, 17.95, 59.4, 18.2, 0.1);
+
+		assertThat(grid.getSouth()).isEqualTo(59.3);
+		assertThat(grid.getWest()).isEqualTo(18.0);
+		assertThat(grid.getResolution()).isEqualTo(0.1);
+		assertThat(grid.getRows()).isEqualTo(2);
+		assertThat(grid.getColumns()).isEqualTo(3);
+		for (int column = 0; column < 3; column++) {
+			assertThat(grid.precipitationAt(0, column)).isEqualTo(Precipitation.NONE);
+			assertThat(grid.precipitationAt(1, column)).isEqualTo(Precipitation.RAIN);
+		}
+	}
+
+	@Test
+	public void whenTheBoundingBoxSpansSeveralTiles_thePointsShouldBeTakenFromTheRightTiles() {
+		RainGrid grid = subject.rainGrid(-0.2, -0.2, 0.1, 0.1, 0.1);
+
+		assertThat(grid.getSouth()).isEqualTo(-0.2);
+		assertThat(grid.getWest()).isEqualTo(-0.2);
+		assertThat(grid.getRows()).isEqualTo(4);
+		assertThat(grid.getColumns()).isEqualTo(4);
+		assertThat(grid.precipitationAt(0, 0)).isEqualTo(Precipitation.SNOW);
+		assertThat(grid.precipitationAt(1, 3)).isEqualTo(Precipitation.SNOW);
+		assertThat(grid.precipitationAt(2, 0)).isEqualTo(Precipitation.NONE);
+		assertThat(grid.precipitationAt(3, 3)).isEqualTo(Precipitation.NONE);
+		assertThat(subject.getTileMisses()).isEqualTo(4);
+	}
+
+	@Test
+	public void whenTheSameAreaIsRequestedAgain_theCachedTilesShouldBeUsed() throws RainReportException {
+		subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.1);
+		RainGrid grid = subject.rainGrid(59.3, 18.1, 59.4, 18.1, 0.1);
+
+		assertThat(grid.precipitationAt(1, 0)).isEqualTo(Precipitation.RAIN);
+		assertThat(subject.getTileMisses()).isEqualTo(1);
+		assertThat(subject.getTileHits()).isEqualTo(1);
+		verify(mockWeatherProvider, times(6)).isItRainingAtCoordinates(anyDouble(), anyDouble(), eq(CURRENTLY));
+	}
+
+	@Test
+	public void whenAnAreaOverlapsACachedPartOfATile_onlyTheMissingPointsShouldBeComputed()
+			throws RainReportException {
+		subject.rainGrid(59.3, 18.0, 59.3, 18.0, 0.1);
+		RainGrid grid = subject.rainGrid(59.3, 18.0, 59.4, 18.1, 0.1);
+		subject.rainGrid(59.3, 18.0, 59.4, 18.1, 0.1);
+
+		assertThat(grid.precipitationAt(0, 0)).isEqualTo(Precipitation.NONE);
+		assertThat(grid.precipitationAt(1, 1)).isEqualTo(Precipitation.RAIN);
+		assertThat(subject.getTileMisses()).isEqualTo(2);
+		assertThat(subject.getTileHits()).isEqualTo(1);
+		verify(mockWeatherProvider, times(4)).isItRainingAtCoordinates(anyDouble(), anyDouble(), eq(CURRENTLY));
+	}
+
+	@Test
+	public void whenPointsAreAddedToACachedTile_theTileShouldKeepTheExpiryOfItsOldestPoints()
+			throws RainReportException {
+		subject.rainGrid(59.3, 18.0, 59.3, 18.0, 0.1);
+		when(mockClock.millis()).thenReturn(31000L);
+		subject.rainGrid(59.3, 18.0, 59.3, 18.1, 0.1);
+
+		when(mockClock.millis()).thenReturn(61000L);
+		subject.rainGrid(59.3, 18.1, 59.3, 18.1, 0.1);
+
+		verify(mockWeatherProvider, times(2)).isItRainingAtCoordinates(eq(59.3), eq(18.1), eq(CURRENTLY));
+	}
+
+	@Test
+	public void whenAGridNeedsMorePointsThanItMayRequest_theRestShouldBeUnknownAndComputedByLaterRequests()
+			throws RainReportException {
+		subject.close();
+		subject = new RainGridService(mockWeatherProvider, PRECISION, 4, new TileCache(100, mockClock),
+				Duration.ofSeconds(60), mockClock, 100, 4);
+
+		RainGrid grid = subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.1);
+		long unknown = IntStream.range(0, 6)
+				.filter(point -> grid.precipitationAt(point / 3, point % 3) == Precipitation.UNKNOWN).count();
+		RainGrid completed = subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.1);
+
+		assertThat(unknown).isEqualTo(2);
+		assertThat(completed.precipitationAt(1, 2)).isEqualTo(Precipitation.RAIN);
+		assertThat(completed.precipitationAt(0, 2)).isEqualTo(Precipitation.NONE);
+		verify(mockWeatherProvider, times(6)).isItRainingAtCoordinates(anyDouble(), anyDouble(), eq(CURRENTLY));
+	}
+
+	@Test
+	public void thePointsShouldBeBucketedByTheCoordinatePrecisionBeforeTheyAreRequested()
+			throws RainReportException {
+		subject.close();
+		subject = new RainGridService(mockWeatherProvider, CoordinatePrecision.ofDegrees(0.5), 4,
+				new TileCache(100, mockClock), Duration.ofSeconds(60), mockClock, 100, 100);
+
+		RainGrid grid = subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.1);
+
+		assertThat(grid.precipitationAt(0, 0)).isEqualTo(Precipitation.RAIN);
+		verify(mockWeatherProvider, times(6)).isItRainingAtCoordinates(eq(59.5), eq(18.0), eq(CURRENTLY));
+	}
+
+	@Test
+	public void whenTheWeatherProviderFails_noMorePointsOfTheGridShouldBeRequested() throws RainReportException {
+		subject.close();
+		subject = new RainGridService(mockWeatherProvider, PRECISION, 1, new TileCache(100, mockClock),
+				Duration.ofSeconds(60), mockClock, 100, 100);
+		when(mockWeatherProvider.isItRainingAtCoordinates(anyDouble(), anyDouble(), eq(CURRENTLY)))
+				.thenThrow(new RainReportException("Out of calls"));
+
+		RainGrid grid = subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.1);
+
+		assertThat(grid.precipitationAt(1, 2)).isEqualTo(Precipitation.UNKNOWN);
+		verify(mockWeatherProvider, times(1)).isItRainingAtCoordinates(anyDouble(), anyDouble(), eq(CURRENTLY));
+	}
+
+	@Test
+	public void whenATileHasExpired_itShouldBeComputedAgain() {
+		subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.1);
+
+		when(mockClock.millis()).thenReturn(61000L);
+		subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.1);
+
+		assertThat(subject.getTileMisses()).isEqualTo(2);
+	}
+
+	@Test
+	public void whenTheWeatherProviderFails_thePointShouldBeUnknownAndRequestedAgain() throws RainReportException {
+		when(mockWeatherProvider.isItRainingAtCoordinates(eq(59.4), eq(18.1), eq(CURRENTLY)))
+				.thenThrow(new RainReportException("Out of calls"));
+
+		RainGrid grid = subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.1);
+		subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.1);
+
+		assertThat(grid.precipitationAt(1, 1)).isEqualTo(Precipitation.UNKNOWN);
+		assertThat(subject.getTileMisses()).isEqualTo(2);
+		assertThat(subject.getTileHits()).isZero();
+	}
+
+	@Test
+	public void whenTheWeatherProviderReportsAnUnknownPrecipitation_thePointShouldBeUnknown()
+			throws RainReportException {
+		when(mockWeatherProvider.isItRainingAtCoordinates(eq(10.0), eq(10.0), eq(CURRENTLY)))
+				.thenReturn(new RainReport(10.0, 10.0, "hail", 0, 0, 0, "hail"));
+
+		RainGrid grid = subject.rainGrid(10.0, 10.0, 10.0, 10.0, 1);
+
+		assertThat(grid.precipitationAt(0, 0)).isEqualTo(Precipitation.UNKNOWN);
+	}
+
+	@Test
+	public void pointsOfATileOutsideTheValidCoordinates_shouldNotBeRequested() throws RainReportException {
+		RainGrid grid = subject.rainGrid(89, 179, 90, 180, 1);
+
+		assertThat(grid.getRows()).isEqualTo(2);
+		assertThat(grid.getColumns()).isEqualTo(2);
+		verify(mockWeatherProvider, atLeastOnce()).isItRainingAtCoordinates(eq(90.0), eq(180.0), eq(CURRENTLY));
+		verify(mockWeatherProvider, never()).isItRainingAtCoordinates(ArgumentMatchers.doubleThat(l -> l > 90),
+				anyDouble(), eq(CURRENTLY));
+		verify(mockWeatherProvider, never()).isItRainingAtCoordinates(anyDouble(),
+				ArgumentMatchers.doubleThat(l -> l > 180), eq(CURRENTLY));
+	}
+
+	@Test
+	public void pointsOfTheGridOutsideTheValidCoordinates_shouldBeUnknownWithoutBeingRequested()
+			throws RainReportException {
+		RainGrid grid = subject.rainGrid(89, 179, 91, 181, 1);
+		subject.rainGrid(89, 179, 91, 181, 1);
+
+		assertThat(grid.precipitationAt(2, 2)).isEqualTo(Precipitation.UNKNOWN);
+		assertThat(grid.precipitationAt(1, 1)).isEqualTo(Precipitation.RAIN);
+		assertThat(subject.getTileHits()).isEqualTo(1);
+		verify(mockWeatherProvider, times(4)).isItRainingAtCoordinates(anyDouble(), anyDouble(), eq(CURRENTLY));
+	}
+
+	@Test
+	public void whenTheResolutionIsInvalid_itShouldThrowAnIllegalArgumentException() {
+		assertThatThrownBy(() -> subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.0005))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> subject.rainGrid(59.3, 18.0, 59.4, 18.2, 0.0015))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> subject.rainGrid(59.3, 18.0, 59.4, 18.2, 2))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void whenTheBoundingBoxContainsNoPoints_itShouldThrowAnIllegalArgumentException() {
+		assertThatThrownBy(() -> subject.rainGrid(59.4, 18.0, 59.3, 18.2, 0.1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> subject.rainGrid(59.3, 18.2, 59.4, 18.0, 0.1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> subject.rainGrid(59.31, 18.0, 59.39, 18.2, 0.1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void whenTheGridWouldHaveTooManyPoints_itShouldThrowAnIllegalArgumentException() {
+		assertThatThrownBy(() -> subject.rainGrid(50, 10, 60, 20, 0.1)).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("at most 100");
+	}
+}
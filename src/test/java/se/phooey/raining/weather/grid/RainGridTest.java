@@ -0,0 +1,40 @@
+package se.phooey.raining.weather.grid;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import se.phooey.raining.weather.Precipitation;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.grid.RainGrid
+ */
+public class RainGridTest {
+
+	private final RainGrid subject = new RainGrid(59.3, 18.0, 0.1, 2, 3,
+			new byte[] { 0, 2, 2, 1, 4, (byte) Precipitation.SLEET.ordinal() });
+
+	@Test
+	public void precipitationAt_shouldIndexThePointsRowByRowFromTheSouthWest() {
+		assertThat(subject.precipitationAt(0, 0)).isEqualTo(Precipitation.NONE);
+		assertThat(subject.precipitationAt(0, 2)).isEqualTo(Precipitation.RAIN);
+		assertThat(subject.precipitationAt(1, 0)).isEqualTo(Precipitation.UNKNOWN);
+		assertThat(subject.precipitationAt(1, 2)).isEqualTo(Precipitation.SLEET);
+	}
+
+	@Test
+	public void whenSerializedToJson_itShouldIncludeTheLegendAndABase64EncodedGrid() throws Exception {
+		JsonNode json = new ObjectMapper().valueToTree(subject);
+
+		assertThat(json.get("south").asDouble()).isEqualTo(59.3);
+		assertThat(json.get("west").asDouble()).isEqualTo(18.0);
+		assertThat(json.get("resolution").asDouble()).isEqualTo(0.1);
+		assertThat(json.get("rows").asInt()).isEqualTo(2);
+		assertThat(json.get("columns").asInt()).isEqualTo(3);
+		assertThat(json.get("legend").get(Precipitation.SNOW.ordinal()).asText()).isEqualTo("snow");
+		assertThat(json.get("precipitation").binaryValue()).isEqualTo(subject.getPrecipitation());
+	}
+}
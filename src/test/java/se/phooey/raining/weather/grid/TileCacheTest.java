@@ -0,0 +1,67 @@
+package se.phooey.raining.weather.grid;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.grid.TileCache
+ */
+public class TileCacheTest {
+
+	@Mock
+	private Clock mockClock;
+
+	private TileCache subject;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.millis()).thenReturn(1000L);
+		subject = new TileCache(2, mockClock);
+	}
+
+	@Test
+	public void whenATileIsCached_itShouldBeReturnedUntilItExpires() {
+		byte[] tile = new byte[] { 1, 2 };
+		subject.put(1, tile, 2000);
+
+		assertThat(subject.get(1).getPrecipitation()).isSameAs(tile);
+		assertThat(subject.get(1).getExpiresAt()).isEqualTo(2000);
+		assertThat(subject.get(2)).isNull();
+
+		when(mockClock.millis()).thenReturn(2000L);
+		assertThat(subject.get(1)).isNull();
+		assertThat(subject.size()).isZero();
+	}
+
+	@Test
+	public void whenTheCacheIsFull_theTileExpiringFirstShouldBeEvicted() {
+		subject.put(1, new byte[1], 5000);
+		subject.put(2, new byte[1], 3000);
+		subject.put(1, new byte[1], 6000);
+		assertThat(subject.size()).isEqualTo(2);
+
+		subject.put(3, new byte[1], 4000);
+
+		assertThat(subject.size()).isEqualTo(2);
+		assertThat(subject.get(1)).isNotNull();
+		assertThat(subject.get(2)).isNull();
+		assertThat(subject.get(3)).isNotNull();
+	}
+
+	@Test
+	public void whenTheCacheCannotHoldAnyTile_itShouldStillAcceptTheLatestTile() {
+		subject = new TileCache(0, mockClock);
+
+		subject.put(1, new byte[1], 5000);
+
+		assertThat(subject.get(1)).isNotNull();
+	}
+}
@@ -0,0 +1,32 @@
+package se.phooey.raining.weather.gridded;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.time.Clock;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import se.phooey.raining.weather.DarkSkyWeatherProvider;
+
+/**
+ * Unit tests for @see
+ * se.phooey.raining.weather.gridded.GriddedForecastConfiguration
+ */
+public class GriddedForecastConfigurationTest {
+
+	@Test
+	public void theGriddedWeatherProviderShouldReadTheConfiguredFile() {
+		GriddedForecastConfiguration configuration = new GriddedForecastConfiguration();
+		ReflectionTestUtils.setField(configuration, "file", "target/missing.grd");
+		ReflectionTestUtils.setField(configuration, "pollIntervalSeconds", 60L);
+		ReflectionTestUtils.setField(configuration, "maximumAgeSeconds", 21600L);
+
+		GriddedWeatherProvider provider = configuration
+				.griddedWeatherProvider(mock(DarkSkyWeatherProvider.class), Clock.systemUTC());
+		provider.reload();
+
+		assertThat(provider.getForecast()).isNull();
+	}
+}
@@ -0,0 +1,214 @@
+package se.phooey.raining.weather.gridded;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.phooey.raining.weather.Precipitation;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.gridded.GriddedForecast
+ */
+public class GriddedForecastTest {
+
+	private static final long ISSUED = 1600000000L;
+	private static final long FIRST_DAY = 1599955200L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path file;
+
+	/**
+	 * A grid of 3 x 2 points from 59.0, 18.0 with a resolution of 0.5 degrees
+	 */
+	@Before
+	public void setUp() throws IOException {
+		file = folder.getRoot().toPath().resolve("forecast.grd");
+		new GriddedForecastWriter(ISSUED, FIRST_DAY, 59.0, 18.0, 0.5, 0.5, 3, 2, 2)
+				.setCurrent(0, 0, 0.0, 0.0, Precipitation.RAIN)
+				.setCurrent(0, 1, 0.4, 2.0, Precipitation.RAIN)
+				.setCurrent(1, 0, 0.8, 4.0, Precipitation.SNOW)
+				.setCurrent(1, 1, 1.0, 6.0, Precipitation.SNOW)
+				.setDay(0, 0, 0, 0.5, Precipitation.SLEET)
+				.setDay(1, 2, 1, 0.9, Precipitation.RAIN)
+				.writeTo(file);
+	}
+
+	@Test
+	public void theHeaderShouldBeReadFromTheFile() throws IOException {
+		GriddedForecast subject = GriddedForecast.open(file);
+
+		assertThat(subject.getIssued()).isEqualTo(ISSUED);
+		assertThat(subject.getRows()).isEqualTo(3);
+		assertThat(subject.getColumns()).isEqualTo(2);
+		assertThat(subject.getDays()).isEqualTo(2);
+		assertThat(subject.dayStart(1)).isEqualTo(FIRST_DAY + 86400);
+		assertThat(Files.size(file)).isEqualTo(GriddedForecast.expectedBytes(3, 2, 2));
+	}
+
+	@Test
+	public void onlyLocationsWithinTheGridShouldBeCovered() throws IOException {
+		GriddedForecast subject = GriddedForecast.open(file);
+
+		assertThat(subject.covers(59.0, 18.0)).isTrue();
+		assertThat(subject.covers(60.0, 18.5)).isTrue();
+		assertThat(subject.covers(59.7, 18.2)).isTrue();
+		assertThat(subject.covers(58.9, 18.2)).isFalse();
+		assertThat(subject.covers(60.1, 18.2)).isFalse();
+		assertThat(subject.covers(59.5, 17.9)).isFalse();
+		assertThat(subject.covers(59.5, 18.6)).isFalse();
+	}
+
+	@Test
+	public void valuesAtThePointsShouldBeReturnedAsWritten() throws IOException {
+		GriddedForecast subject = GriddedForecast.open(file);
+
+		assertThat(subject.currentProbability(59.5, 18.5)).isEqualTo(1.0);
+		assertThat(subject.currentIntensity(59.5, 18.5)).isEqualTo(6.0);
+		assertThat(subject.currentPrecipitation(59.5, 18.5)).isEqualTo(Precipitation.SNOW);
+		assertThat(subject.currentPrecipitation(59.0, 18.0)).isEqualTo(Precipitation.NONE);
+		assertThat(subject.dailyProbability(1, 60.0, 18.5)).isCloseTo(0.9, within(1e-6));
+		assertThat(subject.dailyPrecipitation(1, 60.0, 18.5)).isEqualTo(Precipitation.RAIN);
+		assertThat(subject.dailyPrecipitation(0, 59.0, 18.0)).isEqualTo(Precipitation.SLEET);
+	}
+
+	@Test
+	public void valuesBetweenThePointsShouldBeInterpolatedBilinearly() throws IOException {
+		GriddedForecast subject = GriddedForecast.open(file);
+
+		assertThat(subject.currentProbability(59.0, 18.25)).isCloseTo(0.2, within(1e-6));
+		assertThat(subject.currentProbability(59.25, 18.0)).isCloseTo(0.4, within(1e-6));
+		assertThat(subject.currentProbability(59.25, 18.25)).isCloseTo(0.55, within(1e-6));
+		assertThat(subject.currentIntensity(59.25, 18.25)).isCloseTo(3.0, within(1e-6));
+		assertThat(subject.currentProbability(59.75, 18.25)).isCloseTo(0.45, within(1e-6));
+	}
+
+	@Test
+	public void typesBetweenThePointsShouldBeTakenFromTheNearestPoint() throws IOException {
+		GriddedForecast subject = GriddedForecast.open(file);
+
+		assertThat(subject.currentPrecipitation(59.1, 18.4)).isEqualTo(Precipitation.RAIN);
+		assertThat(subject.currentPrecipitation(59.3, 18.1)).isEqualTo(Precipitation.SNOW);
+	}
+
+	@Test
+	public void lookupsShouldNotAllocate() throws IOException {
+		GriddedForecast subject = GriddedForecast.open(file);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		double sum = 0;
+		for (int i = 0; i < 100_000; i++) {
+			sum += subject.currentProbability(59.25, 18.25) + subject.currentPrecipitation(59.3, 18.1).ordinal();
+		}
+
+		long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		for (int i = 0; i < 100_000; i++) {
+			sum += subject.currentProbability(59.25, 18.25) + subject.currentPrecipitation(59.3, 18.1).ordinal();
+		}
+		long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+		assertThat(sum).isPositive();
+		assertThat(allocated).isLessThan(10_000);
+	}
+
+	@Test
+	public void whenTheFileIsNotAGriddedForecast_itShouldThrowAnIOException() throws IOException {
+		Files.write(file, new byte[GriddedForecast.HEADER_BYTES]);
+
+		assertThatThrownBy(() -> GriddedForecast.open(file)).isInstanceOf(IOException.class)
+				.hasMessageContaining("Not a gridded forecast");
+	}
+
+	@Test
+	public void whenTheFileIsShorterThanTheHeader_itShouldThrowAnIOException() throws IOException {
+		Files.write(file, new byte[] { 0x52, 0x47 });
+
+		assertThatThrownBy(() -> GriddedForecast.open(file)).isInstanceOf(IOException.class);
+	}
+
+	@Test
+	public void whenTheVersionIsUnsupported_itShouldThrowAnIOException() throws IOException {
+		writeHeader(GriddedForecast.VERSION + 1, 1, 1, 0, 0.5);
+
+		assertThatThrownBy(() -> GriddedForecast.open(file)).isInstanceOf(IOException.class)
+				.hasMessageContaining("Unsupported");
+	}
+
+	@Test
+	public void whenTheHeaderIsInvalid_itShouldThrowAnIOException() throws IOException {
+		writeHeader(GriddedForecast.VERSION, 0, 1, 0, 0.5);
+		assertThatThrownBy(() -> GriddedForecast.open(file)).hasMessageContaining("Invalid");
+		writeHeader(GriddedForecast.VERSION, 1, 0, 0, 0.5);
+		assertThatThrownBy(() -> GriddedForecast.open(file)).hasMessageContaining("Invalid");
+		writeHeader(GriddedForecast.VERSION, 1, 1, -1, 0.5);
+		assertThatThrownBy(() -> GriddedForecast.open(file)).hasMessageContaining("Invalid");
+		writeHeader(GriddedForecast.VERSION, 1, 1, 0, 0);
+		assertThatThrownBy(() -> GriddedForecast.open(file)).hasMessageContaining("Invalid");
+		writeHeader(GriddedForecast.VERSION, 1, 1, 0, Double.NaN);
+		assertThatThrownBy(() -> GriddedForecast.open(file)).hasMessageContaining("Invalid");
+	}
+
+	@Test
+	public void whenATypeIsNotAPrecipitation_itShouldBeUnknown() throws IOException {
+		try (RandomAccessFile corrupt = new RandomAccessFile(file.toFile(), "rw")) {
+			corrupt.seek(GriddedForecast.HEADER_BYTES + 4 * 3 * 2 * Float.BYTES);
+			corrupt.writeByte(-1);
+			corrupt.writeByte(Precipitation.values().length);
+		}
+		GriddedForecast subject = GriddedForecast.open(file);
+
+		assertThat(subject.currentPrecipitation(59.0, 18.0)).isEqualTo(Precipitation.UNKNOWN);
+		assertThat(subject.currentPrecipitation(59.0, 18.5)).isEqualTo(Precipitation.UNKNOWN);
+		assertThat(subject.currentPrecipitation(59.5, 18.5)).isEqualTo(Precipitation.SNOW);
+	}
+
+	@Test
+	public void whenTheFileIsTruncated_itShouldThrowAnIOException() throws IOException {
+		try (RandomAccessFile truncated = new RandomAccessFile(file.toFile(), "rw")) {
+			truncated.setLength(truncated.length() - 1);
+		}
+
+		assertThatThrownBy(() -> GriddedForecast.open(file)).isInstanceOf(IOException.class)
+				.hasMessageContaining("expected");
+	}
+
+	@Test
+	public void whenTheFileIsTooLargeToMap_itShouldThrowAnIOException() throws IOException {
+		try (RandomAccessFile large = new RandomAccessFile(file.toFile(), "rw")) {
+			large.setLength(Integer.MAX_VALUE + 1L);
+		}
+
+		assertThatThrownBy(() -> GriddedForecast.open(file)).isInstanceOf(IOException.class)
+				.hasMessageContaining("too large");
+	}
+
+	private void writeHeader(int version, int rows, int columns, int days, double step) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+			out.writeInt(GriddedForecast.MAGIC);
+			out.writeInt(version);
+			out.writeLong(ISSUED);
+			out.writeLong(FIRST_DAY);
+			out.writeDouble(59.0);
+			out.writeDouble(18.0);
+			out.writeDouble(step);
+			out.writeDouble(0.5);
+			out.writeInt(rows);
+			out.writeInt(columns);
+			out.writeInt(days);
+			out.writeInt(0);
+		}
+	}
+}
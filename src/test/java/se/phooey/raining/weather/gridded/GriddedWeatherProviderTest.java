@@ -0,0 +1,211 @@
+package se.phooey.raining.weather.gridded;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.gridded.GriddedWeatherProvider
+ */
+public class GriddedWeatherProviderTest {
+
+	private static final long FIRST_DAY = 1599955200L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock
+	private WeatherProvider mockFallback;
+	@Mock
+	private Clock mockClock;
+
+	private Path file;
+	private RainReport fallbackReport;
+	private GriddedWeatherProvider subject;
+
+	private static GriddedForecastWriter forecast(long issued, double probability) {
+		return new GriddedForecastWriter(issued, FIRST_DAY, 59.0, 18.0, 1, 1, 2, 2, 2)
+				.setCurrent(0, 0, probability, 1.5, Precipitation.RAIN)
+				.setCurrent(0, 1, probability, 1.5, Precipitation.RAIN)
+				.setCurrent(1, 0, probability, 1.5, Precipitation.RAIN)
+				.setCurrent(1, 1, probability, 1.5, Precipitation.RAIN)
+				.setDay(0, 0, 0, 0.6, Precipitation.SNOW)
+				.setDay(0, 0, 1, 0.6, Precipitation.SNOW)
+				.setDay(0, 1, 0, 0.6, Precipitation.SNOW)
+				.setDay(0, 1, 1, 0.6, Precipitation.SNOW);
+	}
+
+	@Before
+	public void setUp() throws IOException, RainReportException {
+		initMocks(this);
+		file = folder.getRoot().toPath().resolve("forecast.grd");
+		forecast(1, 0.5).writeTo(file);
+		fallbackReport = new RainReport();
+		when(mockFallback.isItRainingAtCoordinates(anyDouble(), anyDouble(), anySet())).thenReturn(fallbackReport);
+		when(mockClock.millis()).thenReturn(2000L);
+		subject = new GriddedWeatherProvider(file, mockFallback, Duration.ofHours(1), Duration.ofHours(1), mockClock);
+		subject.start();
+	}
+
+	@After
+	public void tearDown() {
+		subject.close();
+	}
+
+	@Test
+	public void whenTheLocationIsCovered_itShouldBeAnsweredFromTheGrid() throws RainReportException {
+		RainReport report = subject.isItRainingAtCoordinates(59.5, 18.5);
+
+		assertThat(report.getLatitude()).isEqualTo(59.5);
+		assertThat(report.getLongitude()).isEqualTo(18.5);
+		assertThat(report.getCurrentPrecipitation()).isEqualTo(Precipitation.RAIN.toString());
+		assertThat(report.getCurrentProbability()).isEqualTo(0.5);
+		assertThat(report.getCurrentIntensity()).isEqualTo(1.5);
+		assertThat(report.getChanceOfPrecipitationToday()).isCloseTo(0.6, within(1e-6));
+		assertThat(report.getTypeOfPrecipitationToday()).isEqualTo(Precipitation.SNOW.toString());
+		assertThat(report.getDailyForecast()).hasSize(2);
+		assertThat(report.getDailyForecast().get(1).getTime()).isEqualTo(FIRST_DAY + 86400);
+		assertThat(report.getDailyForecast().get(1).getPrecipitation()).isEqualTo(Precipitation.NONE.toString());
+		verify(mockFallback, never()).isItRainingAtCoordinates(anyDouble(), anyDouble(), anySet());
+	}
+
+	@Test
+	public void whenItIsNotPrecipitating_theReportShouldSayNone() throws IOException, RainReportException {
+		forecast(2, 0).writeTo(file);
+		subject.reload();
+
+		RainReport report = subject.isItRainingAtCoordinates(59.5, 18.5, EnumSet.of(ReportSection.CURRENTLY));
+
+		assertThat(report.getCurrentPrecipitation()).isEqualTo(Precipitation.NONE.toString());
+		assertThat(report.getCurrentIntensity()).isZero();
+		assertThat(report.getDailyForecast()).isEmpty();
+		assertThat(report.getTypeOfPrecipitationToday()).isEqualTo(Precipitation.UNKNOWN.toString());
+	}
+
+	@Test
+	public void whenOnlyTheDailyForecastIsRequested_theCurrentConditionsShouldKeepTheirDefaults()
+			throws RainReportException {
+		RainReport report = subject.isItRainingAtCoordinates(59.5, 18.5, EnumSet.of(ReportSection.DAILY));
+
+		assertThat(report.getCurrentPrecipitation()).isEqualTo(Precipitation.UNKNOWN.toString());
+		assertThat(report.getDailyForecast()).hasSize(2);
+	}
+
+	@Test
+	public void whenTheForecastHasNoDays_theDailyForecastShouldKeepItsDefaults() throws IOException,
+			RainReportException {
+		new GriddedForecastWriter(3, FIRST_DAY, 59.0, 18.0, 1, 1, 2, 2, 0).writeTo(file);
+		subject.reload();
+
+		RainReport report = subject.isItRainingAtCoordinates(59.5, 18.5);
+
+		assertThat(report.getCurrentPrecipitation()).isEqualTo(Precipitation.NONE.toString());
+		assertThat(report.getDailyForecast()).isEmpty();
+	}
+
+	@Test
+	public void whenTheLocationIsNotCovered_itShouldBeRequestedFromTheFallback() throws RainReportException {
+		assertThat(subject.isItRainingAtCoordinates(40.0, 18.5)).isSameAs(fallbackReport);
+		verify(mockFallback).isItRainingAtCoordinates(40.0, 18.5, ReportSection.DEFAULT);
+	}
+
+	@Test
+	public void whenTheNowcastIsRequested_itShouldBeRequestedFromTheFallback() throws RainReportException {
+		assertThat(subject.isItRainingAtCoordinates(59.5, 18.5, EnumSet.of(ReportSection.MINUTELY)))
+				.isSameAs(fallbackReport);
+	}
+
+	@Test
+	public void whenTheFileIsReplaced_theNewerForecastShouldBeMapped() throws IOException, RainReportException {
+		assertThat(subject.reload()).isFalse();
+
+		forecast(2, 0.9).writeTo(file);
+
+		assertThat(subject.reload()).isTrue();
+		assertThat(subject.getForecast().getIssued()).isEqualTo(2);
+		assertThat(subject.isItRainingAtCoordinates(59.5, 18.5).getCurrentProbability())
+				.isCloseTo(0.9, within(1e-6));
+	}
+
+	@Test
+	public void whenTheNewerFileIsInvalid_thePreviousForecastShouldBeKept() throws IOException {
+		Files.delete(file);
+		Files.write(file, new byte[] { 1, 2, 3 });
+
+		assertThat(subject.reload()).isFalse();
+		assertThat(subject.getForecast().getIssued()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenTheForecastIsOlderThanTheMaximumAge_allLocationsShouldBeRequestedFromTheFallback()
+			throws IOException, RainReportException {
+		when(mockClock.millis()).thenReturn(1000L + Duration.ofHours(1).toMillis());
+		assertThat(subject.isItRainingAtCoordinates(59.5, 18.5)).isNotSameAs(fallbackReport);
+
+		when(mockClock.millis()).thenReturn(1001L + Duration.ofHours(1).toMillis());
+		assertThat(subject.isItRainingAtCoordinates(59.5, 18.5)).isSameAs(fallbackReport);
+
+		subject.close();
+		subject = new GriddedWeatherProvider(file, mockFallback, Duration.ofHours(1), Duration.ofHours(1), mockClock);
+		subject.start();
+		assertThat(subject.getForecast().getIssued()).isEqualTo(1);
+		assertThat(subject.isItRainingAtCoordinates(59.5, 18.5)).isSameAs(fallbackReport);
+
+		forecast(2, 0.9).writeTo(file);
+		assertThat(subject.reload()).isTrue();
+		assertThat(subject.isItRainingAtCoordinates(59.5, 18.5)).isNotSameAs(fallbackReport);
+	}
+
+	@Test
+	public void whenThereIsNoFile_allLocationsShouldBeRequestedFromTheFallback() throws RainReportException {
+		subject.close();
+		subject = new GriddedWeatherProvider(folder.getRoot().toPath().resolve("missing.grd"), mockFallback,
+				Duration.ofMillis(10), Duration.ofHours(1), mockClock);
+		subject.start();
+		subject.start();
+
+		assertThat(subject.getForecast()).isNull();
+		assertThat(subject.isItRainingAtCoordinates(59.5, 18.5)).isSameAs(fallbackReport);
+	}
+
+	@Test
+	public void whileStarted_theFileShouldBeCheckedForChangesPeriodically() throws Exception {
+		subject.close();
+		subject = new GriddedWeatherProvider(file, mockFallback, Duration.ofMillis(10), Duration.ofHours(1),
+				mockClock);
+		subject.start();
+
+		forecast(2, 0.9).writeTo(file);
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (subject.getForecast().getIssued() != 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(subject.getForecast().getIssued()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,65 @@
+package se.phooey.raining.weather.history;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.history.BitWriter and
+ * se.phooey.raining.weather.history.BitReader
+ */
+public class BitWriterTest {
+
+	@Test
+	public void theBitsShouldBeReadBackInTheOrderTheyWereWritten() {
+		BitWriter subject = new BitWriter(0);
+		subject.writeBit(true);
+		subject.writeBits(0b1011, 4);
+		subject.writeBits(-1L, 64);
+		subject.writeBit(false);
+		subject.writeBits(0x1234_5678_9ABC_DEF0L, 64);
+
+		BitReader reader = new BitReader(subject.toWords());
+
+		assertThat(subject.getBitLength()).isEqualTo(134);
+		assertThat(subject.toWords()).hasSize(3);
+		assertThat(reader.readBit()).isTrue();
+		assertThat(reader.readBits(4)).isEqualTo(0b1011);
+		assertThat(reader.readBits(64)).isEqualTo(-1L);
+		assertThat(reader.readBit()).isFalse();
+		assertThat(reader.readBits(64)).isEqualTo(0x1234_5678_9ABC_DEF0L);
+	}
+
+	@Test
+	public void onlyTheRequestedNumberOfBitsShouldBeWritten() {
+		BitWriter subject = new BitWriter(1);
+		subject.writeBits(-3L, 7);
+		subject.writeBits(0, 3);
+
+		BitReader reader = new BitReader(subject.toWords());
+
+		assertThat(reader.readBits(7)).isEqualTo(0b1111101);
+		assertThat(reader.readBits(3)).isZero();
+	}
+
+	@Test
+	public void randomValuesOfRandomSizesShouldSurviveARoundTrip() {
+		Random random = new Random(42);
+		int[] sizes = new int[10_000];
+		long[] values = new long[sizes.length];
+		BitWriter subject = new BitWriter(1);
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = 1 + random.nextInt(64);
+			values[i] = sizes[i] == 64 ? random.nextLong() : random.nextLong() & ((1L << sizes[i]) - 1);
+			subject.writeBits(values[i], sizes[i]);
+		}
+
+		BitReader reader = new BitReader(subject.toWords());
+
+		for (int i = 0; i < sizes.length; i++) {
+			assertThat(reader.readBits(sizes[i])).isEqualTo(values[i]);
+		}
+	}
+}
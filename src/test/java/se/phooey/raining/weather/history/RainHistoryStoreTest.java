@@ -0,0 +1,272 @@
+package se.phooey.raining.weather.history;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.history.RainHistoryStore
+ */
+public class RainHistoryStoreTest {
+
+	private static final long HOUR = 3600;
+	private static final long START = 1_600_000_000L / HOUR * HOUR;
+	private static final long CELL = 42L << 7;
+	private static final long OTHER_CELL = 43L << 7;
+	private static final Duration RETENTION = Duration.ofDays(1);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock
+	private Clock mockClock;
+
+	private final Logger logger = (Logger) LoggerFactory.getLogger(RainHistoryStore.class);
+	private ListAppender<ILoggingEvent> appender;
+	private Path directory;
+	private RainHistoryStore subject;
+
+	private static RainSample sample(long time, double probability) {
+		return new RainSample(time, "rain", probability, 1.5, 0.9, "rain");
+	}
+
+	private RainHistoryStore newStore(Duration flushInterval) {
+		return new RainHistoryStore(directory, Duration.ofSeconds(HOUR), flushInterval, RETENTION, mockClock);
+	}
+
+	private long countSegments() throws IOException {
+		try (Stream<Path> segments = Files.list(directory)) {
+			return segments.count();
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		initMocks(this);
+		appender = new ListAppender<>();
+		appender.start();
+		logger.addAppender(appender);
+		logger.setLevel(Level.INFO);
+		when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(START));
+		directory = folder.getRoot().toPath().resolve("history");
+		subject = newStore(Duration.ofHours(1));
+		subject.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		subject.close();
+		logger.detachAppender(appender);
+	}
+
+	@Test
+	public void whenQueried_itShouldReturnTheSamplesOfTheCellWithinTheRange() {
+		for (int i = 0; i < 30; i++) {
+			subject.append(CELL, sample(START + i * 600, i / 100.0));
+		}
+		subject.append(OTHER_CELL, sample(START, 1));
+
+		List<RainSample> result = subject.query(CELL, START + 3000, START + 4200);
+
+		assertThat(result).extracting(RainSample::getTime).containsExactly(START + 3000, START + 3600,
+				START + 4200);
+		assertThat(result).extracting(RainSample::getCurrentProbability).containsExactly(0.05, 0.06, 0.07);
+		assertThat(subject.query(CELL, 0, Long.MAX_VALUE)).hasSize(30);
+		assertThat(subject.query(OTHER_CELL, 0, Long.MAX_VALUE)).hasSize(1);
+		assertThat(subject.query(CELL + (2L << 7), 0, Long.MAX_VALUE)).isEmpty();
+		assertThat(subject.query(CELL, START + 3 * HOUR, Long.MAX_VALUE)).hasSize(12);
+		assertThat(subject.getSampleCount()).isEqualTo(31);
+		assertThat(subject.getCellCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void aLateSampleShouldBeReturnedInOrderOfTime() {
+		subject.append(CELL, sample(START + HOUR + 10, 0.1));
+		subject.append(CELL, sample(START + 10, 0.2));
+
+		assertThat(subject.query(CELL, 0, Long.MAX_VALUE)).extracting(RainSample::getTime)
+				.containsExactly(START + 10, START + HOUR + 10);
+	}
+
+	@Test
+	public void whenFlushed_onlyTheChunksOfPassedWindowsShouldBeWritten() throws Exception {
+		subject.append(CELL, sample(START, 0.1));
+		subject.append(CELL, sample(START + 600, 0.2));
+		subject.append(OTHER_CELL, sample(START + 600, 0.3));
+
+		assertThat(subject.flush()).isZero();
+		subject.append(CELL, sample(START + HOUR, 0.4));
+		assertThat(subject.flush()).isEqualTo(1);
+		when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(START + HOUR));
+		assertThat(subject.flush()).isEqualTo(1);
+		assertThat(subject.flush()).isZero();
+		try (Stream<Path> segments = Files.list(directory)) {
+			assertThat(segments).hasSize(2);
+		}
+	}
+
+	@Test
+	public void whenRestarted_itShouldLoadTheHistoryFlushedBeforeClosing() throws Exception {
+		for (int i = 0; i < 12; i++) {
+			subject.append(CELL, sample(START + i * 600, i / 10.0));
+		}
+		subject.append(OTHER_CELL, sample(START, 1));
+		subject.close();
+
+		subject = newStore(Duration.ofHours(1));
+		subject.start();
+		subject.start();
+		subject.append(CELL, sample(START + 2 * HOUR, 0.5));
+		subject.close();
+		subject = newStore(Duration.ofHours(1));
+		subject.start();
+
+		assertThat(subject.query(CELL, 0, Long.MAX_VALUE)).extracting(RainSample::getCurrentProbability)
+				.containsExactly(0.0, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1.0, 1.1, 0.5);
+		assertThat(subject.query(OTHER_CELL, 0, Long.MAX_VALUE)).hasSize(1);
+		assertThat(subject.getSampleCount()).isEqualTo(14);
+		try (Stream<Path> segments = Files.list(directory)) {
+			assertThat(segments).hasSize(2);
+		}
+	}
+
+	@Test
+	public void whenASegmentIsUnreadable_itShouldBeSkipped() throws Exception {
+		subject.append(CELL, sample(START, 0.1));
+		subject.close();
+		Files.write(directory.resolve("segment-0000000000000000007.seg"), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		Files.write(directory.resolve("segment-0000000000000000008.seg"), new byte[] { 0x52, 0x48, 0x49, 0x53 });
+
+		subject = newStore(Duration.ofHours(1));
+		subject.start();
+		subject.append(CELL, sample(START + 600, 0.2));
+		subject.close();
+
+		assertThat(subject.query(CELL, 0, Long.MAX_VALUE)).hasSize(2);
+		assertThat(appender.list).filteredOn(event -> event.getLevel() == Level.WARN).hasSize(2);
+		assertThat(Files.exists(directory.resolve("segment-0000000000000000009.seg"))).isTrue();
+	}
+
+	@Test
+	public void whenAFlushFails_itShouldBeLoggedAndRetriedByTheNextFlush() throws Exception {
+		subject.close();
+		subject = newStore(Duration.ofMillis(10));
+		subject.start();
+		subject.append(CELL, sample(START - 2 * HOUR, 0.1));
+		Path first = directory.resolve("segment-0000000000000000000.seg");
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!Files.exists(first) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		subject.append(CELL, sample(START - HOUR, 0.1));
+		Files.delete(first);
+		Files.delete(directory);
+		Files.write(directory, new byte[0]);
+
+		deadline = System.currentTimeMillis() + 5000;
+		while (appender.list.stream().noneMatch(event -> event.getLevel() == Level.ERROR)
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Files.delete(directory);
+		Files.createDirectories(directory);
+
+		subject.flush();
+
+		assertThat(appender.list).anyMatch(event -> event.getLevel() == Level.ERROR);
+		try (Stream<Path> segments = Files.list(directory)) {
+			assertThat(segments).hasSize(1);
+		}
+	}
+
+	@Test
+	public void whenSamplesAreOlderThanTheRetention_theirChunksShouldBeDroppedAndTheirSegmentsDeleted()
+			throws Exception {
+		subject.append(CELL, sample(START - 3 * HOUR, 0.1));
+		subject.append(OTHER_CELL, sample(START - 3 * HOUR, 0.2));
+		subject.flush();
+		subject.append(CELL, sample(START - HOUR, 0.3));
+		subject.flush();
+		subject.append(CELL, sample(START - HOUR / 2, 0.4));
+
+		when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(START + RETENTION.getSeconds() - 2 * HOUR));
+
+		assertThat(subject.expire()).isEqualTo(2);
+		assertThat(subject.getSampleCount()).isEqualTo(2);
+		assertThat(subject.getCellCount()).isEqualTo(1);
+		assertThat(subject.query(CELL, 0, Long.MAX_VALUE)).extracting(RainSample::getCurrentProbability)
+				.containsExactly(0.3, 0.4);
+		assertThat(Files.exists(directory.resolve("segment-0000000000000000000.seg"))).isFalse();
+		assertThat(Files.exists(directory.resolve("segment-0000000000000000001.seg"))).isTrue();
+
+		subject.append(OTHER_CELL, sample(START, 0.5));
+		assertThat(subject.query(OTHER_CELL, 0, Long.MAX_VALUE)).hasSize(1);
+		assertThat(subject.flush()).isEqualTo(2);
+		assertThat(countSegments()).isEqualTo(2);
+	}
+
+	@Test
+	public void whenStarting_segmentsOlderThanTheRetentionShouldBeDeletedInsteadOfLoaded() throws Exception {
+		subject.append(CELL, sample(START - 3 * HOUR, 0.1));
+		subject.close();
+
+		when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(START + RETENTION.getSeconds()));
+		subject = newStore(Duration.ofHours(1));
+		subject.start();
+
+		assertThat(subject.getSampleCount()).isZero();
+		assertThat(subject.getCellCount()).isZero();
+		assertThat(countSegments()).isZero();
+	}
+
+	@Test
+	public void millionsOfSteadySamplesShouldTakeLittleMemory() throws Exception {
+		subject.close();
+		subject = new RainHistoryStore(directory, Duration.ofDays(1), Duration.ofHours(1), RETENTION,
+				mockClock);
+		for (int cell = 0; cell < 1000; cell++) {
+			for (int i = 0; i < 1000; i++) {
+				subject.append((long) cell << 7, sample(START + i * 600L, i % 50 < 40 ? 0 : 0.75));
+			}
+		}
+
+		assertThat(subject.getSampleCount()).isEqualTo(1_000_000);
+		assertThat(subject.getEncodedBytes()).isLessThan(2_000_000);
+		assertThat(subject.query(999L << 7, START + 300_000, START + 303_000)).hasSize(6);
+	}
+
+	@Test
+	public void theSizeOfTheHistoryShouldBeReportedAsMetrics() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		subject.bindTo(registry);
+		subject.append(CELL, sample(START, 0.1));
+		subject.append(CELL, sample(START + HOUR, 0.1));
+
+		assertThat(registry.get("isitraining.history.samples").gauge().value()).isEqualTo(2);
+		assertThat(registry.get("isitraining.history.cells").gauge().value()).isEqualTo(1);
+		assertThat(registry.get("isitraining.history.bytes").gauge().value()).isPositive();
+	}
+}
@@ -0,0 +1,32 @@
+package se.phooey.raining.weather.history;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.history.RainSample
+ */
+public class RainSampleTest {
+
+	@Test
+	public void theSampleShouldHoldThePrecipitationValuesOfTheReport() {
+		RainReport report = new RainReport(13.37, 90.01, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+				Precipitation.SNOW.toString());
+
+		RainSample result = RainSample.of(1_600_000_000L, report);
+
+		assertThat(result.getTime()).isEqualTo(1_600_000_000L);
+		assertThat(result.getCurrentPrecipitation()).isEqualTo("rain");
+		assertThat(result.getCurrentProbability()).isEqualTo(0.8);
+		assertThat(result.getCurrentIntensity()).isEqualTo(1.2);
+		assertThat(result.getChanceOfPrecipitationToday()).isEqualTo(0.9);
+		assertThat(result.getTypeOfPrecipitationToday()).isEqualTo("snow");
+		assertThat(result).hasToString("RainSample [time=1600000000, currentPrecipitation=rain, "
+				+ "currentProbability=0.8, currentIntensity=1.2, chanceOfPrecipitationToday=0.9, "
+				+ "typeOfPrecipitationToday=snow]");
+	}
+}
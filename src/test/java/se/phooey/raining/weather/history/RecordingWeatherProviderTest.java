@@ -0,0 +1,102 @@
+package se.phooey.raining.weather.history;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.EnumSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import reactor.core.publisher.Mono;
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReactiveWeatherProvider;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.cache.CellKey;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.history.RecordingWeatherProvider
+ */
+public class RecordingWeatherProviderTest {
+
+	@Mock
+	private WeatherProvider mockDelegate;
+	@Mock
+	private RainHistoryStore mockStore;
+	@Mock
+	private Clock mockClock;
+
+	private RecordingWeatherProvider subject;
+	private RainReport report;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(1_600_000_000L));
+		report = new RainReport(13.37, 90.01, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+				Precipitation.RAIN.toString());
+		subject = new RecordingWeatherProvider(mockDelegate, mockStore, mockClock);
+	}
+
+	@Test
+	public void whenTheCurrentConditionIsFetched_itShouldBeRecordedForTheCell() throws Exception {
+		given(mockDelegate.isItRainingAtCoordinates(13.37, 90.01, ReportSection.DEFAULT)).willReturn(report);
+
+		RainReport result = subject.isItRainingAtCoordinates(13.37, 90.01);
+
+		assertThat(result).isSameAs(report);
+		ArgumentCaptor<RainSample> sample = ArgumentCaptor.forClass(RainSample.class);
+		verify(mockStore).append(eq(CellKey.of(13.37, 90.01)), sample.capture());
+		assertThat(sample.getValue().getTime()).isEqualTo(1_600_000_000L);
+		assertThat(sample.getValue().getCurrentIntensity()).isEqualTo(1.2);
+	}
+
+	@Test
+	public void whenTheCurrentConditionIsNotFetched_nothingShouldBeRecorded() throws Exception {
+		willReturn(report).given(mockDelegate).isItRainingAtCoordinates(13.37, 90.01,
+				EnumSet.of(ReportSection.DAILY, ReportSection.MINUTELY));
+
+		RainReport result = subject.isItRainingAtCoordinates(13.37, 90.01,
+				EnumSet.of(ReportSection.DAILY, ReportSection.MINUTELY));
+
+		assertThat(result).isSameAs(report);
+		verify(mockStore, never()).append(anyLong(), any());
+	}
+
+	@Test
+	public void whenOnlyTheCurrentConditionIsFetched_theUnknownForecastShouldNotBeRecorded() throws Exception {
+		RainReport currently = new RainReport();
+		currently.setCurrentPrecipitation(Precipitation.RAIN.toString());
+		willReturn(currently).given(mockDelegate).isItRainingAtCoordinates(13.37, 90.01,
+				EnumSet.of(ReportSection.CURRENTLY));
+
+		subject.isItRainingAtCoordinates(13.37, 90.01, EnumSet.of(ReportSection.CURRENTLY));
+
+		verify(mockStore, never()).append(anyLong(), any());
+	}
+
+	@Test
+	public void whenAReportIsEmittedByAReactiveUpstream_itShouldBeRecordedForTheCell() {
+		ReactiveWeatherProvider recording = RecordingWeatherProvider
+				.recording((latitude, longitude, sections) -> Mono.just(report), mockStore, mockClock);
+
+		RainReport result = recording.isItRainingAtCoordinates(13.37, 90.01, ReportSection.DEFAULT).block();
+
+		assertThat(result).isSameAs(report);
+		verify(mockStore).append(eq(CellKey.of(13.37, 90.01)), any());
+	}
+}
@@ -0,0 +1,96 @@
+package se.phooey.raining.weather.history;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import se.phooey.raining.weather.Precipitation;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.history.SeriesChunkBuilder
+ */
+public class SeriesChunkBuilderTest {
+
+	private static final long START = 1_600_000_000L;
+
+	private static List<RainSample> decode(SeriesChunkBuilder subject) {
+		List<RainSample> result = new ArrayList<>();
+		subject.toChunk().decodeInto(Long.MIN_VALUE, Long.MAX_VALUE, result);
+		return result;
+	}
+
+	@Test
+	public void theSamplesShouldBeDecodedAsTheyWereAppended() {
+		long[] times = { START, START + 600, START + 1200, START + 1810, START + 2600, START + 3000, START + 3100,
+				START + 100_000, START + 100_000, START + 99_000 };
+		double[] probabilities = { 0, 0, 0.25, 0.5, 0.5, 1, Double.NaN, -1, 0.123456789, 0.123456788 };
+		String[] types = { "rain", "rain", "snow", "none", "none", "sleet", "unknown", "hail", null, "rain" };
+		SeriesChunkBuilder subject = new SeriesChunkBuilder(7);
+		List<RainSample> appended = new ArrayList<>();
+		for (int i = 0; i < times.length; i++) {
+			RainSample sample = new RainSample(times[i], types[i], probabilities[i], probabilities[i] * 10,
+					1 - probabilities[i], types[times.length - 1 - i]);
+			subject.append(sample);
+			appended.add(sample);
+		}
+
+		List<RainSample> result = decode(subject);
+
+		assertThat(subject.getWindow()).isEqualTo(7);
+		assertThat(subject.getCount()).isEqualTo(times.length);
+		assertThat(result).hasSize(times.length);
+		for (int i = 0; i < times.length; i++) {
+			RainSample expected = appended.get(i);
+			assertThat(result.get(i)).usingRecursiveComparison().withComparatorForType(Double::compare, Double.class)
+					.ignoringFields("currentPrecipitation", "typeOfPrecipitationToday").isEqualTo(expected);
+			assertThat(result.get(i).getCurrentPrecipitation()).isEqualTo(i < 6 || i == 9 ? types[i] : "unknown");
+		}
+		assertThat(result.get(0).getTypeOfPrecipitationToday()).isEqualTo("rain");
+		assertThat(result.get(1).getTypeOfPrecipitationToday()).isEqualTo("unknown");
+		assertThat(subject.toChunk().getMinTime()).isEqualTo(START);
+		assertThat(subject.toChunk().getMaxTime()).isEqualTo(START + 100_000);
+	}
+
+	@Test
+	public void theSamplesShouldBeDecodedInPlaceLikeFromAChunk() {
+		SeriesChunkBuilder subject = new SeriesChunkBuilder(0);
+		List<RainSample> inPlace = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			subject.append(new RainSample(START + i * 600, i % 7 == 0 ? "snow" : "rain", (i % 10) / 10.0, i / 3.0,
+					0.5, "rain"));
+			inPlace.clear();
+			subject.decodeInto(START, START + i * 600, inPlace);
+			assertThat(inPlace).hasSize(i + 1);
+		}
+
+		subject.decodeInto(START + 6000, START + 12000, inPlace);
+
+		assertThat(inPlace.subList(100, inPlace.size())).usingRecursiveFieldByFieldElementComparator()
+				.isEqualTo(decode(subject).subList(10, 21));
+	}
+
+	@Test
+	public void steadySamplesShouldOnlyTakeAFewBitsEach() {
+		SeriesChunkBuilder subject = new SeriesChunkBuilder(0);
+		for (int i = 0; i < 1000; i++) {
+			subject.append(new RainSample(START + i * 600L, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+					Precipitation.RAIN.toString()));
+		}
+
+		assertThat(subject.getEncodedBytes()).isLessThan(1000);
+		assertThat(subject.toChunk().getEncodedBytes()).isLessThan(1100);
+		assertThat(decode(subject)).hasSize(1000).allMatch(sample -> sample.getCurrentIntensity() == 1.2);
+	}
+
+	@Test
+	public void anEmptyBuilderShouldGiveAnEmptyChunk() {
+		SeriesChunkBuilder subject = new SeriesChunkBuilder(0);
+
+		assertThat(subject.getEncodedBytes()).isZero();
+		assertThat(subject.toChunk().getCount()).isZero();
+		assertThat(decode(subject)).isEmpty();
+	}
+}
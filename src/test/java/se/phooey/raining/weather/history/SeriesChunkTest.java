@@ -0,0 +1,73 @@
+package se.phooey.raining.weather.history;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.history.SeriesChunk
+ */
+public class SeriesChunkTest {
+
+	private static final long START = 1_600_000_000L;
+
+	private SeriesChunk subject;
+
+	@Before
+	public void setUp() {
+		SeriesChunkBuilder builder = new SeriesChunkBuilder(0);
+		for (int i = 0; i < 10; i++) {
+			builder.append(new RainSample(START + i * 600L, "rain", i / 10.0, i, 0.5, "none"));
+		}
+		subject = builder.toChunk();
+	}
+
+	@Test
+	public void onlyTheSamplesWithinTheRangeShouldBeDecoded() {
+		List<RainSample> result = new ArrayList<>();
+
+		subject.decodeInto(START + 600, START + 1800, result);
+
+		assertThat(result).extracting(RainSample::getTime).containsExactly(START + 600, START + 1200, START + 1800);
+		assertThat(result).extracting(RainSample::getCurrentIntensity).containsExactly(1.0, 2.0, 3.0);
+	}
+
+	@Test
+	public void aChunkOutsideTheRangeShouldNotOverlapIt() {
+		List<RainSample> result = new ArrayList<>();
+
+		subject.decodeInto(START + 6000, START + 7000, result);
+
+		assertThat(subject.overlaps(START - 100, START)).isTrue();
+		assertThat(subject.overlaps(START + 5400, Long.MAX_VALUE)).isTrue();
+		assertThat(subject.overlaps(0, START - 1)).isFalse();
+		assertThat(subject.overlaps(START + 5401, Long.MAX_VALUE)).isFalse();
+		assertThat(result).isEmpty();
+	}
+
+	@Test
+	public void theChunkShouldSurviveARoundTripThroughItsBinaryForm() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		subject.writeTo(new DataOutputStream(bytes));
+
+		SeriesChunk result = SeriesChunk.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		List<RainSample> expected = new ArrayList<>();
+		subject.decodeInto(0, Long.MAX_VALUE, expected);
+		List<RainSample> actual = new ArrayList<>();
+		result.decodeInto(0, Long.MAX_VALUE, actual);
+		assertThat(result.getCount()).isEqualTo(10);
+		assertThat(result.getMinTime()).isEqualTo(START);
+		assertThat(result.getMaxTime()).isEqualTo(START + 5400);
+		assertThat(result.getEncodedBytes()).isEqualTo(subject.getEncodedBytes());
+		assertThat(actual).usingFieldByFieldElementComparator().containsExactlyElementsOf(expected);
+	}
+}
@@ -0,0 +1,147 @@
+package se.phooey.raining.weather.keys;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import se.phooey.raining.weather.quota.LeasedCallBudget;
+import se.phooey.raining.weather.quota.BudgetPlanner;
+import se.phooey.raining.weather.quota.LocalQuotaAuthority;
+import tk.plogitech.darksky.forecast.APIKey;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.keys.ApiKeyPool
+ */
+public class ApiKeyPoolTest {
+
+	private static final long NOW = 19000 * DateUtils.MILLIS_PER_DAY + 1000;
+
+	@Mock
+	private Clock mockClock;
+
+	private LocalQuotaAuthority authority;
+	private ApiKeyPool subject;
+
+	private PooledApiKey key(String name) {
+		return new PooledApiKey(name, new APIKey(name), new LeasedCallBudget(authority, name, 10, mockClock),
+				mockClock);
+	}
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.millis()).thenReturn(NOW);
+		authority = new LocalQuotaAuthority(10);
+		subject = new ApiKeyPool(Arrays.asList(key("key-0"), key("key-1"), key("key-2")), 2, Duration.ofMinutes(5));
+	}
+
+	@Test
+	public void theCallsShouldBeSpreadEvenlyOverTheKeys() {
+		Map<String, Integer> calls = new HashMap<>();
+		for (int i = 0; i < 30; i++) {
+			calls.merge(subject.acquire().get().getName(), 1, Integer::sum);
+		}
+
+		assertThat(calls).containsOnlyKeys("key-0", "key-1", "key-2");
+		assertThat(calls.values()).containsOnly(10);
+	}
+
+	@Test
+	public void whenAllKeysAreUsedUp_noKeyShouldBeAcquiredUntilTheNextDay() {
+		for (int i = 0; i < 30; i++) {
+			subject.acquire();
+		}
+
+		assertThat(subject.acquire()).isEmpty();
+
+		when(mockClock.millis()).thenReturn(NOW + DateUtils.MILLIS_PER_DAY);
+		assertThat(subject.acquire()).isPresent();
+	}
+
+	@Test
+	public void whenTheLeastUsedKeyIsUsedUpElsewhere_theNextKeyShouldBeAcquired() {
+		// Another node uses up the whole budget of the first key
+		authority.lease("key-0", 19000, 10);
+
+		assertThat(subject.acquire().get().getName()).isEqualTo("key-1");
+		assertThat(subject.getKeys().get(0).isAvailable()).isFalse();
+	}
+
+	@Test
+	public void whenAKeyFailsRepeatedly_itShouldNotBeAcquiredDuringItsCoolDown() {
+		PooledApiKey failing = subject.getKeys().get(0);
+		subject.recordFailure(failing);
+		subject.recordFailure(failing);
+		subject.recordSuccess(subject.getKeys().get(1));
+
+		for (int i = 0; i < 20; i++) {
+			assertThat(subject.acquire().get()).isNotSameAs(failing);
+		}
+		assertThat(subject.acquire()).isEmpty();
+
+		when(mockClock.millis()).thenReturn(NOW + Duration.ofMinutes(5).toMillis());
+		assertThat(subject.acquire().get()).isSameAs(failing);
+	}
+
+	@Test
+	public void itShouldReportMetricsPerKey() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		subject.bindTo(registry);
+		PooledApiKey key = subject.acquire().get();
+		subject.recordSuccess(key);
+		subject.recordFailure(key);
+		subject.recordFailure(key);
+
+		assertThat(registry.get("darksky.api.calls").tag("key", key.getName()).tag("outcome", "success")
+				.functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("darksky.api.calls").tag("key", key.getName()).tag("outcome", "failure")
+				.functionCounter().count()).isEqualTo(2);
+		assertThat(registry.get("darksky.api.key.calls.today").tag("key", key.getName()).gauge().value())
+				.isEqualTo(1);
+		assertThat(registry.get("darksky.api.key.available").tag("key", key.getName()).gauge().value()).isZero();
+		assertThat(registry.get("darksky.api.key.available").tag("key", "key-1").gauge().value()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenClosed_theUnusedCallsOfAllKeysShouldBeReturned() {
+		subject.acquire();
+
+		subject.close();
+
+		assertThat(authority.getLeased("key-0", 19000)).isEqualTo(1);
+	}
+
+	@Test
+	public void whenThePlannerDeniesACall_noKeyShouldBeUsed() {
+		BudgetPlanner planner = new BudgetPlanner(240, 0, 0.3, 1, 1, mockClock);
+		subject = new ApiKeyPool(Arrays.asList(key("key-0")), 2, Duration.ofMinutes(5), planner);
+
+		assertThat(subject.acquire()).isPresent();
+		assertThat(subject.acquire()).isEmpty();
+		assertThat(subject.getKeys().get(0).getCallsToday()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenNoKeyIsAvailable_theCallShouldBeReturnedToThePlanner() {
+		BudgetPlanner planner = new BudgetPlanner(240, 240, 0.3, 1, 1, mockClock);
+		subject = new ApiKeyPool(Arrays.asList(key("key-0")), 2, Duration.ofMinutes(5), planner);
+		for (int i = 0; i < 10; i++) {
+			subject.acquire();
+		}
+
+		assertThat(subject.acquire()).isEmpty();
+		assertThat(planner.getUsed()).isEqualTo(10);
+	}
+}
@@ -0,0 +1,96 @@
+package se.phooey.raining.weather.keys;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import se.phooey.raining.weather.quota.LeasedCallBudget;
+import se.phooey.raining.weather.quota.LocalQuotaAuthority;
+import tk.plogitech.darksky.forecast.APIKey;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.keys.PooledApiKey
+ */
+public class PooledApiKeyTest {
+
+	private static final long NOW = 19000 * DateUtils.MILLIS_PER_DAY + 1000;
+
+	@Mock
+	private Clock mockClock;
+
+	private final APIKey apiKey = new APIKey("secret");
+	private LocalQuotaAuthority authority;
+	private PooledApiKey subject;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.millis()).thenReturn(NOW);
+		authority = new LocalQuotaAuthority(3);
+		subject = new PooledApiKey("key-0", apiKey,
+				new LeasedCallBudget(authority, "darksky:key-0", 2, mockClock), mockClock);
+	}
+
+	@Test
+	public void whenTheBudgetIsUsedUp_theKeyShouldBeRetiredUntilTheNextDay() {
+		assertThat(subject.tryAcquire()).isTrue();
+		assertThat(subject.tryAcquire()).isTrue();
+		assertThat(subject.tryAcquire()).isTrue();
+		assertThat(subject.isAvailable()).isTrue();
+
+		assertThat(subject.tryAcquire()).isFalse();
+		assertThat(subject.isAvailable()).isFalse();
+		assertThat(subject.getCallsToday()).isEqualTo(3);
+
+		when(mockClock.millis()).thenReturn(NOW + DateUtils.MILLIS_PER_DAY);
+		assertThat(subject.isAvailable()).isTrue();
+		assertThat(subject.getCallsToday()).isZero();
+		assertThat(subject.tryAcquire()).isTrue();
+		assertThat(subject.getCallsToday()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenCallsFailRepeatedly_theKeyShouldCoolDown() {
+		subject.recordFailure(2, 1000);
+		assertThat(subject.isAvailable()).isTrue();
+
+		subject.recordFailure(2, 1000);
+		assertThat(subject.isAvailable()).isFalse();
+
+		when(mockClock.millis()).thenReturn(NOW + 1000);
+		assertThat(subject.isAvailable()).isTrue();
+		assertThat(subject.getFailures()).isEqualTo(2);
+	}
+
+	@Test
+	public void aSuccessfulCallShouldResetTheConsecutiveFailures() {
+		subject.recordFailure(2, 1000);
+		subject.recordSuccess();
+		subject.recordFailure(2, 1000);
+
+		assertThat(subject.isAvailable()).isTrue();
+		assertThat(subject.getSuccesses()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenClosed_theUnusedCallsShouldBeReturnedToTheAuthority() {
+		subject.tryAcquire();
+
+		subject.close();
+
+		assertThat(authority.getLeased("darksky:key-0", 19000)).isEqualTo(1);
+	}
+
+	@Test
+	public void itShouldExposeTheKeyAndItsName() {
+		assertThat(subject.getName()).isEqualTo("key-0");
+		assertThat(subject.getApiKey()).isSameAs(apiKey);
+	}
+}
@@ -0,0 +1,139 @@
+package se.phooey.raining.weather.quota;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.quota.BudgetPlanner
+ */
+public class BudgetPlannerTest {
+
+	private static final long MIDNIGHT = 19000 * DateUtils.MILLIS_PER_DAY;
+
+	@Mock
+	private Clock mockClock;
+
+	private void at(int day, double hour) {
+		when(mockClock.millis()).thenReturn(MIDNIGHT + day * DateUtils.MILLIS_PER_DAY
+				+ (long) (hour * DateUtils.MILLIS_PER_HOUR));
+	}
+
+	private static int acquireAll(BudgetPlanner subject, int wanted) {
+		int acquired = 0;
+		for (int i = 0; i < wanted; i++) {
+			acquired += subject.tryAcquire() ? 1 : 0;
+		}
+		return acquired;
+	}
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		at(0, 0);
+	}
+
+	@Test
+	public void withoutHistory_theBudgetShouldBeSpreadEvenlyOverTheDay() {
+		BudgetPlanner subject = new BudgetPlanner(240, 0, 0.3, 1, 1, mockClock);
+		assertThat(subject.tryAcquire()).isFalse();
+
+		at(0, 1);
+		assertThat(acquireAll(subject, 100)).isEqualTo(10);
+
+		at(0, 6);
+		assertThat(subject.getPlanned()).isEqualTo(60);
+		assertThat(acquireAll(subject, 1000)).isEqualTo(50);
+		assertThat(subject.getUsed()).isEqualTo(60);
+	}
+
+	@Test
+	public void callsNotMadeEarlierInTheDayShouldBeCarriedOver() {
+		BudgetPlanner subject = new BudgetPlanner(240, 5, 0.3, 1, 1, mockClock);
+
+		at(0, 12);
+
+		assertThat(acquireAll(subject, 1000)).isEqualTo(125);
+	}
+
+	@Test
+	public void theWholeBudgetShouldNeverBeExceeded() {
+		BudgetPlanner subject = new BudgetPlanner(240, 1000, 0.3, 1, 1, mockClock);
+
+		assertThat(acquireAll(subject, 1000)).isEqualTo(240);
+	}
+
+	@Test
+	public void whenANewDayStarts_theBudgetShouldBeAvailableAgain() {
+		BudgetPlanner subject = new BudgetPlanner(240, 1000, 0.3, 1, 1, mockClock);
+		acquireAll(subject, 240);
+
+		at(1, 0);
+
+		assertThat(subject.getUsed()).isZero();
+		assertThat(subject.tryAcquire()).isTrue();
+	}
+
+	@Test
+	public void whenACallIsReleased_itShouldBeReturnedToTheBudget() {
+		BudgetPlanner subject = new BudgetPlanner(240, 1, 0.3, 1, 1, mockClock);
+		assertThat(subject.tryAcquire()).isTrue();
+		assertThat(subject.tryAcquire()).isFalse();
+
+		subject.release();
+		subject.release();
+
+		assertThat(subject.getUsed()).isZero();
+		assertThat(subject.tryAcquire()).isTrue();
+	}
+
+	@Test
+	public void theBudgetShouldBeAllocatedByTheDemandObservedOnThePreviousDays() {
+		BudgetPlanner subject = new BudgetPlanner(240, 0, 1.0, 1, 1, mockClock);
+		at(0, 8.5);
+		acquireAll(subject, 100);
+
+		at(1, 8);
+		assertThat(subject.getForecast()[8]).isEqualTo(100);
+		assertThat(subject.getForecast()[9]).isEqualTo(0.01, within(1e-9));
+		assertThat(subject.getPlanned()).isZero();
+
+		at(1, 9);
+		assertThat(subject.getPlanned()).isEqualTo(239);
+	}
+
+	@Test
+	public void theTtlFactorShouldMakeTheDemandOfTheRestOfTheDayUseUpTheCallsLeft() {
+		BudgetPlanner subject = new BudgetPlanner(240, 240, 0.3, 0.5, 4, mockClock);
+		assertThat(subject.getTtlFactor()).isEqualTo(1.0);
+
+		at(0, 18);
+		assertThat(subject.getTtlFactor()).isEqualTo(0.5);
+		acquireAll(subject, 200);
+		assertThat(subject.getTtlFactor()).isEqualTo(60.0 / 40, within(1e-9));
+		acquireAll(subject, 40);
+		assertThat(subject.getTtlFactor()).isEqualTo(4.0);
+	}
+
+	@Test
+	public void thePlanShouldBeReportedAsMetrics() {
+		BudgetPlanner subject = new BudgetPlanner(240, 0, 0.3, 0.5, 4, mockClock);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		subject.bindTo(registry);
+
+		at(0, 12);
+
+		assertThat(registry.get("darksky.api.calls.planned").gauge().value()).isEqualTo(120);
+		assertThat(registry.get("isitraining.cache.ttl.factor").gauge().value()).isEqualTo(0.5);
+	}
+}
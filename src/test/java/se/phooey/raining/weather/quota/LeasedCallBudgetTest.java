@@ -0,0 +1,157 @@
+package se.phooey.raining.weather.quota;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import jdk.jfr.consumer.RecordedEvent;
+import se.phooey.raining.utils.EventRecording;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.quota.LeasedCallBudget
+ */
+public class LeasedCallBudgetTest {
+
+	private static final long NOW = 19000 * DateUtils.MILLIS_PER_DAY + 1000;
+	private static final long TODAY = 19000;
+
+	@Mock
+	private Clock mockClock;
+
+	private LocalQuotaAuthority authority;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.millis()).thenReturn(NOW);
+		authority = spy(new LocalQuotaAuthority(100));
+	}
+
+	@Test
+	public void callsShouldBeTakenFromTheLeaseWithoutContactingTheAuthorityForEachCall() {
+		LeasedCallBudget subject = new LeasedCallBudget(authority, "budget", 10, mockClock);
+
+		for (int i = 0; i < 25; i++) {
+			assertThat(subject.tryAcquire()).isTrue();
+		}
+
+		verify(authority, times(3)).lease("budget", TODAY, 10);
+		assertThat(subject.getRemainingInLease()).isEqualTo(5);
+		assertThat(subject.getBudget()).isEqualTo("budget");
+	}
+
+	@Test
+	public void whenTheBudgetIsExhausted_itShouldNotContactTheAuthorityAgainThatDay() {
+		LeasedCallBudget subject = new LeasedCallBudget(authority, "budget", 40, mockClock);
+
+		int acquired = 0;
+		for (int i = 0; i < 150; i++) {
+			if (subject.tryAcquire()) {
+				acquired++;
+			}
+		}
+
+		assertThat(acquired).isEqualTo(100);
+		verify(authority, times(4)).lease(anyString(), anyLong(), anyInt());
+	}
+
+	@Test
+	public void whenANewDayStarts_newCallsShouldBeLeasedForThatDay() {
+		LeasedCallBudget subject = new LeasedCallBudget(authority, "budget", 100, mockClock);
+		while (subject.tryAcquire()) {
+			// Use up the budget of the day
+		}
+
+		when(mockClock.millis()).thenReturn(NOW + DateUtils.MILLIS_PER_DAY);
+
+		assertThat(subject.tryAcquire()).isTrue();
+		assertThat(authority.getLeased("budget", TODAY + 1)).isEqualTo(100);
+	}
+
+	@Test
+	public void whenClosed_unusedCallsShouldBeReturnedToTheAuthority() {
+		LeasedCallBudget subject = new LeasedCallBudget(authority, "budget", 50, mockClock);
+		subject.tryAcquire();
+
+		subject.close();
+		subject.close();
+
+		assertThat(authority.getLeased("budget", TODAY)).isEqualTo(1);
+		verify(authority, times(1)).release("budget", TODAY, 49);
+	}
+
+	@Test
+	public void severalNodesSharingAnAuthorityShouldTogetherNeverExceedTheDailyBudget() throws Exception {
+		final int nodes = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(nodes);
+		AtomicInteger acquired = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int n = 0; n < nodes; n++) {
+			LeasedCallBudget node = new LeasedCallBudget(authority, "budget", 7, mockClock);
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 1000; i++) {
+					if (node.tryAcquire()) {
+						acquired.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get(10, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		assertThat(acquired.get()).isEqualTo(100);
+	}
+
+	@Test
+	public void whenTheClockGoesBackToAPreviousDay_nothingShouldBeLeasedForThatDay() {
+		LeasedCallBudget subject = new LeasedCallBudget(authority, "budget", 10, mockClock);
+		for (int i = 0; i < 10; i++) {
+			subject.tryAcquire();
+		}
+
+		when(mockClock.millis()).thenReturn(NOW - DateUtils.MILLIS_PER_DAY);
+
+		assertThat(subject.tryAcquire()).isFalse();
+		verify(authority, times(1)).lease(anyString(), anyLong(), anyInt());
+	}
+
+	@Test
+	public void eachDecisionShouldBeRecordedAsAnEvent() throws Exception {
+		LeasedCallBudget subject = new LeasedCallBudget(new LocalQuotaAuthority(2), "recorded", 2, mockClock);
+		List<RecordedEvent> events;
+
+		try (EventRecording recording = new EventRecording("se.phooey.raining.QuotaDecision")) {
+			for (int i = 0; i < 3; i++) {
+				subject.tryAcquire();
+			}
+			events = recording.events("se.phooey.raining.QuotaDecision").stream()
+					.filter(event -> "recorded".equals(event.getString("budget"))).collect(Collectors.toList());
+		}
+
+		assertThat(events).extracting(event -> event.getBoolean("allowed")).containsExactly(true, true, false);
+		assertThat(events).extracting(event -> event.getLong("remainingInLease")).containsExactly(1L, 0L, 0L);
+	}
+}
@@ -0,0 +1,58 @@
+package se.phooey.raining.weather.quota;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.quota.LocalQuotaAuthority
+ */
+public class LocalQuotaAuthorityTest {
+
+	private static final long DAY = 19000;
+
+	private final LocalQuotaAuthority subject = new LocalQuotaAuthority(100);
+
+	@Test
+	public void whenLeasing_itShouldNeverGrantMoreThanTheDailyLimit() {
+		assertThat(subject.lease("budget", DAY, 60)).isEqualTo(60);
+		assertThat(subject.lease("budget", DAY, 60)).isEqualTo(40);
+		assertThat(subject.lease("budget", DAY, 60)).isZero();
+		assertThat(subject.getLeased("budget", DAY)).isEqualTo(100);
+	}
+
+	@Test
+	public void budgetsShouldBeIndependentOfEachOther() {
+		assertThat(subject.lease("first", DAY, 100)).isEqualTo(100);
+		assertThat(subject.lease("second", DAY, 100)).isEqualTo(100);
+		assertThat(subject.getLeased("third", DAY)).isZero();
+	}
+
+	@Test
+	public void whenANewDayStarts_theWholeLimitShouldBeAvailableAgain() {
+		subject.lease("budget", DAY, 100);
+
+		assertThat(subject.lease("budget", DAY + 1, 100)).isEqualTo(100);
+		assertThat(subject.getLeased("budget", DAY)).isZero();
+	}
+
+	@Test
+	public void whenLeasingForADayThatHasPassed_nothingShouldBeGranted() {
+		subject.lease("budget", DAY + 1, 10);
+
+		assertThat(subject.lease("budget", DAY, 10)).isZero();
+		assertThat(subject.getLeased("budget", DAY + 1)).isEqualTo(10);
+	}
+
+	@Test
+	public void whenUnusedCallsAreReleased_theyShouldBeAvailableForLeasingAgain() {
+		subject.lease("budget", DAY, 100);
+
+		subject.release("budget", DAY, 30);
+		subject.release("budget", DAY - 1, 30);
+		subject.release("unknown", DAY, 30);
+
+		assertThat(subject.getLeased("budget", DAY)).isEqualTo(70);
+		assertThat(subject.lease("budget", DAY, 100)).isEqualTo(30);
+	}
+}
@@ -0,0 +1,97 @@
+package se.phooey.raining.weather.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import se.phooey.raining.weather.cache.CellKey;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.sharding.ConsistentHashRing
+ */
+public class ConsistentHashRingTest {
+
+	private static final int CELLS = 100_000;
+
+	private static long randomCell(Random random) {
+		return CellKey.of(random.nextInt(180_000) / 1000.0 - 90, random.nextInt(360_000) / 1000.0 - 180);
+	}
+
+	@Test
+	public void allNodesShouldBuildTheSameRingRegardlessOfTheOrderOfTheIds() {
+		ConsistentHashRing first = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 16);
+		ConsistentHashRing second = new ConsistentHashRing(Arrays.asList("c", "a", "b", "a"), 16);
+
+		assertThat(second.getNodes()).containsExactly("a", "b", "c");
+		assertThat(second.getTokens()).containsExactly(first.getTokens());
+		assertThat(second.getOwners()).containsExactly(first.getOwners());
+		assertThat(second.getVirtualNodesPerNode()).isEqualTo(16);
+	}
+
+	@Test
+	public void theTokensShouldBeInAscendingOrder() {
+		long[] tokens = new ConsistentHashRing(Arrays.asList("a", "b"), 64).getTokens();
+
+		long[] sorted = tokens.clone();
+		Arrays.sort(sorted);
+		assertThat(tokens).hasSize(128).containsExactly(sorted);
+	}
+
+	@Test
+	public void whenThereIsOnlyOneNode_itShouldOwnAllCells() {
+		ConsistentHashRing subject = new ConsistentHashRing(Collections.singletonList("a"), 1);
+		Random random = new Random(42);
+
+		for (int i = 0; i < 1000; i++) {
+			assertThat(subject.ownerOf(randomCell(random))).isEqualTo("a");
+		}
+	}
+
+	@Test
+	public void theCellsShouldBeSpreadEvenlyOverTheNodes() {
+		ConsistentHashRing subject = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 128);
+		Random random = new Random(42);
+		Map<String, Integer> owned = new HashMap<>();
+
+		for (int i = 0; i < CELLS; i++) {
+			owned.merge(subject.ownerOf(randomCell(random)), 1, Integer::sum);
+		}
+
+		assertThat(owned).hasSize(4);
+		assertThat(owned.values()).allSatisfy(count -> assertThat(count).isBetween(CELLS / 6, CELLS / 3));
+	}
+
+	@Test
+	public void whenANodeJoins_onlyCellsMovingToThatNodeShouldChangeOwner() {
+		ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 128);
+		ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 128);
+		Random random = new Random(42);
+		int moved = 0;
+
+		for (int i = 0; i < CELLS; i++) {
+			long cell = randomCell(random);
+			if (!before.ownerOf(cell).equals(after.ownerOf(cell))) {
+				assertThat(after.ownerOf(cell)).isEqualTo("d");
+				moved++;
+			}
+		}
+
+		assertThat(moved).isBetween(CELLS / 6, CELLS / 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenThereAreNoNodes_itShouldThrowAnIllegalArgumentException() {
+		new ConsistentHashRing(Collections.emptyList(), 128);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenNodesHaveNoTokens_itShouldThrowAnIllegalArgumentException() {
+		new ConsistentHashRing(Collections.singletonList("a"), 0);
+	}
+}
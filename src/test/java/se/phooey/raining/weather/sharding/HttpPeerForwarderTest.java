@@ -0,0 +1,75 @@
+package se.phooey.raining.weather.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import se.phooey.raining.weather.DailyPrecipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.sharding.HttpPeerForwarder
+ */
+public class HttpPeerForwarderTest {
+
+	private static final String FORWARDED_URL = "http://node-b:8080/shard/isitraining?latitude=13.37&longitude=90.01"
+			+ "&sections=CURRENTLY,DAILY";
+
+	private MockRestServiceServer server;
+	private HttpPeerForwarder subject;
+
+	@Before
+	public void setUp() {
+		RestTemplate restTemplate = new RestTemplate();
+		server = MockRestServiceServer.bindTo(restTemplate).build();
+		subject = new HttpPeerForwarder(Collections.singletonMap("b", "http://node-b:8080"), restTemplate,
+				"secret");
+	}
+
+	@Test
+	public void itShouldReturnTheRainReportOfTheOtherNode() throws Exception {
+		server.expect(requestTo(FORWARDED_URL)).andExpect(header(HttpPeerForwarder.SECRET_HEADER, "secret"))
+				.andRespond(withSuccess(
+				"{\"latitude\":13.37,\"longitude\":90.01,\"currentProbability\":0.5,\"dailyForecast\":"
+						+ "[{\"time\":1600000000,\"probability\":0.4,\"precipitation\":\"rain\"}]}",
+				MediaType.APPLICATION_JSON));
+
+		RainReport report = subject.forward("b", 13.37, 90.01, ReportSection.DEFAULT);
+
+		assertThat(report.getLatitude()).isEqualTo(13.37);
+		assertThat(report.getCurrentProbability()).isEqualTo(0.5);
+		assertThat(report.getDailyForecast()).extracting(DailyPrecipitation::getProbability).containsExactly(0.4);
+		server.verify();
+	}
+
+	@Test(expected = RainReportException.class)
+	public void whenTheNodeIsUnknown_itShouldThrowARainReportException() throws Exception {
+		subject.forward("c", 13.37, 90.01, ReportSection.DEFAULT);
+	}
+
+	@Test(expected = RainReportException.class)
+	public void whenTheNodeRespondsWithAnError_itShouldThrowARainReportException() throws Exception {
+		server.expect(requestTo(FORWARDED_URL)).andRespond(withServerError());
+
+		subject.forward("b", 13.37, 90.01, ReportSection.DEFAULT);
+	}
+
+	@Test(expected = RainReportException.class)
+	public void whenTheNodeRespondsWithoutABody_itShouldThrowARainReportException() throws Exception {
+		server.expect(requestTo(FORWARDED_URL)).andRespond(withSuccess());
+
+		subject.forward("b", 13.37, 90.01, ReportSection.DEFAULT);
+	}
+}
@@ -0,0 +1,152 @@
+package se.phooey.raining.weather.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.cache.CachingWeatherProvider;
+import se.phooey.raining.weather.cache.InMemorySharedReportStore;
+import se.phooey.raining.weather.cache.NearCache;
+
+/**
+ * Runs the same skewed load against a cluster of in-JVM nodes, once with every
+ * node caching all locations it is asked for, and once with the locations
+ * sharded over the nodes, and compares the cache hit rate, the number of calls
+ * to the upstream weather provider and the number of cached reports.<br>
+ * <br>
+ * Every node only has a cache of its own, and the requests are spread over the
+ * nodes round-robin as by a load balancer unaware of the ring.
+ */
+public class MultiNodeHarnessTest {
+
+	private static final int NODES = 4;
+	private static final int CELLS = 2000;
+	private static final int REQUESTS = 50_000;
+
+	private final Logger logger = LoggerFactory.getLogger(MultiNodeHarnessTest.class);
+	private final Clock clock = Clock.fixed(Instant.parse("2021-06-01T12:00:00Z"), ZoneOffset.UTC);
+
+	private static class Result {
+		long upstreamCalls;
+		long hits;
+		long cachedReports;
+
+		double hitRate() {
+			return (double) hits / REQUESTS;
+		}
+	}
+
+	private static class Node {
+		final CachingWeatherProvider cache;
+		final NearCache nearCache;
+		WeatherProvider entry;
+
+		Node(CachingWeatherProvider cache, NearCache nearCache) {
+			this.cache = cache;
+			this.nearCache = nearCache;
+			this.entry = cache;
+		}
+	}
+
+	/**
+	 * Latitudes of the requested cells, drawn from a Zipf distribution so that a
+	 * few cells are very popular, as for the cities of a country
+	 */
+	private static double[] skewedLoad() {
+		double[] weights = new double[CELLS];
+		double total = 0;
+		for (int i = 0; i < CELLS; i++) {
+			total += 1.0 / (i + 1);
+			weights[i] = total;
+		}
+		Random random = new Random(42);
+		double[] latitudes = new double[REQUESTS];
+		for (int r = 0; r < REQUESTS; r++) {
+			double point = random.nextDouble() * total;
+			int cell = 0;
+			while (weights[cell] < point) {
+				cell++;
+			}
+			latitudes[r] = cell / 1000.0;
+		}
+		return latitudes;
+	}
+
+	private Result run(boolean sharded) throws Exception {
+		AtomicLong upstreamCalls = new AtomicLong();
+		WeatherProvider upstream = (latitude, longitude) -> {
+			upstreamCalls.incrementAndGet();
+			RainReport report = new RainReport();
+			report.setLatitude(latitude);
+			report.setLongitude(longitude);
+			return report;
+		};
+		Map<String, Node> nodes = new LinkedHashMap<>();
+		for (int i = 0; i < NODES; i++) {
+			String id = "node-" + i;
+			NearCache nearCache = new NearCache(CELLS, clock);
+			nodes.put(id, new Node(new CachingWeatherProvider(upstream, nearCache, new InMemorySharedReportStore(CELLS, clock),
+					Duration.ofMinutes(10), Duration.ofMinutes(1), clock, id), nearCache));
+		}
+		if (sharded) {
+			ConsistentHashRing ring = new ConsistentHashRing(nodes.keySet(), 128);
+			PeerForwarder inJvm = (node, latitude, longitude, sections) -> nodes.get(node).cache
+					.isItRainingAtCoordinates(latitude, longitude, sections);
+			nodes.forEach((id, node) -> node.entry = new ShardingWeatherProvider(id, ring, node.cache, inJvm));
+		}
+
+		List<Node> roundRobin = new ArrayList<>(nodes.values());
+		double[] load = skewedLoad();
+		for (int r = 0; r < REQUESTS; r++) {
+			roundRobin.get(r % NODES).entry.isItRainingAtCoordinates(load[r], 18.0);
+		}
+
+		Result result = new Result();
+		result.upstreamCalls = upstreamCalls.get();
+		for (Node node : nodes.values()) {
+			result.hits += node.cache.getNearHits() + node.cache.getSharedHits();
+			result.cachedReports += node.nearCache.size();
+		}
+		return result;
+	}
+
+	@Test
+	public void shardingShouldFetchAndCacheEachCellOnlyOnceInTheCluster() throws Exception {
+		Set<Double> distinctCells = new HashSet<>();
+		for (double latitude : skewedLoad()) {
+			distinctCells.add(latitude);
+		}
+
+		Result unsharded = run(false);
+		Result sharded = run(true);
+
+		logger.info("{} nodes, {} requests for {} distinct cells", NODES, REQUESTS, distinctCells.size());
+		logger.info("unsharded: hit rate {}, upstream calls {}, cached reports {}", unsharded.hitRate(),
+				unsharded.upstreamCalls, unsharded.cachedReports);
+		logger.info("sharded:   hit rate {}, upstream calls {}, cached reports {}", sharded.hitRate(),
+				sharded.upstreamCalls, sharded.cachedReports);
+
+		assertThat(sharded.upstreamCalls).isEqualTo(distinctCells.size());
+		assertThat(sharded.cachedReports).isEqualTo(distinctCells.size());
+		assertThat(sharded.hitRate()).isGreaterThan(unsharded.hitRate());
+		assertThat(unsharded.upstreamCalls).isGreaterThan(sharded.upstreamCalls * 2);
+		assertThat(unsharded.cachedReports).isGreaterThan(sharded.cachedReports * 2);
+	}
+}
@@ -0,0 +1,68 @@
+package se.phooey.raining.weather.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import org.junit.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.sharding.ShardingConfiguration
+ */
+public class ShardingConfigurationTest {
+
+	private static ShardingConfiguration configuration(String nodeId, String peers) {
+		ShardingConfiguration configuration = new ShardingConfiguration();
+		ReflectionTestUtils.setField(configuration, "nodeId", nodeId);
+		ReflectionTestUtils.setField(configuration, "peers", peers);
+		ReflectionTestUtils.setField(configuration, "virtualNodes", 8);
+		ReflectionTestUtils.setField(configuration, "secret", "");
+		return configuration;
+	}
+
+	@Test
+	public void thePeersShouldBeParsedInTheOrderTheyAreListed() {
+		assertThat(ShardingConfiguration.parsePeers("b=http://node-b:8080, a=http://node-a:8080"))
+				.containsExactly(entry("b", "http://node-b:8080"),
+						entry("a", "http://node-a:8080"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenAPeerHasNoUrl_itShouldThrowAnIllegalArgumentException() {
+		ShardingConfiguration.parsePeers("a=http://node-a:8080,b");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenAPeerHasAnEmptyId_itShouldThrowAnIllegalArgumentException() {
+		ShardingConfiguration.parsePeers("=http://node-a:8080");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenAPeerHasAnEmptyUrl_itShouldThrowAnIllegalArgumentException() {
+		ShardingConfiguration.parsePeers("a=");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenThisNodeIsNotAmongThePeers_itShouldThrowAnIllegalArgumentException() {
+		configuration("c", "a=http://node-a:8080,b=http://node-b:8080").publishedRing();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenTheNodesShareNoSecret_itShouldThrowAnIllegalArgumentException() {
+		ShardingConfiguration configuration = configuration("a", "a=http://node-a:8080,b=http://node-b:8080");
+
+		configuration.peerForwarder(configuration.publishedRing(), new RestTemplateBuilder());
+	}
+
+	@Test
+	public void thePublishedRingShouldContainAllPeers() {
+		PublishedRing ring = configuration("a", "a=http://node-a:8080,b=http://node-b:8080").publishedRing();
+
+		assertThat(ring.getNodes()).containsExactly("a", "b");
+		assertThat(ring.getVirtualNodesPerNode()).isEqualTo(8);
+		assertThat(ring.getTokens()).hasSize(16);
+		assertThat(ring.getOwners()).hasSize(16);
+		assertThat(ring.getPeers()).containsEntry("b", "http://node-b:8080");
+	}
+}
@@ -0,0 +1,94 @@
+package se.phooey.raining.weather.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.Mock;
+
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.WeatherProvider;
+import se.phooey.raining.weather.cache.CellKey;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * Unit tests for @see se.phooey.raining.weather.sharding.ShardingWeatherProvider
+ */
+public class ShardingWeatherProviderTest {
+
+	// Calls the default methods of the interface, like a WeatherProvider that
+	// always returns the full report
+	@Mock(answer = Answers.CALLS_REAL_METHODS)
+	private WeatherProvider mockLocal;
+	@Mock
+	private PeerForwarder mockForwarder;
+
+	private final ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b"), 128);
+	private final RainReport dummyRainReport = new RainReport();
+	private double ownedLatitude;
+	private double foreignLatitude;
+	private ShardingWeatherProvider subject;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		subject = new ShardingWeatherProvider("a", ring, mockLocal, mockForwarder);
+		for (int i = 0; ownedLatitude == 0 || foreignLatitude == 0; i++) {
+			double latitude = (i + 1) / 1000.0;
+			if ("a".equals(ring.ownerOf(CellKey.of(latitude, 0)))) {
+				ownedLatitude = latitude;
+			} else {
+				foreignLatitude = latitude;
+			}
+		}
+	}
+
+	@Test
+	public void whenTheCellIsOwnedByThisNode_itShouldBeServedLocally() throws Exception {
+		given(mockLocal.isItRainingAtCoordinates(ownedLatitude, 0)).willReturn(dummyRainReport);
+
+		assertThat(subject.isItRainingAtCoordinates(ownedLatitude, 0)).isSameAs(dummyRainReport);
+		verifyNoInteractions(mockForwarder);
+		assertThat(subject.getLocalRequests()).isEqualTo(1);
+		assertThat(subject.getForwardedRequests()).isZero();
+	}
+
+	@Test
+	public void whenTheCellIsOwnedByAnotherNode_itShouldBeForwardedToThatNode() throws Exception {
+		given(mockForwarder.forward("b", foreignLatitude, 0, ReportSection.DEFAULT)).willReturn(dummyRainReport);
+
+		assertThat(subject.isItRainingAtCoordinates(foreignLatitude, 0)).isSameAs(dummyRainReport);
+		verifyNoInteractions(mockLocal);
+		assertThat(subject.getForwardedRequests()).isEqualTo(1);
+		assertThat(subject.getLocalRequests()).isZero();
+	}
+
+	@Test
+	public void whenTheOwnerCanNotBeReached_itShouldBeServedLocally() throws Exception {
+		given(mockForwarder.forward(anyString(), anyDouble(), anyDouble(), any())).willThrow(RainReportException.class);
+		given(mockLocal.isItRainingAtCoordinates(foreignLatitude, 0)).willReturn(dummyRainReport);
+
+		assertThat(subject.isItRainingAtCoordinates(foreignLatitude, 0)).isSameAs(dummyRainReport);
+		verify(mockLocal).isItRainingAtCoordinates(foreignLatitude, 0);
+		assertThat(subject.getForwardingFailures()).isEqualTo(1);
+		assertThat(subject.getLocalRequests()).isEqualTo(1);
+	}
+
+	@Test
+	public void itShouldExposeItsPlaceInTheCluster() {
+		assertThat(subject.getNodeId()).isEqualTo("a");
+		assertThat(subject.getRing()).isSameAs(ring);
+		assertThat(subject.getLocal()).isSameAs(mockLocal);
+	}
+}
@@ -0,0 +1,61 @@
+package se.phooey.raining.web;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.WeatherProvider;
+
+/**
+ * API tests using Spring's MockMvc to make sure the REST API for route
+ * "/isitraining/here" is behaving as expected, with the IP location table in
+ * src/test/resources.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ClientLocationControllerAPITest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private WeatherProvider weatherProviderMock;
+
+	@Test
+	public void whenGetIsItRainingHere_shouldRespondWithTheReportForTheTruncatedCoordinatesOfTheClient()
+			throws Exception {
+		RainReport rainReport = new RainReport(57.707, 11.967, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+				Precipitation.RAIN.toString());
+		given(weatherProviderMock.isItRainingAtCoordinates(57.707, 11.967)).willReturn(rainReport);
+
+		this.mockMvc.perform(get("/isitraining/here").with(request -> {
+			request.setRemoteAddr("192.0.2.77");
+			return request;
+		}))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.latitude").value(57.707))
+				.andExpect(jsonPath("$.currentPrecipitation").value(Precipitation.RAIN.toString()));
+	}
+
+	@Test
+	public void whenGetIsItRainingHereFromAnUnknownAddress_shouldRespondNotFound() throws Exception {
+		this.mockMvc.perform(get("/isitraining/here").with(request -> {
+			request.setRemoteAddr("10.0.0.1");
+			return request;
+		}))
+				.andExpect(status().isNotFound());
+	}
+}
@@ -0,0 +1,69 @@
+package se.phooey.raining.web;
+
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Base64;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import se.phooey.raining.weather.grid.RainGrid;
+import se.phooey.raining.weather.grid.RainGridService;
+
+/**
+ * API tests using Spring's MockMvc to make sure the REST API for route "/grid"
+ * is behaving as expected.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class GridControllerAPITest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private RainGridService rainGridServiceMock;
+
+	@Test
+	public void whenGetGrid_shouldRespondWithTheGridOfTheBoundingBox() throws Exception {
+		byte[] precipitation = new byte[] { 0, 2 };
+		given(rainGridServiceMock.rainGrid(59.3, 18.0, 59.4, 18.0, 0.1))
+				.willReturn(new RainGrid(59.3, 18.0, 0.1, 2, 1, precipitation));
+
+		this.mockMvc.perform(get("/grid").param("south", "59.3").param("west", "18.0").param("north", "59.4")
+				.param("east", "18.0"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.rows").value(2))
+				.andExpect(jsonPath("$.columns").value(1))
+				.andExpect(jsonPath("$.legend[2]").value("rain"))
+				.andExpect(jsonPath("$.precipitation").value(Base64.getEncoder().encodeToString(precipitation)));
+	}
+
+	@Test
+	public void whenGetGridWithInvalidCoordinates_shouldRespondBadRequest() throws Exception {
+		this.mockMvc.perform(get("/grid").param("south", "59.3").param("west", "18.0").param("north", "91")
+				.param("east", "18.2"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenGetGridForAnInvalidBoundingBox_shouldRespondBadRequest() throws Exception {
+		given(rainGridServiceMock.rainGrid(anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+				.willThrow(new IllegalArgumentException("The bounding box contains no points of the grid."));
+
+		this.mockMvc.perform(get("/grid").param("south", "59.4").param("west", "18.0").param("north", "59.3")
+				.param("east", "18.2").param("resolution", "0.1"))
+				.andExpect(status().isBadRequest());
+	}
+}
@@ -0,0 +1,74 @@
+package se.phooey.raining.web;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.cache.CellKey;
+import se.phooey.raining.weather.history.RainHistoryStore;
+import se.phooey.raining.weather.history.RainSample;
+
+/**
+ * API tests using Spring's MockMvc to make sure the REST API for route
+ * "/history" is behaving as expected.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class HistoryControllerAPITest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private RainHistoryStore rainHistoryStoreMock;
+
+	@Test
+	public void whenGetHistory_shouldRespondWithTheSamplesOfTheTruncatedCoordinatesWithinTheRange()
+			throws Exception {
+		given(rainHistoryStoreMock.query(CellKey.of(13.37, 90.01), 1_600_000_000L, 1_600_003_600L))
+				.willReturn(Arrays.asList(
+						new RainSample(1_600_000_000L, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+								Precipitation.RAIN.toString()),
+						new RainSample(1_600_000_600L, Precipitation.NONE.toString(), 0, 0, 0.9,
+								Precipitation.RAIN.toString())));
+
+		this.mockMvc.perform(get("/history").param("latitude", "13.3701").param("longitude", "90.0104")
+				.param("from", "1600000000").param("to", "1600003600"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].time").value(1_600_000_000L))
+				.andExpect(jsonPath("$[0].currentIntensity").value(1.2))
+				.andExpect(jsonPath("$[1].currentPrecipitation").value(Precipitation.NONE.toString()));
+	}
+
+	@Test
+	public void whenGetHistoryWithoutRange_shouldRespondWithTheWholeHistory() throws Exception {
+		given(rainHistoryStoreMock.query(CellKey.of(13.37, 90.01), 0, Long.MAX_VALUE)).willReturn(Arrays.asList(
+				new RainSample(1_600_000_000L, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+						Precipitation.RAIN.toString())));
+
+		this.mockMvc.perform(get("/history").param("latitude", "13.37").param("longitude", "90.01"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1));
+	}
+
+	@Test
+	public void whenGetHistoryWithInvalidCoordinates_shouldRespondBadRequest() throws Exception {
+		this.mockMvc.perform(get("/history").param("latitude", "95").param("longitude", "90.01"))
+				.andExpect(status().isBadRequest());
+	}
+}
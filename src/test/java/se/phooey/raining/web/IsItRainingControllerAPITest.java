@@ -1,22 +1,37 @@
 package se.phooey.raining.web;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
+import se.phooey.raining.weather.DailyPrecipitation;
 import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.PrecipitationNowcast;
 import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
 import se.phooey.raining.weather.WeatherProvider;
 import se.phooey.raining.weather.exception.RainReportException;
 
@@ -67,8 +82,7 @@ public class IsItRainingControllerAPITest {
 				.andExpect(status().is5xxServerError());
 	}
 
-	@Test
-	public void whenGetIsItRainingWithValidParams_shouldReturnARainReportForTheLocation() throws Exception {
+	private static RainReport dummyRainReport() {
 		RainReport rainReport = new RainReport();
 		rainReport.setLatitude(DUMMY_LATITUDE);
 		rainReport.setLongitude(DUMMY_LONGITUDE);
@@ -77,14 +91,35 @@ public class IsItRainingControllerAPITest {
 		rainReport.setCurrentIntensity(0.05);
 		rainReport.setChanceOfPrecipitationToday(0.5);
 		rainReport.setTypeOfPrecipitationToday(Precipitation.RAIN.toString());
-		
-		given(weatherProviderMock.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE)).willReturn(rainReport);
+		return rainReport;
+	}
+
+	private RainReport getRainReportAs(MediaType mediaType, ObjectMapper decoder) throws Exception {
+		given(weatherProviderMock.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willReturn(dummyRainReport());
+
+		MvcResult result = this.mockMvc.perform(
+				get("/isitraining")
+				.accept(mediaType)
+				.param("latitude", String.valueOf(DUMMY_LATITUDE))
+				.param("longitude", String.valueOf(DUMMY_LONGITUDE)))
+				.andExpect(status().is2xxSuccessful())
+				.andExpect(content().contentTypeCompatibleWith(mediaType))
+				.andReturn();
+		return decoder.readValue(result.getResponse().getContentAsByteArray(), RainReport.class);
+	}
+
+	@Test
+	public void whenGetIsItRainingWithValidParams_shouldReturnARainReportForTheLocation() throws Exception {
+		given(weatherProviderMock.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE))
+				.willReturn(dummyRainReport());
 
 		this.mockMvc.perform(
 				get("/isitraining")
 				.param("latitude", String.valueOf(DUMMY_LATITUDE))
 				.param("longitude", String.valueOf(DUMMY_LONGITUDE)))
 				.andDo(print()).andExpect(status().is2xxSuccessful())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
 				.andExpect(jsonPath("$.latitude").value(DUMMY_LATITUDE))
 				.andExpect(jsonPath("$.longitude").value(DUMMY_LONGITUDE))
 				.andExpect(jsonPath("$.currentPrecipitation").value(Precipitation.RAIN.toString()))
@@ -94,4 +129,128 @@ public class IsItRainingControllerAPITest {
 				.andExpect(jsonPath("$.typeOfPrecipitationToday").value(Precipitation.RAIN.toString()));
 	}
 
+	@Test
+	public void whenGetIsItRainingAcceptingCbor_shouldReturnTheRainReportEncodedAsCbor() throws Exception {
+		RainReport result = getRainReportAs(MediaType.APPLICATION_CBOR, new ObjectMapper(new CBORFactory()));
+
+		assertThat(result).isEqualTo(dummyRainReport());
+	}
+
+	@Test
+	public void whenGetIsItRainingAcceptingSmile_shouldReturnTheRainReportEncodedAsSmile() throws Exception {
+		RainReport result = getRainReportAs(new MediaType("application", "x-jackson-smile"),
+				new ObjectMapper(new SmileFactory()));
+
+		assertThat(result).isEqualTo(dummyRainReport());
+	}
+
+	@Test
+	public void whenGetIsItRainingWithFields_shouldRespondWithOnlyThoseFields() throws Exception {
+		given(weatherProviderMock.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				EnumSet.of(ReportSection.CURRENTLY))).willReturn(dummyRainReport());
+		this.mockMvc.perform(
+				get("/isitraining")
+				.param("latitude", String.valueOf(DUMMY_LATITUDE))
+				.param("longitude", String.valueOf(DUMMY_LONGITUDE))
+				.param("fields", "currentPrecipitation,currentProbability"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.currentPrecipitation").value(dummyRainReport().getCurrentPrecipitation()))
+				.andExpect(jsonPath("$.currentProbability").value(dummyRainReport().getCurrentProbability()))
+				.andExpect(jsonPath("$.latitude").doesNotExist())
+				.andExpect(jsonPath("$.typeOfPrecipitationToday").doesNotExist());
+	}
+
+	@Test
+	public void whenGetIsItRainingWithUnknownFields_shouldRespondBadRequest() throws Exception {
+		this.mockMvc.perform(
+				get("/isitraining")
+				.param("latitude", String.valueOf(DUMMY_LATITUDE))
+				.param("longitude", String.valueOf(DUMMY_LONGITUDE))
+				.param("fields", "temperature"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenGetIsItRainingWithOnlyTheCoordinatesAsFields_shouldRespondBadRequest() throws Exception {
+		this.mockMvc.perform(
+				get("/isitraining")
+				.param("latitude", String.valueOf(DUMMY_LATITUDE))
+				.param("longitude", String.valueOf(DUMMY_LONGITUDE))
+				.param("fields", "latitude"))
+				.andExpect(status().isBadRequest());
+		this.mockMvc.perform(
+				get("/isitraining")
+				.param("latitude", String.valueOf(DUMMY_LATITUDE))
+				.param("longitude", String.valueOf(DUMMY_LONGITUDE))
+				.param("fields", ""))
+				.andExpect(status().isBadRequest());
+
+		then(weatherProviderMock).shouldHaveNoInteractions();
+	}
+
+	@Test
+	public void whenGetIsItRaining_shouldNotRespondWithTheDailyForecast() throws Exception {
+		RainReport rainReport = dummyRainReport();
+		rainReport.setDailyForecast(Arrays.asList(new DailyPrecipitation(1_600_000_000L, 0.4, Precipitation.RAIN.toString())));
+		rainReport.setNowcast(new PrecipitationNowcast(1_600_000_000L, 60, new float[1], new float[1]));
+		given(weatherProviderMock.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE)).willReturn(rainReport);
+		this.mockMvc.perform(
+				get("/isitraining")
+				.param("latitude", String.valueOf(DUMMY_LATITUDE))
+				.param("longitude", String.valueOf(DUMMY_LONGITUDE)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.currentPrecipitation").value(rainReport.getCurrentPrecipitation()))
+				.andExpect(jsonPath("$.dailyForecast").doesNotExist())
+				.andExpect(jsonPath("$.nowcast").doesNotExist());
+	}
+
+	@Test
+	public void whenGetForecast_shouldRespondWithOnlyTheDailyForecast() throws Exception {
+		RainReport rainReport = dummyRainReport();
+		rainReport.setDailyForecast(Arrays.asList(new DailyPrecipitation(1_600_000_000L, 0.4, Precipitation.RAIN.toString()),
+				new DailyPrecipitation(1_600_086_400L, 0, Precipitation.NONE.toString())));
+		given(weatherProviderMock.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				ReportSection.DEFAULT)).willReturn(rainReport);
+		this.mockMvc.perform(
+				get("/forecast")
+				.param("latitude", String.valueOf(DUMMY_LATITUDE))
+				.param("longitude", String.valueOf(DUMMY_LONGITUDE)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.latitude").value(DUMMY_LATITUDE))
+				.andExpect(jsonPath("$.dailyForecast.length()").value(2))
+				.andExpect(jsonPath("$.dailyForecast[0].time").value(1_600_000_000L))
+				.andExpect(jsonPath("$.dailyForecast[0].probability").value(0.4))
+				.andExpect(jsonPath("$.dailyForecast[1].precipitation").value(Precipitation.NONE.toString()))
+				.andExpect(jsonPath("$.currentPrecipitation").doesNotExist());
+	}
+
+	@Test
+	public void whenGetForecastWithInvalidCoordinates_shouldRespondBadRequest() throws Exception {
+		this.mockMvc.perform(
+				get("/forecast")
+				.param("latitude", String.valueOf(95))
+				.param("longitude", String.valueOf(DUMMY_LONGITUDE)))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenGetNowcast_shouldRespondWithOnlyTheNowcast() throws Exception {
+		RainReport rainReport = dummyRainReport();
+		rainReport.setNowcast(new PrecipitationNowcast(1_600_000_000L, 60, new float[] { 0, 0.5f },
+				new float[] { 0, 0.75f }));
+		given(weatherProviderMock.isItRainingAtCoordinates(DUMMY_LATITUDE, DUMMY_LONGITUDE,
+				EnumSet.of(ReportSection.MINUTELY))).willReturn(rainReport);
+		this.mockMvc.perform(
+				get("/nowcast")
+				.param("latitude", String.valueOf(DUMMY_LATITUDE))
+				.param("longitude", String.valueOf(DUMMY_LONGITUDE)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.latitude").value(DUMMY_LATITUDE))
+				.andExpect(jsonPath("$.nowcast.intensity.length()").value(2))
+				.andExpect(jsonPath("$.nowcast.rainingNow").value(false))
+				.andExpect(jsonPath("$.nowcast.rainStartsAt").value(1_600_000_060L))
+				.andExpect(jsonPath("$.currentPrecipitation").doesNotExist())
+				.andExpect(jsonPath("$.dailyForecast").doesNotExist());
+	}
+
 }
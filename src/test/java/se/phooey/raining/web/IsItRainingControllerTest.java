@@ -1,19 +1,29 @@
 package se.phooey.raining.web;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import se.phooey.raining.weather.CoordinatePrecision;
 import se.phooey.raining.weather.Precipitation;
 import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
 import se.phooey.raining.weather.WeatherProvider;
 import se.phooey.raining.weather.exception.RainReportException;
 import se.phooey.raining.web.exception.InvalidCoordinatesException;
+import se.phooey.raining.web.exception.InvalidFieldsException;
 
 /**
  * Unit tests for @see
@@ -29,7 +39,7 @@ public class IsItRainingControllerTest {
 	@Before
 	public void setUp() {
 		initMocks(this);
-		subject = new IsItRainingController(mockWeatherProvider);
+		subject = new IsItRainingController(mockWeatherProvider, CoordinatePrecision.ofDegrees(0.001));
 	}
 
 	@Test(expected = InvalidCoordinatesException.class)
@@ -87,4 +97,70 @@ public class IsItRainingControllerTest {
 		assertThat(result).isEqualTo(dummyRainReport);
 	}
 
+	@Test
+	public void whenFieldsAreRequested_itShouldOnlyRequestAndReturnThoseFields() throws Exception {
+		RainReport dummyRainReport = new RainReport();
+		dummyRainReport.setCurrentPrecipitation(Precipitation.RAIN.toString());
+		dummyRainReport.setCurrentProbability(0.9);
+		given(mockWeatherProvider.isItRainingAtCoordinates(13.37, 90.01, EnumSet.of(ReportSection.CURRENTLY)))
+				.willReturn(dummyRainReport);
+
+		Map<String, Object> result = subject.isItRaining(13.37, 90.01,
+				Arrays.asList("currentPrecipitation", "currentProbability"));
+
+		assertThat(result).containsExactly(entry("currentPrecipitation", Precipitation.RAIN.toString()),
+				entry("currentProbability", 0.9));
+	}
+
+	@Test(expected = InvalidFieldsException.class)
+	public void whenUnknownFieldsAreRequested_itShouldThrowAnInvalidFieldsException() throws Exception {
+		subject.isItRaining(13.37, 90.01, Arrays.asList("currentPrecipitation", "temperature"));
+	}
+
+	@Test
+	public void whenTheFieldsNeedNoSection_itShouldThrowAnInvalidFieldsExceptionWithoutRequestingAReport()
+			throws Exception {
+		assertThatThrownBy(() -> subject.isItRaining(13.37, 90.01, Arrays.asList("latitude", "longitude")))
+				.isInstanceOf(InvalidFieldsException.class);
+		assertThatThrownBy(() -> subject.isItRaining(13.37, 90.01, Collections.emptyList()))
+				.isInstanceOf(InvalidFieldsException.class);
+
+		then(mockWeatherProvider).shouldHaveNoInteractions();
+	}
+
+	@Test(expected = InvalidCoordinatesException.class)
+	public void whenFieldsAreRequestedForInvalidCoordinates_itShouldThrowAnInvalidCoordinatesException()
+			throws Exception {
+		subject.isItRaining(95, 195, Arrays.asList("currentPrecipitation"));
+	}
+
+	@Test
+	public void whenForecastIsRequested_itShouldRequestTheSameSectionsAsTheRainReportForTheTruncatedCoordinates()
+			throws Exception {
+		RainReport dummyRainReport = new RainReport();
+		given(mockWeatherProvider.isItRainingAtCoordinates(13.37, 90.01, ReportSection.DEFAULT))
+				.willReturn(dummyRainReport);
+
+		assertThat(subject.forecast(13.3701, 90.0104)).isSameAs(dummyRainReport);
+	}
+
+	@Test
+	public void whenNowcastIsRequested_itShouldOnlyRequestTheMinutelySectionForTheTruncatedCoordinates()
+			throws Exception {
+		RainReport dummyRainReport = new RainReport();
+		given(mockWeatherProvider.isItRainingAtCoordinates(13.37, 90.01, EnumSet.of(ReportSection.MINUTELY)))
+				.willReturn(dummyRainReport);
+
+		assertThat(subject.nowcast(13.3701, 90.0104)).isSameAs(dummyRainReport);
+	}
+
+	@Test
+	public void whenACoarserPrecisionIsConfigured_itShouldBucketTheCoordinatesByIt()
+			throws InvalidCoordinatesException, RainReportException {
+		subject = new IsItRainingController(mockWeatherProvider, CoordinatePrecision.ofDegrees(0.01));
+
+		subject.isItRaining(50.12345, 10.12845);
+
+		then(mockWeatherProvider).should().isItRainingAtCoordinates(50.12, 10.13);
+	}
 }
@@ -0,0 +1,72 @@
+package se.phooey.raining.web;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.WeatherProvider;
+
+/**
+ * API tests using Spring's MockMvc to make sure the REST API for routes
+ * "/places" and "/isitraining/place" is behaving as expected, with the
+ * gazetteer in src/test/resources.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PlaceControllerAPITest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private WeatherProvider weatherProviderMock;
+
+	@Test
+	public void whenGetPlaces_shouldRespondWithTheMatchingPlacesBestMatchFirst() throws Exception {
+		this.mockMvc.perform(get("/places").param("name", "sto"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3))
+				.andExpect(jsonPath("$[0].name").value("Stockholm"))
+				.andExpect(jsonPath("$[0].countryCode").value("SE"))
+				.andExpect(jsonPath("$[1].name").value("Stockton"));
+	}
+
+	@Test
+	public void whenGetPlacesWithALimit_shouldRespondWithAtMostThatManyPlaces() throws Exception {
+		this.mockMvc.perform(get("/places").param("name", "sto").param("limit", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1));
+	}
+
+	@Test
+	public void whenGetIsItRainingForAPlace_shouldRespondWithTheReportForItsTruncatedCoordinates()
+			throws Exception {
+		RainReport rainReport = new RainReport(57.707, 11.967, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+				Precipitation.RAIN.toString());
+		given(weatherProviderMock.isItRainingAtCoordinates(57.707, 11.967)).willReturn(rainReport);
+
+		this.mockMvc.perform(get("/isitraining/place").param("name", "Gothenburg"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.latitude").value(57.707))
+				.andExpect(jsonPath("$.currentPrecipitation").value(Precipitation.RAIN.toString()));
+	}
+
+	@Test
+	public void whenGetIsItRainingForAnUnknownPlace_shouldRespondNotFound() throws Exception {
+		this.mockMvc.perform(get("/isitraining/place").param("name", "Qwerty"))
+				.andExpect(status().isNotFound());
+	}
+}
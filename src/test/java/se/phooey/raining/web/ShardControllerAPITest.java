@@ -0,0 +1,113 @@
+package se.phooey.raining.web;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import se.phooey.raining.weather.DailyPrecipitation;
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.cache.CachingWeatherProvider;
+import se.phooey.raining.weather.sharding.HttpPeerForwarder;
+
+/**
+ * API tests using Spring's MockMvc to make sure the routes used by the nodes of
+ * a sharded cluster are behaving as expected.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "isitraining.sharding.enabled=true", "isitraining.node-id=node-a",
+		"isitraining.sharding.peers=node-a=http://localhost:1,node-b=http://localhost:2",
+		"isitraining.sharding.virtual-nodes=4", "isitraining.sharding.secret=secret" })
+@AutoConfigureMockMvc
+public class ShardControllerAPITest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private CachingWeatherProvider cachingWeatherProviderMock;
+
+	@Test
+	public void whenGetRing_shouldRespondWithTheRingOfTheCluster() throws Exception {
+		this.mockMvc.perform(get("/shard/ring"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.nodes[0]").value("node-a"))
+				.andExpect(jsonPath("$.nodes[1]").value("node-b"))
+				.andExpect(jsonPath("$.peers.node-b").value("http://localhost:2"))
+				.andExpect(jsonPath("$.virtualNodesPerNode").value(4))
+				.andExpect(jsonPath("$.tokens.length()").value(8))
+				.andExpect(jsonPath("$.owners.length()").value(8));
+	}
+
+	@Test
+	public void whenGetShardIsItRaining_shouldRespondFromTheLocalCacheWithoutForwarding() throws Exception {
+		RainReport rainReport = new RainReport();
+		rainReport.setLatitude(13.37);
+		rainReport.setCurrentProbability(0.5);
+		rainReport.setDailyForecast(
+				Collections.singletonList(new DailyPrecipitation(1600000000L, 0.4, Precipitation.RAIN.toString())));
+		given(cachingWeatherProviderMock.isItRainingAtCoordinates(13.37, 90.01, ReportSection.DEFAULT))
+				.willReturn(rainReport);
+
+		this.mockMvc.perform(get("/shard/isitraining").param("latitude", "13.37012").param("longitude", "90.00987")
+				.header(HttpPeerForwarder.SECRET_HEADER, "secret"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.currentProbability").value(0.5))
+				.andExpect(jsonPath("$.dailyForecast[0].probability").value(0.4));
+	}
+
+	@Test
+	public void whenGetShardIsItRainingWithoutTheSecret_shouldRespondForbidden() throws Exception {
+		this.mockMvc.perform(get("/shard/isitraining").param("latitude", "13.37").param("longitude", "90.01"))
+				.andExpect(status().isForbidden());
+		this.mockMvc.perform(get("/shard/isitraining").param("latitude", "13.37").param("longitude", "90.01")
+				.header(HttpPeerForwarder.SECRET_HEADER, "guess"))
+				.andExpect(status().isForbidden());
+
+		then(cachingWeatherProviderMock).shouldHaveNoInteractions();
+	}
+
+	@Test
+	public void whenGetShardIsItRainingWithoutSections_shouldRespondBadRequest() throws Exception {
+		this.mockMvc.perform(get("/shard/isitraining").param("latitude", "13.37").param("longitude", "90.01")
+				.param("sections", "").header(HttpPeerForwarder.SECRET_HEADER, "secret"))
+				.andExpect(status().isBadRequest());
+
+		then(cachingWeatherProviderMock).shouldHaveNoInteractions();
+	}
+
+	@Test
+	public void whenGetShardIsItRainingWithSections_shouldOnlyRequestThoseSections() throws Exception {
+		RainReport rainReport = new RainReport();
+		rainReport.setCurrentProbability(0.25);
+		given(cachingWeatherProviderMock.isItRainingAtCoordinates(13.37, 90.01,
+				EnumSet.of(ReportSection.CURRENTLY, ReportSection.MINUTELY))).willReturn(rainReport);
+
+		this.mockMvc.perform(get("/shard/isitraining").param("latitude", "13.37").param("longitude", "90.01")
+				.param("sections", "MINUTELY,CURRENTLY").header(HttpPeerForwarder.SECRET_HEADER, "secret"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.currentProbability").value(0.25));
+	}
+
+	@Test
+	public void whenGetShardIsItRainingWithInvalidCoordinates_shouldRespondBadRequest() throws Exception {
+		this.mockMvc.perform(get("/shard/isitraining").param("latitude", "95").param("longitude", "90.01")
+				.header(HttpPeerForwarder.SECRET_HEADER, "secret"))
+				.andExpect(status().is4xxClientError());
+	}
+}
@@ -0,0 +1,70 @@
+package se.phooey.raining.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * API tests using Spring's MockMvc to make sure the fingerprinted and
+ * pre-compressed front-end assets generated by the build are referenced by the
+ * front-end, and served with the expected HTTP headers.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StaticAssetAPITest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private static String findAsset(String pattern) throws Exception {
+		Resource[] resources = new PathMatchingResourcePatternResolver()
+				.getResources("classpath:static/assets/" + pattern);
+		assertThat(resources).as("Fingerprinted asset %s generated by the build", pattern).hasSize(1);
+		return "/assets/" + resources[0].getFilename();
+	}
+
+	@Test
+	public void indexHtmlShouldReferenceTheFingerprintedAssets() throws Exception {
+		String script = findAsset("app.*.js");
+		String stylesheet = findAsset("stylesheet.*.css");
+
+		this.mockMvc.perform(get("/index.html"))
+				.andExpect(status().is2xxSuccessful())
+				.andExpect(content().string(containsString("src=\"" + script + "\"")))
+				.andExpect(content().string(containsString("href=\"" + stylesheet + "\"")));
+	}
+
+	@Test
+	public void whenGzipIsAccepted_theFingerprintedAssetShouldBeServedPreCompressedAndImmutable() throws Exception {
+		this.mockMvc.perform(get(findAsset("app.*.js")).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+				.andExpect(status().is2xxSuccessful())
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andExpect(header().string(HttpHeaders.VARY, "Accept-Encoding"))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, StaticAssetConfiguration.IMMUTABLE_CACHE_CONTROL));
+	}
+
+	@Test
+	public void whenNoCompressionIsAccepted_theFingerprintedAssetShouldBeServedUncompressedAndImmutable()
+			throws Exception {
+		this.mockMvc.perform(get(findAsset("stylesheet.*.css")))
+				.andExpect(status().is2xxSuccessful())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+				.andExpect(content().string(containsString("font-family")))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, StaticAssetConfiguration.IMMUTABLE_CACHE_CONTROL));
+	}
+}
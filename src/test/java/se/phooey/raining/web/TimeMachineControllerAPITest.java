@@ -0,0 +1,86 @@
+package se.phooey.raining.web;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.cache.CachingHistoricalWeatherProvider;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * API tests using Spring's MockMvc to make sure the REST API for route
+ * "/timemachine" is behaving as expected.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TimeMachineControllerAPITest {
+
+	private static final LocalDate DATE = LocalDate.of(2020, 9, 13);
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private CachingHistoricalWeatherProvider historicalWeatherProviderMock;
+
+	@Test
+	public void whenGetTimeMachine_shouldRespondWithTheReportForTheTruncatedCoordinatesAndDate() throws Exception {
+		RainReport rainReport = new RainReport(13.37, 90.01, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+				Precipitation.RAIN.toString());
+		given(historicalWeatherProviderMock.rainReportForDate(13.37, 90.01, DATE)).willReturn(rainReport);
+
+		this.mockMvc.perform(get("/timemachine").param("latitude", "13.3701").param("longitude", "90.0104")
+				.param("date", "2020-09-13"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.currentPrecipitation").value(Precipitation.RAIN.toString()))
+				.andExpect(jsonPath("$.chanceOfPrecipitationToday").value(0.9))
+				.andExpect(jsonPath("$.dailyForecast").doesNotExist());
+	}
+
+	@Test
+	public void whenGetTimeMachineForADateThatHasNotEndedEverywhere_shouldRespondBadRequest() throws Exception {
+		this.mockMvc.perform(get("/timemachine").param("latitude", "13.37").param("longitude", "90.01")
+				.param("date", LocalDate.now(ZoneOffset.UTC).minusDays(1).toString()))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenGetTimeMachineWithAnInvalidDate_shouldRespondBadRequest() throws Exception {
+		this.mockMvc.perform(get("/timemachine").param("latitude", "13.37").param("longitude", "90.01")
+				.param("date", "13/09/2020"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenGetTimeMachineWithInvalidCoordinates_shouldRespondBadRequest() throws Exception {
+		this.mockMvc.perform(get("/timemachine").param("latitude", "95").param("longitude", "90.01")
+				.param("date", "2020-09-13"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenGetTimeMachineCausesARainReportException_shouldRespondInternalServerError() throws Exception {
+		given(historicalWeatherProviderMock.rainReportForDate(13.37, 90.01, DATE))
+				.willThrow(new RainReportException("failure"));
+
+		this.mockMvc.perform(get("/timemachine").param("latitude", "13.37").param("longitude", "90.01")
+				.param("date", "2020-09-13"))
+				.andExpect(status().isInternalServerError());
+	}
+}
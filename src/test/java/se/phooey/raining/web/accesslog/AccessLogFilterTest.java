@@ -0,0 +1,87 @@
+package se.phooey.raining.web.accesslog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.accesslog.AccessLogFilter
+ */
+public class AccessLogFilterTest {
+
+	private AccessLogRingBuffer buffer;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+
+	@Before
+	public void setUp() {
+		buffer = new AccessLogRingBuffer(8);
+		request = new MockHttpServletRequest("GET", "/isitraining");
+		request.setQueryString("latitude=13.37&longitude=90.01");
+		request.setRemoteAddr("10.0.0.1");
+		response = new MockHttpServletResponse();
+	}
+
+	private List<AccessLogEntry> drain() {
+		List<AccessLogEntry> entries = new ArrayList<>();
+		buffer.drainTo(entries, Integer.MAX_VALUE);
+		return entries;
+	}
+
+	@Test
+	public void whenARequestIsSampled_itsMetadataShouldBePublishedToTheBuffer() throws Exception {
+		AccessLogFilter subject = new AccessLogFilter(buffer, new AccessLogSampler(1.0, 1.0, 1.0));
+		response.setStatus(201);
+
+		subject.doFilter(request, response, new MockFilterChain());
+
+		List<AccessLogEntry> entries = drain();
+		assertThat(entries).hasSize(1);
+		AccessLogEntry entry = entries.get(0);
+		assertThat(entry.getMethod()).isEqualTo("GET");
+		assertThat(entry.getPath()).isEqualTo("/isitraining");
+		assertThat(entry.getQuery()).isEqualTo("latitude=13.37&longitude=90.01");
+		assertThat(entry.getStatus()).isEqualTo(201);
+		assertThat(entry.getClient()).isEqualTo("10.0.0.1");
+		assertThat(entry.getDurationMicros()).isNotNegative();
+		assertThat(entry.getTimestamp()).isPositive();
+	}
+
+	@Test
+	public void whenARequestIsNotSampled_nothingShouldBePublishedToTheBuffer() throws Exception {
+		AccessLogFilter subject = new AccessLogFilter(buffer, new AccessLogSampler(0.0, 1.0, 1.0));
+
+		subject.doFilter(request, response, new MockFilterChain());
+
+		assertThat(drain()).isEmpty();
+	}
+
+	@Test
+	public void whenTheFilterChainThrows_theRequestShouldBeLoggedAsAServerError() throws Exception {
+		AccessLogFilter subject = new AccessLogFilter(buffer, new AccessLogSampler(0.0, 0.0, 1.0));
+		MockFilterChain failingChain = new MockFilterChain() {
+			@Override
+			public void doFilter(javax.servlet.ServletRequest request, javax.servlet.ServletResponse response)
+					throws ServletException {
+				throw new ServletException("failure");
+			}
+		};
+
+		try {
+			subject.doFilter(request, response, failingChain);
+			fail("Expected a ServletException to be thrown");
+		} catch (ServletException e) {
+			assertThat(drain()).extracting(AccessLogEntry::getStatus).containsExactly(500);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package se.phooey.raining.web.accesslog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.accesslog.AccessLogRingBuffer
+ */
+public class AccessLogRingBufferTest {
+
+	private static AccessLogEntry entry(int status) {
+		return new AccessLogEntry(0, "GET", "/isitraining", null, status, 1, "127.0.0.1");
+	}
+
+	@Test
+	public void whenCreatingABuffer_itsCapacityShouldBeRoundedUpToAPowerOfTwo() {
+		assertThat(new AccessLogRingBuffer(1).getCapacity()).isEqualTo(1);
+		assertThat(new AccessLogRingBuffer(5).getCapacity()).isEqualTo(8);
+		assertThat(new AccessLogRingBuffer(8).getCapacity()).isEqualTo(8);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenCreatingABufferWithZeroCapacity_itShouldThrowAnIllegalArgumentException() {
+		new AccessLogRingBuffer(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenCreatingABufferWithTooLargeCapacity_itShouldThrowAnIllegalArgumentException() {
+		new AccessLogRingBuffer((1 << 30) + 1);
+	}
+
+	@Test
+	public void whenDrainingTheBuffer_entriesShouldBeReturnedInOrderUpToTheMaximum() {
+		AccessLogRingBuffer subject = new AccessLogRingBuffer(4);
+		for (int status = 200; status < 203; status++) {
+			assertThat(subject.offer(entry(status))).isTrue();
+		}
+		List<AccessLogEntry> drained = new ArrayList<>();
+
+		assertThat(subject.drainTo(drained, 2)).isEqualTo(2);
+		assertThat(subject.drainTo(drained, 2)).isEqualTo(1);
+		assertThat(subject.drainTo(drained, 2)).isZero();
+
+		assertThat(drained).extracting(AccessLogEntry::getStatus).containsExactly(200, 201, 202);
+	}
+
+	@Test
+	public void whenTheBufferIsFull_newEntriesShouldBeDroppedAndCounted() {
+		AccessLogRingBuffer subject = new AccessLogRingBuffer(2);
+		assertThat(subject.offer(entry(200))).isTrue();
+		assertThat(subject.offer(entry(201))).isTrue();
+
+		assertThat(subject.offer(entry(202))).isFalse();
+		assertThat(subject.offer(entry(203))).isFalse();
+
+		assertThat(subject.takeDroppedCount()).isEqualTo(2);
+		assertThat(subject.takeDroppedCount()).isZero();
+
+		// Room is made again once the consumer has drained the buffer
+		subject.drainTo(new ArrayList<>(), 1);
+		assertThat(subject.offer(entry(204))).isTrue();
+	}
+
+	@Test
+	public void whenManyThreadsOfferEntriesConcurrently_noEntryShouldBeLostOrDuplicated() throws Exception {
+		final int threads = 4;
+		final int entriesPerThread = 10000;
+		AccessLogRingBuffer subject = new AccessLogRingBuffer(threads * entriesPerThread);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			executor.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				for (int i = 0; i < entriesPerThread; i++) {
+					subject.offer(entry(thread * entriesPerThread + i));
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		List<AccessLogEntry> drained = new ArrayList<>();
+		subject.drainTo(drained, Integer.MAX_VALUE);
+
+		assertThat(drained).hasSize(threads * entriesPerThread);
+		assertThat(drained).extracting(AccessLogEntry::getStatus).doesNotHaveDuplicates();
+		assertThat(subject.takeDroppedCount()).isZero();
+	}
+}
@@ -0,0 +1,46 @@
+package se.phooey.raining.web.accesslog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.accesslog.AccessLogSampler
+ */
+public class AccessLogSamplerTest {
+
+	@Test
+	public void whenRatesAreOneOrZero_itShouldAlwaysOrNeverLogTheMatchingOutcome() {
+		AccessLogSampler subject = new AccessLogSampler(0.0, 1.0, 1.0);
+		assertThat(subject.shouldLog(200)).isFalse();
+		assertThat(subject.shouldLog(304)).isFalse();
+		assertThat(subject.shouldLog(400)).isTrue();
+		assertThat(subject.shouldLog(503)).isTrue();
+
+		subject = new AccessLogSampler(1.0, 0.0, 0.0);
+		assertThat(subject.shouldLog(200)).isTrue();
+		assertThat(subject.shouldLog(429)).isFalse();
+		assertThat(subject.shouldLog(500)).isFalse();
+	}
+
+	@Test
+	public void whenTheRateIsAFraction_itShouldLogRoughlyThatFractionOfTheRequests() {
+		AccessLogSampler subject = new AccessLogSampler(0.1, 1.0, 1.0);
+
+		long logged = IntStream.range(0, 100000).filter(i -> subject.shouldLog(200)).count();
+
+		assertThat(logged).isBetween(8000L, 12000L);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenARateIsNegative_itShouldThrowAnIllegalArgumentException() {
+		new AccessLogSampler(-0.1, 1.0, 1.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenARateIsAboveOne_itShouldThrowAnIllegalArgumentException() {
+		new AccessLogSampler(0.1, 1.0, 1.5);
+	}
+}
@@ -0,0 +1,87 @@
+package se.phooey.raining.web.accesslog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.accesslog.AccessLogWriter
+ */
+public class AccessLogWriterTest {
+
+	private final Logger logger = (Logger) LoggerFactory.getLogger(AccessLogWriter.class);
+	private ListAppender<ILoggingEvent> appender;
+	private AccessLogRingBuffer buffer;
+	private AccessLogWriter subject;
+
+	@Before
+	public void setUp() {
+		appender = new ListAppender<>();
+		appender.start();
+		logger.addAppender(appender);
+		logger.setLevel(Level.INFO);
+		buffer = new AccessLogRingBuffer(4);
+		subject = new AccessLogWriter(buffer, 2, 1);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		subject.close();
+		logger.detachAppender(appender);
+	}
+
+	@Test
+	public void whenWritingABatch_itShouldWriteAllEntriesInOneLogEvent() {
+		buffer.offer(new AccessLogEntry(1000, "GET", "/isitraining", "latitude=1&longitude=2", 200, 42, "10.0.0.1"));
+		buffer.offer(new AccessLogEntry(1001, "GET", "/", null, 404, 7, "10.0.0.2"));
+		buffer.offer(new AccessLogEntry(1002, "GET", "/app.js", null, 200, 3, "10.0.0.3"));
+
+		assertThat(subject.writeBatch()).isEqualTo(2);
+		assertThat(subject.writeBatch()).isEqualTo(1);
+		assertThat(subject.writeBatch()).isZero();
+
+		assertThat(appender.list).hasSize(2);
+		assertThat(appender.list.get(0).getFormattedMessage()).isEqualTo(
+				"ts=1000 method=GET path=/isitraining query=\"latitude=1&longitude=2\" status=200 duration_us=42 client=10.0.0.1"
+						+ System.lineSeparator() + "ts=1001 method=GET path=/ status=404 duration_us=7 client=10.0.0.2");
+		assertThat(appender.list.get(1).getFormattedMessage()).startsWith("ts=1002 ");
+	}
+
+	@Test
+	public void whenEntriesWereDropped_itShouldLogAWarning() {
+		for (int i = 0; i < 6; i++) {
+			buffer.offer(new AccessLogEntry(i, "GET", "/", null, 200, 1, "10.0.0.1"));
+		}
+
+		subject.writeBatch();
+
+		assertThat(appender.list.get(0).getLevel()).isEqualTo(Level.WARN);
+		assertThat(appender.list.get(0).getFormattedMessage()).contains("dropped 2 entries");
+	}
+
+	@Test
+	public void whenStartedAndClosed_allBufferedEntriesShouldHaveBeenWritten() throws Exception {
+		subject.start();
+		subject.start();
+		for (int i = 0; i < 3; i++) {
+			buffer.offer(new AccessLogEntry(i, "GET", "/", null, 200, 1, "10.0.0.1"));
+		}
+
+		subject.close();
+		subject.close();
+
+		assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage)
+				.allMatch(message -> message.startsWith("ts="));
+		assertThat(String.join(System.lineSeparator(),
+				appender.list.stream().map(ILoggingEvent::getFormattedMessage).toArray(String[]::new)))
+						.contains("ts=0 ", "ts=1 ", "ts=2 ");
+	}
+}
@@ -0,0 +1,113 @@
+package se.phooey.raining.web.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.admission.AdaptiveConcurrencyLimit
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(20);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(400);
+
+	/**
+	 * Runs rounds of as many concurrent requests as admitted, all taking the
+	 * given latency
+	 */
+	private static void load(AdaptiveConcurrencyLimit subject, long latencyNanos, int rounds) {
+		for (int round = 0; round < rounds; round++) {
+			int admitted = 0;
+			while (subject.tryAcquire(Priority.CACHED)) {
+				admitted++;
+			}
+			for (int i = 0; i < admitted; i++) {
+				subject.release(latencyNanos);
+			}
+		}
+	}
+
+	@Test
+	public void upstreamRequestsShouldOnlyBeAdmittedUpToTheirShareOfTheLimit() {
+		AdaptiveConcurrencyLimit subject = new AdaptiveConcurrencyLimit(8, 1, 100, 0.75, 5000);
+
+		for (int i = 0; i < 6; i++) {
+			assertThat(subject.tryAcquire(Priority.UPSTREAM)).isTrue();
+		}
+		assertThat(subject.tryAcquire(Priority.UPSTREAM)).isFalse();
+		assertThat(subject.tryAcquire(Priority.CACHED)).isTrue();
+		assertThat(subject.tryAcquire(Priority.CACHED)).isTrue();
+		assertThat(subject.tryAcquire(Priority.CACHED)).isFalse();
+		assertThat(subject.getInFlight()).isEqualTo(8);
+
+		subject.release(FAST);
+
+		assertThat(subject.getInFlight()).isEqualTo(7);
+		assertThat(subject.tryAcquire(Priority.CACHED)).isTrue();
+	}
+
+	@Test
+	public void evenWithTheSmallestLimit_oneUpstreamRequestShouldBeAdmitted() {
+		AdaptiveConcurrencyLimit subject = new AdaptiveConcurrencyLimit(1, 1, 100, 0.5, 5000);
+
+		assertThat(subject.tryAcquire(Priority.UPSTREAM)).isTrue();
+		assertThat(subject.tryAcquire(Priority.UPSTREAM)).isFalse();
+	}
+
+	@Test
+	public void whenTheLatencyIsSteady_theLimitShouldGrowUpToTheMaximum() {
+		AdaptiveConcurrencyLimit subject = new AdaptiveConcurrencyLimit(10, 1, 40, 0.75, 5000);
+
+		load(subject, FAST, 5);
+		int grown = subject.getLimit();
+		load(subject, FAST, 100);
+
+		assertThat(grown).isGreaterThan(10);
+		assertThat(subject.getLimit()).isEqualTo(40);
+		assertThat(subject.getInFlight()).isZero();
+	}
+
+	@Test
+	public void whenTheLatencyGrows_theLimitShouldShrinkAndRecoverWhenItDropsAgain() {
+		AdaptiveConcurrencyLimit subject = new AdaptiveConcurrencyLimit(40, 4, 40, 0.75, 5000);
+		load(subject, FAST, 20);
+
+		load(subject, SLOW, 3);
+		int shrunk = subject.getLimit();
+		load(subject, SLOW, 200);
+		load(subject, FAST, 50);
+
+		assertThat(shrunk).isLessThan(40);
+		assertThat(subject.getLimit()).isEqualTo(40);
+	}
+
+	@Test
+	public void whenARequestTimesOut_theLimitShouldBeCutDownToTheMinimum() {
+		AdaptiveConcurrencyLimit subject = new AdaptiveConcurrencyLimit(10, 8, 40, 0.75, 5000);
+
+		subject.tryAcquire(Priority.CACHED);
+		subject.release(TimeUnit.SECONDS.toNanos(5));
+		assertThat(subject.getLimit()).isEqualTo(9);
+
+		subject.tryAcquire(Priority.CACHED);
+		subject.release(TimeUnit.SECONDS.toNanos(6));
+		subject.tryAcquire(Priority.CACHED);
+		subject.release(TimeUnit.SECONDS.toNanos(6));
+		assertThat(subject.getLimit()).isEqualTo(8);
+	}
+
+	@Test
+	public void whenMostOfTheLimitIsUnused_itShouldNotChange() {
+		AdaptiveConcurrencyLimit subject = new AdaptiveConcurrencyLimit(20, 1, 100, 0.75, 5000);
+
+		for (int i = 0; i < 100; i++) {
+			subject.tryAcquire(Priority.CACHED);
+			subject.release(i % 2 == 0 ? FAST : SLOW);
+		}
+
+		assertThat(subject.getLimit()).isEqualTo(20);
+	}
+}
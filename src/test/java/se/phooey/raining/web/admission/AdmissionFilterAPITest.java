@@ -0,0 +1,43 @@
+package se.phooey.raining.web.admission;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * API tests using Spring's MockMvc to make sure the {@link AdmissionFilter} is
+ * applied to the routes serving rain reports only
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class AdmissionFilterAPITest {
+
+	private static final String LONG_AGO = "t=1000000000000";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	public void whenARequestForARainReportHasBeenQueuedForTooLong_shouldRespondServiceUnavailable()
+			throws Exception {
+		this.mockMvc.perform(get("/isitraining").param("latitude", "13.37").param("longitude", "90.01")
+				.header(AdmissionFilter.REQUEST_START, LONG_AGO))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string("Retry-After", "1"));
+	}
+
+	@Test
+	public void whenARequestForTheWebPageHasBeenQueuedForTooLong_shouldStillRespond() throws Exception {
+		this.mockMvc.perform(get("/app.js").header(AdmissionFilter.REQUEST_START, LONG_AGO))
+				.andExpect(status().isOk());
+	}
+}
@@ -0,0 +1,111 @@
+package se.phooey.raining.web.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+
+import javax.servlet.ServletException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.admission.AdmissionFilter
+ */
+public class AdmissionFilterTest {
+
+	private static final long NOW = 1_600_000_000_000L;
+
+	@Mock
+	private RequestClassifier mockClassifier;
+	@Mock
+	private Clock mockClock;
+
+	private AdaptiveConcurrencyLimit limit;
+	private AdmissionFilter subject;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		given(mockClock.millis()).willReturn(NOW);
+		given(mockClassifier.classify(any())).willReturn(Priority.UPSTREAM);
+		limit = new AdaptiveConcurrencyLimit(2, 2, 2, 0.5, 5000);
+		subject = new AdmissionFilter(limit, mockClassifier, 2000, 3, mockClock);
+		request = new MockHttpServletRequest("GET", "/isitraining");
+		response = new MockHttpServletResponse();
+	}
+
+	@Test
+	public void theQueueingDelayShouldBeParsedFromTheCommonFormatsOfTheRequestStartHeader() {
+		assertThat(AdmissionFilter.queueDelayMillis(null, NOW)).isZero();
+		assertThat(AdmissionFilter.queueDelayMillis("t=1599999999500", NOW)).isEqualTo(500);
+		assertThat(AdmissionFilter.queueDelayMillis("1599999999250", NOW)).isEqualTo(750);
+		assertThat(AdmissionFilter.queueDelayMillis("t=1599999999900000", NOW)).isEqualTo(100);
+		assertThat(AdmissionFilter.queueDelayMillis("t=1599999997.000", NOW)).isEqualTo(3000);
+		assertThat(AdmissionFilter.queueDelayMillis("t=1600000001000", NOW)).isZero();
+		assertThat(AdmissionFilter.queueDelayMillis("soon", NOW)).isZero();
+	}
+
+	@Test
+	public void whenTheLimitIsNotReached_theRequestShouldBeAdmittedAndReleased() throws Exception {
+		MockFilterChain chain = new MockFilterChain();
+
+		subject.doFilter(request, response, chain);
+
+		assertThat(chain.getRequest()).isSameAs(request);
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(limit.getInFlight()).isZero();
+		assertThat(subject.getRejected()).isZero();
+	}
+
+	@Test
+	public void whenTheLimitIsReached_theRequestShouldBeRejectedWithServiceUnavailable() throws Exception {
+		limit.tryAcquire(Priority.UPSTREAM);
+		MockFilterChain chain = new MockFilterChain();
+
+		subject.doFilter(request, response, chain);
+
+		assertThat(chain.getRequest()).isNull();
+		assertThat(response.getStatus()).isEqualTo(503);
+		assertThat(response.getHeader("Retry-After")).isEqualTo("3");
+		assertThat(response.getContentAsString()).contains("overloaded");
+		assertThat(limit.getInFlight()).isEqualTo(1);
+		assertThat(subject.getRejected()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenARequestHasBeenQueuedForTooLong_itShouldBeRejectedWithoutBeingAdmitted() throws Exception {
+		request.addHeader(AdmissionFilter.REQUEST_START, "t=" + (NOW - 2001));
+		MockFilterChain chain = new MockFilterChain();
+
+		subject.doFilter(request, response, chain);
+
+		assertThat(chain.getRequest()).isNull();
+		assertThat(response.getStatus()).isEqualTo(503);
+		assertThat(subject.getRejected()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenTheRequestFails_itShouldStillBeReleased() {
+		MockFilterChain failingChain = new MockFilterChain() {
+			@Override
+			public void doFilter(javax.servlet.ServletRequest request, javax.servlet.ServletResponse response)
+					throws ServletException {
+				throw new ServletException("failure");
+			}
+		};
+
+		assertThatThrownBy(() -> subject.doFilter(request, response, failingChain)).isInstanceOf(ServletException.class);
+		assertThat(limit.getInFlight()).isZero();
+	}
+}
@@ -0,0 +1,99 @@
+package se.phooey.raining.web.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.EnumSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.cache.CachingWeatherProvider;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.admission.RequestClassifier
+ */
+public class RequestClassifierTest {
+
+	@Mock
+	private CachingWeatherProvider mockCachingWeatherProvider;
+
+	private RequestClassifier subject;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		subject = new RequestClassifier(mockCachingWeatherProvider, CoordinatePrecision.ofDegrees(0.001));
+	}
+
+	private static MockHttpServletRequest request(String path, String latitude, String longitude) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		request.setParameter("latitude", latitude);
+		request.setParameter("longitude", longitude);
+		return request;
+	}
+
+	@Test
+	public void whenTheReportIsCached_theRequestShouldBeCached() {
+		given(mockCachingWeatherProvider.isCached(13.37, 90.01, ReportSection.DEFAULT)).willReturn(true);
+
+		assertThat(subject.classify(request("/isitraining", "13.3701", "90.0099"))).isEqualTo(Priority.CACHED);
+		assertThat(subject.classify(request("/isitraining", "13.38", "90.01"))).isEqualTo(Priority.UPSTREAM);
+	}
+
+	@Test
+	public void theSectionsOfTheRouteAndFieldsShouldBeLookedUp() {
+		subject.classify(request("/forecast", "1", "2"));
+		subject.classify(request("/nowcast", "3", "4"));
+		MockHttpServletRequest fields = request("/isitraining", "5", "6");
+		fields.setParameter("fields", "currentPrecipitation,latitude", "chanceOfPrecipitationToday");
+		subject.classify(fields);
+
+		verify(mockCachingWeatherProvider).isCached(1, 2, ReportSection.DEFAULT);
+		verify(mockCachingWeatherProvider).isCached(3, 4, EnumSet.of(ReportSection.MINUTELY));
+		verify(mockCachingWeatherProvider).isCached(5, 6, ReportSection.DEFAULT);
+	}
+
+	@Test
+	public void whenTheRequestFailsValidation_itShouldBeCached() {
+		MockHttpServletRequest fields = request("/isitraining", "5", "6");
+		fields.setParameter("fields", "unknown");
+
+		assertThat(subject.classify(request("/isitraining", "north", "90.01"))).isEqualTo(Priority.CACHED);
+		assertThat(subject.classify(fields)).isEqualTo(Priority.CACHED);
+	}
+
+	@Test
+	public void whenTheRequestHasNoCoordinates_itShouldBeUpstream() {
+		MockHttpServletRequest latitudeOnly = new MockHttpServletRequest("GET", "/isitraining");
+		latitudeOnly.setParameter("latitude", "13.37");
+
+		assertThat(subject.classify(new MockHttpServletRequest("GET", "/isitraining/here")))
+				.isEqualTo(Priority.UPSTREAM);
+		assertThat(subject.classify(latitudeOnly)).isEqualTo(Priority.UPSTREAM);
+		verify(mockCachingWeatherProvider, never()).isCached(anyDouble(), anyDouble(),
+				anySet());
+	}
+
+	@Test
+	public void theClassOfARequestShouldOnlyBeLookedUpOnce() {
+		MockHttpServletRequest request = request("/isitraining", "13.37", "90.01");
+		given(mockCachingWeatherProvider.isCached(13.37, 90.01, ReportSection.DEFAULT)).willReturn(true);
+
+		subject.classify(request);
+		subject.classify(request);
+
+		assertThat(request.getAttribute(RequestClassifier.PRIORITY_ATTRIBUTE)).isEqualTo(Priority.CACHED);
+		verify(mockCachingWeatherProvider, times(1)).isCached(13.37, 90.01, ReportSection.DEFAULT);
+	}
+}
@@ -0,0 +1,145 @@
+package se.phooey.raining.web.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import se.phooey.raining.web.admission.Priority;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.ratelimit.ClientRateLimiter
+ */
+public class ClientRateLimiterTest {
+
+	private static final long WINDOW = 60_000;
+	private static final long NOW = 1_600_000_040_000L;
+	private static final long CLIENT = ClientRateLimiter.hash("10.0.0.1", 0);
+
+	@Test
+	public void eachClassShouldBeLimitedSeparately() {
+		ClientRateLimiter subject = new ClientRateLimiter(16, WINDOW, 3, 2);
+
+		assertThat(subject.acquire(CLIENT, Priority.UPSTREAM, NOW)).isEqualTo(1);
+		assertThat(subject.acquire(CLIENT, Priority.UPSTREAM, NOW)).isZero();
+		assertThat(subject.acquire(CLIENT, Priority.UPSTREAM, NOW)).isEqualTo(-1);
+		assertThat(subject.acquire(CLIENT, Priority.CACHED, NOW)).isEqualTo(2);
+		assertThat(subject.acquire(CLIENT, Priority.CACHED, NOW)).isEqualTo(1);
+		assertThat(subject.acquire(CLIENT, Priority.CACHED, NOW)).isZero();
+		assertThat(subject.acquire(CLIENT, Priority.CACHED, NOW)).isEqualTo(-1);
+		assertThat(subject.getLimit(Priority.CACHED)).isEqualTo(3);
+		assertThat(subject.getLimit(Priority.UPSTREAM)).isEqualTo(2);
+	}
+
+	@Test
+	public void eachClientShouldBeLimitedSeparately() {
+		ClientRateLimiter subject = new ClientRateLimiter(16, WINDOW, 1, 1);
+
+		assertThat(subject.acquire(CLIENT, Priority.UPSTREAM, NOW)).isZero();
+		assertThat(subject.acquire(ClientRateLimiter.hash("10.0.0.2", 0), Priority.UPSTREAM, NOW)).isZero();
+		assertThat(subject.acquire(ClientRateLimiter.hash("10.0.0.1", 1), Priority.UPSTREAM, NOW)).isZero();
+		assertThat(subject.acquire(CLIENT, Priority.UPSTREAM, NOW)).isEqualTo(-1);
+	}
+
+	@Test
+	public void whenANewWindowStarts_theCountersShouldBeReset() {
+		ClientRateLimiter subject = new ClientRateLimiter(16, WINDOW, 1, 1);
+		subject.acquire(CLIENT, Priority.UPSTREAM, NOW);
+
+		assertThat(subject.millisUntilReset(NOW)).isEqualTo(40_000);
+		assertThat(subject.acquire(CLIENT, Priority.UPSTREAM, NOW + 39_999)).isEqualTo(-1);
+		assertThat(subject.acquire(CLIENT, Priority.UPSTREAM, NOW + 40_000)).isZero();
+	}
+
+	@Test
+	public void whenTheTableIsFull_theClientIdleTheLongestShouldBeEvicted() {
+		ClientRateLimiter subject = new ClientRateLimiter(8, WINDOW, 1, 1);
+		assertThat(subject.getCapacity()).isEqualTo(8);
+		for (int i = 0; i < 8; i++) {
+			subject.acquire(ClientRateLimiter.hash("10.0.0." + i, 0), Priority.UPSTREAM, NOW - WINDOW * (8 - i));
+		}
+		long newcomer = ClientRateLimiter.hash("10.0.1.1", 0);
+		long longestIdle = ClientRateLimiter.hash("10.0.0.0", 0);
+		long recent = ClientRateLimiter.hash("10.0.0.7", 0);
+
+		assertThat(subject.acquire(newcomer, Priority.UPSTREAM, NOW - 1)).isZero();
+		assertThat(subject.acquire(recent, Priority.UPSTREAM, NOW - WINDOW)).isEqualTo(-1);
+		assertThat(subject.acquire(newcomer, Priority.UPSTREAM, NOW - 1)).isEqualTo(-1);
+		assertThat(subject.acquire(longestIdle, Priority.UPSTREAM, NOW - 1)).isZero();
+	}
+
+	@Test
+	public void theCapacityShouldBeRoundedUpToAPowerOfTwo() {
+		assertThat(new ClientRateLimiter(1, WINDOW, 1, 1).getCapacity()).isEqualTo(ClientRateLimiter.PROBES);
+		assertThat(new ClientRateLimiter(1000, WINDOW, 1, 1).getCapacity()).isEqualTo(1024);
+		assertThat(new ClientRateLimiter(1024, WINDOW, 1, 1).getCapacity()).isEqualTo(1024);
+	}
+
+	@Test
+	public void whenALimitIsOutOfRange_itShouldBeRejected() {
+		assertThatThrownBy(() -> new ClientRateLimiter(16, WINDOW, ClientRateLimiter.MAXIMUM_LIMIT + 1, 1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new ClientRateLimiter(16, WINDOW, 1, -1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new ClientRateLimiter(16, WINDOW, -1, 1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new ClientRateLimiter(16, WINDOW, 1, ClientRateLimiter.MAXIMUM_LIMIT + 1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void whenManyThreadsRequestConcurrently_exactlyTheLimitShouldBeAdmitted() throws Exception {
+		ClientRateLimiter subject = new ClientRateLimiter(1024, WINDOW, ClientRateLimiter.MAXIMUM_LIMIT, 1000);
+		AtomicInteger admitted = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 1000; i++) {
+						if (subject.acquire(CLIENT, Priority.UPSTREAM, NOW) >= 0) {
+							admitted.incrementAndGet();
+						}
+						subject.acquire(ClientRateLimiter.hash(Integer.toString(i), 0), Priority.CACHED, NOW);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(admitted.get()).isEqualTo(1000);
+	}
+
+	@Test
+	public void countingARequestShouldNotAllocate() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		ClientRateLimiter subject = new ClientRateLimiter(1024, WINDOW, ClientRateLimiter.MAXIMUM_LIMIT,
+				ClientRateLimiter.MAXIMUM_LIMIT);
+		String[] clients = { "10.0.0.1", "10.0.0.2", "2001:db8::1" };
+		long admitted = 0;
+		for (int i = 0; i < 30_000; i++) {
+			admitted += subject.acquire(ClientRateLimiter.hash(clients[i % 3], 0), Priority.CACHED, NOW + i * 10L);
+		}
+		long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		for (int i = 0; i < 30_000; i++) {
+			admitted += subject.acquire(ClientRateLimiter.hash(clients[i % 3], 0), Priority.CACHED, NOW + i * 10L);
+		}
+		long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+		assertThat(admitted).isPositive();
+		assertThat(allocated).isLessThan(10_000);
+	}
+}
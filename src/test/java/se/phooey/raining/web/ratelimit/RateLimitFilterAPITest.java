@@ -0,0 +1,48 @@
+package se.phooey.raining.web.ratelimit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+/**
+ * API tests using Spring's MockMvc to make sure the {@link RateLimitFilter} is
+ * applied to the routes serving rain reports only
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "isitraining.ratelimit.cached-limit=1")
+@AutoConfigureMockMvc
+public class RateLimitFilterAPITest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private static MockHttpServletRequestBuilder fromClient(MockHttpServletRequestBuilder builder) {
+		return builder.with(request -> {
+			request.setRemoteAddr("192.0.2.200");
+			return request;
+		});
+	}
+
+	@Test
+	public void whenAClientExceedsItsLimit_shouldRespondTooManyRequests() throws Exception {
+		// Invalid coordinates are answered without an upstream call
+		this.mockMvc.perform(fromClient(get("/isitraining").param("latitude", "north").param("longitude", "1")))
+				.andExpect(status().isBadRequest())
+				.andExpect(header().string(RateLimitFilter.LIMIT, "1"))
+				.andExpect(header().string(RateLimitFilter.REMAINING, "0"));
+		this.mockMvc.perform(fromClient(get("/isitraining").param("latitude", "north").param("longitude", "1")))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists("Retry-After"));
+		this.mockMvc.perform(fromClient(get("/app.js")))
+				.andExpect(status().isOk());
+	}
+}
@@ -0,0 +1,86 @@
+package se.phooey.raining.web.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import se.phooey.raining.web.admission.Priority;
+import se.phooey.raining.web.admission.RequestClassifier;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.ratelimit.RateLimitFilter
+ */
+public class RateLimitFilterTest {
+
+	private static final long NOW = 1_600_000_040_000L;
+
+	@Mock
+	private RequestClassifier mockClassifier;
+	@Mock
+	private Clock mockClock;
+
+	private RateLimitFilter subject;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		given(mockClock.millis()).willReturn(NOW);
+		given(mockClassifier.classify(any())).willReturn(Priority.UPSTREAM);
+		subject = new RateLimitFilter(new ClientRateLimiter(16, 60_000, 5, 1), mockClassifier,
+				Collections.singleton("known-key"), mockClock);
+	}
+
+	private MockHttpServletResponse perform(String address, String apiKey) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/isitraining");
+		request.setRemoteAddr(address);
+		if (apiKey != null) {
+			request.addHeader(RateLimitFilter.API_KEY, apiKey);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		subject.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
+	@Test
+	public void whenAClientIsWithinItsLimit_theRequestShouldPassWithTheRateLimitHeaders() throws Exception {
+		MockHttpServletResponse response = perform("10.0.0.1", null);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(RateLimitFilter.LIMIT)).isEqualTo("1");
+		assertThat(response.getHeader(RateLimitFilter.REMAINING)).isEqualTo("0");
+		assertThat(response.getHeader(RateLimitFilter.RESET)).isEqualTo("40");
+		assertThat(response.getHeader("Retry-After")).isNull();
+	}
+
+	@Test
+	public void whenAClientExceedsItsLimit_theRequestShouldBeRejectedWithTooManyRequests() throws Exception {
+		perform("10.0.0.1", null);
+		MockHttpServletResponse response = perform("10.0.0.1", null);
+
+		assertThat(response.getStatus()).isEqualTo(429);
+		assertThat(response.getHeader(RateLimitFilter.REMAINING)).isEqualTo("0");
+		assertThat(response.getHeader("Retry-After")).isEqualTo("40");
+		assertThat(response.getContentAsString()).contains("Too many requests");
+		assertThat(subject.getLimited()).isEqualTo(1);
+		assertThat(perform("10.0.0.2", null).getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	public void clientsWithAKnownApiKeyShouldBeLimitedByTheKeyAndOthersByAddress() throws Exception {
+		assertThat(perform("10.0.0.1", "known-key").getStatus()).isEqualTo(200);
+		assertThat(perform("10.0.0.2", "known-key").getStatus()).isEqualTo(429);
+		assertThat(perform("10.0.0.1", "unknown-key").getStatus()).isEqualTo(200);
+		assertThat(perform("10.0.0.1", "another-unknown-key").getStatus()).isEqualTo(429);
+	}
+}
@@ -0,0 +1,103 @@
+package se.phooey.raining.web.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import reactor.core.publisher.Mono;
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReactiveWeatherProvider;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.exception.RainReportException;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.reactive.RainReportHandler
+ */
+public class RainReportHandlerTest {
+
+	@Mock
+	private ReactiveWeatherProvider mockWeatherProvider;
+
+	private WebTestClient client;
+	private RainReport report;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		RainReportHandler subject = new RainReportHandler(mockWeatherProvider, CoordinatePrecision.ofDegrees(0.001));
+		client = WebTestClient
+				.bindToRouterFunction(RouterFunctions.route().GET("/isitraining", subject::isItRaining).build())
+				.build();
+		report = new RainReport(50.123, 10.123, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+				Precipitation.RAIN.toString());
+		report.setDailyForecast(Collections.emptyList());
+	}
+
+	@Test
+	public void whenRequestingARainReport_itShouldReturnTheSummaryForTheBucketedCoordinates() {
+		given(mockWeatherProvider.isItRainingAtCoordinates(50.123, 10.123, ReportSection.DEFAULT))
+				.willReturn(Mono.just(report));
+
+		client.get().uri("/isitraining?latitude=50.12345&longitude=10.12345").exchange().expectStatus().isOk()
+				.expectHeader().contentType(MediaType.APPLICATION_JSON).expectBody()
+				.jsonPath("$.latitude").isEqualTo(50.123)
+				.jsonPath("$.currentPrecipitation").isEqualTo(Precipitation.RAIN.toString())
+				.jsonPath("$.chanceOfPrecipitationToday").isEqualTo(0.9)
+				.jsonPath("$.dailyForecast").doesNotExist();
+	}
+
+	@Test
+	public void whenRequestingFields_itShouldOnlyRequestAndReturnThoseFields() {
+		given(mockWeatherProvider.isItRainingAtCoordinates(50.123, 10.123, EnumSet.of(ReportSection.CURRENTLY)))
+				.willReturn(Mono.just(report));
+
+		client.get().uri("/isitraining?latitude=50.123&longitude=10.123&fields=currentPrecipitation,latitude")
+				.exchange().expectStatus().isOk().expectBody().jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$.currentPrecipitation").isEqualTo(Precipitation.RAIN.toString())
+				.jsonPath("$.latitude").isEqualTo(50.123);
+	}
+
+	@Test
+	public void whenACoordinateIsMissingOrInvalid_itShouldReturnBadRequest() {
+		client.get().uri("/isitraining?latitude=50.123").exchange().expectStatus().isBadRequest();
+		client.get().uri("/isitraining?latitude=north&longitude=10.123").exchange().expectStatus().isBadRequest();
+		then(mockWeatherProvider).shouldHaveNoInteractions();
+	}
+
+	@Test
+	public void whenGivingCoordinatesOutOfRange_itShouldReturnBadRequestWithTheReason() {
+		String body = client.get().uri("/isitraining?latitude=95&longitude=195").exchange().expectStatus()
+				.isBadRequest().expectBody(String.class).returnResult().getResponseBody();
+
+		assertThat(body).contains("-90 <= latitude <= 90");
+	}
+
+	@Test
+	public void whenRequestingAnUnknownField_itShouldReturnBadRequest() {
+		client.get().uri("/isitraining?latitude=50.123&longitude=10.123&fields=umbrella").exchange()
+				.expectStatus().isBadRequest();
+		then(mockWeatherProvider).shouldHaveNoInteractions();
+	}
+
+	@Test
+	public void whenTheReportCanNotBeGenerated_itShouldReturnInternalServerError() {
+		given(mockWeatherProvider.isItRainingAtCoordinates(50.123, 10.123, ReportSection.DEFAULT))
+				.willReturn(Mono.error(new RainReportException("Could not generate a RainReport")));
+
+		client.get().uri("/isitraining?latitude=50.123&longitude=10.123").exchange().expectStatus()
+				.is5xxServerError().expectBody(String.class).isEqualTo("Could not generate a RainReport");
+	}
+}
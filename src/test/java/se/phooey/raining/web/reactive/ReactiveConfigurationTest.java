@@ -0,0 +1,93 @@
+package se.phooey.raining.web.reactive;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+import java.time.Instant;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import reactor.core.publisher.Mono;
+import se.phooey.raining.weather.CoordinatePrecision;
+import se.phooey.raining.weather.Precipitation;
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.ReactiveDarkSkyWeatherProvider;
+import se.phooey.raining.weather.ReactiveWeatherProvider;
+import se.phooey.raining.weather.ReportSection;
+import se.phooey.raining.weather.cache.CachingWeatherProvider;
+import se.phooey.raining.weather.gridded.GriddedWeatherProvider;
+import se.phooey.raining.weather.history.RainHistoryStore;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.reactive.ReactiveConfiguration
+ */
+public class ReactiveConfigurationTest {
+
+	@Mock
+	private CachingWeatherProvider mockCachingWeatherProvider;
+	@Mock
+	private ReactiveDarkSkyWeatherProvider mockDarkSky;
+	@Mock
+	private ObjectProvider<GriddedWeatherProvider> mockGriddedProvider;
+	@Mock
+	private GriddedWeatherProvider mockGridded;
+	@Mock
+	private RainHistoryStore mockStore;
+	@Mock
+	private Clock mockClock;
+
+	private RainReport report;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		when(mockClock.instant()).thenReturn(Instant.ofEpochSecond(1_600_000_000L));
+		report = new RainReport(50.123, 10.123, Precipitation.RAIN.toString(), 0.8, 1.2, 0.9,
+				Precipitation.RAIN.toString());
+		// Passes uncached requests on to the upstream, like a cache always missing
+		given(mockCachingWeatherProvider.isItRainingAtCoordinates(anyDouble(), anyDouble(), any(), any()))
+				.willAnswer(invocation -> invocation.<ReactiveWeatherProvider>getArgument(3)
+						.isItRainingAtCoordinates(invocation.getArgument(0), invocation.getArgument(1),
+								invocation.getArgument(2)));
+	}
+
+	@Test
+	public void whenAGriddedForecastIsConfigured_uncachedReportsShouldBeAnsweredFromIt() throws Exception {
+		given(mockGriddedProvider.getIfAvailable()).willReturn(mockGridded);
+		given(mockGridded.isItRainingAtCoordinates(50.123, 10.123, ReportSection.DEFAULT)).willReturn(report);
+		ReactiveConfiguration configuration = new ReactiveConfiguration();
+		RainReportHandler handler = configuration.rainReportHandler(mockCachingWeatherProvider, mockDarkSky,
+				mockGriddedProvider, mockStore, CoordinatePrecision.ofDegrees(0.001), mockClock);
+
+		WebTestClient.bindToRouterFunction(configuration.rainReportRoutes(handler)).build().get()
+				.uri("/isitraining?latitude=50.123&longitude=10.123").exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$.currentProbability").isEqualTo(0.8);
+
+		then(mockDarkSky).shouldHaveNoInteractions();
+		then(mockStore).should().append(any(Long.class), any());
+	}
+
+	@Test
+	public void whenNoGriddedForecastIsConfigured_uncachedReportsShouldBeRequestedFromDarkSky() {
+		ReactiveConfiguration configuration = new ReactiveConfiguration();
+		RainReportHandler handler = configuration.rainReportHandler(mockCachingWeatherProvider, mockDarkSky,
+				mockGriddedProvider, mockStore, CoordinatePrecision.ofDegrees(0.001), mockClock);
+		given(mockDarkSky.isItRainingAtCoordinates(50.123, 10.123, ReportSection.DEFAULT))
+				.willReturn(Mono.just(report));
+
+		WebTestClient.bindToRouterFunction(configuration.rainReportRoutes(handler)).build().get()
+				.uri("/isitraining?latitude=50.123&longitude=10.123").exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$.currentProbability").isEqualTo(0.8);
+
+		then(mockGridded).shouldHaveNoInteractions();
+	}
+}
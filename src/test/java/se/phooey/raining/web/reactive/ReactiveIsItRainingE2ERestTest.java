@@ -0,0 +1,50 @@
+package se.phooey.raining.web.reactive;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import se.phooey.raining.ReactiveIsItRainingApplication;
+import se.phooey.raining.utils.TestUtils;
+import se.phooey.raining.weather.Precipitation;
+
+/**
+ * End-To-End test making sure a real HTTP GET request to the route
+ * "/isitraining" is served as expected in the reactive serving mode, with the
+ * report requested from the stubbed Dark Sky API by the non-blocking client.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ReactiveIsItRainingApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "spring.main.web-application-type=reactive")
+public class ReactiveIsItRainingE2ERestTest {
+
+	@Autowired
+	private WebTestClient client;
+
+	@Rule
+	public WireMockRule wireMockRule = new WireMockRule(8089);
+
+	@Test
+	public void getIsItRainingShouldReturnDummyRainReport() throws Exception {
+		TestUtils.stubResponseForDarkSkyApiRequest("/dummyapikey/13.37,90.01", wireMockRule,
+				"classpath:dummy_darksky_response.json");
+
+		client.get().uri("/isitraining?latitude=13.37&longitude=90.01").exchange()
+		.expectStatus().isOk()
+		.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+		.expectBody()
+		.jsonPath("$.latitude").isEqualTo(13.37)
+		.jsonPath("$.longitude").isEqualTo(90.01)
+		.jsonPath("$.currentPrecipitation").isEqualTo(Precipitation.RAIN.toString())
+		.jsonPath("$.currentProbability").isEqualTo(0.01)
+		.jsonPath("$.chanceOfPrecipitationToday").isEqualTo(1.0)
+		.jsonPath("$.typeOfPrecipitationToday").isEqualTo(Precipitation.RAIN.toString());
+	}
+}
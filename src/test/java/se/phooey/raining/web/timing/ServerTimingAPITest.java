@@ -0,0 +1,58 @@
+package se.phooey.raining.web.timing;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import se.phooey.raining.weather.RainReport;
+import se.phooey.raining.weather.WeatherProvider;
+
+/**
+ * API tests using Spring's MockMvc to make sure the phases of each request are
+ * reported in the Server-Timing header, and that slow requests are traced
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "isitraining.timing.slow-threshold-millis=0")
+@AutoConfigureMockMvc
+public class ServerTimingAPITest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private WeatherProvider weatherProviderMock;
+
+	@Test
+	public void whenARainReportIsRequested_shouldRespondWithTheServerTimingAndTraceIt() throws Exception {
+		given(weatherProviderMock.isItRainingAtCoordinates(59.33, 18.07)).willReturn(new RainReport());
+
+		this.mockMvc.perform(get("/isitraining?latitude=59.33&longitude=18.07")).andExpect(status().isOk())
+				.andExpect(header().string(ServerTimingAdvice.SERVER_TIMING, startsWith("validate;dur=")));
+
+		this.mockMvc.perform(get("/actuator/slowrequests")).andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].path").value("/isitraining"))
+				.andExpect(jsonPath("$[0].query").doesNotExist())
+				.andExpect(jsonPath("$[0].status").value(200))
+				.andExpect(jsonPath("$[0].phaseMicros.validate").isNumber())
+				.andExpect(jsonPath("$[0].phaseMicros.serialize").isNumber());
+	}
+
+	@Test
+	public void whenARequestIsInvalid_shouldRespondWithTheServerTiming() throws Exception {
+		this.mockMvc.perform(get("/isitraining").param("latitude", "91").param("longitude", "18.07"))
+				.andExpect(status().isBadRequest())
+				.andExpect(header().string(ServerTimingAdvice.SERVER_TIMING, startsWith("total;dur=")));
+	}
+}
@@ -0,0 +1,88 @@
+package se.phooey.raining.web.timing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Clock;
+
+import javax.servlet.ServletException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import se.phooey.raining.timing.Phase;
+import se.phooey.raining.timing.RequestTiming;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.timing.ServerTimingFilter
+ */
+public class ServerTimingFilterTest {
+
+	private static final long NOW = 1_600_000_000_000L;
+
+	@Mock
+	private Clock mockClock;
+
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+
+	@Before
+	public void setUp() {
+		initMocks(this);
+		given(mockClock.millis()).willReturn(NOW);
+		request = new MockHttpServletRequest("GET", "/isitraining");
+		request.setQueryString("latitude=1&longitude=2");
+		response = new MockHttpServletResponse();
+	}
+
+	@Test
+	public void whenARequestIsSlow_itsPhasesShouldBeTraced() throws Exception {
+		SlowRequestLog log = new SlowRequestLog(4, 0, 1.0);
+		ServerTimingFilter subject = new ServerTimingFilter(log, mockClock);
+
+		subject.doFilter(request, response, (req, res) -> {
+			RequestTiming.record(Phase.UPSTREAM, System.nanoTime() - 2_000_000);
+			RequestTiming.current().startResponse();
+			((MockHttpServletResponse) res).setStatus(201);
+		});
+
+		assertThat(RequestTiming.current()).isNull();
+		RequestTrace trace = log.recent().get(0);
+		assertThat(trace.getTimestamp()).isEqualTo(NOW);
+		assertThat(trace.getMethod()).isEqualTo("GET");
+		assertThat(trace.getPath()).isEqualTo("/isitraining");
+		assertThat(trace.getStatus()).isEqualTo(201);
+		assertThat(trace.getPhaseMicros()).containsOnlyKeys("upstream", "serialize");
+		assertThat(trace.getPhaseMicros().get("upstream")).isGreaterThanOrEqualTo(2000);
+		assertThat(trace.getDurationMicros()).isGreaterThanOrEqualTo(trace.getPhaseMicros().get("serialize"));
+	}
+
+	@Test
+	public void whenARequestIsNotSlow_itShouldNotBeTraced() throws Exception {
+		SlowRequestLog log = new SlowRequestLog(4, 60_000, 1.0);
+		ServerTimingFilter subject = new ServerTimingFilter(log, mockClock);
+
+		subject.doFilter(request, response, (req, res) -> {
+		});
+
+		assertThat(log.recent()).isEmpty();
+	}
+
+	@Test
+	public void whenARequestFails_itShouldBeTracedAsAServerError() {
+		SlowRequestLog log = new SlowRequestLog(4, 0, 1.0);
+		ServerTimingFilter subject = new ServerTimingFilter(log, mockClock);
+
+		assertThatThrownBy(() -> subject.doFilter(request, response, (req, res) -> {
+			throw new ServletException("Failed");
+		})).isInstanceOf(ServletException.class);
+
+		assertThat(RequestTiming.current()).isNull();
+		assertThat(log.recent().get(0).getStatus()).isEqualTo(500);
+	}
+}
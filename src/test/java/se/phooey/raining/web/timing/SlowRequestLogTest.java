@@ -0,0 +1,61 @@
+package se.phooey.raining.web.timing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for @see se.phooey.raining.web.timing.SlowRequestLog
+ */
+public class SlowRequestLogTest {
+
+	private static RequestTrace trace(String path) {
+		return new RequestTrace(0, "GET", path, 200, 2_000_000, Collections.emptyMap());
+	}
+
+	@Test
+	public void onlySlowRequestsShouldBeTraced() {
+		SlowRequestLog subject = new SlowRequestLog(2, 1000, 1.0);
+
+		assertThat(subject.shouldTrace(999_999_999L)).isFalse();
+		assertThat(subject.shouldTrace(1_000_000_000L)).isTrue();
+	}
+
+	@Test
+	public void onlyTheSampledFractionOfSlowRequestsShouldBeTraced() {
+		SlowRequestLog none = new SlowRequestLog(2, 0, 0.0);
+		SlowRequestLog half = new SlowRequestLog(2, 0, 0.5);
+		int traced = 0;
+
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(none.shouldTrace(1)).isFalse();
+			traced += half.shouldTrace(1) ? 1 : 0;
+		}
+
+		assertThat(traced).isBetween(4000, 6000);
+	}
+
+	@Test
+	public void whenTheLogIsFull_theOldestTraceShouldBeOverwritten() {
+		SlowRequestLog subject = new SlowRequestLog(2, 1000, 1.0);
+		assertThat(subject.recent()).isEmpty();
+
+		subject.add(trace("/first"));
+		assertThat(subject.recent()).extracting(RequestTrace::getPath).containsExactly("/first");
+		subject.add(trace("/second"));
+		subject.add(trace("/third"));
+
+		assertThat(subject.recent()).extracting(RequestTrace::getPath).containsExactly("/third", "/second");
+		assertThat(subject.getTraced()).isEqualTo(3);
+	}
+
+	@Test
+	public void whenTheCapacityOrSampleRateIsInvalid_itShouldThrowAnIllegalArgumentException() {
+		assertThatThrownBy(() -> new SlowRequestLog(0, 1000, 1.0)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new SlowRequestLog(2, 1000, -0.1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new SlowRequestLog(2, 1000, 1.1)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,37 @@
+package se.phooey.raining.web.timing;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * End-To-End test making sure the traces of slow requests are only served by
+ * the actuator endpoint on the management port, not on the port of the API
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "management.server.port=0")
+public class SlowRequestsEndpointE2ERestTest {
+
+	@LocalServerPort
+	private int port;
+
+	@LocalManagementPort
+	private int managementPort;
+
+	@Test
+	public void theSlowRequestsShouldOnlyBeServedOnTheManagementPort() {
+		given().when().get(String.format("http://localhost:%s/actuator/slowrequests", managementPort)).then()
+				.statusCode(equalTo(200));
+
+		given().when().get(String.format("http://localhost:%s/actuator/slowrequests", port)).then()
+				.statusCode(equalTo(404));
+		given().when().get(String.format("http://localhost:%s/admin/slow-requests", port)).then()
+				.statusCode(equalTo(404));
+	}
+}
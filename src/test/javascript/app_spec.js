@@ -317,6 +317,54 @@ describe("The app.js function", function() {
 
   });
 
+  describe("retrieveRainReportForClientAddress", function() {
+
+    var xhr;
+
+    beforeEach(function() {
+      xhr = {
+          open: jasmine.createSpy('open'),
+          send: jasmine.createSpy('send'),
+          addEventListener: jasmine.createSpy('addEventListener'),
+          get status() {}
+      };
+      window.XMLHttpRequest = jasmine.createSpy('XMLHttpRequest').and.callFake(function () {
+          return xhr;
+      });
+    });
+
+    it("should initialize an XMLHttpRequest of type 'GET' to the backend for the client address and send it", function () {
+      // Given
+
+      // When
+      retrieveRainReportForClientAddress("Unknown location");
+
+      // Then
+      expect(xhr.open.calls.count()).toEqual(1);
+      expect(xhr.open.calls.argsFor(0)).toEqual(['GET', 'isitraining/here']);
+      expect(xhr.send.calls.count()).toEqual(1);
+    });
+
+    it("should show the provided message when the location of the client address is not found", function () {
+      // Given
+      spyOn(window, "showError").and.stub();
+
+      spyOnProperty(xhr, "status", "get").and.returnValue(404);
+      xhr.addEventListener.and.callFake(function(event) {
+        if (event === "load") {
+          arguments[1]();
+        }
+      });
+
+      // When
+      retrieveRainReportForClientAddress("Unknown location");
+
+      // Then
+      expect(window.showError.calls.count()).toEqual(1);
+      expect(window.showError.calls.argsFor(0)).toEqual(["Unknown location"]);
+    });
+  });
+
   describe("getLocation", function() {
     beforeAll(function () {
       // Override window.navigator.geolocation as it is not supported by PhantomJS
@@ -330,17 +378,17 @@ describe("The app.js function", function() {
 
     });
 
-    it("should call showError if 'navigator.geolocation' is not defined", function () {
+    it("should fall back to the client address if 'navigator.geolocation' is not defined", function () {
       // Given
       spyOnProperty(window.navigator, "geolocation", "get").and.returnValue(undefined);
-      spyOn(window, "showError").and.stub();
+      spyOn(window, "retrieveRainReportForClientAddress").and.stub();
 
       // When
       getLocation();
 
       // Then
-      expect(window.showError.calls.count()).toEqual(1);
-      expect(window.showError.calls.argsFor(0)).toEqual(["This page will not function without GeoLocation support."]);
+      expect(window.retrieveRainReportForClientAddress.calls.count()).toEqual(1);
+      expect(window.retrieveRainReportForClientAddress.calls.argsFor(0)).toEqual(["This page will not function without GeoLocation support."]);
     });
 
     it("should register retrieveRainReport as callback for getCurrentPosition", function () {
@@ -355,19 +403,19 @@ describe("The app.js function", function() {
       expect(navigator.geolocation.getCurrentPosition.calls.argsFor(0)[0]).toEqual(window.retrieveRainReport);
     });
 
-    it("should call showError if the error callback registered for getCurrentPosition is called", function () {
+    it("should fall back to the client address if the error callback registered for getCurrentPosition is called", function () {
       // Given
       spyOn(navigator.geolocation, "getCurrentPosition").and.callFake(function() {
         arguments[1]("error");
       });
-      spyOn(window, "showError").and.stub();
+      spyOn(window, "retrieveRainReportForClientAddress").and.stub();
 
       // When
       getLocation();
 
       // Then
-      expect(window.showError.calls.count()).toEqual(1);
-      expect(window.showError.calls.argsFor(0)).toEqual(["You need to share your location for this page to work."]);
+      expect(window.retrieveRainReportForClientAddress.calls.count()).toEqual(1);
+      expect(window.retrieveRainReportForClientAddress.calls.argsFor(0)).toEqual(["You need to share your location for this page to work."]);
     });
   });
 });
\ No newline at end of file